@@ -0,0 +1,14 @@
+package com.project.medinova.config;
+
+import java.security.Principal;
+
+/**
+ * Principal của request đã xác thực, dựng từ claims của JWT (không truy vấn database)
+ */
+public record AuthenticatedUser(Long userId, String email, String role) implements Principal {
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
@@ -1,5 +1,8 @@
 package com.project.medinova.config;
 
+import com.project.medinova.entity.User;
+import com.project.medinova.service.UserSnapshotCache;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -8,14 +11,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
@@ -24,7 +27,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private JwtTokenProvider tokenProvider;
 
     @Autowired
-    private UserDetailsService userDetailsService;
+    private UserSnapshotCache userSnapshotCache;
 
     @Autowired
     @Lazy
@@ -48,36 +51,37 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt) && !authService.isTokenBlacklisted(jwt)) {
-                String username = tokenProvider.getUsernameFromToken(jwt);
-                Long userId = tokenProvider.getUserIdFromToken(jwt);
-                String role = tokenProvider.getRoleFromToken(jwt);
-
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                
-                // Tạo custom authentication với userId và role trong details
-                UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                        userDetails, null, userDetails.getAuthorities());
-                
-                // Lưu userId và role vào authentication details để có thể lấy sau
-                java.util.Map<String, Object> details = new java.util.HashMap<>();
-                if (userId != null) {
-                    details.put("userId", userId);
-                }
-                if (role != null) {
-                    details.put("role", role);
+            // Xác thực chữ ký một lần rồi đọc mọi claim từ kết quả
+            JwtClaims claims = StringUtils.hasText(jwt) ? tokenProvider.parseToken(jwt) : null;
+
+            if (claims != null && claims.userId() != null && !authService.isTokenRevoked(claims)) {
+                // Principal dựng từ claims; snapshot user (cache, không truy vấn database mỗi request) chỉ dùng để
+                // từ chối token của user đã bị xoá, bị khoá hoặc đã đổi email/role sau khi token được cấp
+                User user = userSnapshotCache.get(claims.userId());
+                if (user != null && isActive(user) && user.getEmail().equals(claims.username())
+                        && user.getRole().equals(claims.role())) {
+                    AuthenticatedUser principal = new AuthenticatedUser(claims.userId(), claims.username(), claims.role());
+                    UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                            principal, null, List.of(new SimpleGrantedAuthority("ROLE_" + claims.role())));
+
+                    // Lưu userId và role vào authentication details để có thể lấy sau
+                    java.util.Map<String, Object> details = new java.util.HashMap<>();
+                    details.put("userId", claims.userId());
+                    details.put("role", claims.role());
+
+                    // Giữ lại thông tin WebAuthenticationDetails cơ bản
+                    org.springframework.security.web.authentication.WebAuthenticationDetails webDetails =
+                            new WebAuthenticationDetailsSource().buildDetails(request);
+                    details.put("remoteAddress", webDetails.getRemoteAddress());
+                    details.put("sessionId", webDetails.getSessionId());
+
+                    authentication.setDetails(details);
+
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
                 }
-                
-                // Giữ lại thông tin WebAuthenticationDetails cơ bản
-                org.springframework.security.web.authentication.WebAuthenticationDetails webDetails = 
-                        new WebAuthenticationDetailsSource().buildDetails(request);
-                details.put("remoteAddress", webDetails.getRemoteAddress());
-                details.put("sessionId", webDetails.getSessionId());
-                
-                authentication.setDetails(details);
-
-                SecurityContextHolder.getContext().setAuthentication(authentication);
             }
+        } catch (JwtException ex) {
+            logger.debug("Rejected JWT: " + ex.getMessage());
         } catch (Exception ex) {
             logger.error("Could not set user authentication in security context", ex);
         }
@@ -85,6 +89,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    // Giống CustomUserDetailsService: status null được coi là đang hoạt động
+    private static boolean isActive(User user) {
+        return user.getStatus() == null || "ACTIVE".equals(user.getStatus());
+    }
+
     private String getJwtFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
@@ -0,0 +1,15 @@
+package com.project.medinova.config;
+
+import java.util.Date;
+
+/**
+ * Claims của một JWT đã được kiểm tra chữ ký, đọc một lần cho mỗi request.
+ * tokenId là claim jti (token cũ không có jti thì dùng SHA-256 của token), dùng để thu hồi token.
+ * familyId là họ refresh token mà access token được cấp cùng (null với token cũ)
+ */
+public record JwtClaims(String tokenId, String familyId, String username, Long userId, String role, Date expiration) {
+
+    public boolean isExpired() {
+        return expiration != null && expiration.before(new Date());
+    }
+}
@@ -1,17 +1,25 @@
 package com.project.medinova.config;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Component
@@ -20,11 +28,32 @@ public class JwtTokenProvider {
     @Value("${jwt.secret:your-256-bit-secret-key-for-jwt-token-generation-minimum-32-characters}")
     private String jwtSecret;
 
-    @Value("${jwt.expiration:86400000}") // 24 hours default
+    @Value("${jwt.expiration:900000}") // Access token: 15 minutes default
     private long jwtExpirationInMs;
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+    // Số token đã xác thực được nhớ lại (0 = tắt cache)
+    @Value("${jwt.verified-cache-size:10000}")
+    private int verifiedCacheSize;
+
+    // Key và parser được tạo một lần; JwtParser bất biến nên dùng chung giữa các thread
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    // LRU: SHA-256 của token -> claims đã xác thực. Không giữ chính token trong bộ nhớ
+    private Map<String, JwtClaims> verifiedTokens;
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+        verifiedTokens = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, JwtClaims> eldest) {
+                return size() > verifiedCacheSize;
+            }
+        });
     }
 
     public String generateToken(UserDetails userDetails) {
@@ -44,39 +73,76 @@ public class JwtTokenProvider {
         return createToken(claims, username);
     }
 
+    /**
+     * Access token gắn với họ refresh token familyId (claim "fam"): thu hồi họ token thì access token cũng mất hiệu lực
+     */
+    public String generateToken(String username, Long userId, String role, String familyId) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("userId", userId);
+        claims.put("role", role);
+        claims.put("fam", familyId);
+        return createToken(claims, username);
+    }
+
+    public long getExpirationInMs() {
+        return jwtExpirationInMs;
+    }
+
     private String createToken(Map<String, Object> claims, String subject) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpirationInMs);
 
         return Jwts.builder()
                 .claims(claims)
+                .id(UUID.randomUUID().toString())
                 .subject(subject)
                 .issuedAt(now)
                 .expiration(expiryDate)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
+    /**
+     * Kiểm tra chữ ký và hạn dùng của token một lần rồi trả về các claims.
+     * Token đã xác thực gần đây được lấy lại từ cache cho đến khi hết hạn.
+     * Ném JwtException (ví dụ ExpiredJwtException, SignatureException) nếu token không hợp lệ
+     */
+    public JwtClaims parseToken(String token) {
+        String key = verifiedCacheSize > 0 ? hash(token) : null;
+        if (key != null) {
+            JwtClaims cached = verifiedTokens.get(key);
+            if (cached != null) {
+                if (!cached.isExpired()) {
+                    return cached;
+                }
+                verifiedTokens.remove(key);
+            }
+        }
+
+        Claims claims = getAllClaimsFromToken(token);
+        String tokenId = claims.getId() != null ? claims.getId() : (key != null ? key : hash(token));
+        JwtClaims verified = new JwtClaims(tokenId, (String) claims.get("fam"), claims.getSubject(),
+                toUserId(claims.get("userId")), (String) claims.get("role"), claims.getExpiration());
+        if (key != null) {
+            verifiedTokens.put(key, verified);
+        }
+        return verified;
+    }
+
     public String getUsernameFromToken(String token) {
-        return getClaimFromToken(token, Claims::getSubject);
+        return parseToken(token).username();
     }
 
     public Long getUserIdFromToken(String token) {
-        Claims claims = getAllClaimsFromToken(token);
-        Object userId = claims.get("userId");
-        if (userId instanceof Integer) {
-            return ((Integer) userId).longValue();
-        }
-        return userId != null ? ((Number) userId).longValue() : null;
+        return parseToken(token).userId();
     }
 
     public String getRoleFromToken(String token) {
-        Claims claims = getAllClaimsFromToken(token);
-        return (String) claims.get("role");
+        return parseToken(token).role();
     }
 
     public Date getExpirationDateFromToken(String token) {
-        return getClaimFromToken(token, Claims::getExpiration);
+        return parseToken(token).expiration();
     }
 
     public <T> T getClaimFromToken(String token, Function<Claims, T> claimsResolver) {
@@ -85,25 +151,31 @@ public class JwtTokenProvider {
     }
 
     private Claims getAllClaimsFromToken(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return parser.parseSignedClaims(token).getPayload();
     }
 
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = getUsernameFromToken(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        JwtClaims claims = parseToken(token);
+        return (claims.username().equals(userDetails.getUsername()) && !claims.isExpired());
     }
 
     public Boolean validateToken(String token) {
-        return !isTokenExpired(token);
+        return !parseToken(token).isExpired();
+    }
+
+    private static Long toUserId(Object userId) {
+        if (userId instanceof Integer) {
+            return ((Integer) userId).longValue();
+        }
+        return userId != null ? ((Number) userId).longValue() : null;
     }
 
-    private Boolean isTokenExpired(String token) {
-        final Date expiration = getExpirationDateFromToken(token);
-        return expiration.before(new Date());
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
     }
 }
-
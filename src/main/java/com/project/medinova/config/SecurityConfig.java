@@ -1,6 +1,7 @@
 package com.project.medinova.config;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
@@ -30,9 +31,10 @@ public class SecurityConfig {
     @Lazy
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
+    // Cost factor chỉ áp dụng cho hash mới; hash cũ vẫn so khớp theo cost lưu trong hash
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${auth.password.bcrypt-strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
     }
 
     @Bean
@@ -51,6 +53,8 @@ public class SecurityConfig {
                         .requestMatchers("/api/public/**").permitAll()
                         .requestMatchers("/api/doctors/search").permitAll()
                         .requestMatchers("/api/appointments/doctors/*/busy-schedules").permitAll()
+                        .requestMatchers("/api/appointments/doctors/*/free-slots").permitAll()
+                        .requestMatchers("/api/appointments/doctors/available").permitAll()
                         .requestMatchers("/api/posts/published").permitAll()
                         .requestMatchers("/api/posts/{id}").permitAll()
                         .requestMatchers("/api/reviews/**").permitAll()
@@ -9,11 +9,13 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -147,6 +149,53 @@ public class AmbulanceController {
         return ResponseEntity.ok(response);
     }
 
+    @Operation(
+            summary = "Ingest ambulance GPS positions in bulk",
+            description = "Accept many (ambulanceId, lat, lng, recordedAt) positions in one call. Only the latest position per ambulance is kept; it is used for dispatch immediately and written to the database in periodic batches. Positions older than the latest known one, and positions of unknown ambulances, are ignored and counted in the response. At most 5000 positions per request."
+    )
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "200",
+                    description = "Positions ingested",
+                    content = @Content(schema = @Schema(implementation = BatchAmbulanceLocationResponse.class))
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Bad request - Validation error"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @PreAuthorize("hasAnyRole('ADMIN', 'DOCTOR')")
+    @PostMapping("/locations")
+    public ResponseEntity<BatchAmbulanceLocationResponse> ingestLocations(
+            @Valid @RequestBody BatchAmbulanceLocationRequest request) {
+        BatchAmbulanceLocationResponse response = ambulanceService.ingestLocations(request);
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(
+            summary = "Get ambulance location history",
+            description = "Recorded GPS positions of an ambulance between from and to (ISO date-time), oldest first. If there are more than maxPoints positions (default 5000, max 20000) they are evenly downsampled. Positions are stored as delta-encoded segments and kept for a limited retention period."
+    )
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "200",
+                    description = "Location history retrieved successfully",
+                    content = @Content(schema = @Schema(implementation = AmbulanceLocationHistoryResponse.class))
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Bad request - Invalid time range"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Ambulance not found")
+    })
+    @PreAuthorize("hasAnyRole('ADMIN', 'DOCTOR')")
+    @GetMapping("/{id}/history")
+    public ResponseEntity<AmbulanceLocationHistoryResponse> getLocationHistory(
+            @PathVariable Long id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "5000") int maxPoints) {
+        int boundedMaxPoints = Math.max(1, Math.min(maxPoints, 20000));
+        AmbulanceLocationHistoryResponse response = ambulanceService.getLocationHistory(id, from, to, boundedMaxPoints);
+        return ResponseEntity.ok(response);
+    }
+
     @Operation(
             summary = "Update ambulance status",
             description = "Update ambulance status (ADMIN only)"
@@ -1,13 +1,19 @@
 package com.project.medinova.controller;
 
+import com.project.medinova.dto.AppointmentCursorPage;
+import com.project.medinova.dto.AppointmentExpiryStatsResponse;
 import com.project.medinova.dto.AppointmentResponse;
+import com.project.medinova.dto.AvailableDoctorResponse;
 import com.project.medinova.dto.BusyScheduleResponse;
 import com.project.medinova.dto.ConfirmAppointmentRequest;
 import com.project.medinova.dto.CreateAppointmentRequest;
+import com.project.medinova.dto.DoctorFreeSlotsResponse;
 import com.project.medinova.dto.UpdateAppointmentStatusRequest;
 import com.project.medinova.dto.UpdateAppointmentStatusByDoctorRequest;
 import com.project.medinova.dto.UpdateAppointmentNotesRequest;
 import com.project.medinova.dto.RejectAppointmentRequest;
+import com.project.medinova.entity.Department;
+import com.project.medinova.service.AppointmentSchedulerService;
 import com.project.medinova.service.AppointmentService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -18,11 +24,14 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -34,6 +43,9 @@ public class AppointmentController {
     @Autowired
     private AppointmentService appointmentService;
 
+    @Autowired
+    private AppointmentSchedulerService appointmentSchedulerService;
+
     @Operation(
             summary = "Create appointment (Hold slot)",
             description = "Create a new appointment with a doctor. This will hold the slot for 5 minutes. Only patients can create appointments. The system will automatically create a doctor schedule with HOLD status (1-1 relationship) for this appointment. The slot will be automatically released after 5 minutes if not confirmed. The system will validate that the doctor is not on leave, there are no conflicting appointments, and the doctor works at the specified clinic. After creating, use PUT /api/appointments/{id}/confirm to confirm the appointment within 5 minutes."
@@ -118,6 +130,36 @@ public class AppointmentController {
         return ResponseEntity.ok(appointments);
     }
 
+    @Operation(
+            summary = "Get all appointments with cursor pagination (ADMIN only)",
+            description = "Same ordering as /all (future/current appointments ascending, then past appointments descending) but uses keyset pagination: pass the returned nextCursor to fetch the following page. Deep pages are as fast as the first one. Only ADMIN can access all appointments."
+    )
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "200", 
+                    description = "Appointments retrieved successfully",
+                    content = @io.swagger.v3.oas.annotations.media.Content(
+                            schema = @io.swagger.v3.oas.annotations.media.Schema(implementation = AppointmentCursorPage.class)
+                    )
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Bad request - Invalid cursor"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Forbidden - Only ADMIN can access all appointments")
+    })
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/all/cursor")
+    public ResponseEntity<AppointmentCursorPage> getAllAppointmentsByCursor(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false, defaultValue = "10") int size) {
+
+        // Validate page size
+        if (size < 1) size = 10;
+        if (size > 100) size = 100; // Limit max page size
+
+        return ResponseEntity.ok(appointmentService.getAllAppointmentsByCursor(status, cursor, size));
+    }
+
     @Operation(
             summary = "Get doctor appointments with paging",
             description = "Get all appointments for a specific doctor with pagination. Orders appointments: future/current appointments (>= now) first in ascending order, then past appointments (< now) in descending order. Can filter by status (PENDING, CONFIRMED, COMPLETED, CANCELLED). Returns paginated results with appointment details."
@@ -157,20 +199,83 @@ public class AppointmentController {
         return ResponseEntity.ok(appointments);
     }
 
+    @Operation(
+            summary = "Get HOLD release and PENDING expiry job metrics (ADMIN only)",
+            description = "Rows affected and time taken by the background jobs that release expired HOLD slots (every minute) and expire PENDING appointments past the timeout (every 10 minutes), since startup. Each job works in batches of at most batchSize rows, one transaction per batch."
+    )
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "200",
+                    description = "Job metrics retrieved successfully",
+                    content = @io.swagger.v3.oas.annotations.media.Content(
+                            schema = @io.swagger.v3.oas.annotations.media.Schema(implementation = AppointmentExpiryStatsResponse.class)
+                    )
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Forbidden - Only ADMIN can access")
+    })
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/expiry-stats")
+    public ResponseEntity<AppointmentExpiryStatsResponse> getExpiryStats() {
+        return ResponseEntity.ok(appointmentSchedulerService.getExpiryStats());
+    }
+
     @Operation(
             summary = "Get busy schedules for a doctor",
-            description = "Get all busy schedules for a doctor, including appointments, HOLD slots (temporarily locked slots), and approved leave requests. HOLD slots are slots that are being held for 5 minutes and will be automatically released if not confirmed. This endpoint is public and can be used to check doctor availability."
+            description = "Get the busy schedules of a doctor between from and to (inclusive, yyyy-MM-dd), including appointments, HOLD slots (temporarily locked slots), and approved leave requests overlapping the range. Defaults to the 30 days starting today; the range may span at most 90 days. HOLD slots are slots that are being held for 5 minutes and will be automatically released if not confirmed. Results may be cached for a few seconds. This endpoint is public and can be used to check doctor availability."
     )
     @ApiResponses(value = {
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Busy schedules retrieved successfully"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Invalid date range"),
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Doctor not found")
     })
     @GetMapping("/doctors/{doctorId}/busy-schedules")
-    public ResponseEntity<List<BusyScheduleResponse>> getBusySchedules(@PathVariable Long doctorId) {
-        List<BusyScheduleResponse> busySchedules = appointmentService.getBusySchedules(doctorId);
+    public ResponseEntity<List<BusyScheduleResponse>> getBusySchedules(
+            @PathVariable Long doctorId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        List<BusyScheduleResponse> busySchedules = appointmentService.getBusySchedules(doctorId, from, to);
         return ResponseEntity.ok(busySchedules);
     }
 
+    @Operation(
+            summary = "Get free slots for a doctor",
+            description = "Get the free appointment slots of a doctor for the next days (default 7, at most the availability horizon). Slots have a fixed length (slotMinutes) and come from the doctor's working hours and working days, minus approved leave and booked or held slots. Slots that already started today are not returned. This endpoint is public."
+    )
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "200",
+                    description = "Free slots retrieved successfully",
+                    content = @io.swagger.v3.oas.annotations.media.Content(
+                            schema = @io.swagger.v3.oas.annotations.media.Schema(implementation = DoctorFreeSlotsResponse.class)
+                    )
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Doctor not found")
+    })
+    @GetMapping("/doctors/{doctorId}/free-slots")
+    public ResponseEntity<DoctorFreeSlotsResponse> getFreeSlots(
+            @PathVariable Long doctorId,
+            @RequestParam(required = false, defaultValue = "7") int days) {
+        return ResponseEntity.ok(appointmentService.getFreeSlots(doctorId, days));
+    }
+
+    @Operation(
+            summary = "Find free doctors of a department",
+            description = "Get the approved doctors of a department (optionally of one clinic) who are free for the whole period [time, time + durationMinutes). Duration defaults to 60 minutes. Times in the past or beyond the availability horizon return an empty list. This endpoint is public."
+    )
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Free doctors retrieved successfully"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Bad request - Invalid department, time or duration")
+    })
+    @GetMapping("/doctors/available")
+    public ResponseEntity<List<AvailableDoctorResponse>> getAvailableDoctors(
+            @RequestParam Department department,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime time,
+            @RequestParam(required = false) Integer durationMinutes,
+            @RequestParam(required = false) Long clinicId) {
+        return ResponseEntity.ok(appointmentService.getAvailableDoctors(department, clinicId, time, durationMinutes));
+    }
+
     @Operation(
             summary = "Update appointment status (Patient)",
             description = "Update the status of an appointment. Patients can only cancel their own appointments. The appointment must not be completed or already cancelled. When cancelled, the schedule slot will be made available again if the appointment time has not passed."
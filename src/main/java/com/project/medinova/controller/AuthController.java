@@ -2,6 +2,7 @@ package com.project.medinova.controller;
 
 import com.project.medinova.dto.AuthRequest;
 import com.project.medinova.dto.AuthResponse;
+import com.project.medinova.dto.RefreshTokenRequest;
 import com.project.medinova.dto.RegisterRequest;
 import com.project.medinova.service.AuthService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -30,11 +31,25 @@ public class AuthController {
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Login successful",
                     content = @Content(schema = @Schema(implementation = AuthResponse.class))),
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "Invalid credentials"),
-            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Validation error")
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Validation error"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "429", description = "Too many attempts for this email or IP, or server busy; retry after the Retry-After header (seconds)")
     })
     @PostMapping("/login")
-    public ResponseEntity<AuthResponse> login(@Valid @RequestBody AuthRequest authRequest) {
-        AuthResponse authResponse = authService.login(authRequest);
+    public ResponseEntity<AuthResponse> login(@Valid @RequestBody AuthRequest authRequest, HttpServletRequest request) {
+        AuthResponse authResponse = authService.login(authRequest, request.getRemoteAddr());
+        return ResponseEntity.ok(authResponse);
+    }
+
+    @Operation(summary = "Refresh tokens", description = "Exchange a refresh token for a new access token and refresh token. Each refresh token can be used once; reusing it revokes the whole session")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Tokens refreshed",
+                    content = @Content(schema = @Schema(implementation = AuthResponse.class))),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "Refresh token is invalid, expired, revoked or already used"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Validation error")
+    })
+    @PostMapping("/refresh")
+    public ResponseEntity<AuthResponse> refresh(@Valid @RequestBody RefreshTokenRequest refreshTokenRequest) {
+        AuthResponse authResponse = authService.refresh(refreshTokenRequest.getRefreshToken());
         return ResponseEntity.ok(authResponse);
     }
 
@@ -67,11 +82,12 @@ public class AuthController {
     @ApiResponses(value = {
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Registration successful",
                     content = @Content(schema = @Schema(implementation = AuthResponse.class))),
-            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Email already exists or validation error")
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Email already exists or validation error"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "429", description = "Too many attempts from this IP, or server busy; retry after the Retry-After header (seconds)")
     })
     @PostMapping("/register")
-    public ResponseEntity<AuthResponse> register(@Valid @RequestBody RegisterRequest registerRequest) {
-        AuthResponse authResponse = authService.register(registerRequest);
+    public ResponseEntity<AuthResponse> register(@Valid @RequestBody RegisterRequest registerRequest, HttpServletRequest request) {
+        AuthResponse authResponse = authService.register(registerRequest, request.getRemoteAddr());
         return ResponseEntity.status(HttpStatus.CREATED).body(authResponse);
     }
 
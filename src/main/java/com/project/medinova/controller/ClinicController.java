@@ -1,6 +1,7 @@
 package com.project.medinova.controller;
 
 import com.project.medinova.dto.CreateClinicRequest;
+import com.project.medinova.dto.NearbyClinicResponse;
 import com.project.medinova.dto.UpdateClinicRequest;
 import com.project.medinova.entity.Clinic;
 import com.project.medinova.service.ClinicService;
@@ -73,6 +74,28 @@ public class ClinicController {
         return ResponseEntity.ok(clinics);
     }
 
+    @Operation(
+            summary = "Get nearby emergency clinics",
+            description = "Get up to `limit` emergency-enabled clinics within `radiusKm` (greater than 0, at most 500) of a location, nearest first. Served from an in-memory spatial index."
+    )
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Nearby clinics retrieved successfully"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "radiusKm out of range"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @GetMapping("/nearby")
+    public ResponseEntity<List<NearbyClinicResponse>> getNearbyClinics(
+            @RequestParam double lat,
+            @RequestParam double lng,
+            @RequestParam(required = false, defaultValue = "5") int limit,
+            @RequestParam(required = false, defaultValue = "50") double radiusKm) {
+
+        if (limit < 1) limit = 5;
+        if (limit > 50) limit = 50; // Limit max result size
+
+        return ResponseEntity.ok(clinicService.getNearbyClinics(lat, lng, limit, radiusKm));
+    }
+
     @Operation(summary = "Update clinic", description = "Update clinic information (ADMIN only)")
     @ApiResponses(value = {
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Clinic updated successfully"),
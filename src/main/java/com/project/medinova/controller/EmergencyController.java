@@ -2,9 +2,12 @@ package com.project.medinova.controller;
 
 import com.project.medinova.dto.AssignEmergencyRequest;
 import com.project.medinova.dto.CreateEmergencyRequest;
+import com.project.medinova.dto.EmergencyDispatchStatusResponse;
+import com.project.medinova.dto.EmergencyQueueStatsResponse;
 import com.project.medinova.dto.EmergencyResponse;
 import com.project.medinova.dto.UpdateEmergencyStatusRequest;
 import com.project.medinova.service.EmergencyService;
+import com.project.medinova.service.LiveEventBroadcaster;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -13,9 +16,11 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -28,9 +33,12 @@ public class EmergencyController {
     @Autowired
     private EmergencyService emergencyService;
 
+    @Autowired
+    private LiveEventBroadcaster liveEvents;
+
     @Operation(
             summary = "Create emergency request",
-            description = "Create an emergency request. The system will automatically find the nearest available ambulance and assign a doctor. Uses Haversine formula to calculate distance. If clinicId is not provided (or 0), the system will automatically find the nearest clinic based on patient location. If no ambulance is available, the emergency will be created with PENDING status."
+            description = "Create an emergency request. The emergency is saved with PENDING status and returned immediately; the nearest available ambulance and a doctor are then assigned in the background, after which the status becomes DISPATCHED. Poll GET /api/emergencies/{id}/dispatch-status to follow progress. Uses Haversine formula to calculate distance. If clinicId is not provided (or 0), the system will automatically pick the nearest clinic based on patient location, moving on to the next nearest clinics (within 30 km) when the nearest one has no available ambulance. If no ambulance is available, the emergency stays PENDING."
     )
     @ApiResponses(value = {
             @io.swagger.v3.oas.annotations.responses.ApiResponse(
@@ -70,6 +78,64 @@ public class EmergencyController {
         return ResponseEntity.ok(response);
     }
 
+    @Operation(
+            summary = "Get emergency dispatch status",
+            description = "Lightweight status for polling after creating an emergency. dispatchState is QUEUED or MATCHING while the background dispatcher is working on it, WAITING_FOR_AMBULANCE when no ambulance could be assigned yet, and DISPATCHED once an ambulance has been assigned. Patients can only view their own emergencies."
+    )
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "200",
+                    description = "Dispatch status retrieved successfully",
+                    content = @Content(schema = @Schema(implementation = EmergencyDispatchStatusResponse.class))
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Forbidden - Cannot view other patients' emergencies"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Emergency not found")
+    })
+    @PreAuthorize("isAuthenticated()")
+    @GetMapping("/{id}/dispatch-status")
+    public ResponseEntity<EmergencyDispatchStatusResponse> getDispatchStatus(@PathVariable Long id) {
+        EmergencyDispatchStatusResponse response = emergencyService.getDispatchStatus(id);
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(
+            summary = "Get pending emergency queue metrics",
+            description = "Queue depth per clinic (by priority, with the age of the oldest waiting emergency) for emergencies still waiting for an ambulance, plus average/max time from creation to dispatch since startup. Waiting emergencies are re-dispatched automatically, CRITICAL > HIGH > MEDIUM > LOW then oldest first, whenever an ambulance of their clinic becomes AVAILABLE. Optionally filter by clinicId."
+    )
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "200",
+                    description = "Queue metrics retrieved successfully",
+                    content = @Content(schema = @Schema(implementation = EmergencyQueueStatsResponse.class))
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Forbidden - Only ADMIN and DOCTOR can access")
+    })
+    @PreAuthorize("hasAnyRole('ADMIN', 'DOCTOR')")
+    @GetMapping("/queue-stats")
+    public ResponseEntity<EmergencyQueueStatsResponse> getQueueStats(
+            @RequestParam(required = false) Long clinicId) {
+        EmergencyQueueStatsResponse response = emergencyService.getQueueStats(clinicId);
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(
+            summary = "Subscribe to live emergency and ambulance events (SSE)",
+            description = "Server-Sent Events stream of incremental changes, replacing polling of the list endpoints. Event names: EMERGENCY_CREATED, EMERGENCY_ASSIGNED (ambulance/doctor assigned), EMERGENCY_STATUS, AMBULANCE_STATUS (including REMOVED) and AMBULANCE_LOCATION. Pass clinicId to receive only one clinic's events. A heartbeat comment is sent every 20 seconds; the stream closes after 30 minutes or when the client falls too far behind, and clients should then reconnect and reload the lists."
+    )
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Event stream opened"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Too many subscribers"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Forbidden - Only ADMIN and DOCTOR can access")
+    })
+    @PreAuthorize("hasAnyRole('ADMIN', 'DOCTOR')")
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamLiveEvents(@RequestParam(required = false) Long clinicId) {
+        return liveEvents.subscribe(clinicId);
+    }
+
     @Operation(
             summary = "Get all emergencies of a specific doctor",
             description = "Get all emergency cases assigned to a specific doctor. Can filter by status (PENDING, DISPATCHED, IN_TRANSIT, COMPLETED, CANCELLED). Results are sorted by creation time (newest first)."
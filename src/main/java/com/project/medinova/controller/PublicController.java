@@ -1,14 +1,17 @@
 package com.project.medinova.controller;
 
 import com.project.medinova.dto.PublicStatsResponse;
-import com.project.medinova.service.PublicService;
+import com.project.medinova.service.PublicStatsSnapshot;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -18,23 +21,38 @@ import org.springframework.web.bind.annotation.*;
 public class PublicController {
 
     @Autowired
-    private PublicService publicService;
+    private PublicStatsSnapshot publicStatsSnapshot;
 
     @Operation(
             summary = "Get public stats",
-            description = "Get public statistics for homepage including featured doctors, clinics, and recent posts. This endpoint is public and does not require authentication."
+            description = "Get public statistics for homepage including featured doctors, clinics, and recent posts. This endpoint is public and does not require authentication. Served from a periodically rebuilt snapshot with ETag/Last-Modified; conditional requests return 304 when unchanged."
     )
     @ApiResponses(value = {
             @io.swagger.v3.oas.annotations.responses.ApiResponse(
                     responseCode = "200",
                     description = "Public stats retrieved successfully",
                     content = @Content(schema = @Schema(implementation = PublicStatsResponse.class))
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "304",
+                    description = "Public stats not modified since the given ETag/Last-Modified"
             )
     })
     @GetMapping("/stats")
-    public ResponseEntity<PublicStatsResponse> getPublicStats() {
-        PublicStatsResponse stats = publicService.getPublicStats();
-        return ResponseEntity.ok(stats);
+    public ResponseEntity<PublicStatsResponse> getPublicStats(WebRequest webRequest) {
+        PublicStatsSnapshot.Snapshot snapshot = publicStatsSnapshot.getCurrent();
+        long lastModified = snapshot.lastModified().toEpochMilli();
+        if (webRequest.checkNotModified(snapshot.etag(), lastModified)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(snapshot.etag())
+                    .lastModified(lastModified)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(snapshot.etag())
+                .lastModified(lastModified)
+                .cacheControl(CacheControl.noCache())
+                .body(snapshot.stats());
     }
 }
 
@@ -1,7 +1,9 @@
 package com.project.medinova.controller;
 
+import com.project.medinova.dto.LoginThrottleStatsResponse;
 import com.project.medinova.dto.UpdateUserRoleRequest;
 import com.project.medinova.entity.User;
+import com.project.medinova.service.AuthService;
 import com.project.medinova.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -28,6 +30,9 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private AuthService authService;
+
     @Operation(summary = "Get all users", description = "Get list of all users with optional pagination (ADMIN only)")
     @ApiResponses(value = {
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Users retrieved successfully"),
@@ -51,6 +56,25 @@ public class UserController {
         return ResponseEntity.ok(users);
     }
 
+    @Operation(
+            summary = "Get login throttling metrics (ADMIN only)",
+            description = "Password hashing pool metrics (hash latency, queue depth, requests rejected with 429) and the number of login/registration attempts rejected by the per-email/IP rate limiter, since startup."
+    )
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "200",
+                    description = "Metrics retrieved successfully",
+                    content = @Content(schema = @Schema(implementation = LoginThrottleStatsResponse.class))
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Forbidden - Only ADMIN can access")
+    })
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/login-stats")
+    public ResponseEntity<LoginThrottleStatsResponse> getLoginThrottleStats() {
+        return ResponseEntity.ok(authService.getLoginThrottleStats());
+    }
+
     @Operation(summary = "Get user by ID", description = "Get user information by ID (ADMIN only)")
     @ApiResponses(value = {
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "User retrieved successfully"),
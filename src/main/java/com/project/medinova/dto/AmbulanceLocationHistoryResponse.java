@@ -0,0 +1,34 @@
+package com.project.medinova.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Positions of an ambulance within a time range")
+public class AmbulanceLocationHistoryResponse {
+
+    @Schema(description = "Ambulance ID", example = "1")
+    private Long ambulanceId;
+
+    @Schema(description = "Start of the range")
+    private LocalDateTime from;
+
+    @Schema(description = "End of the range")
+    private LocalDateTime to;
+
+    @Schema(description = "Number of recorded positions in the range", example = "1440")
+    private Integer totalPoints;
+
+    @Schema(description = "True if the positions were evenly downsampled to maxPoints", example = "false")
+    private Boolean sampled;
+
+    @Schema(description = "Positions, oldest first")
+    private List<LocationPoint> points;
+}
@@ -0,0 +1,31 @@
+package com.project.medinova.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "A single GPS position reported by an ambulance")
+public class AmbulanceLocationPing {
+
+    @NotNull(message = "Ambulance ID is required")
+    @Schema(description = "Ambulance ID", example = "1")
+    private Long ambulanceId;
+
+    @NotNull(message = "Latitude is required")
+    @Schema(description = "Latitude", example = "10.762622")
+    private Double lat;
+
+    @NotNull(message = "Longitude is required")
+    @Schema(description = "Longitude", example = "106.660172")
+    private Double lng;
+
+    @Schema(description = "Time the position was recorded by the device (defaults to the time it is received)")
+    private LocalDateTime recordedAt;
+}
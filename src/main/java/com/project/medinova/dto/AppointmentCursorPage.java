@@ -0,0 +1,27 @@
+package com.project.medinova.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "One page of appointments using keyset (cursor) pagination")
+public class AppointmentCursorPage {
+
+    @Schema(description = "Appointments in this page")
+    private List<AppointmentResponse> content;
+
+    @Schema(description = "Requested page size", example = "20")
+    private Integer size;
+
+    @Schema(description = "True if more appointments follow this page", example = "true")
+    private Boolean hasNext;
+
+    @Schema(description = "Opaque cursor to pass as 'cursor' to fetch the next page; null on the last page")
+    private String nextCursor;
+}
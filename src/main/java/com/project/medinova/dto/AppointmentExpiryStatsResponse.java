@@ -0,0 +1,22 @@
+package com.project.medinova.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Metrics of the HOLD release and PENDING expiry jobs")
+public class AppointmentExpiryStatsResponse {
+
+    @Schema(description = "Maximum rows handled per batch (transaction)", example = "500")
+    private Integer batchSize;
+
+    @Schema(description = "Release of expired HOLD slots (runs every minute)")
+    private ExpiryJobStats holdRelease;
+
+    @Schema(description = "Expiry of PENDING appointments past the timeout (runs every 10 minutes)")
+    private ExpiryJobStats pendingExpiry;
+}
@@ -0,0 +1,15 @@
+package com.project.medinova.dto;
+
+/**
+ * Projection: số appointment của một bác sĩ theo status, kèm số appointment hôm nay và sắp tới
+ */
+public interface AppointmentStatusCountView {
+
+    String getStatus();
+
+    Long getTotal();
+
+    Long getToday();
+
+    Long getUpcoming();
+}
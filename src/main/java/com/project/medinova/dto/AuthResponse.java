@@ -10,6 +10,8 @@ import lombok.NoArgsConstructor;
 public class AuthResponse {
     private String token;
     private String tokenType = "Bearer";
+    private Long expiresIn; // Thời hạn của access token (giây)
+    private String refreshToken; // Dùng một lần với /api/auth/refresh để lấy cặp token mới
     private Long userId;
     private String email;
     private String fullName;
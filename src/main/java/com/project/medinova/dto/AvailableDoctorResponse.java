@@ -0,0 +1,31 @@
+package com.project.medinova.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Doctor who is free for the requested time")
+public class AvailableDoctorResponse {
+
+    @Schema(description = "Doctor ID", example = "1")
+    private Long doctorId;
+
+    @Schema(description = "Doctor name", example = "Nguyễn Văn A")
+    private String doctorName;
+
+    @Schema(description = "Department enum value", example = "CARDIOLOGY")
+    private String department;
+
+    @Schema(description = "Department display name", example = "Tim mạch")
+    private String departmentDisplayName;
+
+    @Schema(description = "Clinic ID", example = "1")
+    private Long clinicId;
+
+    @Schema(description = "Clinic name", example = "Bệnh viện Đa khoa")
+    private String clinicName;
+}
@@ -0,0 +1,24 @@
+package com.project.medinova.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Batch of GPS positions from one or more ambulances")
+public class BatchAmbulanceLocationRequest {
+
+    @NotEmpty(message = "Locations are required")
+    @Size(max = 5000, message = "At most 5000 locations per request")
+    @Valid
+    @Schema(description = "GPS positions, in any order; each ambulance's positions are applied oldest first")
+    private List<AmbulanceLocationPing> locations;
+}
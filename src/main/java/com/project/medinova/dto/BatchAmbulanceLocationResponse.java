@@ -0,0 +1,25 @@
+package com.project.medinova.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Result of a batch location ingest")
+public class BatchAmbulanceLocationResponse {
+
+    @Schema(description = "Positions received", example = "120")
+    private Integer received;
+
+    @Schema(description = "Positions accepted as the latest position of their ambulance", example = "118")
+    private Integer accepted;
+
+    @Schema(description = "Positions ignored because a newer position was already known", example = "1")
+    private Integer stale;
+
+    @Schema(description = "Positions ignored because the ambulance does not exist", example = "1")
+    private Integer unknownAmbulance;
+}
@@ -0,0 +1,27 @@
+package com.project.medinova.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Pending emergency queue of a clinic")
+public class ClinicQueueStats {
+
+    @Schema(description = "Clinic ID", example = "1")
+    private Long clinicId;
+
+    @Schema(description = "Number of emergencies waiting for an ambulance", example = "3")
+    private Integer queued;
+
+    @Schema(description = "Waiting emergencies by priority", example = "{\"CRITICAL\": 1, \"MEDIUM\": 2}")
+    private Map<String, Integer> queuedByPriority;
+
+    @Schema(description = "Age of the oldest waiting emergency (seconds)", example = "420")
+    private Long oldestWaitSeconds;
+}
@@ -0,0 +1,22 @@
+package com.project.medinova.dto;
+
+/**
+ * Projection: số liệu tổng hợp của một clinic dùng cho bảng xếp hạng clinic
+ */
+public interface ClinicRankingStatsView {
+
+    Long getClinicId();
+
+    String getName();
+
+    String getAddress();
+
+    Long getDoctorCount();
+
+    Long getAppointmentCount();
+
+    // Tổng điểm và số review của tất cả bác sĩ trong clinic (rating trung bình có trọng số = tổng / số review)
+    Long getRatingSum();
+
+    Long getReviewCount();
+}
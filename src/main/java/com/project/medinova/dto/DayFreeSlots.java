@@ -0,0 +1,23 @@
+package com.project.medinova.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Free slots of a doctor on one day")
+public class DayFreeSlots {
+
+    @Schema(description = "Day", example = "2025-02-15")
+    private LocalDate date;
+
+    @Schema(description = "Start times of free slots, ascending", example = "[\"08:00:00\", \"08:30:00\"]")
+    private List<LocalTime> freeSlots;
+}
@@ -0,0 +1,14 @@
+package com.project.medinova.dto;
+
+/**
+ * Projection: trạng thái bận/rảnh và số emergency được giao hôm nay của một bác sĩ
+ */
+public interface DoctorAvailabilityView {
+
+    Long getDoctorId();
+
+    // true nếu đang có emergency active hoặc appointment đang diễn ra
+    Boolean getBusy();
+
+    Long getTodayAssignments();
+}
@@ -0,0 +1,24 @@
+package com.project.medinova.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Free appointment slots of a doctor over the next days")
+public class DoctorFreeSlotsResponse {
+
+    @Schema(description = "Doctor ID", example = "1")
+    private Long doctorId;
+
+    @Schema(description = "Length of one slot in minutes", example = "30")
+    private Integer slotMinutes;
+
+    @Schema(description = "Free slots per day, starting today")
+    private List<DayFreeSlots> days;
+}
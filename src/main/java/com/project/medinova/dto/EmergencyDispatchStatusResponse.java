@@ -0,0 +1,39 @@
+package com.project.medinova.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Dispatch progress of an emergency request")
+public class EmergencyDispatchStatusResponse {
+
+    @Schema(description = "Emergency ID", example = "1")
+    private Long emergencyId;
+
+    @Schema(description = "Emergency status", example = "DISPATCHED")
+    private String status;
+
+    @Schema(description = "Dispatch state: QUEUED, MATCHING, WAITING_FOR_AMBULANCE or DISPATCHED", example = "DISPATCHED")
+    private String dispatchState;
+
+    @Schema(description = "Clinic ID handling the emergency", example = "1")
+    private Long clinicId;
+
+    @Schema(description = "Assigned ambulance ID", example = "1")
+    private Long ambulanceId;
+
+    @Schema(description = "Assigned doctor ID", example = "1")
+    private Long doctorId;
+
+    @Schema(description = "Distance from ambulance to patient (km)", example = "2.5")
+    private Double distanceKm;
+
+    @Schema(description = "Dispatched at")
+    private LocalDateTime dispatchedAt;
+}
@@ -0,0 +1,33 @@
+package com.project.medinova.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Pending emergency queue depth and dispatch wait-time metrics")
+public class EmergencyQueueStatsResponse {
+
+    @Schema(description = "Total emergencies waiting for an ambulance", example = "5")
+    private Integer totalQueued;
+
+    @Schema(description = "Emergencies dispatched since startup", example = "120")
+    private Long dispatchedCount;
+
+    @Schema(description = "Emergencies handed back to the dispatcher from the queue since startup", example = "14")
+    private Long redispatchedFromQueue;
+
+    @Schema(description = "Average time from creation to dispatch (seconds)", example = "12.5")
+    private Double averageWaitSeconds;
+
+    @Schema(description = "Longest time from creation to dispatch (seconds)", example = "640.0")
+    private Double maxWaitSeconds;
+
+    @Schema(description = "Queue per clinic, deepest first")
+    private List<ClinicQueueStats> clinics;
+}
@@ -0,0 +1,13 @@
+package com.project.medinova.dto;
+
+/**
+ * Projection: số emergency được giao cho một bác sĩ theo status, kèm số emergency tạo hôm nay
+ */
+public interface EmergencyStatusCountView {
+
+    String getStatus();
+
+    Long getTotal();
+
+    Long getToday();
+}
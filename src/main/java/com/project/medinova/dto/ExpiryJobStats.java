@@ -0,0 +1,36 @@
+package com.project.medinova.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Run metrics of a background expiry job since startup")
+public class ExpiryJobStats {
+
+    @Schema(description = "Number of runs", example = "1440")
+    private Long runs;
+
+    @Schema(description = "Rows affected over all runs", example = "352")
+    private Long totalRows;
+
+    @Schema(description = "Total time spent over all runs (milliseconds)", example = "2150")
+    private Long totalDurationMillis;
+
+    @Schema(description = "Start of the last run")
+    private LocalDateTime lastRunAt;
+
+    @Schema(description = "Rows affected by the last run", example = "3")
+    private Long lastRows;
+
+    @Schema(description = "Batches (transactions) used by the last run", example = "1")
+    private Long lastBatches;
+
+    @Schema(description = "Duration of the last run (milliseconds)", example = "4")
+    private Long lastDurationMillis;
+}
@@ -0,0 +1,48 @@
+package com.project.medinova.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Incremental change pushed to live dashboard subscribers")
+public class LiveEvent {
+
+    @Schema(description = "Event type: EMERGENCY_CREATED, EMERGENCY_ASSIGNED, EMERGENCY_STATUS, AMBULANCE_STATUS, AMBULANCE_LOCATION",
+            example = "EMERGENCY_STATUS")
+    private String type;
+
+    @Schema(description = "Clinic the change belongs to", example = "1")
+    private Long clinicId;
+
+    @Schema(description = "Emergency ID (emergency events)", example = "10")
+    private Long emergencyId;
+
+    @Schema(description = "Ambulance ID (ambulance events and assignments)", example = "3")
+    private Long ambulanceId;
+
+    @Schema(description = "Doctor ID (assignments)", example = "5")
+    private Long doctorId;
+
+    @Schema(description = "New status of the emergency or ambulance", example = "DISPATCHED")
+    private String status;
+
+    @Schema(description = "Emergency priority", example = "CRITICAL")
+    private String priority;
+
+    @Schema(description = "Latitude (ambulance location, or patient location for new emergencies)", example = "10.762622")
+    private Double lat;
+
+    @Schema(description = "Longitude (ambulance location, or patient location for new emergencies)", example = "106.660172")
+    private Double lng;
+
+    @Schema(description = "When the change happened")
+    private LocalDateTime occurredAt;
+}
@@ -0,0 +1,24 @@
+package com.project.medinova.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "A recorded position")
+public class LocationPoint {
+
+    @Schema(description = "Latitude", example = "10.762622")
+    private Double lat;
+
+    @Schema(description = "Longitude", example = "106.660172")
+    private Double lng;
+
+    @Schema(description = "Time the position was recorded")
+    private LocalDateTime recordedAt;
+}
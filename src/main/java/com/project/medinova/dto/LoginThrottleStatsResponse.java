@@ -0,0 +1,49 @@
+package com.project.medinova.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Password hashing pool and login rate limiter metrics since startup")
+public class LoginThrottleStatsResponse {
+
+    @Schema(description = "Threads hashing passwords concurrently", example = "4")
+    private Integer hashThreads;
+
+    @Schema(description = "Maximum number of hashes waiting for a thread", example = "64")
+    private Integer queueCapacity;
+
+    @Schema(description = "Hashes currently waiting for a thread", example = "3")
+    private Integer queueDepth;
+
+    @Schema(description = "Hashes currently running", example = "4")
+    private Integer activeHashes;
+
+    @Schema(description = "Hashes completed", example = "15230")
+    private Long completedHashes;
+
+    @Schema(description = "Requests rejected with 429 because the queue was full", example = "12")
+    private Long rejectedHashes;
+
+    @Schema(description = "Requests rejected with 429 because the hash did not finish in time", example = "0")
+    private Long timedOutHashes;
+
+    @Schema(description = "Average time spent hashing (milliseconds)", example = "78.4")
+    private Double averageHashMillis;
+
+    @Schema(description = "Longest time spent hashing (milliseconds)", example = "210.7")
+    private Double maxHashMillis;
+
+    @Schema(description = "Average time waiting in the queue before hashing (milliseconds)", example = "5.2")
+    private Double averageQueueWaitMillis;
+
+    @Schema(description = "Login and registration attempts rejected with 429 by the per-email/IP rate limiter", example = "340")
+    private Long rateLimitedAttempts;
+
+    @Schema(description = "Emails and IPs currently tracked by the rate limiter", example = "820")
+    private Integer rateLimitTrackedKeys;
+}
@@ -0,0 +1,34 @@
+package com.project.medinova.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Emergency-enabled clinic near a location")
+public class NearbyClinicResponse {
+
+    @Schema(description = "Clinic ID", example = "1")
+    private Long id;
+
+    @Schema(description = "Clinic name", example = "Central Hospital")
+    private String name;
+
+    @Schema(description = "Clinic address")
+    private String address;
+
+    @Schema(description = "Clinic phone")
+    private String phone;
+
+    @Schema(description = "Clinic latitude", example = "10.762622")
+    private Double latitude;
+
+    @Schema(description = "Clinic longitude", example = "106.660172")
+    private Double longitude;
+
+    @Schema(description = "Distance from the requested location (km)", example = "2.5")
+    private Double distanceKm;
+}
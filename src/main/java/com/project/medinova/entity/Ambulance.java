@@ -4,11 +4,13 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "ambulances")
+@DynamicUpdate // Chỉ ghi cột thay đổi để cập nhật status không ghi đè vị trí do AmbulanceLocationBuffer ghi
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
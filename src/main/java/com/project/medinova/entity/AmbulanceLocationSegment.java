@@ -0,0 +1,50 @@
+package com.project.medinova.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Một đoạn lịch sử vị trí của xe: các điểm GPS liên tiếp trong một khoảng thời gian,
+ * được mã hoá delta thành một mảng byte (xem LocationTrailCodec)
+ */
+@Entity
+@Table(name = "ambulance_location_segments", indexes = {
+        @Index(name = "idx_location_segments_ambulance_start", columnList = "ambulance_id, segment_start"),
+        @Index(name = "idx_location_segments_end", columnList = "segment_end")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AmbulanceLocationSegment {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Không dùng foreign key để lịch sử vẫn còn sau khi xe bị xoá
+    @Column(name = "ambulance_id", nullable = false)
+    private Long ambulanceId;
+
+    @Column(name = "segment_start", nullable = false)
+    private LocalDateTime segmentStart; // Thời điểm của điểm đầu tiên
+
+    @Column(name = "segment_end", nullable = false)
+    private LocalDateTime segmentEnd; // Thời điểm của điểm cuối cùng
+
+    @Column(name = "point_count", nullable = false)
+    private Integer pointCount;
+
+    @Column(name = "data", nullable = false, columnDefinition = "bytea")
+    private byte[] data;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
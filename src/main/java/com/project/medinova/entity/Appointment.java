@@ -8,7 +8,16 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "appointments")
+@Table(name = "appointments", indexes = {
+        @Index(name = "idx_appointments_doctor_status", columnList = "doctor_id, status"),
+        // Danh sách appointment của ADMIN (lọc theo status, keyset theo appointment_time, id)
+        @Index(name = "idx_appointments_status_time", columnList = "status, appointment_time, id"),
+        @Index(name = "idx_appointments_time", columnList = "appointment_time, id"),
+        // Lịch bận của một doctor theo khoảng thời gian
+        @Index(name = "idx_appointments_doctor_time", columnList = "doctor_id, appointment_time"),
+        // Job expire PENDING quá hạn (lọc theo status, cũ nhất trước)
+        @Index(name = "idx_appointments_status_created", columnList = "status, created_at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
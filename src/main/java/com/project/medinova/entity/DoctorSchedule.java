@@ -10,7 +10,12 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 
 @Entity
-@Table(name = "doctor_schedules")
+@Table(name = "doctor_schedules", indexes = {
+        // Kiểm tra trùng giờ khi đặt lịch: schedule của một doctor trong vài ngày
+        @Index(name = "idx_doctor_schedules_doctor_date", columnList = "doctor_id, work_date, start_time, end_time"),
+        // Job release HOLD hết hạn
+        @Index(name = "idx_doctor_schedules_status_hold", columnList = "status, hold_expires_at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
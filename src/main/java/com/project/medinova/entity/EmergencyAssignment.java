@@ -8,7 +8,9 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "emergency_assignments")
+@Table(name = "emergency_assignments", indexes = {
+        @Index(name = "idx_emergency_assignments_doctor", columnList = "doctor_id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
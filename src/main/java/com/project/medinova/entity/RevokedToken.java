@@ -0,0 +1,30 @@
+package com.project.medinova.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "revoked_tokens", indexes = {
+        // Đồng bộ các token vừa bị thu hồi giữa các node
+        @Index(name = "idx_revoked_tokens_revoked_at", columnList = "revoked_at"),
+        // Dọn token đã hết hạn
+        @Index(name = "idx_revoked_tokens_expires_at", columnList = "expires_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevokedToken {
+    @Id
+    @Column(name = "token_id", length = 64)
+    private String tokenId; // jti của JWT
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt; // Hết hạn của token: sau thời điểm này không cần giữ nữa
+
+    @Column(name = "revoked_at", nullable = false)
+    private LocalDateTime revokedAt;
+}
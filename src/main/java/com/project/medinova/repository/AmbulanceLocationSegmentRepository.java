@@ -0,0 +1,30 @@
+package com.project.medinova.repository;
+
+import com.project.medinova.entity.AmbulanceLocationSegment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface AmbulanceLocationSegmentRepository extends JpaRepository<AmbulanceLocationSegment, Long> {
+
+    // Các đoạn giao với khoảng [from, to]. Một đoạn không dài hơn một khoảng cố định nên chỉ cần quét
+    // segment_start trong [earliestStart, to] trên index (ambulance_id, segment_start)
+    @Query("SELECT s FROM AmbulanceLocationSegment s " +
+           "WHERE s.ambulanceId = :ambulanceId " +
+           "AND s.segmentStart >= :earliestStart AND s.segmentStart <= :to AND s.segmentEnd >= :from " +
+           "ORDER BY s.segmentStart")
+    List<AmbulanceLocationSegment> findOverlapping(@Param("ambulanceId") Long ambulanceId,
+                                                   @Param("earliestStart") LocalDateTime earliestStart,
+                                                   @Param("from") LocalDateTime from,
+                                                   @Param("to") LocalDateTime to);
+
+    @Modifying
+    @Query("DELETE FROM AmbulanceLocationSegment s WHERE s.segmentEnd < :cutoff")
+    int deleteEndedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -2,6 +2,9 @@ package com.project.medinova.repository;
 
 import com.project.medinova.entity.Ambulance;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -13,6 +16,14 @@ public interface AmbulanceRepository extends JpaRepository<Ambulance, Long> {
     List<Ambulance> findByClinicIdAndStatus(Long clinicId, String status);
     List<Ambulance> findByClinicIdAndStatusAndCurrentLatIsNotNullAndCurrentLngIsNotNull(
             Long clinicId, String status);
-}
 
+    // [id, clinicId] của mọi xe
+    @Query("SELECT a.id, a.clinic.id FROM Ambulance a")
+    List<Object[]> findAllIdsWithClinic();
 
+    // Giữ chỗ xe nguyên tử: chỉ chuyển sang DISPATCHED nếu xe vẫn AVAILABLE (trả về số dòng được cập nhật)
+    @Modifying
+    @Query("UPDATE Ambulance a SET a.status = 'DISPATCHED', a.lastIdleAt = NULL " +
+           "WHERE a.id = :ambulanceId AND a.clinic.id = :clinicId AND a.status = 'AVAILABLE'")
+    int reserveIfAvailable(@Param("ambulanceId") Long ambulanceId, @Param("clinicId") Long clinicId);
+}
@@ -1,15 +1,18 @@
 package com.project.medinova.repository;
 
+import com.project.medinova.dto.AppointmentStatusCountView;
 import com.project.medinova.entity.Appointment;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -54,5 +57,151 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
         @Param("status") String status,
         @Param("now") LocalDateTime now,
         Pageable pageable);
+
+    // Toàn hệ thống (ADMIN), cùng thứ tự với findByDoctorIdWithOrdering
+    @Query(value = """
+        SELECT a.*
+        FROM appointments a
+        WHERE (:status IS NULL OR a.status = :status)
+        ORDER BY 
+            CASE WHEN a.appointment_time >= :now THEN 0 ELSE 1 END,
+            CASE WHEN a.appointment_time >= :now THEN a.appointment_time END ASC NULLS LAST,
+            CASE WHEN a.appointment_time < :now THEN a.appointment_time END DESC NULLS LAST,
+            a.id
+        """,
+        countQuery = """
+        SELECT COUNT(*)
+        FROM appointments a
+        WHERE (:status IS NULL OR a.status = :status)
+        """,
+        nativeQuery = true)
+    Page<Appointment> findAllWithOrdering(
+        @Param("status") String status,
+        @Param("now") LocalDateTime now,
+        Pageable pageable);
+
+    // Keyset pagination (ADMIN): appointment từ :now trở đi theo (appointment_time, id) tăng dần,
+    // bắt đầu sau vị trí (:afterTime, :afterId)
+    @Query(value = """
+        SELECT a.*
+        FROM appointments a
+        WHERE a.appointment_time >= :now
+          AND (a.appointment_time, a.id) > (:afterTime, :afterId)
+        ORDER BY a.appointment_time ASC, a.id ASC
+        LIMIT :limit
+        """,
+        nativeQuery = true)
+    List<Appointment> findUpcomingAfter(
+        @Param("now") LocalDateTime now,
+        @Param("afterTime") LocalDateTime afterTime,
+        @Param("afterId") Long afterId,
+        @Param("limit") int limit);
+
+    @Query(value = """
+        SELECT a.*
+        FROM appointments a
+        WHERE a.status = :status
+          AND a.appointment_time >= :now
+          AND (a.appointment_time, a.id) > (:afterTime, :afterId)
+        ORDER BY a.appointment_time ASC, a.id ASC
+        LIMIT :limit
+        """,
+        nativeQuery = true)
+    List<Appointment> findUpcomingByStatusAfter(
+        @Param("status") String status,
+        @Param("now") LocalDateTime now,
+        @Param("afterTime") LocalDateTime afterTime,
+        @Param("afterId") Long afterId,
+        @Param("limit") int limit);
+
+    // Keyset pagination (ADMIN): appointment trước :now theo (appointment_time, id) giảm dần,
+    // bắt đầu sau vị trí (:beforeTime, :beforeId)
+    @Query(value = """
+        SELECT a.*
+        FROM appointments a
+        WHERE a.appointment_time < :now
+          AND (a.appointment_time, a.id) < (:beforeTime, :beforeId)
+        ORDER BY a.appointment_time DESC, a.id DESC
+        LIMIT :limit
+        """,
+        nativeQuery = true)
+    List<Appointment> findPastBefore(
+        @Param("now") LocalDateTime now,
+        @Param("beforeTime") LocalDateTime beforeTime,
+        @Param("beforeId") Long beforeId,
+        @Param("limit") int limit);
+
+    @Query(value = """
+        SELECT a.*
+        FROM appointments a
+        WHERE a.status = :status
+          AND a.appointment_time < :now
+          AND (a.appointment_time, a.id) < (:beforeTime, :beforeId)
+        ORDER BY a.appointment_time DESC, a.id DESC
+        LIMIT :limit
+        """,
+        nativeQuery = true)
+    List<Appointment> findPastByStatusBefore(
+        @Param("status") String status,
+        @Param("now") LocalDateTime now,
+        @Param("beforeTime") LocalDateTime beforeTime,
+        @Param("beforeId") Long beforeId,
+        @Param("limit") int limit);
+
+    // Appointment còn giữ slot của doctor trong [from, to), kèm schedule (dùng cho busy schedules)
+    @Query("SELECT a FROM Appointment a LEFT JOIN FETCH a.schedule " +
+           "WHERE a.doctor.id = :doctorId AND a.appointmentTime >= :from AND a.appointmentTime < :to " +
+           "AND a.status NOT IN :releasedStatuses")
+    List<Appointment> findActiveWithScheduleByDoctorIdBetween(@Param("doctorId") Long doctorId,
+                                                              @Param("from") LocalDateTime from,
+                                                              @Param("to") LocalDateTime to,
+                                                              @Param("releasedStatuses") Collection<String> releasedStatuses);
+
+    // Một lô PENDING tạo trước cutoff (appointmentId, doctorId, scheduleId), cũ nhất trước.
+    // Khoá các dòng, bỏ qua dòng đang bị transaction khác khoá
+    @Query(value = """
+            SELECT a.id, a.doctor_id, a.schedule_id
+            FROM appointments a
+            WHERE a.status = 'PENDING' AND a.created_at < :cutoff
+            ORDER BY a.created_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<Object[]> findPendingCreatedBeforeBatch(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE Appointment a SET a.status = :status WHERE a.id IN :ids")
+    int updateStatusByIdIn(@Param("ids") Collection<Long> ids, @Param("status") String status);
+
+    // Xoá các appointment còn PENDING trong ids; trả về (id, doctor_id, appointment_time, schedule_id) của các dòng thực sự bị xoá.
+    // Không dùng @Modifying: DELETE ... RETURNING trả về result set như một câu SELECT
+    @Query(value = """
+            DELETE FROM appointments
+            WHERE id IN (:ids) AND status = 'PENDING'
+            RETURNING id, doctor_id, appointment_time, schedule_id
+            """, nativeQuery = true)
+    List<Object[]> deletePendingByIdInReturning(@Param("ids") Collection<Long> ids);
+
+    // Số appointment theo status (dùng để nạp bộ đếm dashboard)
+    @Query("SELECT a.status, COUNT(a) FROM Appointment a GROUP BY a.status")
+    List<Object[]> countGroupByStatus();
+
+    @Query("SELECT a.doctor.id, COUNT(a) FROM Appointment a GROUP BY a.doctor.id")
+    List<Object[]> countGroupByDoctor();
+
+    // Số appointment theo ngày hẹn, từ thời điểm from trở đi
+    @Query("SELECT CAST(a.appointmentTime AS LocalDate), COUNT(a) FROM Appointment a " +
+           "WHERE a.appointmentTime >= :from GROUP BY CAST(a.appointmentTime AS LocalDate)")
+    List<Object[]> countGroupByAppointmentDateFrom(@Param("from") LocalDateTime from);
+
+    // Dashboard bác sĩ: số appointment theo status, số appointment trong ngày và sau :now, trong một query
+    @Query("SELECT a.status AS status, COUNT(a) AS total, " +
+           "SUM(CASE WHEN a.appointmentTime BETWEEN :startOfDay AND :endOfDay THEN 1 ELSE 0 END) AS today, " +
+           "SUM(CASE WHEN a.appointmentTime > :now THEN 1 ELSE 0 END) AS upcoming " +
+           "FROM Appointment a WHERE a.doctor.id = :doctorId GROUP BY a.status")
+    List<AppointmentStatusCountView> countByStatusForDoctor(@Param("doctorId") Long doctorId,
+                                                            @Param("startOfDay") LocalDateTime startOfDay,
+                                                            @Param("endOfDay") LocalDateTime endOfDay,
+                                                            @Param("now") LocalDateTime now);
 }
 
@@ -1,5 +1,6 @@
 package com.project.medinova.repository;
 
+import com.project.medinova.dto.ClinicRankingStatsView;
 import com.project.medinova.entity.Clinic;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -16,5 +17,28 @@ public interface ClinicRepository extends JpaRepository<Clinic, Long> {
     // Tìm clinics có thể xử lý emergency (có hoặc không có location)
     @Query("SELECT c FROM Clinic c WHERE (c.emergencyEnabled IS NULL OR c.emergencyEnabled = true) AND (c.isActive IS NULL OR c.isActive = true)")
     List<Clinic> findAllEmergencyEnabled();
+
+    // Số bác sĩ, số appointment và tổng điểm review của mọi clinic, mỗi bảng chỉ quét một lần
+    @Query(value = """
+        SELECT c.id AS "clinicId",
+               c.name AS "name",
+               c.address AS "address",
+               COALESCE(d.doctor_count, 0) AS "doctorCount",
+               COALESCE(a.appointment_count, 0) AS "appointmentCount",
+               COALESCE(r.rating_sum, 0) AS "ratingSum",
+               COALESCE(r.review_count, 0) AS "reviewCount"
+        FROM clinics c
+        LEFT JOIN (SELECT clinic_id, COUNT(*) AS doctor_count
+                   FROM doctors
+                   GROUP BY clinic_id) d ON d.clinic_id = c.id
+        LEFT JOIN (SELECT clinic_id, COUNT(*) AS appointment_count
+                   FROM appointments
+                   GROUP BY clinic_id) a ON a.clinic_id = c.id
+        LEFT JOIN (SELECT doc.clinic_id, SUM(rv.rating) AS rating_sum, COUNT(*) AS review_count
+                   FROM doctor_reviews rv
+                   JOIN doctors doc ON doc.id = rv.doctor_id
+                   GROUP BY doc.clinic_id) r ON r.clinic_id = c.id
+        """, nativeQuery = true)
+    List<ClinicRankingStatsView> aggregateRankingStats();
 }
 
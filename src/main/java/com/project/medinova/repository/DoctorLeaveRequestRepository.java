@@ -2,6 +2,7 @@ package com.project.medinova.repository;
 
 import com.project.medinova.entity.DoctorLeaveRequest;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
@@ -14,6 +15,14 @@ public interface DoctorLeaveRequestRepository extends JpaRepository<DoctorLeaveR
     List<DoctorLeaveRequest> findByDoctorIdAndStatus(Long doctorId, String status);
     List<DoctorLeaveRequest> findByStartDateLessThanEqualAndEndDateGreaterThanEqualAndStatus(
             LocalDate endDate, LocalDate startDate, String status);
+    List<DoctorLeaveRequest> findByDoctorIdAndStatusAndStartDateLessThanEqualAndEndDateGreaterThanEqual(
+            Long doctorId, String status, LocalDate endDate, LocalDate startDate);
+    List<DoctorLeaveRequest> findByStatusAndEndDateGreaterThanEqual(String status, LocalDate date);
+    List<DoctorLeaveRequest> findByDoctorIdAndStatusAndEndDateGreaterThanEqual(Long doctorId, String status, LocalDate date);
     long countByStatus(String status);
+    long countByDoctorIdAndStatus(Long doctorId, String status);
+
+    @Query("SELECT lr.status, COUNT(lr) FROM DoctorLeaveRequest lr GROUP BY lr.status")
+    List<Object[]> countGroupByStatus();
 }
 
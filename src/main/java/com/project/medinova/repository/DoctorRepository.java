@@ -1,13 +1,18 @@
 package com.project.medinova.repository;
 
+import com.project.medinova.dto.DoctorAvailabilityView;
 import com.project.medinova.entity.Doctor;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,6 +25,28 @@ public interface DoctorRepository extends JpaRepository<Doctor, Long> {
     List<Doctor> findByStatus(String status);
     long countByStatus(String status);
 
+    // Khoá dòng doctor trong lúc tạo HOLD (SELECT ... FOR UPDATE)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT d FROM Doctor d WHERE d.id = :id")
+    Optional<Doctor> findByIdForUpdate(@Param("id") Long id);
+
+    @Query("SELECT d.status, COUNT(d) FROM Doctor d GROUP BY d.status")
+    List<Object[]> countGroupByStatus();
+
+    @Query("SELECT d.id, d.status FROM Doctor d")
+    List<Object[]> findAllIdsWithStatus();
+
+    // (id, clinicId, department, status, defaultStartTime, defaultEndTime) (dùng để nạp lịch trống)
+    @Query("SELECT d.id, d.clinic.id, d.department, d.status, d.defaultStartTime, d.defaultEndTime FROM Doctor d")
+    List<Object[]> findAllAvailabilitySettings();
+
+    @Query("SELECT d.id, d.clinic.id, d.department, d.status, d.defaultStartTime, d.defaultEndTime FROM Doctor d WHERE d.id = :id")
+    List<Object[]> findAvailabilitySettingsById(@Param("id") Long id);
+
+    // Nạp bác sĩ kèm user và clinic trong một query (dùng cho bảng xếp hạng)
+    @Query("SELECT d FROM Doctor d JOIN FETCH d.user JOIN FETCH d.clinic WHERE d.id IN :ids")
+    List<Doctor> findWithUserAndClinicByIdIn(@Param("ids") Collection<Long> ids);
+
     @Query(value = """
         SELECT d.*
         FROM doctors d
@@ -45,5 +72,40 @@ public interface DoctorRepository extends JpaRepository<Doctor, Long> {
         """,
         nativeQuery = true)
     Page<Doctor> searchDoctors(@Param("searchTerm") String searchTerm, @Param("clinicId") Long clinicId, Pageable pageable);
-}
 
+    // Trạng thái bận/rảnh + số emergency hôm nay của tất cả bác sĩ APPROVED trong clinic, trong một query
+    // Bận = có emergency PENDING/DISPATCHED/IN_TRANSIT hoặc có appointment (không CANCELLED) đang diễn ra lúc :now
+    // Appointment kết thúc lúc schedule.end_time cùng ngày, mặc định 60 phút nếu không có schedule
+    @Query(value = """
+        SELECT d.id AS "doctorId",
+               (EXISTS (SELECT 1
+                        FROM emergency_assignments ea
+                        JOIN emergencies e ON e.id = ea.emergency_id
+                        WHERE ea.doctor_id = d.id
+                          AND e.status IN ('PENDING', 'DISPATCHED', 'IN_TRANSIT'))
+                OR EXISTS (SELECT 1
+                           FROM appointments a
+                           LEFT JOIN doctor_schedules s ON s.id = a.schedule_id
+                           WHERE a.doctor_id = d.id
+                             AND a.status <> 'CANCELLED'
+                             AND a.appointment_time >= :earliestStart
+                             AND a.appointment_time <= :now
+                             AND COALESCE(CAST(a.appointment_time AS date) + s.end_time,
+                                          a.appointment_time + INTERVAL '60 minutes') >= :now)) AS "busy",
+               (SELECT COUNT(*)
+                FROM emergency_assignments ea
+                WHERE ea.doctor_id = d.id
+                  AND ea.assigned_at >= :startOfDay
+                  AND ea.assigned_at < :endOfDay) AS "todayAssignments"
+        FROM doctors d
+        WHERE d.clinic_id = :clinicId
+          AND d.status = 'APPROVED'
+        ORDER BY d.id
+        """, nativeQuery = true)
+    List<DoctorAvailabilityView> findAvailabilityByClinicId(
+        @Param("clinicId") Long clinicId,
+        @Param("now") LocalDateTime now,
+        @Param("earliestStart") LocalDateTime earliestStart,
+        @Param("startOfDay") LocalDateTime startOfDay,
+        @Param("endOfDay") LocalDateTime endOfDay);
+}
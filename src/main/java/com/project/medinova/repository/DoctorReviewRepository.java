@@ -2,6 +2,7 @@ package com.project.medinova.repository;
 
 import com.project.medinova.entity.DoctorReview;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -13,5 +14,9 @@ public interface DoctorReviewRepository extends JpaRepository<DoctorReview, Long
     List<DoctorReview> findByDoctorIdAndPatientId(Long doctorId, Long patientId);
     List<DoctorReview> findByAppointmentId(Long appointmentId);
     DoctorReview findByAppointmentIdAndPatientId(Long appointmentId, Long patientId);
+
+    // Tổng điểm và số review của từng bác sĩ
+    @Query("SELECT r.doctor.id, SUM(r.rating), COUNT(r) FROM DoctorReview r GROUP BY r.doctor.id")
+    List<Object[]> sumRatingGroupByDoctor();
 }
 
@@ -2,10 +2,14 @@ package com.project.medinova.repository;
 
 import com.project.medinova.entity.DoctorSchedule;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -16,6 +20,57 @@ public interface DoctorScheduleRepository extends JpaRepository<DoctorSchedule,
     List<DoctorSchedule> findByDoctorIdAndWorkDateBetween(Long doctorId, LocalDate startDate, LocalDate endDate);
     List<DoctorSchedule> findByStatus(String status);
     List<DoctorSchedule> findByDoctorIdAndStatus(Long doctorId, String status);
+    List<DoctorSchedule> findByDoctorIdAndStatusAndWorkDateBetween(Long doctorId, String status, LocalDate startDate, LocalDate endDate);
     List<DoctorSchedule> findByStatusAndHoldExpiresAtBefore(String status, LocalDateTime now);
+
+    // Một lô HOLD đã hết hạn (scheduleId, doctorId, appointmentId) không có appointment
+    // hoặc appointment còn PENDING. Khoá các dòng schedule, bỏ qua dòng đang bị transaction khác khoá
+    @Query(value = """
+            SELECT s.id, s.doctor_id, a.id
+            FROM doctor_schedules s
+            LEFT JOIN appointments a ON a.schedule_id = s.id
+            WHERE s.status = 'HOLD' AND s.hold_expires_at < :now
+              AND (a.id IS NULL OR a.status = 'PENDING')
+            ORDER BY s.hold_expires_at
+            LIMIT :limit
+            FOR UPDATE OF s SKIP LOCKED
+            """, nativeQuery = true)
+    List<Object[]> findExpiredHoldBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    // Xoá các schedule không còn appointment nào tham chiếu (appointments.schedule_id là NOT NULL)
+    @Modifying
+    @Query("DELETE FROM DoctorSchedule s WHERE s.id IN :ids " +
+           "AND NOT EXISTS (SELECT 1 FROM Appointment a WHERE a.schedule.id = s.id)")
+    int deleteUnreferencedByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Schedule (kèm appointment) của doctor trong khoảng ngày, bỏ qua appointment đã giải phóng slot
+    // Dùng để kiểm tra trùng giờ khi đặt lịch (index idx_doctor_schedules_doctor_date)
+    @Query("SELECT s FROM DoctorSchedule s JOIN FETCH s.appointment a " +
+           "WHERE s.doctor.id = :doctorId AND s.workDate BETWEEN :fromDate AND :toDate " +
+           "AND a.status NOT IN :releasedStatuses")
+    List<DoctorSchedule> findBookedByDoctorIdAndWorkDateBetween(@Param("doctorId") Long doctorId,
+                                                                 @Param("fromDate") LocalDate fromDate,
+                                                                 @Param("toDate") LocalDate toDate,
+                                                                 @Param("releasedStatuses") Collection<String> releasedStatuses);
+
+    // Khoảng thời gian đang chiếm slot (doctorId, scheduleId, workDate, startTime, endTime) trong khoảng ngày,
+    // bỏ qua appointment đã giải phóng slot và HOLD đã hết hạn (dùng để nạp lịch trống)
+    @Query("SELECT s.doctor.id, s.id, s.workDate, s.startTime, s.endTime FROM DoctorSchedule s JOIN s.appointment a " +
+           "WHERE s.workDate BETWEEN :fromDate AND :toDate AND a.status NOT IN :releasedStatuses " +
+           "AND (s.status <> 'HOLD' OR s.holdExpiresAt IS NULL OR s.holdExpiresAt >= :now)")
+    List<Object[]> findOccupiedSlotsBetween(@Param("fromDate") LocalDate fromDate,
+                                            @Param("toDate") LocalDate toDate,
+                                            @Param("releasedStatuses") Collection<String> releasedStatuses,
+                                            @Param("now") LocalDateTime now);
+
+    @Query("SELECT s.doctor.id, s.id, s.workDate, s.startTime, s.endTime FROM DoctorSchedule s JOIN s.appointment a " +
+           "WHERE s.doctor.id = :doctorId AND s.workDate BETWEEN :fromDate AND :toDate " +
+           "AND a.status NOT IN :releasedStatuses " +
+           "AND (s.status <> 'HOLD' OR s.holdExpiresAt IS NULL OR s.holdExpiresAt >= :now)")
+    List<Object[]> findOccupiedSlotsByDoctorIdBetween(@Param("doctorId") Long doctorId,
+                                                      @Param("fromDate") LocalDate fromDate,
+                                                      @Param("toDate") LocalDate toDate,
+                                                      @Param("releasedStatuses") Collection<String> releasedStatuses,
+                                                      @Param("now") LocalDateTime now);
 }
 
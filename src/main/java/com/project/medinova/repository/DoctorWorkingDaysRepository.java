@@ -2,6 +2,7 @@ package com.project.medinova.repository;
 
 import com.project.medinova.entity.DoctorWorkingDays;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,5 +11,9 @@ import java.util.List;
 public interface DoctorWorkingDaysRepository extends JpaRepository<DoctorWorkingDays, Long> {
     List<DoctorWorkingDays> findByDoctorId(Long doctorId);
     DoctorWorkingDays findByDoctorIdAndDayOfWeek(Long doctorId, Integer dayOfWeek);
+
+    // (doctorId, dayOfWeek, isWorking) của mọi doctor (dùng để nạp lịch trống)
+    @Query("SELECT w.doctor.id, w.dayOfWeek, w.isWorking FROM DoctorWorkingDays w")
+    List<Object[]> findAllWorkingDays();
 }
 
@@ -1,5 +1,6 @@
 package com.project.medinova.repository;
 
+import com.project.medinova.dto.EmergencyStatusCountView;
 import com.project.medinova.entity.EmergencyAssignment;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -7,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,6 +30,15 @@ public interface EmergencyAssignmentRepository extends JpaRepository<EmergencyAs
            "WHERE ea.doctor.id = :doctorId " +
            "AND ea.emergency.status IN ('PENDING', 'DISPATCHED', 'IN_TRANSIT')")
     List<EmergencyAssignment> findActiveAssignmentsByDoctorId(@Param("doctorId") Long doctorId);
+
+    // Dashboard bác sĩ: số emergency được giao theo status và số emergency tạo trong ngày, trong một query
+    @Query("SELECT e.status AS status, COUNT(ea) AS total, " +
+           "SUM(CASE WHEN e.createdAt > :startOfDay AND e.createdAt < :endOfDay THEN 1 ELSE 0 END) AS today " +
+           "FROM EmergencyAssignment ea JOIN ea.emergency e " +
+           "WHERE ea.doctor.id = :doctorId GROUP BY e.status")
+    List<EmergencyStatusCountView> countByStatusForDoctor(@Param("doctorId") Long doctorId,
+                                                          @Param("startOfDay") LocalDateTime startOfDay,
+                                                          @Param("endOfDay") LocalDateTime endOfDay);
 }
 
 
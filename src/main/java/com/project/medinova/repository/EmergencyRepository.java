@@ -1,10 +1,16 @@
 package com.project.medinova.repository;
 
 import com.project.medinova.entity.Emergency;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface EmergencyRepository extends JpaRepository<Emergency, Long> {
@@ -13,6 +19,18 @@ public interface EmergencyRepository extends JpaRepository<Emergency, Long> {
     List<Emergency> findByClinicIdAndStatus(Long clinicId, String status);
     List<Emergency> findByPatientId(Long patientId);
     List<Emergency> findByPatientIdAndStatus(Long patientId, String status);
-}
 
+    // Khoá dòng emergency trong lúc điều phối (SELECT ... FOR UPDATE)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM Emergency e WHERE e.id = :id")
+    Optional<Emergency> findByIdForUpdate(@Param("id") Long id);
+
+    // Số emergency theo status (dùng để nạp bộ đếm dashboard)
+    @Query("SELECT e.status, COUNT(e) FROM Emergency e GROUP BY e.status")
+    List<Object[]> countGroupByStatus();
 
+    // Số emergency theo ngày tạo, từ thời điểm from trở đi
+    @Query("SELECT CAST(e.createdAt AS LocalDate), COUNT(e) FROM Emergency e " +
+           "WHERE e.createdAt >= :from GROUP BY CAST(e.createdAt AS LocalDate)")
+    List<Object[]> countGroupByCreatedDateFrom(@Param("from") LocalDateTime from);
+}
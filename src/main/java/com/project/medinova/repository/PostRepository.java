@@ -11,5 +11,8 @@ public interface PostRepository extends JpaRepository<Post, Long> {
     List<Post> findByAuthorId(Long authorId);
     List<Post> findByStatus(String status);
     List<Post> findByAuthorIdAndStatus(Long authorId, String status);
+
+    // Bài viết mới nhất (dùng cho trang chủ)
+    List<Post> findTop3ByStatusOrderByCreatedAtDesc(String status);
 }
 
@@ -30,6 +30,18 @@ public class AmbulanceBookingService {
     @Autowired
     private AuthService authService;
 
+    @Autowired
+    private AmbulanceService ambulanceService;
+
+    @Autowired
+    private AmbulanceSpatialIndex ambulanceIndex;
+
+    @Autowired
+    private LiveEventBroadcaster liveEvents;
+
+    // Number of nearest ambulances taken from the index per lookup
+    private static final int CANDIDATE_LIMIT = 5;
+
     // Haversine formula to calculate distance
     private double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
         final int R = 6371; // Radius of the earth in km
@@ -84,10 +96,8 @@ public class AmbulanceBookingService {
         }
 
         if (assignedAmbulance != null) {
+            // Ambulance was already reserved (DISPATCHED) by findNearestAvailableAmbulance
             booking.setAssignedAt(java.time.LocalDateTime.now());
-            // Update ambulance status
-            assignedAmbulance.setStatus("DISPATCHED");
-            ambulanceRepository.save(assignedAmbulance);
         }
 
         AmbulanceBooking saved = bookingRepository.save(booking);
@@ -188,6 +198,8 @@ public class AmbulanceBookingService {
             if (booking.getAmbulance() != null) {
                 booking.getAmbulance().setStatus("DISPATCHED");
                 ambulanceRepository.save(booking.getAmbulance());
+                ambulanceIndex.sync(booking.getAmbulance());
+                liveEvents.ambulanceStatusChanged(booking.getAmbulance());
             }
         } else if ("ARRIVED".equals(status)) {
             booking.setArrivedAt(java.time.LocalDateTime.now());
@@ -197,12 +209,16 @@ public class AmbulanceBookingService {
             if (booking.getAmbulance() != null) {
                 booking.getAmbulance().setStatus("AVAILABLE");
                 ambulanceRepository.save(booking.getAmbulance());
+                ambulanceIndex.sync(booking.getAmbulance());
+                liveEvents.ambulanceStatusChanged(booking.getAmbulance());
             }
         } else if ("CANCELLED".equals(status)) {
             // Release ambulance if assigned
             if (booking.getAmbulance() != null && !"COMPLETED".equals(oldStatus)) {
                 booking.getAmbulance().setStatus("AVAILABLE");
                 ambulanceRepository.save(booking.getAmbulance());
+                ambulanceIndex.sync(booking.getAmbulance());
+                liveEvents.ambulanceStatusChanged(booking.getAmbulance());
             }
         }
 
@@ -224,56 +240,48 @@ public class AmbulanceBookingService {
         Ambulance ambulance = ambulanceRepository.findById(ambulanceId)
                 .orElseThrow(() -> new NotFoundException("Ambulance not found with id: " + ambulanceId));
 
-        // Check if ambulance is available
-        if (!"AVAILABLE".equals(ambulance.getStatus())) {
-            throw new BadRequestException("Ambulance is not available");
-        }
-
         // Release old ambulance if exists
         if (booking.getAmbulance() != null) {
             booking.getAmbulance().setStatus("AVAILABLE");
             ambulanceRepository.save(booking.getAmbulance());
+            ambulanceIndex.sync(booking.getAmbulance());
+            liveEvents.ambulanceStatusChanged(booking.getAmbulance());
+        }
+
+        // Reserve the new ambulance atomically (only succeeds while it is still AVAILABLE)
+        ambulance = ambulanceService.reserveAmbulance(ambulance.getId(), ambulance.getClinic().getId());
+        if (ambulance == null) {
+            throw new BadRequestException("Ambulance is not available");
         }
 
         booking.setAmbulance(ambulance);
         booking.setStatus("ASSIGNED");
         booking.setAssignedAt(java.time.LocalDateTime.now());
 
-        // Update ambulance status
-        ambulance.setStatus("DISPATCHED");
-        ambulanceRepository.save(ambulance);
-
         AmbulanceBooking updated = bookingRepository.save(booking);
         return convertToResponse(updated);
     }
 
+    /**
+     * Find and reserve the nearest available ambulance (with a known location) of the clinic.
+     * Candidates come from the spatial index; each one is reserved with a conditional update,
+     * moving on to the next candidate if a concurrent request took it first.
+     */
     private Ambulance findNearestAvailableAmbulance(double pickupLat, double pickupLng, Long clinicId) {
-        List<Ambulance> availableAmbulances = ambulanceRepository.findAll().stream()
-                .filter(a -> "AVAILABLE".equals(a.getStatus()))
-                .filter(a -> a.getClinic().getId().equals(clinicId))
-                .collect(Collectors.toList());
-
-        if (availableAmbulances.isEmpty()) {
-            return null;
-        }
+        while (true) {
+            List<GeoGrid.Hit<AmbulanceSpatialIndex.Snapshot>> candidates =
+                    ambulanceIndex.findNearest(clinicId, pickupLat, pickupLng, CANDIDATE_LIMIT);
+            if (candidates.isEmpty()) {
+                return null;
+            }
 
-        // Find nearest ambulance
-        Ambulance nearest = null;
-        double minDistance = Double.MAX_VALUE;
-
-        for (Ambulance ambulance : availableAmbulances) {
-            if (ambulance.getCurrentLat() != null && ambulance.getCurrentLng() != null) {
-                double distance = calculateDistance(
-                        pickupLat, pickupLng,
-                        ambulance.getCurrentLat(), ambulance.getCurrentLng());
-                if (distance < minDistance) {
-                    minDistance = distance;
-                    nearest = ambulance;
+            for (GeoGrid.Hit<AmbulanceSpatialIndex.Snapshot> candidate : candidates) {
+                Ambulance reserved = ambulanceService.reserveAmbulance(candidate.value().id(), clinicId);
+                if (reserved != null) {
+                    return reserved;
                 }
             }
         }
-
-        return nearest;
     }
 
     private AmbulanceBookingResponse convertToResponse(AmbulanceBooking booking) {
@@ -0,0 +1,176 @@
+package com.project.medinova.service;
+
+import com.project.medinova.repository.AmbulanceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bộ đệm vị trí GPS của xe cấp cứu.
+ * Mỗi xe chỉ giữ vị trí mới nhất; vị trí được đưa ngay vào AmbulanceSpatialIndex (dispatch đọc từ đó)
+ * và được ghi xuống bảng ambulances theo lô (JDBC batch) định kỳ thay vì một UPDATE cho mỗi lần ping.
+ * Mọi vị trí được chấp nhận cũng được thêm vào AmbulanceLocationHistory.
+ */
+@Component
+public class AmbulanceLocationBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(AmbulanceLocationBuffer.class);
+
+    private static final String UPDATE_LOCATION_SQL =
+            "UPDATE ambulances SET current_lat = ?, current_lng = ? WHERE id = ?";
+
+    @Autowired
+    private AmbulanceRepository ambulanceRepository;
+
+    @Autowired
+    private AmbulanceSpatialIndex ambulanceIndex;
+
+    @Autowired
+    private AmbulanceLocationHistory locationHistory;
+
+    @Autowired
+    private LiveEventBroadcaster liveEvents;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${ambulance.location.flush-batch-size:500}")
+    private int batchSize;
+
+    // Vị trí mới nhất của mỗi xe (dùng để bỏ qua ping đến trễ)
+    private final Map<Long, Position> latest = new ConcurrentHashMap<>();
+    // Vị trí chưa được ghi xuống database
+    private final Map<Long, Position> dirty = new ConcurrentHashMap<>();
+    private final Map<Long, Object> ambulanceLocks = new ConcurrentHashMap<>();
+
+    // Xe hợp lệ -> clinic của xe (để lọc sự kiện vị trí theo clinic)
+    private volatile Map<Long, Long> knownAmbulances = Map.of();
+    private volatile long knownAmbulancesLoadedAt = 0;
+
+    public record Position(double lat, double lng, LocalDateTime recordedAt) {
+    }
+
+    public enum Outcome { ACCEPTED, STALE, UNKNOWN_AMBULANCE }
+
+    /**
+     * Ghi nhận một vị trí. Ping cũ hơn vị trí đã có của xe bị bỏ qua.
+     */
+    public Outcome record(Long ambulanceId, double lat, double lng, LocalDateTime recordedAt) {
+        Long clinicId = clinicOf(ambulanceId);
+        if (clinicId == null) {
+            return Outcome.UNKNOWN_AMBULANCE;
+        }
+
+        Position position = new Position(lat, lng, recordedAt != null ? recordedAt : LocalDateTime.now());
+        // Các ping của cùng một xe được áp dụng tuần tự (giữ thứ tự thời gian cho index và lịch sử);
+        // khoá riêng từng xe nên không chặn ping của xe khác như khoá bin của ConcurrentHashMap
+        synchronized (ambulanceLocks.computeIfAbsent(ambulanceId, id -> new Object())) {
+            // compute chỉ quyết định nhận hay bỏ ping
+            boolean[] accepted = {false};
+            latest.compute(ambulanceId, (id, current) -> {
+                if (current != null && position.recordedAt().isBefore(current.recordedAt())) {
+                    return current;
+                }
+                accepted[0] = true;
+                return position;
+            });
+            if (!accepted[0]) {
+                return Outcome.STALE;
+            }
+
+            dirty.put(ambulanceId, position);
+            ambulanceIndex.updateLocation(ambulanceId, lat, lng);
+            locationHistory.append(ambulanceId, lat, lng, position.recordedAt());
+            liveEvents.ambulanceMoved(ambulanceId, clinicId, lat, lng, position.recordedAt());
+        }
+        return Outcome.ACCEPTED;
+    }
+
+    /**
+     * Xe mới tạo hoặc đổi clinic: nhận vị trí ngay, không chờ nạp lại danh sách xe
+     */
+    public synchronized void register(Long ambulanceId, Long clinicId) {
+        Map<Long, Long> updated = new HashMap<>(knownAmbulances);
+        updated.put(ambulanceId, clinicId);
+        knownAmbulances = Map.copyOf(updated);
+    }
+
+    /**
+     * Xe đã bị xoá: bỏ vị trí đang giữ
+     */
+    public synchronized void forget(Long ambulanceId) {
+        Map<Long, Long> updated = new HashMap<>(knownAmbulances);
+        updated.remove(ambulanceId);
+        knownAmbulances = Map.copyOf(updated);
+        latest.remove(ambulanceId);
+        dirty.remove(ambulanceId);
+        ambulanceLocks.remove(ambulanceId);
+    }
+
+    public int getPendingFlushCount() {
+        return dirty.size();
+    }
+
+    /**
+     * Ghi các vị trí đang chờ xuống database theo lô
+     */
+    @Scheduled(fixedDelayString = "${ambulance.location.flush-interval-ms:2000}")
+    public void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+
+        List<Map.Entry<Long, Position>> pending = new ArrayList<>();
+        dirty.forEach((id, position) -> pending.add(Map.entry(id, position)));
+        for (int from = 0; from < pending.size(); from += batchSize) {
+            List<Map.Entry<Long, Position>> batch = pending.subList(from, Math.min(from + batchSize, pending.size()));
+            try {
+                jdbcTemplate.batchUpdate(UPDATE_LOCATION_SQL, batch, batch.size(), (statement, entry) -> {
+                    statement.setDouble(1, entry.getValue().lat());
+                    statement.setDouble(2, entry.getValue().lng());
+                    statement.setLong(3, entry.getKey());
+                });
+            } catch (RuntimeException e) {
+                // Giữ lại trong dirty để thử lại ở lần flush sau
+                logger.warn("Could not flush {} ambulance locations", batch.size(), e);
+                return;
+            }
+            // Chỉ xoá nếu không có vị trí mới hơn đến trong lúc đang ghi
+            for (Map.Entry<Long, Position> entry : batch) {
+                dirty.remove(entry.getKey(), entry.getValue());
+            }
+        }
+        logger.debug("Flushed {} ambulance locations", pending.size());
+    }
+
+    // Danh sách xe được nạp lại khi gặp id lạ, tối đa một lần mỗi 30 giây; null nếu xe không tồn tại
+    private Long clinicOf(Long ambulanceId) {
+        Long clinicId = knownAmbulances.get(ambulanceId);
+        if (clinicId != null) {
+            return clinicId;
+        }
+        synchronized (this) {
+            if (!knownAmbulances.containsKey(ambulanceId)
+                    && System.currentTimeMillis() - knownAmbulancesLoadedAt > 30000) {
+                Map<Long, Long> loaded = new HashMap<>();
+                for (Object[] row : ambulanceRepository.findAllIdsWithClinic()) {
+                    loaded.put((Long) row[0], (Long) row[1]);
+                }
+                knownAmbulances = Map.copyOf(loaded);
+                knownAmbulancesLoadedAt = System.currentTimeMillis();
+            }
+        }
+        return knownAmbulances.get(ambulanceId);
+    }
+}
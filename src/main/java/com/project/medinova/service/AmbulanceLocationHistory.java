@@ -0,0 +1,197 @@
+package com.project.medinova.service;
+
+import com.project.medinova.entity.AmbulanceLocationSegment;
+import com.project.medinova.repository.AmbulanceLocationSegmentRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Lịch sử vị trí (append-only) của xe cấp cứu.
+ * Các điểm GPS được gom theo xe thành đoạn (tối đa MAX_SEGMENT_POINTS điểm hoặc MAX_SEGMENT_DURATION),
+ * mã hoá delta bằng LocationTrailCodec và ghi mỗi đoạn thành một dòng ambulance_location_segments.
+ * Đoạn đang mở nằm trong bộ nhớ và được ghi xuống khi đầy, khi quá hạn hoặc khi tắt ứng dụng.
+ */
+@Component
+public class AmbulanceLocationHistory {
+
+    private static final Logger logger = LoggerFactory.getLogger(AmbulanceLocationHistory.class);
+
+    static final Duration MAX_SEGMENT_DURATION = Duration.ofMinutes(10);
+    static final int MAX_SEGMENT_POINTS = 720;
+
+    @Autowired
+    private AmbulanceLocationSegmentRepository segmentRepository;
+
+    @Value("${ambulance.history.retention-days:90}")
+    private int retentionDays;
+
+    private final Map<Long, List<LocationTrailCodec.Point>> openSegments = new ConcurrentHashMap<>();
+    // Đoạn đã đóng, chờ ghi xuống database
+    private final Queue<AmbulanceLocationSegment> sealed = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Thêm một điểm vào lịch sử của xe. Thời gian phải tăng dần theo từng xe
+     * (AmbulanceLocationBuffer đã loại các ping đến trễ).
+     */
+    public void append(Long ambulanceId, double lat, double lng, LocalDateTime recordedAt) {
+        LocationTrailCodec.Point point = new LocationTrailCodec.Point(toEpochMillis(recordedAt), lat, lng);
+        openSegments.compute(ambulanceId, (id, points) -> {
+            if (points != null && !fits(points, point)) {
+                sealed.add(toSegment(id, points));
+                points = null;
+            }
+            if (points == null) {
+                points = new ArrayList<>();
+            }
+            points.add(point);
+            return points;
+        });
+    }
+
+    /**
+     * Các điểm của xe trong khoảng [from, to], theo thứ tự thời gian
+     */
+    public List<LocationTrailCodec.Point> query(Long ambulanceId, LocalDateTime from, LocalDateTime to) {
+        long fromMillis = toEpochMillis(from);
+        long toMillis = toEpochMillis(to);
+        // Khử trùng theo thời gian: một đoạn có thể vừa được ghi xuống database trong lúc đang đọc
+        NavigableMap<Long, LocationTrailCodec.Point> points = new TreeMap<>();
+
+        // Đọc bộ nhớ trước database để không bỏ sót đoạn đang được ghi
+        List<LocationTrailCodec.Point> open = new ArrayList<>();
+        openSegments.compute(ambulanceId, (id, current) -> {
+            if (current != null) {
+                open.addAll(current);
+            }
+            return current;
+        });
+        addInRange(points, open, fromMillis, toMillis);
+        for (AmbulanceLocationSegment segment : sealed) {
+            if (segment.getAmbulanceId().equals(ambulanceId)) {
+                addInRange(points, LocationTrailCodec.decode(segment.getData()), fromMillis, toMillis);
+            }
+        }
+
+        for (AmbulanceLocationSegment segment : segmentRepository.findOverlapping(
+                ambulanceId, from.minus(MAX_SEGMENT_DURATION), from, to)) {
+            addInRange(points, LocationTrailCodec.decode(segment.getData()), fromMillis, toMillis);
+        }
+        return new ArrayList<>(points.values());
+    }
+
+    /**
+     * Đóng các đoạn đã mở quá MAX_SEGMENT_DURATION (xe đứng yên/ngừng gửi) và ghi các đoạn đã đóng
+     */
+    @Scheduled(fixedDelay = 30000)
+    public void flush() {
+        long cutoff = System.currentTimeMillis() - MAX_SEGMENT_DURATION.toMillis();
+        for (Long ambulanceId : openSegments.keySet()) {
+            openSegments.computeIfPresent(ambulanceId, (id, points) -> {
+                if (points.get(0).epochMillis() < cutoff) {
+                    sealed.add(toSegment(id, points));
+                    return null;
+                }
+                return points;
+            });
+        }
+        writeSealed();
+    }
+
+    /**
+     * Xoá lịch sử cũ hơn retention mỗi ngày lúc 3 giờ sáng
+     */
+    @Scheduled(cron = "0 0 3 * * *")
+    @Transactional
+    public void purgeExpired() {
+        int deleted = segmentRepository.deleteEndedBefore(LocalDateTime.now().minusDays(retentionDays));
+        logger.info("Purged {} ambulance location segments older than {} days", deleted, retentionDays);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Long ambulanceId : openSegments.keySet()) {
+            List<LocationTrailCodec.Point> points = openSegments.remove(ambulanceId);
+            if (points != null && !points.isEmpty()) {
+                sealed.add(toSegment(ambulanceId, points));
+            }
+        }
+        writeSealed();
+    }
+
+    // Đoạn chỉ rời hàng đợi sau khi đã được ghi xuống database, để query luôn thấy nó ở một trong hai nơi.
+    // synchronized: chỉ một lần ghi tại một thời điểm (flush định kỳ và lúc tắt ứng dụng)
+    private synchronized void writeSealed() {
+        List<AmbulanceLocationSegment> batch = new ArrayList<>();
+        for (AmbulanceLocationSegment segment : sealed) {
+            if (batch.size() >= 1000) {
+                break;
+            }
+            batch.add(segment);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            segmentRepository.saveAll(batch);
+        } catch (RuntimeException e) {
+            // Vẫn nằm trong hàng đợi để thử lại ở lần flush sau
+            logger.warn("Could not write {} ambulance location segments", batch.size(), e);
+            return;
+        }
+        // Các đoạn đã ghi là đầu hàng đợi (append chỉ thêm vào cuối)
+        for (int i = 0; i < batch.size(); i++) {
+            sealed.poll();
+        }
+    }
+
+    private static boolean fits(List<LocationTrailCodec.Point> points, LocationTrailCodec.Point next) {
+        return points.size() < MAX_SEGMENT_POINTS
+                && next.epochMillis() - points.get(0).epochMillis() <= MAX_SEGMENT_DURATION.toMillis();
+    }
+
+    private static void addInRange(NavigableMap<Long, LocationTrailCodec.Point> target,
+                                   List<LocationTrailCodec.Point> points, long fromMillis, long toMillis) {
+        for (LocationTrailCodec.Point point : points) {
+            if (point.epochMillis() >= fromMillis && point.epochMillis() <= toMillis) {
+                target.put(point.epochMillis(), point);
+            }
+        }
+    }
+
+    private static AmbulanceLocationSegment toSegment(Long ambulanceId, List<LocationTrailCodec.Point> points) {
+        AmbulanceLocationSegment segment = new AmbulanceLocationSegment();
+        segment.setAmbulanceId(ambulanceId);
+        segment.setSegmentStart(toLocalDateTime(points.get(0).epochMillis()));
+        segment.setSegmentEnd(toLocalDateTime(points.get(points.size() - 1).epochMillis()));
+        segment.setPointCount(points.size());
+        segment.setData(LocationTrailCodec.encode(points));
+        return segment;
+    }
+
+    static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
@@ -3,14 +3,18 @@ package com.project.medinova.service;
 import com.project.medinova.dto.*;
 import com.project.medinova.entity.Ambulance;
 import com.project.medinova.entity.Clinic;
+import com.project.medinova.exception.BadRequestException;
 import com.project.medinova.exception.NotFoundException;
 import com.project.medinova.repository.AmbulanceRepository;
 import com.project.medinova.repository.ClinicRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -24,6 +28,18 @@ public class AmbulanceService {
     @Autowired
     private ClinicRepository clinicRepository;
 
+    @Autowired
+    private AmbulanceSpatialIndex ambulanceIndex;
+
+    @Autowired
+    private LiveEventBroadcaster liveEvents;
+
+    @Autowired
+    private AmbulanceLocationBuffer locationBuffer;
+
+    @Autowired
+    private AmbulanceLocationHistory locationHistory;
+
     public AmbulanceResponse createAmbulance(CreateAmbulanceRequest request) {
         // Kiểm tra clinic tồn tại
         Clinic clinic = clinicRepository.findById(request.getClinicId())
@@ -44,6 +60,10 @@ public class AmbulanceService {
         }
 
         ambulance = ambulanceRepository.save(ambulance);
+        ambulanceIndex.sync(ambulance);
+        liveEvents.ambulanceStatusChanged(ambulance);
+        Long ambulanceId = ambulance.getId();
+        TransactionCallbacks.afterCommit(() -> locationBuffer.register(ambulanceId, clinic.getId()));
         return toAmbulanceResponse(ambulance);
     }
 
@@ -80,6 +100,7 @@ public class AmbulanceService {
             Clinic clinic = clinicRepository.findById(request.getClinicId())
                     .orElseThrow(() -> new NotFoundException("Clinic not found with id: " + request.getClinicId()));
             ambulance.setClinic(clinic);
+            TransactionCallbacks.afterCommit(() -> locationBuffer.register(id, clinic.getId()));
         }
 
         // Cập nhật các trường
@@ -108,21 +129,80 @@ public class AmbulanceService {
             ambulance.setAmbulanceType(request.getAmbulanceType());
         }
 
+        // Vị trí nhập tay thay cho vị trí GPS mới nhất đang giữ trong bộ đệm (chỉ khi cập nhật được commit)
+        if ((request.getCurrentLat() != null || request.getCurrentLng() != null)
+                && ambulance.getCurrentLat() != null && ambulance.getCurrentLng() != null) {
+            Double lat = ambulance.getCurrentLat();
+            Double lng = ambulance.getCurrentLng();
+            LocalDateTime recordedAt = LocalDateTime.now();
+            TransactionCallbacks.afterCommit(() -> locationBuffer.record(id, lat, lng, recordedAt));
+        }
+
         ambulance = ambulanceRepository.save(ambulance);
+        ambulanceIndex.sync(ambulance);
+        liveEvents.ambulanceStatusChanged(ambulance);
         return toAmbulanceResponse(ambulance);
     }
 
+    /**
+     * Cập nhật vị trí một xe - đi qua AmbulanceLocationBuffer (ghi xuống database theo lô)
+     */
     public AmbulanceResponse updateAmbulanceLocation(Long id, UpdateAmbulanceLocationRequest request) {
         Ambulance ambulance = ambulanceRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Ambulance not found with id: " + id));
 
-        ambulance.setCurrentLat(request.getCurrentLat());
-        ambulance.setCurrentLng(request.getCurrentLng());
-
-        ambulance = ambulanceRepository.save(ambulance);
+        locationBuffer.record(id, request.getCurrentLat(), request.getCurrentLng(), LocalDateTime.now());
         return toAmbulanceResponse(ambulance);
     }
 
+    /**
+     * Nhận vị trí GPS của nhiều xe trong một request.
+     * Chỉ giữ vị trí mới nhất của mỗi xe trong bộ nhớ; database được cập nhật theo lô định kỳ.
+     * Các ping được sắp theo (xe, thời điểm ghi) trước khi ghi nhận, để ping đến không theo thứ tự
+     * vẫn vào lịch sử vị trí thay vì bị coi là cũ (ping không có thời điểm được tính là hiện tại)
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BatchAmbulanceLocationResponse ingestLocations(BatchAmbulanceLocationRequest request) {
+        int accepted = 0;
+        int stale = 0;
+        int unknown = 0;
+        List<AmbulanceLocationPing> pings = new ArrayList<>(request.getLocations());
+        pings.sort(Comparator.comparing(AmbulanceLocationPing::getAmbulanceId, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(AmbulanceLocationPing::getRecordedAt, Comparator.nullsLast(Comparator.naturalOrder())));
+        for (AmbulanceLocationPing ping : pings) {
+            switch (locationBuffer.record(ping.getAmbulanceId(), ping.getLat(), ping.getLng(), ping.getRecordedAt())) {
+                case ACCEPTED -> accepted++;
+                case STALE -> stale++;
+                case UNKNOWN_AMBULANCE -> unknown++;
+            }
+        }
+        return new BatchAmbulanceLocationResponse(request.getLocations().size(), accepted, stale, unknown);
+    }
+
+    /**
+     * Lịch sử vị trí của xe trong khoảng [from, to]; nếu nhiều hơn maxPoints điểm thì lấy mẫu đều
+     */
+    @Transactional(readOnly = true)
+    public AmbulanceLocationHistoryResponse getLocationHistory(Long id, LocalDateTime from, LocalDateTime to, int maxPoints) {
+        if (!ambulanceRepository.existsById(id)) {
+            throw new NotFoundException("Ambulance not found with id: " + id);
+        }
+        if (from == null || to == null || from.isAfter(to)) {
+            throw new BadRequestException("Invalid time range: from must be before to");
+        }
+
+        List<LocationTrailCodec.Point> points = locationHistory.query(id, from, to);
+        boolean sampled = points.size() > maxPoints;
+        List<LocationPoint> result = new ArrayList<>(Math.min(points.size(), maxPoints));
+        double step = sampled ? (double) points.size() / maxPoints : 1.0;
+        for (double i = 0; i < points.size() && result.size() < maxPoints; i += step) {
+            LocationTrailCodec.Point point = points.get((int) i);
+            result.add(new LocationPoint(point.lat(), point.lng(),
+                    AmbulanceLocationHistory.toLocalDateTime(point.epochMillis())));
+        }
+        return new AmbulanceLocationHistoryResponse(id, from, to, points.size(), sampled, result);
+    }
+
     public AmbulanceResponse updateAmbulanceStatus(Long id, UpdateAmbulanceStatusRequest request) {
         Ambulance ambulance = ambulanceRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Ambulance not found with id: " + id));
@@ -138,9 +218,33 @@ public class AmbulanceService {
         }
 
         ambulance = ambulanceRepository.save(ambulance);
+        ambulanceIndex.sync(ambulance);
+        liveEvents.ambulanceStatusChanged(ambulance);
         return toAmbulanceResponse(ambulance);
     }
 
+    /**
+     * Giữ chỗ xe một cách nguyên tử (UPDATE ... WHERE status = 'AVAILABLE')
+     * Trả về xe đã chuyển sang DISPATCHED, hoặc null nếu xe đã bị request khác lấy hoặc không thuộc clinic
+     */
+    public Ambulance reserveAmbulance(Long ambulanceId, Long clinicId) {
+        if (ambulanceRepository.reserveIfAvailable(ambulanceId, clinicId) == 0) {
+            ambulanceIndex.evict(ambulanceId);
+            return null;
+        }
+        ambulanceIndex.holdForReservation(ambulanceId);
+
+        // Entity có thể đã nằm trong persistence context với status cũ - đồng bộ lại với database
+        Ambulance ambulance = ambulanceRepository.findById(ambulanceId)
+                .orElseThrow(() -> new NotFoundException("Ambulance not found with id: " + ambulanceId));
+        ambulance.setStatus("DISPATCHED");
+        ambulance.setLastIdleAt(null);
+        liveEvents.ambulanceStatusChanged(ambulance);
+        // Không chép vị trí GPS mới nhất vào entity: current_lat/current_lng sẽ bị ghi đè lúc commit
+        // (AmbulanceLocationBuffer có thể vừa ghi vị trí mới hơn). Đọc vị trí qua AmbulanceSpatialIndex.getLivePosition
+        return ambulance;
+    }
+
     public void deleteAmbulance(Long id) {
         Ambulance ambulance = ambulanceRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Ambulance not found with id: " + id));
@@ -149,6 +253,9 @@ public class AmbulanceService {
         // Nếu có thì không cho xóa hoặc đánh dấu là không sử dụng được
         
         ambulanceRepository.delete(ambulance);
+        ambulanceIndex.remove(id);
+        liveEvents.ambulanceRemoved(ambulance);
+        TransactionCallbacks.afterCommit(() -> locationBuffer.forget(id));
     }
 
     private AmbulanceResponse toAmbulanceResponse(Ambulance ambulance) {
@@ -157,8 +264,10 @@ public class AmbulanceService {
         response.setClinicId(ambulance.getClinic().getId());
         response.setClinicName(ambulance.getClinic().getName());
         response.setStatus(ambulance.getStatus());
-        response.setCurrentLat(ambulance.getCurrentLat());
-        response.setCurrentLng(ambulance.getCurrentLng());
+        // Vị trí GPS mới nhất có thể chưa được ghi xuống database
+        AmbulanceSpatialIndex.LivePosition live = ambulanceIndex.getLivePosition(ambulance.getId());
+        response.setCurrentLat(live != null ? live.lat() : ambulance.getCurrentLat());
+        response.setCurrentLng(live != null ? live.lng() : ambulance.getCurrentLng());
         response.setLicensePlate(ambulance.getLicensePlate());
         response.setAmbulanceType(ambulance.getAmbulanceType());
         response.setLastIdleAt(ambulance.getLastIdleAt());
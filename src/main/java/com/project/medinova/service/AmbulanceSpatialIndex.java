@@ -0,0 +1,334 @@
+package com.project.medinova.service;
+
+import com.project.medinova.entity.Ambulance;
+import com.project.medinova.repository.AmbulanceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Index không gian (in-memory) của các xe cấp cứu đang AVAILABLE, chia theo clinic.
+ * Được cập nhật sau khi transaction commit mỗi khi status/vị trí xe thay đổi,
+ * và được dựng lại định kỳ từ database để tự sửa sai lệch.
+ */
+@Component
+public class AmbulanceSpatialIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(AmbulanceSpatialIndex.class);
+
+    // ~2.2 km mỗi ô
+    private static final double CELL_DEGREES = 0.02;
+
+    // Xe idle lâu hơn (lastIdleAt sớm hơn) được ưu tiên, xe không có lastIdleAt xếp sau
+    private static final Comparator<Snapshot> IDLE_ORDER = Comparator.comparing(
+            Snapshot::lastIdleAt, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private static final Comparator<Snapshot> ICU_FIRST = Comparator.comparing(
+            (Snapshot snapshot) -> !snapshot.isIcu());
+
+    @Autowired
+    private AmbulanceRepository ambulanceRepository;
+
+    private final Object writeLock = new Object();
+    private volatile State state = new State();
+    private volatile boolean loaded = false;
+    private List<Snapshot> changesDuringRebuild = null;
+
+    // Vị trí GPS mới nhất của mọi xe (kể cả xe không AVAILABLE), mới hơn vị trí trong database
+    // vì AmbulanceLocationBuffer chỉ ghi xuống database định kỳ
+    private final Map<Long, LivePosition> livePositions = new ConcurrentHashMap<>();
+
+    // Được gọi (với clinicId) mỗi khi một xe trở thành AVAILABLE trong index
+    private final List<Consumer<Long>> availabilityListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Trạng thái rút gọn của một xe - chỉ những gì cần để chọn xe
+     */
+    public record Snapshot(Long id, Long clinicId, boolean available, Double lat, Double lng,
+                           String ambulanceType, LocalDateTime lastIdleAt) {
+
+        boolean hasLocation() {
+            return lat != null && lng != null;
+        }
+
+        boolean isIcu() {
+            return "ICU".equals(ambulanceType);
+        }
+    }
+
+    public record LivePosition(double lat, double lng) {
+    }
+
+    private static class State {
+        final Map<Long, Snapshot> byId = new ConcurrentHashMap<>();
+        final Map<Long, GeoGrid<Snapshot>> locatedByClinic = new ConcurrentHashMap<>();
+        final Map<Long, Map<Long, Snapshot>> unlocatedByClinic = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Đồng bộ xe vào index sau khi transaction hiện tại commit (ngay lập tức nếu không có transaction)
+     */
+    public void sync(Ambulance ambulance) {
+        Snapshot snapshot = toSnapshot(ambulance);
+        TransactionCallbacks.afterCommit(() -> apply(snapshot));
+    }
+
+    /**
+     * Xoá xe khỏi index sau khi transaction hiện tại commit
+     */
+    public void remove(Long ambulanceId) {
+        TransactionCallbacks.afterCommit(() -> {
+            livePositions.remove(ambulanceId);
+            apply(removal(ambulanceId));
+        });
+    }
+
+    /**
+     * Cập nhật vị trí mới nhất của xe ngay lập tức (không chờ database).
+     * Xe đang AVAILABLE được dời sang ô mới trong grid.
+     */
+    public void updateLocation(Long ambulanceId, double lat, double lng) {
+        synchronized (writeLock) {
+            livePositions.put(ambulanceId, new LivePosition(lat, lng));
+            Snapshot current = state.byId.get(ambulanceId);
+            if (current != null) {
+                Snapshot moved = new Snapshot(current.id(), current.clinicId(), true, lat, lng,
+                        current.ambulanceType(), current.lastIdleAt());
+                if (changesDuringRebuild != null) {
+                    changesDuringRebuild.add(moved);
+                }
+                applyTo(state, moved);
+            }
+        }
+    }
+
+    /**
+     * Vị trí mới nhất đã nhận của xe, null nếu chưa nhận vị trí nào từ khi khởi động
+     */
+    public LivePosition getLivePosition(Long ambulanceId) {
+        return livePositions.get(ambulanceId);
+    }
+
+    /**
+     * Gỡ xe khỏi index ngay lập tức (ví dụ: giữ chỗ thất bại vì xe không còn AVAILABLE)
+     */
+    public void evict(Long ambulanceId) {
+        apply(removal(ambulanceId));
+    }
+
+    /**
+     * Gỡ xe vừa được giữ chỗ khỏi index ngay, không chờ commit, để request đồng thời không tranh cùng xe.
+     * Nếu transaction rollback thì trả lại entry cũ.
+     */
+    public void holdForReservation(Long ambulanceId) {
+        Snapshot previous;
+        synchronized (writeLock) {
+            previous = state.byId.get(ambulanceId);
+            apply(removal(ambulanceId));
+        }
+        if (previous != null) {
+            TransactionCallbacks.afterRollback(() -> apply(previous));
+        }
+    }
+
+    /**
+     * Đăng ký listener nhận clinicId mỗi khi có xe của clinic đó trở thành AVAILABLE
+     * (sau commit, hoặc khi giữ chỗ bị rollback). Listener chạy trên thread ghi nên phải nhanh.
+     */
+    public void addAvailabilityListener(Consumer<Long> listener) {
+        availabilityListeners.add(listener);
+    }
+
+    /**
+     * Số xe AVAILABLE của clinic theo index
+     */
+    public int countAvailable(Long clinicId) {
+        ensureLoaded();
+        State current = state;
+        GeoGrid<Snapshot> grid = current.locatedByClinic.get(clinicId);
+        Map<Long, Snapshot> unlocated = current.unlocatedByClinic.get(clinicId);
+        return (grid != null ? grid.size() : 0) + (unlocated != null ? unlocated.size() : 0);
+    }
+
+    /**
+     * Danh sách xe ứng viên theo thứ tự ưu tiên điều phối:
+     * 1. Xe có vị trí - ICU trước cho ca CRITICAL/HIGH, sau đó gần hơn, sau đó idle lâu hơn
+     * 2. Xe không có vị trí - ICU trước cho ca CRITICAL/HIGH, sau đó idle lâu hơn
+     * Caller phải kiểm tra lại status trong database vì index có thể trễ so với commit.
+     */
+    public List<Long> findDispatchCandidates(Long clinicId, double patientLat, double patientLng,
+                                             String priority, int limit) {
+        ensureLoaded();
+        State current = state;
+        boolean urgent = "CRITICAL".equals(priority) || "HIGH".equals(priority);
+        Set<Long> candidates = new LinkedHashSet<>();
+
+        GeoGrid<Snapshot> grid = current.locatedByClinic.get(clinicId);
+        if (grid != null && grid.size() > 0) {
+            if (urgent) {
+                addIds(candidates, grid.nearest(patientLat, patientLng, limit, Double.MAX_VALUE,
+                        Snapshot::isIcu, IDLE_ORDER));
+                addIds(candidates, grid.nearest(patientLat, patientLng, limit, Double.MAX_VALUE,
+                        snapshot -> !snapshot.isIcu(), IDLE_ORDER));
+            } else {
+                addIds(candidates, grid.nearest(patientLat, patientLng, limit, Double.MAX_VALUE,
+                        snapshot -> true, IDLE_ORDER));
+            }
+        }
+
+        Map<Long, Snapshot> unlocated = current.unlocatedByClinic.get(clinicId);
+        if (unlocated != null && !unlocated.isEmpty()) {
+            Comparator<Snapshot> order = urgent ? ICU_FIRST.thenComparing(IDLE_ORDER) : IDLE_ORDER;
+            unlocated.values().stream()
+                    .sorted(order)
+                    .limit(limit)
+                    .forEach(snapshot -> candidates.add(snapshot.id()));
+        }
+
+        return new ArrayList<>(candidates);
+    }
+
+    /**
+     * k xe AVAILABLE có vị trí gần nhất của clinic (kèm khoảng cách)
+     */
+    public List<GeoGrid.Hit<Snapshot>> findNearest(Long clinicId, double lat, double lng, int k) {
+        ensureLoaded();
+        GeoGrid<Snapshot> grid = state.locatedByClinic.get(clinicId);
+        if (grid == null) {
+            return List.of();
+        }
+        return grid.nearest(lat, lng, k, Double.MAX_VALUE, snapshot -> true, IDLE_ORDER);
+    }
+
+    /**
+     * Dựng lại index từ database mỗi 5 phút (lần đầu chạy ngay khi khởi động)
+     */
+    @Scheduled(fixedDelay = 300000)
+    public synchronized void rebuild() {
+        synchronized (writeLock) {
+            changesDuringRebuild = new ArrayList<>();
+        }
+
+        State fresh = new State();
+        try {
+            for (Ambulance ambulance : ambulanceRepository.findByStatus("AVAILABLE")) {
+                applyTo(fresh, toSnapshot(ambulance));
+            }
+        } catch (RuntimeException e) {
+            synchronized (writeLock) {
+                changesDuringRebuild = null;
+            }
+            logger.warn("Could not rebuild ambulance spatial index", e);
+            return;
+        }
+
+        synchronized (writeLock) {
+            // Áp dụng lại các thay đổi đã commit trong lúc đang đọc database
+            for (Snapshot change : changesDuringRebuild) {
+                applyTo(fresh, change);
+            }
+            changesDuringRebuild = null;
+            state = fresh;
+            loaded = true;
+        }
+        logger.debug("Rebuilt ambulance spatial index: {} available ambulances", fresh.byId.size());
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    rebuild();
+                }
+            }
+        }
+    }
+
+    private void apply(Snapshot snapshot) {
+        boolean becameAvailable;
+        synchronized (writeLock) {
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(snapshot);
+            }
+            becameAvailable = snapshot.available() && snapshot.clinicId() != null
+                    && !state.byId.containsKey(snapshot.id());
+            applyTo(state, snapshot);
+        }
+
+        if (becameAvailable) {
+            for (Consumer<Long> listener : availabilityListeners) {
+                try {
+                    listener.accept(snapshot.clinicId());
+                } catch (RuntimeException e) {
+                    logger.warn("Ambulance availability listener failed", e);
+                }
+            }
+        }
+    }
+
+    private static void applyTo(State target, Snapshot snapshot) {
+        Snapshot previous = target.byId.remove(snapshot.id());
+        if (previous != null) {
+            GeoGrid<Snapshot> grid = target.locatedByClinic.get(previous.clinicId());
+            if (grid != null) {
+                grid.remove(previous.id());
+            }
+            Map<Long, Snapshot> unlocated = target.unlocatedByClinic.get(previous.clinicId());
+            if (unlocated != null) {
+                unlocated.remove(previous.id());
+            }
+        }
+
+        if (!snapshot.available() || snapshot.clinicId() == null) {
+            return;
+        }
+
+        target.byId.put(snapshot.id(), snapshot);
+        if (snapshot.hasLocation()) {
+            target.locatedByClinic
+                    .computeIfAbsent(snapshot.clinicId(), id -> new GeoGrid<>(CELL_DEGREES))
+                    .put(snapshot.id(), snapshot.lat(), snapshot.lng(), snapshot);
+        } else {
+            target.unlocatedByClinic
+                    .computeIfAbsent(snapshot.clinicId(), id -> new ConcurrentHashMap<>())
+                    .put(snapshot.id(), snapshot);
+        }
+    }
+
+    private static void addIds(Set<Long> target, List<GeoGrid.Hit<Snapshot>> hits) {
+        for (GeoGrid.Hit<Snapshot> hit : hits) {
+            target.add(hit.value().id());
+        }
+    }
+
+    private Snapshot toSnapshot(Ambulance ambulance) {
+        // Vị trí trong entity có thể cũ hơn vị trí GPS chưa được ghi xuống database
+        LivePosition live = livePositions.get(ambulance.getId());
+        return new Snapshot(
+                ambulance.getId(),
+                ambulance.getClinic() != null ? ambulance.getClinic().getId() : null,
+                "AVAILABLE".equals(ambulance.getStatus()),
+                live != null ? live.lat() : ambulance.getCurrentLat(),
+                live != null ? live.lng() : ambulance.getCurrentLng(),
+                ambulance.getAmbulanceType(),
+                ambulance.getLastIdleAt()
+        );
+    }
+
+    private static Snapshot removal(Long ambulanceId) {
+        return new Snapshot(ambulanceId, null, false, null, null, null, null);
+    }
+}
@@ -0,0 +1,137 @@
+package com.project.medinova.service;
+
+import com.project.medinova.repository.AppointmentRepository;
+import com.project.medinova.repository.DoctorScheduleRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Một lô (một transaction) của các job hết hạn trong AppointmentSchedulerService.
+ * Mỗi lô khoá tối đa limit dòng bằng SELECT ... FOR UPDATE SKIP LOCKED rồi xoá/cập nhật chúng bằng một câu lệnh,
+ * nên không có transaction nào giữ khoá hay số round trip tỉ lệ với toàn bộ số dòng hết hạn.
+ */
+@Component
+public class AppointmentExpiryBatch {
+
+    @Autowired
+    private DoctorScheduleRepository scheduleRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private DashboardStatsEngine dashboardStats;
+
+    @Autowired
+    private DoctorDashboardCache doctorDashboardCache;
+
+    @Autowired
+    private BusyScheduleCache busyScheduleCache;
+
+    @Autowired
+    private DoctorRankingIndex doctorRankingIndex;
+
+    @Autowired
+    private DoctorAvailabilityCalendar doctorAvailability;
+
+    /**
+     * Xoá một lô HOLD hết hạn trước now cùng appointment PENDING của chúng.
+     * Trả về số HOLD đã xử lý (nhỏ hơn limit nghĩa là đã hết)
+     */
+    @Transactional
+    public int releaseExpiredHolds(LocalDateTime now, int limit) {
+        List<Object[]> rows = scheduleRepository.findExpiredHoldBatch(now, limit);
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> scheduleIds = new ArrayList<>(rows.size());
+        List<Long> appointmentIds = new ArrayList<>();
+        Set<Long> doctorIds = new HashSet<>();
+        for (Object[] row : rows) {
+            Long scheduleId = toLong(row[0]);
+            Long doctorId = toLong(row[1]);
+            scheduleIds.add(scheduleId);
+            doctorIds.add(doctorId);
+            if (row[2] != null) {
+                appointmentIds.add(toLong(row[2]));
+            } else {
+                doctorAvailability.slotReleased(doctorId, scheduleId);
+            }
+        }
+
+        // Xoá appointment trước (appointments.schedule_id tham chiếu schedule).
+        // Appointment không bị khoá bởi lô này nên có thể đã rời PENDING: chỉ cập nhật bộ đếm và lịch trống
+        // cho các dòng thực sự bị xoá (schedule của appointment còn lại cũng không bị xoá bên dưới)
+        if (!appointmentIds.isEmpty()) {
+            for (Object[] deleted : appointmentRepository.deletePendingByIdInReturning(appointmentIds)) {
+                Long doctorId = toLong(deleted[1]);
+                dashboardStats.appointmentDeleted("PENDING", toLocalDateTime(deleted[2]));
+                doctorRankingIndex.appointmentRemoved(doctorId);
+                doctorAvailability.slotReleased(doctorId, toLong(deleted[3]));
+            }
+        }
+        scheduleRepository.deleteUnreferencedByIdIn(scheduleIds);
+        invalidateDoctorCaches(doctorIds);
+        return rows.size();
+    }
+
+    /**
+     * Chuyển một lô appointment PENDING tạo trước cutoff sang EXPIRED.
+     * Schedule được giữ lại (appointments.schedule_id là NOT NULL); slot được giải phóng vì
+     * kiểm tra trùng giờ và lịch trống đều bỏ qua appointment EXPIRED.
+     * Trả về số appointment đã xử lý (nhỏ hơn limit nghĩa là đã hết)
+     */
+    @Transactional
+    public int expirePendingAppointments(LocalDateTime cutoff, int limit) {
+        List<Object[]> rows = appointmentRepository.findPendingCreatedBeforeBatch(cutoff, limit);
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> appointmentIds = new ArrayList<>(rows.size());
+        Set<Long> doctorIds = new HashSet<>();
+        for (Object[] row : rows) {
+            Long doctorId = toLong(row[1]);
+            appointmentIds.add(toLong(row[0]));
+            doctorIds.add(doctorId);
+            if (row[2] != null) {
+                doctorAvailability.slotReleased(doctorId, toLong(row[2]));
+            }
+        }
+
+        int updated = appointmentRepository.updateStatusByIdIn(appointmentIds, "EXPIRED");
+        dashboardStats.appointmentsStatusChanged("PENDING", "EXPIRED", updated);
+        invalidateDoctorCaches(doctorIds);
+        return rows.size();
+    }
+
+    private void invalidateDoctorCaches(Set<Long> doctorIds) {
+        for (Long doctorId : doctorIds) {
+            doctorDashboardCache.invalidateAfterCommit(doctorId);
+            busyScheduleCache.invalidateAfterCommit(doctorId);
+        }
+    }
+
+    private static Long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : null;
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof LocalDateTime dateTime) {
+            return dateTime;
+        }
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return null;
+    }
+}
@@ -1,18 +1,18 @@
 package com.project.medinova.service;
 
-import com.project.medinova.entity.Appointment;
-import com.project.medinova.entity.DoctorSchedule;
-import com.project.medinova.repository.AppointmentRepository;
-import com.project.medinova.repository.DoctorScheduleRepository;
+import com.project.medinova.dto.AppointmentExpiryStatsResponse;
+import com.project.medinova.dto.ExpiryJobStats;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
 
 @Service
 public class AppointmentSchedulerService {
@@ -20,85 +20,95 @@ public class AppointmentSchedulerService {
     private static final Logger logger = LoggerFactory.getLogger(AppointmentSchedulerService.class);
 
     @Autowired
-    private DoctorScheduleRepository scheduleRepository;
+    private AppointmentExpiryBatch expiryBatch;
 
-    @Autowired
-    private AppointmentRepository appointmentRepository;
+    // Số dòng tối đa mỗi lô; mỗi lô là một transaction riêng
+    @Value("${appointment.expiry.batch-size:500}")
+    private int batchSize;
+
+    // Timeout PENDING: mặc định 2 giờ cho bệnh viện
+    @Value("${appointment.expiry.pending-timeout-minutes:120}")
+    private long pendingTimeoutMinutes;
+
+    private final JobStats holdReleaseStats = new JobStats();
+    private final JobStats pendingExpiryStats = new JobStats();
+
+    /**
+     * Số liệu của một job kể từ khi khởi động
+     */
+    private static final class JobStats {
+        final AtomicLong runs = new AtomicLong();
+        final AtomicLong totalRows = new AtomicLong();
+        final AtomicLong totalNanos = new AtomicLong();
+        volatile LocalDateTime lastRunAt;
+        volatile long lastRows;
+        volatile long lastBatches;
+        volatile long lastNanos;
+
+        ExpiryJobStats toResponse() {
+            return new ExpiryJobStats(runs.get(), totalRows.get(), TimeUnit.NANOSECONDS.toMillis(totalNanos.get()),
+                    lastRunAt, lastRows, lastBatches, TimeUnit.NANOSECONDS.toMillis(lastNanos));
+        }
+    }
 
     /**
      * Tự động release HOLD slots sau 5 phút
      * Chạy mỗi phút
      */
     @Scheduled(fixedRate = 60000) // 60 seconds = 1 minute
-    @Transactional
     public void releaseExpiredHoldSlots() {
         LocalDateTime now = LocalDateTime.now();
-        List<DoctorSchedule> expiredHolds = scheduleRepository.findByStatusAndHoldExpiresAtBefore("HOLD", now);
-        
-        for (DoctorSchedule schedule : expiredHolds) {
-            logger.info("Releasing expired HOLD slot: scheduleId={}, expiredAt={}", 
-                    schedule.getId(), schedule.getHoldExpiresAt());
-            
-            // Xóa appointment nếu có (cascade = CascadeType.ALL sẽ tự động xóa schedule)
-            if (schedule.getAppointment() != null) {
-                Appointment appointment = schedule.getAppointment();
-                if ("PENDING".equals(appointment.getStatus())) {
-                    appointmentRepository.delete(appointment);
-                    logger.info("Deleted expired PENDING appointment: appointmentId={}, scheduleId={}", 
-                            appointment.getId(), schedule.getId());
-                } else {
-                    // Nếu appointment không phải PENDING, chỉ xóa schedule
-                    scheduleRepository.delete(schedule);
-                    logger.info("Deleted expired HOLD schedule: scheduleId={}", schedule.getId());
-                }
-            } else {
-                // Nếu không có appointment, chỉ xóa schedule
-                scheduleRepository.delete(schedule);
-                logger.info("Deleted expired HOLD schedule without appointment: scheduleId={}", schedule.getId());
-            }
-        }
-        
-        if (!expiredHolds.isEmpty()) {
-            logger.info("Released {} expired HOLD slots", expiredHolds.size());
+        long released = runInBatches(holdReleaseStats, () -> expiryBatch.releaseExpiredHolds(now, batchSize));
+        if (released > 0) {
+            logger.info("Released {} expired HOLD slots in {} batches ({} ms)", released,
+                    holdReleaseStats.lastBatches, TimeUnit.NANOSECONDS.toMillis(holdReleaseStats.lastNanos));
         }
     }
 
     /**
      * Tự động expire PENDING appointments sau timeout (mặc định 2 giờ cho bệnh viện)
      * Chạy mỗi 10 phút
-     * Chuyển status sang EXPIRED và release slot thay vì xóa
+     * Chuyển status sang EXPIRED để giải phóng slot thay vì xóa
      */
     @Scheduled(fixedRate = 600000) // 10 minutes
-    @Transactional
     public void expirePendingAppointments() {
-        // Timeout: 2 giờ cho bệnh viện (có thể config trong application.properties)
-        LocalDateTime timeoutAgo = LocalDateTime.now().minusHours(2);
-        List<Appointment> expiredPending = appointmentRepository.findByStatusAndCreatedAtBefore("PENDING", timeoutAgo);
-        
-        for (Appointment appointment : expiredPending) {
-            logger.info("Expiring PENDING appointment: appointmentId={}, createdAt={}", 
-                    appointment.getId(), appointment.getCreatedAt());
-            
-            // Chuyển status sang EXPIRED
-            appointment.setStatus("EXPIRED");
-            appointmentRepository.save(appointment);
-            
-            // Release slot (chuyển schedule về AVAILABLE hoặc xóa nếu cần)
-            DoctorSchedule schedule = appointment.getSchedule();
-            if (schedule != null) {
-                // Xóa schedule để giải phóng slot
-                scheduleRepository.delete(schedule);
-                logger.info("Released slot for expired appointment: appointmentId={}, scheduleId={}", 
-                        appointment.getId(), schedule.getId());
-            }
-            
-            logger.info("Expired PENDING appointment: appointmentId={}, newStatus=EXPIRED", appointment.getId());
-        }
-        
-        if (!expiredPending.isEmpty()) {
-            logger.info("Expired {} PENDING appointments", expiredPending.size());
+        LocalDateTime timeoutAgo = LocalDateTime.now().minusMinutes(pendingTimeoutMinutes);
+        long expired = runInBatches(pendingExpiryStats, () -> expiryBatch.expirePendingAppointments(timeoutAgo, batchSize));
+        if (expired > 0) {
+            logger.info("Expired {} PENDING appointments in {} batches ({} ms)", expired,
+                    pendingExpiryStats.lastBatches, TimeUnit.NANOSECONDS.toMillis(pendingExpiryStats.lastNanos));
         }
     }
-}
 
+    public AppointmentExpiryStatsResponse getExpiryStats() {
+        return new AppointmentExpiryStatsResponse(batchSize, holdReleaseStats.toResponse(), pendingExpiryStats.toResponse());
+    }
 
+    /**
+     * Chạy các lô cho đến khi một lô không đầy. Các lô đã commit được giữ lại nếu một lô sau bị lỗi.
+     * Trả về tổng số dòng đã xử lý
+     */
+    private long runInBatches(JobStats stats, IntSupplier batch) {
+        long start = System.nanoTime();
+        long rows = 0;
+        long batches = 0;
+        try {
+            int processed;
+            do {
+                processed = batch.getAsInt();
+                rows += processed;
+                batches++;
+            } while (processed > 0 && processed >= batchSize);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            stats.runs.incrementAndGet();
+            stats.totalRows.addAndGet(rows);
+            stats.totalNanos.addAndGet(elapsed);
+            stats.lastRunAt = LocalDateTime.now().minusNanos(elapsed);
+            stats.lastRows = rows;
+            stats.lastBatches = batches;
+            stats.lastNanos = elapsed;
+        }
+        return rows;
+    }
+}
@@ -1,15 +1,20 @@
 package com.project.medinova.service;
 
+import com.project.medinova.dto.AppointmentCursorPage;
 import com.project.medinova.dto.AppointmentResponse;
+import com.project.medinova.dto.AvailableDoctorResponse;
 import com.project.medinova.dto.BusyScheduleResponse;
 import com.project.medinova.dto.ConfirmAppointmentRequest;
 import com.project.medinova.dto.CreateAppointmentRequest;
+import com.project.medinova.dto.DayFreeSlots;
+import com.project.medinova.dto.DoctorFreeSlotsResponse;
 import com.project.medinova.dto.HoldSlotRequest;
 import com.project.medinova.dto.UpdateAppointmentStatusRequest;
 import com.project.medinova.dto.UpdateAppointmentStatusByDoctorRequest;
 import com.project.medinova.dto.UpdateAppointmentNotesRequest;
 import com.project.medinova.dto.RejectAppointmentRequest;
 import com.project.medinova.entity.Appointment;
+import com.project.medinova.entity.Department;
 import com.project.medinova.entity.Doctor;
 import com.project.medinova.entity.DoctorLeaveRequest;
 import com.project.medinova.entity.DoctorSchedule;
@@ -29,17 +34,27 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class AppointmentService {
 
+    // Khoảng ngày mặc định và tối đa của busy schedules
+    private static final int BUSY_SCHEDULE_DEFAULT_DAYS = 30;
+    private static final int BUSY_SCHEDULE_MAX_DAYS = 90;
+
     @Autowired
     private AppointmentRepository appointmentRepository;
 
@@ -58,6 +73,24 @@ public class AppointmentService {
     @Autowired
     private AuthService authService;
 
+    @Autowired
+    private DashboardStatsEngine dashboardStats;
+
+    @Autowired
+    private DoctorDashboardCache doctorDashboardCache;
+
+    @Autowired
+    private DoctorRankingIndex doctorRankingIndex;
+
+    @Autowired
+    private SlotReservationEngine slotReservationEngine;
+
+    @Autowired
+    private DoctorAvailabilityCalendar doctorAvailability;
+
+    @Autowired
+    private BusyScheduleCache busyScheduleCache;
+
     /**
      * Helper method to convert Appointment entity to AppointmentResponse DTO
      * to avoid recursive serialization issues
@@ -180,43 +213,31 @@ public class AppointmentService {
         LocalDateTime newAppointmentStart = appointmentTime;
         LocalDateTime newAppointmentEnd = appointmentTime.plusMinutes(duration);
         
-        // Lấy tất cả appointments của doctor (trừ CANCELLED)
-        List<Appointment> allAppointments = appointmentRepository.findByDoctorId(doctor.getId());
+        // Khoá đặt lịch của doctor đến hết transaction: request đồng thời cho cùng doctor
+        // chỉ kiểm tra trùng giờ sau khi HOLD của request này đã commit
+        slotReservationEngine.lockDoctor(doctor.getId());
         LocalDateTime now = LocalDateTime.now();
-        
+
+        // Chỉ lấy schedule của doctor trong các ngày mà khoảng thời gian mới chạm tới, thay vì toàn bộ lịch sử
+        // (schedule kết thúc trong chính work_date của nó nên không cần xét ngày trước đó)
+        List<DoctorSchedule> nearbySchedules = scheduleRepository.findBookedByDoctorIdAndWorkDateBetween(
+                doctor.getId(), appointmentDate, newAppointmentEnd.toLocalDate(),
+                DoctorAvailabilityCalendar.RELEASED_STATUSES);
+
         // Kiểm tra overlap với các appointments khác
-        for (Appointment existingApt : allAppointments) {
-            // Bỏ qua CANCELLED
-            if ("CANCELLED".equals(existingApt.getStatus())) {
-                continue;
-            }
-            
+        for (DoctorSchedule existingSchedule : nearbySchedules) {
+            Appointment existingApt = existingSchedule.getAppointment();
+
             // Nếu là HOLD, kiểm tra xem đã hết hạn chưa
-            if ("PENDING".equals(existingApt.getStatus()) && existingApt.getSchedule() != null) {
-                DoctorSchedule aptSchedule = existingApt.getSchedule();
-                if ("HOLD".equals(aptSchedule.getStatus()) && aptSchedule.getHoldExpiresAt() != null) {
-                    if (aptSchedule.getHoldExpiresAt().isBefore(now)) {
-                        continue; // HOLD đã hết hạn, bỏ qua
-                    }
-                }
+            if ("PENDING".equals(existingApt.getStatus()) && "HOLD".equals(existingSchedule.getStatus())
+                    && existingSchedule.getHoldExpiresAt() != null && existingSchedule.getHoldExpiresAt().isBefore(now)) {
+                continue; // HOLD đã hết hạn, bỏ qua
             }
-            
-            // Lấy thời gian của appointment hiện tại
+
+            // Lấy thời gian của appointment hiện tại (kết thúc theo schedule)
             LocalDateTime existingStart = existingApt.getAppointmentTime();
-            LocalDateTime existingEnd;
-            
-            if (existingApt.getSchedule() != null && existingApt.getSchedule().getStartTime() != null && 
-                existingApt.getSchedule().getEndTime() != null) {
-                // Sử dụng thời gian từ schedule
-                existingEnd = LocalDateTime.of(
-                    existingApt.getSchedule().getWorkDate(), 
-                    existingApt.getSchedule().getEndTime()
-                );
-            } else {
-                // Fallback: mặc định 60 phút
-                existingEnd = existingStart.plusMinutes(60);
-            }
-            
+            LocalDateTime existingEnd = LocalDateTime.of(existingSchedule.getWorkDate(), existingSchedule.getEndTime());
+
             // Kiểm tra overlap: hai khoảng thời gian overlap nếu:
             // - newStart < existingEnd VÀ newEnd > existingStart
             boolean hasOverlap = newAppointmentStart.isBefore(existingEnd) && 
@@ -254,6 +275,11 @@ public class AppointmentService {
         appointment.setSchedule(schedule);
         
         Appointment savedAppointment = appointmentRepository.save(appointment);
+        dashboardStats.appointmentCreated(savedAppointment);
+        doctorRankingIndex.appointmentAdded(doctor.getId());
+        doctorDashboardCache.invalidateAfterCommit(savedAppointment.getDoctor().getId());
+        busyScheduleCache.invalidateAfterCommit(savedAppointment.getDoctor().getId());
+        doctorAvailability.slotBooked(schedule);
         return toAppointmentResponse(savedAppointment);
     }
 
@@ -320,26 +346,48 @@ public class AppointmentService {
 
         // Appointment vẫn giữ status PENDING (chờ doctor confirm)
         Appointment savedAppointment = appointmentRepository.save(appointment);
+        busyScheduleCache.invalidateAfterCommit(savedAppointment.getDoctor().getId());
         return toAppointmentResponse(savedAppointment);
     }
 
-    public List<BusyScheduleResponse> getBusySchedules(Long doctorId) {
+    @Transactional(readOnly = true)
+    public List<BusyScheduleResponse> getBusySchedules(Long doctorId, LocalDate from, LocalDate to) {
+        // Mặc định: từ hôm nay, BUSY_SCHEDULE_DEFAULT_DAYS ngày
+        LocalDate fromDate = from != null ? from : LocalDate.now();
+        LocalDate toDate = to != null ? to : fromDate.plusDays(BUSY_SCHEDULE_DEFAULT_DAYS - 1);
+        if (toDate.isBefore(fromDate)) {
+            throw new BadRequestException("'to' must not be before 'from'");
+        }
+        if (fromDate.plusDays(BUSY_SCHEDULE_MAX_DAYS).isBefore(toDate.plusDays(1))) {
+            throw new BadRequestException("Date range must not exceed " + BUSY_SCHEDULE_MAX_DAYS + " days");
+        }
+
         // Kiểm tra doctor tồn tại
-        Doctor doctor = doctorRepository.findById(doctorId)
-                .orElseThrow(() -> new NotFoundException("Doctor not found with id: " + doctorId));
+        if (!doctorRepository.existsById(doctorId)) {
+            throw new NotFoundException("Doctor not found with id: " + doctorId);
+        }
+
+        return busyScheduleCache.get(doctorId, fromDate, toDate,
+                () -> loadBusySchedules(doctorId, fromDate, toDate));
+    }
 
+    private List<BusyScheduleResponse> loadBusySchedules(Long doctorId, LocalDate fromDate, LocalDate toDate) {
         List<BusyScheduleResponse> busySchedules = new ArrayList<>();
         LocalDateTime now = LocalDateTime.now();
 
-        // Lấy tất cả appointments của doctor (trừ CANCELLED)
-        List<Appointment> appointments = appointmentRepository.findByDoctorId(doctorId);
-        appointments = appointments.stream()
-                .filter(apt -> !"CANCELLED".equals(apt.getStatus()))
-                .collect(Collectors.toList());
+        // Appointments còn giữ slot trong khoảng ngày (bỏ các trạng thái đã nhả slot)
+        List<Appointment> appointments = appointmentRepository.findActiveWithScheduleByDoctorIdBetween(
+                doctorId, fromDate.atStartOfDay(), toDate.plusDays(1).atStartOfDay(),
+                DoctorAvailabilityCalendar.RELEASED_STATUSES);
+        // Schedule id đã có appointment, để HOLD không bị thêm trùng
+        Set<Long> scheduleIds = new HashSet<>();
 
         for (Appointment appointment : appointments) {
             BusyScheduleResponse response = new BusyScheduleResponse();
             DoctorSchedule schedule = appointment.getSchedule();
+            if (schedule != null) {
+                scheduleIds.add(schedule.getId());
+            }
             
             // Xác định type dựa trên schedule status
             if (schedule != null && "HOLD".equals(schedule.getStatus())) {
@@ -370,32 +418,29 @@ public class AppointmentService {
             busySchedules.add(response);
         }
 
-        // Lấy tất cả HOLD schedules chưa hết hạn (có thể không có appointment nếu đang trong quá trình hold)
-        List<DoctorSchedule> holdSchedules = scheduleRepository.findByDoctorIdAndStatus(doctorId, "HOLD");
+        // HOLD schedules chưa hết hạn trong khoảng ngày (có thể không có appointment nếu đang trong quá trình hold)
+        List<DoctorSchedule> holdSchedules = scheduleRepository
+                .findByDoctorIdAndStatusAndWorkDateBetween(doctorId, "HOLD", fromDate, toDate);
         for (DoctorSchedule schedule : holdSchedules) {
-            // Chỉ lấy HOLD chưa hết hạn
-            if (schedule.getHoldExpiresAt() != null && schedule.getHoldExpiresAt().isAfter(now)) {
-                // Kiểm tra xem đã có trong appointments chưa (để tránh duplicate)
-                boolean alreadyAdded = appointments.stream()
-                        .anyMatch(apt -> apt.getSchedule() != null && apt.getSchedule().getId().equals(schedule.getId()));
-                
-                if (!alreadyAdded) {
-                    BusyScheduleResponse response = new BusyScheduleResponse();
-                    response.setType("HOLD");
-                    LocalDateTime startDateTime = LocalDateTime.of(schedule.getWorkDate(), schedule.getStartTime());
-                    LocalDateTime endDateTime = LocalDateTime.of(schedule.getWorkDate(), schedule.getEndTime());
-                    response.setStartDateTime(startDateTime);
-                    response.setEndDateTime(endDateTime);
-                    response.setReason("Slot is being held (expires in " + 
-                        java.time.Duration.between(now, schedule.getHoldExpiresAt()).toMinutes() + " minutes)");
-                    busySchedules.add(response);
-                }
+            // Chỉ lấy HOLD chưa hết hạn và chưa có trong appointments
+            if (schedule.getHoldExpiresAt() != null && schedule.getHoldExpiresAt().isAfter(now)
+                    && !scheduleIds.contains(schedule.getId())) {
+                BusyScheduleResponse response = new BusyScheduleResponse();
+                response.setType("HOLD");
+                LocalDateTime startDateTime = LocalDateTime.of(schedule.getWorkDate(), schedule.getStartTime());
+                LocalDateTime endDateTime = LocalDateTime.of(schedule.getWorkDate(), schedule.getEndTime());
+                response.setStartDateTime(startDateTime);
+                response.setEndDateTime(endDateTime);
+                response.setReason("Slot is being held (expires in " + 
+                    java.time.Duration.between(now, schedule.getHoldExpiresAt()).toMinutes() + " minutes)");
+                busySchedules.add(response);
             }
         }
 
-        // Lấy tất cả leave requests đã được approve
+        // Leave requests đã được approve giao với khoảng ngày
         List<DoctorLeaveRequest> approvedLeaves = leaveRequestRepository
-                .findByDoctorIdAndStatus(doctorId, "APPROVED");
+                .findByDoctorIdAndStatusAndStartDateLessThanEqualAndEndDateGreaterThanEqual(
+                        doctorId, "APPROVED", toDate, fromDate);
 
         for (DoctorLeaveRequest leave : approvedLeaves) {
             BusyScheduleResponse response = new BusyScheduleResponse();
@@ -428,6 +473,49 @@ public class AppointmentService {
         return busySchedules;
     }
 
+    /**
+     * Slot trống của doctor trong days ngày tới, đọc từ lịch trống in-memory
+     */
+    @Transactional(readOnly = true)
+    public DoctorFreeSlotsResponse getFreeSlots(Long doctorId, int days) {
+        if (!doctorRepository.existsById(doctorId)) {
+            throw new NotFoundException("Doctor not found with id: " + doctorId);
+        }
+        int window = Math.max(1, Math.min(days, doctorAvailability.getHorizonDays()));
+
+        List<DayFreeSlots> freeDays = doctorAvailability.getFreeSlots(doctorId, window).stream()
+                .map(day -> new DayFreeSlots(day.date(), day.freeSlots()))
+                .collect(Collectors.toList());
+        return new DoctorFreeSlotsResponse(doctorId, doctorAvailability.getSlotMinutes(), freeDays);
+    }
+
+    /**
+     * Các doctor APPROVED của department (tuỳ chọn lọc theo clinic) trống trong [time, time + durationMinutes)
+     */
+    @Transactional(readOnly = true)
+    public List<AvailableDoctorResponse> getAvailableDoctors(Department department, Long clinicId,
+                                                             LocalDateTime time, Integer durationMinutes) {
+        int duration = durationMinutes != null ? durationMinutes : 60;
+        if (duration < 1) {
+            throw new BadRequestException("durationMinutes must be positive");
+        }
+
+        List<Long> doctorIds = doctorAvailability.findFreeDoctors(department, clinicId, time, duration);
+        if (doctorIds.isEmpty()) {
+            return List.of();
+        }
+        return doctorRepository.findWithUserAndClinicByIdIn(doctorIds).stream()
+                .sorted(Comparator.comparing(Doctor::getId))
+                .map(doctor -> new AvailableDoctorResponse(
+                        doctor.getId(),
+                        doctor.getUser().getFullName(),
+                        doctor.getDepartment().name(),
+                        doctor.getDepartment().getDisplayName(),
+                        doctor.getClinic().getId(),
+                        doctor.getClinic().getName()))
+                .collect(Collectors.toList());
+    }
+
     public AppointmentResponse updateAppointmentStatus(Long id, UpdateAppointmentStatusRequest request) {
         // Lấy user hiện tại từ JWT
         User currentUser = authService.getCurrentUser();
@@ -481,6 +569,7 @@ public class AppointmentService {
         }
 
         Appointment savedAppointment = appointmentRepository.save(appointment);
+        appointmentChanged(savedAppointment, currentStatus);
         return toAppointmentResponse(savedAppointment);
     }
 
@@ -593,6 +682,7 @@ public class AppointmentService {
         }
 
         Appointment savedAppointment = appointmentRepository.save(appointment);
+        appointmentChanged(savedAppointment, currentStatus);
         return toAppointmentResponse(savedAppointment);
     }
 
@@ -737,41 +827,97 @@ public class AppointmentService {
      * Get all appointments with pagination (ADMIN only)
      */
     public Page<AppointmentResponse> getAllAppointments(String status, Pageable pageable) {
-        List<Appointment> appointments;
-        
-        if (status != null && !status.trim().isEmpty()) {
-            appointments = appointmentRepository.findByStatus(status);
-        } else {
-            appointments = appointmentRepository.findAll();
-        }
-        
-        // Sort: future/current appointments first (ascending), then past appointments (descending)
-        LocalDateTime now = LocalDateTime.now();
-        List<Appointment> futureAppointments = appointments.stream()
-                .filter(apt -> apt.getAppointmentTime() != null && apt.getAppointmentTime().isAfter(now) || apt.getAppointmentTime().isEqual(now))
-                .sorted((a, b) -> a.getAppointmentTime().compareTo(b.getAppointmentTime()))
-                .collect(Collectors.toList());
-        
-        List<Appointment> pastAppointments = appointments.stream()
-                .filter(apt -> apt.getAppointmentTime() != null && apt.getAppointmentTime().isBefore(now))
-                .sorted((a, b) -> b.getAppointmentTime().compareTo(a.getAppointmentTime()))
-                .collect(Collectors.toList());
-        
-        List<Appointment> sortedAppointments = new ArrayList<>();
-        sortedAppointments.addAll(futureAppointments);
-        sortedAppointments.addAll(pastAppointments);
-        
-        // Apply pagination
-        int start = (int) pageable.getOffset();
-        int end = Math.min((start + pageable.getPageSize()), sortedAppointments.size());
-        List<Appointment> paginatedAppointments = sortedAppointments.subList(start, end);
-        
+        String statusFilter = status != null && !status.trim().isEmpty() ? status : null;
+
+        // Sắp xếp và phân trang trong database: future/current (ASC) trước, past (DESC) sau
+        Page<Appointment> appointmentPage = appointmentRepository.findAllWithOrdering(
+            statusFilter,
+            LocalDateTime.now(),
+            pageable);
+
         // Convert to DTO
-        List<AppointmentResponse> content = paginatedAppointments.stream()
+        List<AppointmentResponse> content = appointmentPage.getContent().stream()
                 .map(this::toAppointmentResponse)
                 .collect(Collectors.toList());
-        
-        return new PageImpl<>(content, pageable, sortedAppointments.size());
+
+        return new PageImpl<>(content, pageable, appointmentPage.getTotalElements());
+    }
+
+    /**
+     * Get all appointments with keyset pagination (ADMIN only).
+     * Cùng thứ tự với getAllAppointments nhưng mỗi trang seek theo (appointment_time, id) của phần tử cuối
+     * trang trước thay vì OFFSET, nên trang sâu vẫn nhanh như trang đầu.
+     * Mốc "now" được giữ trong cursor để ranh giới future/past không dịch chuyển giữa các trang.
+     */
+    public AppointmentCursorPage getAllAppointmentsByCursor(String status, String cursor, int size) {
+        String statusFilter = status != null && !status.trim().isEmpty() ? status : null;
+        AppointmentCursor position = cursor != null && !cursor.isBlank()
+                ? AppointmentCursor.decode(cursor)
+                : AppointmentCursor.first(LocalDateTime.now());
+        LocalDateTime now = position.now();
+
+        // Lấy thêm 1 phần tử để biết còn trang sau hay không
+        int limit = size + 1;
+        List<Appointment> rows = new ArrayList<>(limit);
+        if (!position.past()) {
+            rows.addAll(statusFilter != null
+                    ? appointmentRepository.findUpcomingByStatusAfter(statusFilter, now, position.time(), position.id(), limit)
+                    : appointmentRepository.findUpcomingAfter(now, position.time(), position.id(), limit));
+        }
+        if (rows.size() < limit) {
+            // Hết phần future: tiếp tục với past, từ mốc now (hoặc từ vị trí trong cursor)
+            LocalDateTime beforeTime = position.past() ? position.time() : now;
+            long beforeId = position.past() ? position.id() : 0L;
+            int remaining = limit - rows.size();
+            rows.addAll(statusFilter != null
+                    ? appointmentRepository.findPastByStatusBefore(statusFilter, now, beforeTime, beforeId, remaining)
+                    : appointmentRepository.findPastBefore(now, beforeTime, beforeId, remaining));
+        }
+
+        boolean hasNext = rows.size() > size;
+        List<Appointment> page = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = null;
+        if (hasNext) {
+            Appointment last = page.get(page.size() - 1);
+            nextCursor = new AppointmentCursor(now, last.getAppointmentTime().isBefore(now),
+                    last.getAppointmentTime(), last.getId()).encode();
+        }
+
+        List<AppointmentResponse> content = page.stream()
+                .map(this::toAppointmentResponse)
+                .collect(Collectors.toList());
+        return new AppointmentCursorPage(content, size, hasNext, nextCursor);
+    }
+
+    /**
+     * Vị trí trong danh sách appointment của ADMIN: mốc now, đang ở phần past hay không,
+     * và (appointment_time, id) của phần tử cuối cùng đã trả về
+     */
+    record AppointmentCursor(LocalDateTime now, boolean past, LocalDateTime time, long id) {
+
+        static AppointmentCursor first(LocalDateTime now) {
+            // (now, 0) đứng trước mọi appointment tại now vì id luôn dương
+            return new AppointmentCursor(now, false, now, 0L);
+        }
+
+        String encode() {
+            String raw = now + "|" + (past ? "P" : "F") + "|" + time + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static AppointmentCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                String[] parts = raw.split("\\|");
+                if (parts.length != 4 || !("P".equals(parts[1]) || "F".equals(parts[1]))) {
+                    throw new IllegalArgumentException(raw);
+                }
+                return new AppointmentCursor(LocalDateTime.parse(parts[0]), "P".equals(parts[1]),
+                        LocalDateTime.parse(parts[2]), Long.parseLong(parts[3]));
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                throw new BadRequestException("Invalid cursor");
+            }
+        }
     }
 
     /**
@@ -841,6 +987,7 @@ public class AppointmentService {
         }
 
         Appointment savedAppointment = appointmentRepository.save(appointment);
+        appointmentChanged(savedAppointment, "CONFIRMED");
         return toAppointmentResponse(savedAppointment);
     }
 
@@ -889,6 +1036,7 @@ public class AppointmentService {
         }
 
         Appointment savedAppointment = appointmentRepository.save(appointment);
+        appointmentChanged(savedAppointment, "CHECKED_IN");
         return toAppointmentResponse(savedAppointment);
     }
 
@@ -938,6 +1086,7 @@ public class AppointmentService {
         }
 
         Appointment savedAppointment = appointmentRepository.save(appointment);
+        appointmentChanged(savedAppointment, "IN_PROGRESS");
         return toAppointmentResponse(savedAppointment);
     }
 
@@ -988,6 +1137,7 @@ public class AppointmentService {
         }
 
         Appointment savedAppointment = appointmentRepository.save(appointment);
+        appointmentChanged(savedAppointment, "PENDING");
         return toAppointmentResponse(savedAppointment);
     }
 
@@ -1042,6 +1192,7 @@ public class AppointmentService {
         }
 
         Appointment savedAppointment = appointmentRepository.save(appointment);
+        appointmentChanged(savedAppointment, "PENDING");
         return toAppointmentResponse(savedAppointment);
     }
 
@@ -1096,6 +1247,7 @@ public class AppointmentService {
         }
 
         Appointment savedAppointment = appointmentRepository.save(appointment);
+        appointmentChanged(savedAppointment, "CONFIRMED");
         return toAppointmentResponse(savedAppointment);
     }
 
@@ -1158,10 +1310,30 @@ public class AppointmentService {
         }
 
         // Assign appointment cho doctor mới
+        Long previousDoctorId = appointment.getDoctor().getId();
         appointment.setDoctor(newDoctor);
 
         Appointment savedAppointment = appointmentRepository.save(appointment);
+        doctorDashboardCache.invalidateAfterCommit(previousDoctorId);
+        busyScheduleCache.invalidateAfterCommit(previousDoctorId);
+        doctorDashboardCache.invalidateAfterCommit(newDoctor.getId());
+        busyScheduleCache.invalidateAfterCommit(newDoctor.getId());
+        doctorRankingIndex.appointmentMoved(previousDoctorId, newDoctor.getId());
         return toAppointmentResponse(savedAppointment);
     }
-}
 
+    /**
+     * Appointment vừa đổi trạng thái từ fromStatus: cập nhật bộ đếm dashboard, xoá cache của bác sĩ
+     * và giải phóng slot trong lịch trống nếu status mới không còn giữ slot
+     */
+    private void appointmentChanged(Appointment appointment, String fromStatus) {
+        Long doctorId = appointment.getDoctor().getId();
+        dashboardStats.appointmentStatusChanged(fromStatus, appointment.getStatus());
+        doctorDashboardCache.invalidateAfterCommit(doctorId);
+        busyScheduleCache.invalidateAfterCommit(doctorId);
+        DoctorSchedule schedule = appointment.getSchedule();
+        if (schedule != null && DoctorAvailabilityCalendar.RELEASED_STATUSES.contains(appointment.getStatus())) {
+            doctorAvailability.slotReleased(schedule);
+        }
+    }
+}
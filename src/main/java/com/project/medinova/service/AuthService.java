@@ -1,28 +1,29 @@
 package com.project.medinova.service;
 
+import com.project.medinova.config.AuthenticatedUser;
+import com.project.medinova.config.JwtClaims;
 import com.project.medinova.config.JwtTokenProvider;
 import com.project.medinova.dto.AuthRequest;
 import com.project.medinova.dto.AuthResponse;
+import com.project.medinova.dto.LoginThrottleStatsResponse;
 import com.project.medinova.dto.RegisterRequest;
 import com.project.medinova.dto.TokenValidationResponse;
 import com.project.medinova.entity.User;
 import com.project.medinova.exception.BadRequestException;
 import com.project.medinova.exception.UnauthorizedException;
 import com.project.medinova.repository.UserRepository;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.Date;
-import java.util.HashSet;
-import java.util.Set;
 
 @Service
 @Transactional
@@ -32,48 +33,44 @@ public class AuthService {
     private UserRepository userRepository;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingExecutor passwordHashing;
 
     @Autowired
-    private JwtTokenProvider tokenProvider;
+    private LoginRateLimiter loginRateLimiter;
 
     @Autowired
-    private AuthenticationManager authenticationManager;
-
-    private final Set<String> blacklistedTokens = new HashSet<>();
-
-    public AuthResponse login(AuthRequest authRequest) {
-        try {
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(
-                            authRequest.getEmail(),
-                            authRequest.getPassword()
-                    )
-            );
+    private JwtTokenProvider tokenProvider;
 
-            SecurityContextHolder.getContext().setAuthentication(authentication);
+    @Autowired
+    private UserSnapshotCache userSnapshotCache;
 
-            User user = userRepository.findByEmail(authRequest.getEmail())
-                    .orElseThrow(() -> new UnauthorizedException("User not found"));
+    @Autowired
+    private TokenRevocationService tokenRevocation;
 
-            if (user.getStatus() != null && !user.getStatus().equals("ACTIVE")) {
-                throw new UnauthorizedException("Account is not active");
-            }
+    @Autowired
+    private RefreshTokenService refreshTokenService;
 
-            String token = tokenProvider.generateToken(user.getEmail(), user.getId(), user.getRole());
+    /**
+     * Không mở transaction: không giữ connection database trong lúc chờ băm mật khẩu
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public AuthResponse login(AuthRequest authRequest, String clientIp) {
+        // Chặn sớm theo email/IP trước khi tốn CPU cho việc so khớp mật khẩu
+        loginRateLimiter.checkLogin(authRequest.getEmail(), clientIp);
 
-            AuthResponse authResponse = new AuthResponse();
-            authResponse.setToken(token);
-            authResponse.setTokenType("Bearer");
-            authResponse.setUserId(user.getId());
-            authResponse.setEmail(user.getEmail());
-            authResponse.setFullName(user.getFullName());
-            authResponse.setRole(user.getRole());
+        User user = userRepository.findByEmail(authRequest.getEmail()).orElse(null);
 
-            return authResponse;
-        } catch (org.springframework.security.authentication.BadCredentialsException e) {
+        // Email không tồn tại vẫn tốn một lần so khớp (hash giả)
+        boolean matches = passwordHashing.matches(authRequest.getPassword(), user != null ? user.getPasswordHash() : null);
+        if (user == null || !matches) {
             throw new UnauthorizedException("Invalid email or password");
         }
+
+        if (user.getStatus() != null && !user.getStatus().equals("ACTIVE")) {
+            throw new UnauthorizedException("Account is not active");
+        }
+
+        return issueTokens(user, refreshTokenService.issue(user));
     }
 
     public void logout(String token) {
@@ -81,22 +78,38 @@ public class AuthService {
             token = token.substring(7);
         }
         if (token != null && !token.isEmpty()) {
-            blacklistedTokens.add(token);
+            try {
+                // Thu hồi theo jti đến khi token hết hạn, cùng với refresh token của phiên đăng nhập
+                JwtClaims claims = tokenProvider.parseToken(token);
+                tokenRevocation.revoke(claims);
+                if (claims.familyId() != null) {
+                    refreshTokenService.revokeFamily(claims.familyId());
+                }
+            } catch (JwtException e) {
+                // Token hết hạn hoặc không hợp lệ: vốn đã không dùng được, không cần thu hồi
+            }
         }
     }
 
-    public boolean isTokenBlacklisted(String token) {
-        return blacklistedTokens.contains(token);
+    public boolean isTokenRevoked(JwtClaims claims) {
+        return tokenRevocation.isRevoked(claims);
     }
 
-    public User getCurrentUser() {
+    /**
+     * Principal của request hiện tại, lấy từ claims của JWT (không truy vấn database)
+     */
+    public AuthenticatedUser getCurrentPrincipal() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !authentication.isAuthenticated()) {
             throw new UnauthorizedException("User not authenticated");
         }
+        if (authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            return principal;
+        }
 
-        // Lấy userId từ authentication details (được set bởi JwtAuthenticationFilter)
+        // Lấy userId và role từ authentication details (được set bởi JwtAuthenticationFilter)
         Long userId = null;
+        String role = null;
         if (authentication.getDetails() instanceof java.util.Map) {
             @SuppressWarnings("unchecked")
             java.util.Map<String, Object> details = (java.util.Map<String, Object>) authentication.getDetails();
@@ -104,22 +117,50 @@ public class AuthService {
             if (userIdObj instanceof Number) {
                 userId = ((Number) userIdObj).longValue();
             }
+            if (details.get("role") instanceof String roleValue) {
+                role = roleValue;
+            }
         }
+        return new AuthenticatedUser(userId, authentication.getName(), role);
+    }
 
-        // Nếu có userId từ token, query trực tiếp bằng userId
-        if (userId != null) {
-            return userRepository.findById(userId)
-                    .orElseThrow(() -> new UnauthorizedException("User not found"));
+    public Long getCurrentUserId() {
+        Long userId = getCurrentPrincipal().userId();
+        if (userId == null) {
+            throw new UnauthorizedException("User not found");
+        }
+        return userId;
+    }
+
+    /**
+     * User hiện tại, lấy từ cache snapshot (bản sao, không được quản lý bởi persistence context).
+     * Chỉ cần id/role thì dùng getCurrentPrincipal()
+     */
+    public User getCurrentUser() {
+        AuthenticatedUser principal = getCurrentPrincipal();
+
+        // Nếu có userId từ token, lấy snapshot theo userId
+        if (principal.userId() != null) {
+            User user = userSnapshotCache.get(principal.userId());
+            if (user == null) {
+                throw new UnauthorizedException("User not found");
+            }
+            return user;
         }
 
         // Fallback: lấy từ email nếu không có userId (trường hợp cũ)
-        String email = authentication.getName();
-        return userRepository.findByEmail(email)
+        return userRepository.findByEmail(principal.email())
                 .orElseThrow(() -> new UnauthorizedException("User not found"));
     }
 
-    @Transactional
-    public AuthResponse register(RegisterRequest registerRequest) {
+    /**
+     * Không mở transaction: không giữ connection database trong lúc chờ băm mật khẩu.
+     * Email trùng do đăng ký đồng thời vẫn bị chặn bởi unique constraint của users.email
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public AuthResponse register(RegisterRequest registerRequest, String clientIp) {
+        loginRateLimiter.checkRegister(clientIp);
+
         // Kiểm tra email đã tồn tại chưa
         if (userRepository.existsByEmail(registerRequest.getEmail())) {
             throw new BadRequestException("Email already exists");
@@ -128,7 +169,7 @@ public class AuthService {
         // Tạo user mới với role PATIENT
         User user = new User();
         user.setEmail(registerRequest.getEmail());
-        user.setPasswordHash(passwordEncoder.encode(registerRequest.getPassword()));
+        user.setPasswordHash(passwordHashing.encode(registerRequest.getPassword()));
         user.setFullName(registerRequest.getFullName());
         user.setPhone(registerRequest.getPhone());
         user.setRole("PATIENT");
@@ -137,11 +178,34 @@ public class AuthService {
         user = userRepository.save(user);
 
         // Tạo JWT token và trả về response
-        String token = tokenProvider.generateToken(user.getEmail(), user.getId(), user.getRole());
+        return issueTokens(user, refreshTokenService.issue(user));
+    }
+
+    /**
+     * Đổi refresh token lấy cặp access/refresh token mới. Refresh token cũ không dùng lại được;
+     * dùng lại sẽ thu hồi cả họ token (giữ lại việc thu hồi dù ném UnauthorizedException)
+     */
+    @Transactional(noRollbackFor = UnauthorizedException.class)
+    public AuthResponse refresh(String refreshToken) {
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(refreshToken);
+        User user = rotation.user();
+
+        if (user.getStatus() != null && !user.getStatus().equals("ACTIVE")) {
+            refreshTokenService.revokeFamily(rotation.next().familyId());
+            throw new UnauthorizedException("Account is not active");
+        }
+
+        return issueTokens(user, rotation.next());
+    }
+
+    private AuthResponse issueTokens(User user, RefreshTokenService.IssuedRefreshToken refreshToken) {
+        String token = tokenProvider.generateToken(user.getEmail(), user.getId(), user.getRole(), refreshToken.familyId());
 
         AuthResponse authResponse = new AuthResponse();
         authResponse.setToken(token);
         authResponse.setTokenType("Bearer");
+        authResponse.setExpiresIn(tokenProvider.getExpirationInMs() / 1000);
+        authResponse.setRefreshToken(refreshToken.token());
         authResponse.setUserId(user.getId());
         authResponse.setEmail(user.getEmail());
         authResponse.setFullName(user.getFullName());
@@ -150,6 +214,23 @@ public class AuthService {
         return authResponse;
     }
 
+    public LoginThrottleStatsResponse getLoginThrottleStats() {
+        return new LoginThrottleStatsResponse(
+                passwordHashing.getThreads(),
+                passwordHashing.getQueueCapacity(),
+                passwordHashing.getQueueDepth(),
+                passwordHashing.getActiveHashes(),
+                passwordHashing.getCompletedHashes(),
+                passwordHashing.getRejectedHashes(),
+                passwordHashing.getTimedOutHashes(),
+                passwordHashing.getAverageHashMillis(),
+                passwordHashing.getMaxHashMillis(),
+                passwordHashing.getAverageQueueWaitMillis(),
+                loginRateLimiter.getLimitedAttempts(),
+                loginRateLimiter.getTrackedKeys()
+        );
+    }
+
     public TokenValidationResponse validateToken(String token) {
         TokenValidationResponse response = new TokenValidationResponse();
         
@@ -165,42 +246,30 @@ public class AuthService {
             token = token.substring(7);
         }
 
-        // Check if token is blacklisted
-        if (isTokenBlacklisted(token)) {
-            response.setValid(false);
-            response.setExpired(true);
-            response.setMessage("Token has been revoked (logged out)");
-            return response;
-        }
-
         try {
-            // Validate token
-            boolean isValid = tokenProvider.validateToken(token);
-            Date expirationDate = tokenProvider.getExpirationDateFromToken(token);
-            boolean isExpired = expirationDate.before(new Date());
-
-            response.setValid(isValid && !isExpired);
-            response.setExpired(isExpired);
-            
-            if (expirationDate != null) {
-                LocalDateTime expirationDateTime = LocalDateTime.ofInstant(
-                    expirationDate.toInstant(), ZoneId.systemDefault());
-                response.setExpirationDate(expirationDateTime);
+            // Validate token (kiểm tra chữ ký một lần)
+            JwtClaims claims = tokenProvider.parseToken(token);
+            setExpirationDate(response, claims.expiration());
+
+            // Check if token has been revoked
+            if (isTokenRevoked(claims)) {
+                response.setValid(false);
+                response.setExpired(true);
+                response.setMessage("Token has been revoked (logged out)");
+                return response;
             }
 
-            if (isValid && !isExpired) {
-                // Get user info from token
-                String email = tokenProvider.getUsernameFromToken(token);
-                Long userId = tokenProvider.getUserIdFromToken(token);
-                String role = tokenProvider.getRoleFromToken(token);
-
-                response.setUserId(userId);
-                response.setEmail(email);
-                response.setRole(role);
-                response.setMessage("Token is valid");
-            } else {
-                response.setMessage("Token is expired");
-            }
+            response.setValid(true);
+            response.setExpired(false);
+            response.setUserId(claims.userId());
+            response.setEmail(claims.username());
+            response.setRole(claims.role());
+            response.setMessage("Token is valid");
+        } catch (ExpiredJwtException e) {
+            setExpirationDate(response, e.getClaims().getExpiration());
+            response.setValid(false);
+            response.setExpired(true);
+            response.setMessage("Token is expired");
         } catch (Exception e) {
             response.setValid(false);
             response.setExpired(true);
@@ -209,5 +278,11 @@ public class AuthService {
 
         return response;
     }
+
+    private static void setExpirationDate(TokenValidationResponse response, Date expirationDate) {
+        if (expirationDate != null) {
+            response.setExpirationDate(LocalDateTime.ofInstant(expirationDate.toInstant(), ZoneId.systemDefault()));
+        }
+    }
 }
 
@@ -0,0 +1,66 @@
+package com.project.medinova.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter cho chuỗi, đọc/ghi không khoá (AtomicLongArray).
+ * mightContain trả về false nghĩa là chắc chắn chưa từng put; true có thể là dương tính giả.
+ * Không xoá được phần tử: muốn bỏ phần tử cũ thì dựng filter mới.
+ */
+final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final int bitCount;
+    private final int hashCount;
+
+    BloomFilter(int expectedInsertions, double falsePositiveRate) {
+        int expected = Math.max(1, expectedInsertions);
+        double bits = -expected * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        this.bitCount = (int) Math.max(64, Math.min(bits, Integer.MAX_VALUE - 64));
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expected * Math.log(2)));
+        this.words = new AtomicLongArray((bitCount + 63) / 64);
+    }
+
+    void put(String value) {
+        long hash = hash64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            int index = bitIndex(h1 + i * h2);
+            long mask = 1L << index;
+            words.accumulateAndGet(index >>> 6, mask, (word, bit) -> word | bit);
+        }
+    }
+
+    boolean mightContain(String value) {
+        long hash = hash64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            int index = bitIndex(h1 + i * h2);
+            if ((words.get(index >>> 6) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int bitIndex(int combined) {
+        return (combined < 0 ? ~combined : combined) % bitCount;
+    }
+
+    // FNV-1a 64-bit rồi trộn bit (finalizer của MurmurHash3)
+    private static long hash64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,45 @@
+package com.project.medinova.service;
+
+import com.project.medinova.dto.BusyScheduleResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Cache ngắn hạn lịch bận (busy schedules) theo bác sĩ và khoảng ngày.
+ * Bị xoá (sau commit) khi appointment/HOLD/leave của bác sĩ thay đổi; TTL để thời gian còn lại của HOLD
+ * không bị cũ quá lâu. Mỗi bác sĩ giữ tối đa MAX_WINDOWS_PER_DOCTOR khoảng ngày khác nhau.
+ */
+@Component
+public class BusyScheduleCache {
+
+    private static final int MAX_WINDOWS_PER_DOCTOR = 16;
+
+    @Value("${appointment.busy-schedules.cache-ttl-ms:10000}")
+    private long ttlMillis;
+
+    private final VersionedTtlCache<Long, List<BusyScheduleResponse>> cache =
+            new VersionedTtlCache<>(() -> ttlMillis, Integer.MAX_VALUE, MAX_WINDOWS_PER_DOCTOR);
+
+    private record Window(LocalDate from, LocalDate to) {
+    }
+
+    public List<BusyScheduleResponse> get(Long doctorId, LocalDate from, LocalDate to,
+                                          Supplier<List<BusyScheduleResponse>> loader) {
+        return cache.get(doctorId, new Window(from, to), () -> List.copyOf(loader.get()));
+    }
+
+    /**
+     * Xoá cache của bác sĩ sau khi transaction hiện tại commit
+     */
+    public void invalidateAfterCommit(Long doctorId) {
+        cache.invalidateAfterCommit(doctorId);
+    }
+
+    public void invalidate(Long doctorId) {
+        cache.invalidate(doctorId);
+    }
+}
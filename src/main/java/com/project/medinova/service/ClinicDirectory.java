@@ -0,0 +1,146 @@
+package com.project.medinova.service;
+
+import com.project.medinova.entity.Clinic;
+import com.project.medinova.repository.ClinicRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Danh bạ (in-memory) các clinic có thể xử lý emergency, đánh index theo vị trí.
+ * Được cập nhật sau commit từ ClinicService và dựng lại định kỳ từ database.
+ */
+@Component
+public class ClinicDirectory {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClinicDirectory.class);
+
+    // ~5.5 km mỗi ô - clinic thưa hơn xe cấp cứu nhiều
+    private static final double CELL_DEGREES = 0.05;
+
+    @Autowired
+    private ClinicRepository clinicRepository;
+
+    private volatile State state = new State();
+    private volatile boolean loaded = false;
+
+    /**
+     * Thông tin rút gọn của clinic dùng để định tuyến emergency
+     */
+    public record Entry(Long id, String name, String address, String phone,
+                        Double latitude, Double longitude, boolean emergencyReady) {
+
+        boolean hasLocation() {
+            return latitude != null && longitude != null;
+        }
+    }
+
+    public record NearbyClinic(Entry clinic, double distanceKm) {
+    }
+
+    private static class State {
+        final Map<Long, Entry> byId = new ConcurrentHashMap<>();
+        final GeoGrid<Entry> located = new GeoGrid<>(CELL_DEGREES);
+        // Clinic không có vị trí, theo thứ tự id (giống thứ tự trả về của findAllEmergencyEnabled)
+        final NavigableMap<Long, Entry> unlocated = new ConcurrentSkipListMap<>();
+    }
+
+    public void sync(Clinic clinic) {
+        Entry entry = toEntry(clinic);
+        TransactionCallbacks.afterCommit(() -> apply(entry));
+    }
+
+    public void remove(Long clinicId) {
+        TransactionCallbacks.afterCommit(() -> apply(
+                new Entry(clinicId, null, null, null, null, null, false)));
+    }
+
+    /**
+     * Clinic gần nhất có thể xử lý emergency.
+     * Ưu tiên: clinic có location > clinic không có location (clinic đầu tiên)
+     */
+    public Entry findNearest(double lat, double lng) {
+        ensureLoaded();
+        State current = state;
+        List<GeoGrid.Hit<Entry>> hits = current.located.nearest(
+                lat, lng, 1, Double.MAX_VALUE, entry -> true, null);
+        if (!hits.isEmpty()) {
+            return hits.get(0).value();
+        }
+        Map.Entry<Long, Entry> first = current.unlocated.firstEntry();
+        return first != null ? first.getValue() : null;
+    }
+
+    /**
+     * Tối đa k clinic có location gần nhất trong bán kính radiusKm, gần nhất trước.
+     * Dùng để chuyển emergency sang clinic kế tiếp khi clinic gần nhất hết xe.
+     */
+    public List<NearbyClinic> findNearest(double lat, double lng, int k, double radiusKm) {
+        ensureLoaded();
+        return state.located.nearest(lat, lng, k, radiusKm, entry -> true, null).stream()
+                .map(hit -> new NearbyClinic(hit.value(), hit.distanceKm()))
+                .toList();
+    }
+
+    /**
+     * Dựng lại danh bạ từ database mỗi 10 phút (lần đầu chạy ngay khi khởi động)
+     */
+    @Scheduled(fixedDelay = 600000)
+    public synchronized void rebuild() {
+        State fresh = new State();
+        try {
+            for (Clinic clinic : clinicRepository.findAllEmergencyEnabled()) {
+                applyTo(fresh, toEntry(clinic));
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not rebuild clinic directory", e);
+            return;
+        }
+        state = fresh;
+        loaded = true;
+        logger.debug("Rebuilt clinic directory: {} emergency-enabled clinics", fresh.byId.size());
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            rebuild();
+        }
+    }
+
+    // Ghi clinic hiếm khi xảy ra nên dùng chung lock với rebuild để không mất thay đổi
+    private synchronized void apply(Entry entry) {
+        applyTo(state, entry);
+    }
+
+    private static void applyTo(State target, Entry entry) {
+        target.byId.remove(entry.id());
+        target.located.remove(entry.id());
+        target.unlocated.remove(entry.id());
+
+        if (!entry.emergencyReady()) {
+            return;
+        }
+
+        target.byId.put(entry.id(), entry);
+        if (entry.hasLocation()) {
+            target.located.put(entry.id(), entry.latitude(), entry.longitude(), entry);
+        } else {
+            target.unlocated.put(entry.id(), entry);
+        }
+    }
+
+    private static Entry toEntry(Clinic clinic) {
+        boolean emergencyReady = !Boolean.FALSE.equals(clinic.getEmergencyEnabled())
+                && !Boolean.FALSE.equals(clinic.getIsActive());
+        return new Entry(clinic.getId(), clinic.getName(), clinic.getAddress(), clinic.getPhone(),
+                clinic.getLatitude(), clinic.getLongitude(), emergencyReady);
+    }
+}
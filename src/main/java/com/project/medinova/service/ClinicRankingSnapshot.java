@@ -0,0 +1,94 @@
+package com.project.medinova.service;
+
+import com.project.medinova.dto.ClinicRankingStatsView;
+import com.project.medinova.repository.ClinicRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Bảng xếp hạng clinic được tính sẵn.
+ * Một job định kỳ tổng hợp số bác sĩ, số appointment và rating (có trọng số theo số review) của mọi clinic
+ * bằng một truy vấn GROUP BY, sắp xếp một lần và thay snapshot; request chỉ đọc N phần tử đầu của snapshot.
+ */
+@Component
+public class ClinicRankingSnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClinicRankingSnapshot.class);
+
+    // Số appointment (giảm dần), số bác sĩ (giảm dần), rating trung bình (giảm dần)
+    private static final Comparator<ClinicStats> RANKING_ORDER = Comparator
+            .comparingLong(ClinicStats::appointmentCount).reversed()
+            .thenComparing(Comparator.comparingLong(ClinicStats::doctorCount).reversed())
+            .thenComparing(Comparator.comparingDouble(ClinicStats::averageDoctorRating).reversed())
+            .thenComparing(ClinicStats::clinicId);
+
+    @Autowired
+    private ClinicRepository clinicRepository;
+
+    private volatile List<ClinicStats> ranked;
+
+    public record ClinicStats(Long clinicId, String name, String address,
+                              long doctorCount, long appointmentCount, double averageDoctorRating) {
+    }
+
+    /**
+     * Top N clinic theo thứ tự xếp hạng của lần tính gần nhất
+     */
+    public List<ClinicStats> getTop(int limit) {
+        List<ClinicStats> current = current();
+        return current.subList(0, Math.max(0, Math.min(limit, current.size())));
+    }
+
+    public int getClinicCount() {
+        return current().size();
+    }
+
+    /**
+     * Tính lại bảng xếp hạng (lần đầu chạy ngay khi khởi động)
+     */
+    @Scheduled(fixedDelayString = "${ranking.clinic.refresh-interval-ms:300000}")
+    public void refresh() {
+        try {
+            ranked = compute(clinicRepository.aggregateRankingStats());
+        } catch (RuntimeException e) {
+            logger.warn("Could not refresh clinic ranking", e);
+        }
+    }
+
+    private List<ClinicStats> current() {
+        List<ClinicStats> current = ranked;
+        if (current == null) {
+            synchronized (this) {
+                if (ranked == null) {
+                    ranked = compute(clinicRepository.aggregateRankingStats());
+                }
+                current = ranked;
+            }
+        }
+        return current;
+    }
+
+    private static List<ClinicStats> compute(List<ClinicRankingStatsView> rows) {
+        List<ClinicStats> stats = new ArrayList<>(rows.size());
+        for (ClinicRankingStatsView row : rows) {
+            long reviewCount = valueOf(row.getReviewCount());
+            double averageRating = reviewCount > 0 ? (double) valueOf(row.getRatingSum()) / reviewCount : 0.0;
+            stats.add(new ClinicStats(row.getClinicId(), row.getName(), row.getAddress(),
+                    valueOf(row.getDoctorCount()), valueOf(row.getAppointmentCount()), averageRating));
+        }
+        stats.sort(RANKING_ORDER);
+        logger.debug("Computed clinic ranking for {} clinics", stats.size());
+        return List.copyOf(stats);
+    }
+
+    private static long valueOf(Long value) {
+        return value != null ? value : 0;
+    }
+}
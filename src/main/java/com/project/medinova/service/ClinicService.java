@@ -1,6 +1,7 @@
 package com.project.medinova.service;
 
 import com.project.medinova.dto.CreateClinicRequest;
+import com.project.medinova.dto.NearbyClinicResponse;
 import com.project.medinova.dto.UpdateClinicRequest;
 import com.project.medinova.entity.Clinic;
 import com.project.medinova.exception.BadRequestException;
@@ -21,6 +22,9 @@ import java.util.List;
 @Transactional
 public class ClinicService {
 
+    // Bán kính tối đa khi tìm clinic lân cận
+    private static final double MAX_NEARBY_RADIUS_KM = 500;
+
     @Autowired
     private ClinicRepository clinicRepository;
 
@@ -33,6 +37,12 @@ public class ClinicService {
     @Autowired
     private DoctorScheduleRepository doctorScheduleRepository;
 
+    @Autowired
+    private ClinicDirectory clinicDirectory;
+
+    @Autowired
+    private PublicStatsSnapshot publicStats;
+
     public Clinic createClinic(CreateClinicRequest request) {
         Clinic clinic = new Clinic();
         clinic.setName(request.getName());
@@ -44,7 +54,10 @@ public class ClinicService {
         clinic.setIsActive(request.getIsActive() != null ? request.getIsActive() : true);
         clinic.setEmergencyEnabled(request.getEmergencyEnabled() != null ? request.getEmergencyEnabled() : true);
 
-        return clinicRepository.save(clinic);
+        clinic = clinicRepository.save(clinic);
+        clinicDirectory.sync(clinic);
+        publicStats.markDirty();
+        return clinic;
     }
 
     public Clinic getClinicById(Long id) {
@@ -89,7 +102,10 @@ public class ClinicService {
             clinic.setEmergencyEnabled(request.getEmergencyEnabled());
         }
 
-        return clinicRepository.save(clinic);
+        clinic = clinicRepository.save(clinic);
+        clinicDirectory.sync(clinic);
+        publicStats.markDirty();
+        return clinic;
     }
 
     public void deleteClinic(Long id) {
@@ -116,6 +132,28 @@ public class ClinicService {
 
         // Nếu không có phụ thuộc nào, cho phép xóa
         clinicRepository.delete(clinic);
+        clinicDirectory.remove(id);
+        publicStats.markDirty();
+    }
+
+    /**
+     * Các clinic có thể xử lý emergency gần vị trí cho trước, gần nhất trước
+     */
+    public List<NearbyClinicResponse> getNearbyClinics(double lat, double lng, int limit, double radiusKm) {
+        // Viết dạng phủ định để NaN cũng bị từ chối
+        if (!(radiusKm > 0 && radiusKm <= MAX_NEARBY_RADIUS_KM)) {
+            throw new BadRequestException("radiusKm must be greater than 0 and at most " + (int) MAX_NEARBY_RADIUS_KM);
+        }
+        return clinicDirectory.findNearest(lat, lng, limit, radiusKm).stream()
+                .map(nearby -> new NearbyClinicResponse(
+                        nearby.clinic().id(),
+                        nearby.clinic().name(),
+                        nearby.clinic().address(),
+                        nearby.clinic().phone(),
+                        nearby.clinic().latitude(),
+                        nearby.clinic().longitude(),
+                        nearby.distanceKm()))
+                .toList();
     }
 }
 
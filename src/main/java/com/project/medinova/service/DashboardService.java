@@ -1,13 +1,13 @@
 package com.project.medinova.service;
 
+import com.project.medinova.dto.AppointmentStatusCountView;
 import com.project.medinova.dto.DashboardStatsResponse;
 import com.project.medinova.dto.DoctorDashboardStatsResponse;
+import com.project.medinova.dto.EmergencyStatusCountView;
 import com.project.medinova.entity.Doctor;
 import com.project.medinova.entity.User;
 import com.project.medinova.exception.NotFoundException;
 import com.project.medinova.repository.*;
-import com.project.medinova.entity.Emergency;
-import com.project.medinova.entity.EmergencyAssignment;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -16,7 +16,6 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 @Service
@@ -47,6 +46,12 @@ public class DashboardService {
     @Autowired
     private AuthService authService;
 
+    @Autowired
+    private DashboardStatsEngine statsEngine;
+
+    @Autowired
+    private DoctorDashboardCache doctorDashboardCache;
+
     public DashboardStatsResponse getAdminDashboardStats() {
         DashboardStatsResponse stats = new DashboardStatsResponse();
 
@@ -55,39 +60,36 @@ public class DashboardService {
         stats.setTotalDoctors(doctorRepository.count());
         stats.setTotalPatients(userRepository.countByRole("PATIENT"));
         stats.setTotalUsers(userRepository.count());
-        stats.setPendingDoctors(doctorRepository.countByStatus("PENDING"));
-        stats.setPendingLeaveRequests(leaveRequestRepository.countByStatus("PENDING"));
 
-        // Today's data
-        LocalDateTime startOfToday = LocalDateTime.of(LocalDate.now(), LocalTime.MIN);
-        LocalDateTime endOfToday = LocalDateTime.of(LocalDate.now(), LocalTime.MAX);
+        // Appointment/emergency/doctor/leave request: đọc từ bộ đếm in-memory
+        Map<String, Long> appointmentsByStatus = withDefaults(statsEngine.getAppointmentsByStatus(),
+                "PENDING", "CONFIRMED", "COMPLETED", "CANCELLED");
+        Map<String, Long> emergenciesByStatus = withDefaults(statsEngine.getEmergenciesByStatus(),
+                "PENDING", "DISPATCHED", "IN_TRANSIT", "ARRIVED", "COMPLETED", "CANCELLED");
+        Map<String, Long> doctorsByStatus = withDefaults(statsEngine.getDoctorsByStatus(),
+                "PENDING", "APPROVED", "REJECTED");
 
-        stats.setTodayAppointments(
-            (long) appointmentRepository.findByAppointmentTimeBetween(startOfToday, endOfToday).size()
-        );
-        stats.setTodayEmergencies(
-            emergencyRepository.findAll().stream()
-                .filter(e -> e.getCreatedAt() != null && 
-                           e.getCreatedAt().isAfter(startOfToday) && 
-                           e.getCreatedAt().isBefore(endOfToday))
-                .count()
-        );
+        stats.setPendingDoctors(doctorsByStatus.get("PENDING"));
+        stats.setPendingLeaveRequests(statsEngine.getLeaveRequestsByStatus().getOrDefault("PENDING", 0L));
 
-        // Active emergencies (not completed or cancelled)
-        stats.setActiveEmergencies(
-            emergencyRepository.findAll().stream()
-                .filter(e -> !"COMPLETED".equals(e.getStatus()) && !"CANCELLED".equals(e.getStatus()))
-                .count()
-        );
+        // Today's data
+        LocalDate today = LocalDate.now();
+        stats.setTodayAppointments(statsEngine.getAppointmentsOn(today));
+        stats.setTodayEmergencies(statsEngine.getEmergenciesCreatedOn(today));
 
         // Total counts
-        stats.setTotalAppointments((long) appointmentRepository.findAll().size());
-        stats.setTotalEmergencies((long) emergencyRepository.findAll().size());
+        long totalEmergencies = sum(emergenciesByStatus);
+        stats.setTotalAppointments(sum(appointmentsByStatus));
+        stats.setTotalEmergencies(totalEmergencies);
+
+        // Active emergencies (not completed or cancelled)
+        stats.setActiveEmergencies(totalEmergencies
+                - emergenciesByStatus.get("COMPLETED") - emergenciesByStatus.get("CANCELLED"));
 
         // Group by status
-        stats.setAppointmentsByStatus(getAppointmentsByStatus());
-        stats.setEmergenciesByStatus(getEmergenciesByStatus());
-        stats.setDoctorsByStatus(getDoctorsByStatus());
+        stats.setAppointmentsByStatus(appointmentsByStatus);
+        stats.setEmergenciesByStatus(emergenciesByStatus);
+        stats.setDoctorsByStatus(doctorsByStatus);
 
         return stats;
     }
@@ -97,116 +99,84 @@ public class DashboardService {
         Doctor doctor = doctorRepository.findByUserId(currentUser.getId())
                 .orElseThrow(() -> new NotFoundException("Doctor profile not found for current user"));
 
-        DoctorDashboardStatsResponse stats = new DoctorDashboardStatsResponse();
-
         Long doctorId = doctor.getId();
+        return doctorDashboardCache.get(doctorId, () -> loadDoctorDashboardStats(doctorId));
+    }
+
+    private DoctorDashboardStatsResponse loadDoctorDashboardStats(Long doctorId) {
+        DoctorDashboardStatsResponse stats = new DoctorDashboardStatsResponse();
 
-        // Appointment stats
-        stats.setTotalAppointments((long) appointmentRepository.findByDoctorId(doctorId).size());
-        
+        LocalDateTime now = LocalDateTime.now();
         LocalDateTime startOfToday = LocalDateTime.of(LocalDate.now(), LocalTime.MIN);
         LocalDateTime endOfToday = LocalDateTime.of(LocalDate.now(), LocalTime.MAX);
-        
-        long todayAppointments = appointmentRepository.findByDoctorIdAndAppointmentTimeBetween(
-            doctorId, startOfToday, endOfToday).size();
-        stats.setTodayAppointments(todayAppointments);
 
-        LocalDateTime now = LocalDateTime.now();
-        long upcomingAppointments = appointmentRepository.findByDoctorId(doctorId).stream()
-            .filter(a -> a.getAppointmentTime() != null && a.getAppointmentTime().isAfter(now))
-            .filter(a -> !"CANCELLED".equals(a.getStatus()) && !"COMPLETED".equals(a.getStatus()))
-            .count();
+        // Appointment stats - một query gom theo status
+        Map<String, Long> appointmentsByStatus = new HashMap<>();
+        long totalAppointments = 0;
+        long todayAppointments = 0;
+        long upcomingAppointments = 0;
+        for (AppointmentStatusCountView row : appointmentRepository.countByStatusForDoctor(
+                doctorId, startOfToday, endOfToday, now)) {
+            long total = valueOf(row.getTotal());
+            totalAppointments += total;
+            todayAppointments += valueOf(row.getToday());
+            if (!"CANCELLED".equals(row.getStatus()) && !"COMPLETED".equals(row.getStatus())) {
+                upcomingAppointments += valueOf(row.getUpcoming());
+            }
+            if (row.getStatus() != null) {
+                appointmentsByStatus.put(row.getStatus(), total);
+            }
+        }
+        withDefaults(appointmentsByStatus, "PENDING", "CONFIRMED", "COMPLETED", "CANCELLED");
+
+        stats.setTotalAppointments(totalAppointments);
+        stats.setTodayAppointments(todayAppointments);
         stats.setUpcomingAppointments(upcomingAppointments);
-
-        long completedAppointments = appointmentRepository.findByDoctorIdAndStatus(doctorId, "COMPLETED").size();
-        stats.setCompletedAppointments(completedAppointments);
-
-        // Emergency stats - use EmergencyAssignmentRepository
-        List<EmergencyAssignment> doctorAssignments = 
-            emergencyAssignmentRepository.findByDoctorId(doctorId);
-        
-        stats.setTotalEmergencies((long) doctorAssignments.size());
-
-        long activeEmergencies = doctorAssignments.stream()
-            .filter(ea -> {
-                Emergency e = ea.getEmergency();
-                return e != null && !"COMPLETED".equals(e.getStatus()) && !"CANCELLED".equals(e.getStatus());
-            })
-            .count();
-        stats.setActiveEmergencies(activeEmergencies);
-
-        long todayEmergencies = doctorAssignments.stream()
-            .filter(ea -> {
-                Emergency e = ea.getEmergency();
-                return e != null && e.getCreatedAt() != null && 
-                       e.getCreatedAt().isAfter(startOfToday) && 
-                       e.getCreatedAt().isBefore(endOfToday);
-            })
-            .count();
+        stats.setCompletedAppointments(appointmentsByStatus.get("COMPLETED"));
+
+        // Emergency stats - một query gom theo status của emergency được giao
+        Map<String, Long> emergenciesByStatus = new HashMap<>();
+        long totalEmergencies = 0;
+        long todayEmergencies = 0;
+        for (EmergencyStatusCountView row : emergencyAssignmentRepository.countByStatusForDoctor(
+                doctorId, startOfToday, endOfToday)) {
+            long total = valueOf(row.getTotal());
+            totalEmergencies += total;
+            todayEmergencies += valueOf(row.getToday());
+            if (row.getStatus() != null) {
+                emergenciesByStatus.put(row.getStatus(), total);
+            }
+        }
+
+        stats.setTotalEmergencies(totalEmergencies);
+        stats.setActiveEmergencies(totalEmergencies
+                - emergenciesByStatus.getOrDefault("COMPLETED", 0L)
+                - emergenciesByStatus.getOrDefault("CANCELLED", 0L));
         stats.setTodayEmergencies(todayEmergencies);
 
         // Leave requests
-        stats.setPendingLeaveRequests(
-            leaveRequestRepository.findByDoctorId(doctorId).stream()
-                .filter(lr -> "PENDING".equals(lr.getStatus()))
-                .count()
-        );
+        stats.setPendingLeaveRequests(leaveRequestRepository.countByDoctorIdAndStatus(doctorId, "PENDING"));
 
         // Group by status
-        stats.setAppointmentsByStatus(getAppointmentsByStatusForDoctor(doctorId));
-        stats.setEmergenciesByStatus(getEmergenciesByStatusForDoctor(doctorId));
+        stats.setAppointmentsByStatus(appointmentsByStatus);
+        stats.setEmergenciesByStatus(emergenciesByStatus);
 
         return stats;
     }
 
-    private Map<String, Long> getAppointmentsByStatus() {
-        Map<String, Long> map = new HashMap<>();
-        map.put("PENDING", (long) appointmentRepository.findByStatus("PENDING").size());
-        map.put("CONFIRMED", (long) appointmentRepository.findByStatus("CONFIRMED").size());
-        map.put("COMPLETED", (long) appointmentRepository.findByStatus("COMPLETED").size());
-        map.put("CANCELLED", (long) appointmentRepository.findByStatus("CANCELLED").size());
-        return map;
-    }
-
-    private Map<String, Long> getAppointmentsByStatusForDoctor(Long doctorId) {
-        Map<String, Long> map = new HashMap<>();
-        map.put("PENDING", (long) appointmentRepository.findByDoctorIdAndStatus(doctorId, "PENDING").size());
-        map.put("CONFIRMED", (long) appointmentRepository.findByDoctorIdAndStatus(doctorId, "CONFIRMED").size());
-        map.put("COMPLETED", (long) appointmentRepository.findByDoctorIdAndStatus(doctorId, "COMPLETED").size());
-        map.put("CANCELLED", (long) appointmentRepository.findByDoctorIdAndStatus(doctorId, "CANCELLED").size());
-        return map;
+    // Luôn trả về các status quen thuộc (0 nếu chưa có)
+    private static Map<String, Long> withDefaults(Map<String, Long> counts, String... statuses) {
+        for (String status : statuses) {
+            counts.putIfAbsent(status, 0L);
+        }
+        return counts;
     }
 
-    private Map<String, Long> getEmergenciesByStatus() {
-        Map<String, Long> map = new HashMap<>();
-        map.put("PENDING", (long) emergencyRepository.findByStatus("PENDING").size());
-        map.put("DISPATCHED", (long) emergencyRepository.findByStatus("DISPATCHED").size());
-        map.put("IN_TRANSIT", (long) emergencyRepository.findByStatus("IN_TRANSIT").size());
-        map.put("ARRIVED", (long) emergencyRepository.findByStatus("ARRIVED").size());
-        map.put("COMPLETED", (long) emergencyRepository.findByStatus("COMPLETED").size());
-        map.put("CANCELLED", (long) emergencyRepository.findByStatus("CANCELLED").size());
-        return map;
+    private static long valueOf(Long value) {
+        return value != null ? value : 0;
     }
 
-    private Map<String, Long> getEmergenciesByStatusForDoctor(Long doctorId) {
-        Map<String, Long> map = new HashMap<>();
-        // Get emergencies assigned to this doctor and group by status
-        emergencyAssignmentRepository.findByDoctorId(doctorId).stream()
-            .map(EmergencyAssignment::getEmergency)
-            .filter(e -> e != null)
-            .forEach(e -> {
-                String status = e.getStatus();
-                map.put(status, map.getOrDefault(status, 0L) + 1);
-            });
-        return map;
-    }
-
-    private Map<String, Long> getDoctorsByStatus() {
-        Map<String, Long> map = new HashMap<>();
-        map.put("PENDING", doctorRepository.countByStatus("PENDING"));
-        map.put("APPROVED", doctorRepository.countByStatus("APPROVED"));
-        map.put("REJECTED", doctorRepository.countByStatus("REJECTED"));
-        return map;
+    private static long sum(Map<String, Long> counts) {
+        return counts.values().stream().mapToLong(Long::longValue).sum();
     }
 }
-
@@ -0,0 +1,297 @@
+package com.project.medinova.service;
+
+import com.project.medinova.entity.Appointment;
+import com.project.medinova.entity.Emergency;
+import com.project.medinova.repository.AppointmentRepository;
+import com.project.medinova.repository.DoctorLeaveRequestRepository;
+import com.project.medinova.repository.DoctorRepository;
+import com.project.medinova.repository.EmergencyRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Bộ đếm (in-memory) cho dashboard admin: số appointment/emergency/doctor/leave request theo status
+ * và số appointment (theo ngày hẹn), emergency (theo ngày tạo) theo ngày.
+ * Được nạp bằng các truy vấn COUNT(*) ... GROUP BY khi khởi động, cập nhật sau commit ở mỗi lần đổi trạng thái
+ * trong các service, và được nạp lại định kỳ để sửa sai lệch (ví dụ dữ liệu bị sửa trực tiếp trong database).
+ */
+@Component
+public class DashboardStatsEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardStatsEngine.class);
+
+    // Chỉ giữ bộ đếm theo ngày từ DAY_WINDOW ngày trước trở đi
+    private static final int DAY_WINDOW = 30;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private EmergencyRepository emergencyRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private DoctorLeaveRequestRepository leaveRequestRepository;
+
+    private volatile Counters counters;
+
+    // Chỉ một lần nạp chạy tại một thời điểm; không dùng this để các delta không phải chờ truy vấn database
+    private final Object loadLock = new Object();
+
+    // Delta được áp dụng trong lúc đang đọc database, phát lại lên bộ đếm mới trước khi thay.
+    // Khác null chỉ khi đang nạp; được giữ khoá this, cùng với việc áp dụng delta và thay counters
+    private List<Consumer<Counters>> deltasDuringLoad;
+
+    private static final class Counters {
+        final Map<String, AtomicLong> appointmentsByStatus = new ConcurrentHashMap<>();
+        final Map<String, AtomicLong> emergenciesByStatus = new ConcurrentHashMap<>();
+        final Map<String, AtomicLong> doctorsByStatus = new ConcurrentHashMap<>();
+        final Map<String, AtomicLong> leaveRequestsByStatus = new ConcurrentHashMap<>();
+        final Map<LocalDate, AtomicLong> appointmentsByDay = new ConcurrentHashMap<>();
+        final Map<LocalDate, AtomicLong> emergenciesByDay = new ConcurrentHashMap<>();
+    }
+
+    public void appointmentCreated(Appointment appointment) {
+        String status = appointment.getStatus();
+        LocalDate day = dayOf(appointment.getAppointmentTime());
+        afterCommit(current -> {
+            add(current.appointmentsByStatus, status, 1);
+            add(current.appointmentsByDay, day, 1);
+        });
+    }
+
+    public void appointmentStatusChanged(String fromStatus, String toStatus) {
+        appointmentsStatusChanged(fromStatus, toStatus, 1);
+    }
+
+    /**
+     * Nhiều appointment cùng đổi trạng thái (cập nhật hàng loạt)
+     */
+    public void appointmentsStatusChanged(String fromStatus, String toStatus, long count) {
+        if (count > 0) {
+            afterCommit(current -> move(current.appointmentsByStatus, fromStatus, toStatus, count));
+        }
+    }
+
+    public void appointmentDeleted(Appointment appointment) {
+        appointmentDeleted(appointment.getStatus(), appointment.getAppointmentTime());
+    }
+
+    public void appointmentDeleted(String status, LocalDateTime appointmentTime) {
+        LocalDate day = dayOf(appointmentTime);
+        afterCommit(current -> {
+            add(current.appointmentsByStatus, status, -1);
+            add(current.appointmentsByDay, day, -1);
+        });
+    }
+
+    public void emergencyCreated(Emergency emergency) {
+        String status = emergency.getStatus();
+        LocalDate day = dayOf(emergency.getCreatedAt());
+        afterCommit(current -> {
+            add(current.emergenciesByStatus, status, 1);
+            add(current.emergenciesByDay, day, 1);
+        });
+    }
+
+    public void emergencyStatusChanged(String fromStatus, String toStatus) {
+        afterCommit(current -> move(current.emergenciesByStatus, fromStatus, toStatus));
+    }
+
+    /**
+     * Doctor đổi trạng thái; fromStatus null = doctor mới, toStatus null = doctor bị xoá
+     */
+    public void doctorStatusChanged(String fromStatus, String toStatus) {
+        afterCommit(current -> move(current.doctorsByStatus, fromStatus, toStatus));
+    }
+
+    /**
+     * Leave request đổi trạng thái; fromStatus null = request mới
+     */
+    public void leaveRequestStatusChanged(String fromStatus, String toStatus) {
+        afterCommit(current -> move(current.leaveRequestsByStatus, fromStatus, toStatus));
+    }
+
+    public Map<String, Long> getAppointmentsByStatus() {
+        return snapshot(current().appointmentsByStatus);
+    }
+
+    public Map<String, Long> getEmergenciesByStatus() {
+        return snapshot(current().emergenciesByStatus);
+    }
+
+    public Map<String, Long> getDoctorsByStatus() {
+        return snapshot(current().doctorsByStatus);
+    }
+
+    public Map<String, Long> getLeaveRequestsByStatus() {
+        return snapshot(current().leaveRequestsByStatus);
+    }
+
+    public long getAppointmentsOn(LocalDate day) {
+        return value(current().appointmentsByDay, day);
+    }
+
+    public long getEmergenciesCreatedOn(LocalDate day) {
+        return value(current().emergenciesByDay, day);
+    }
+
+    /**
+     * Nạp lại toàn bộ bộ đếm từ database mỗi 10 phút (lần đầu chạy ngay khi khởi động)
+     */
+    @Scheduled(fixedDelay = 600000)
+    public void rebuild() {
+        try {
+            synchronized (loadLock) {
+                reload();
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not rebuild dashboard counters", e);
+        }
+    }
+
+    /**
+     * Database được đọc ngoài khoá this. Delta commit trong lúc đọc được phát lại lên bộ đếm mới,
+     * nên không bị mất khi thay counters; delta có commit trước truy vấn COUNT tương ứng có thể bị tính hai lần,
+     * sai lệch này được sửa ở lần nạp kế tiếp
+     */
+    private void reload() {
+        synchronized (this) {
+            deltasDuringLoad = new ArrayList<>();
+        }
+        Counters loaded;
+        try {
+            loaded = load();
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                deltasDuringLoad = null;
+            }
+            throw e;
+        }
+        synchronized (this) {
+            deltasDuringLoad.forEach(delta -> delta.accept(loaded));
+            deltasDuringLoad = null;
+            counters = loaded;
+        }
+    }
+
+    private void afterCommit(Consumer<Counters> delta) {
+        TransactionCallbacks.afterCommit(() -> apply(delta));
+    }
+
+    // Chưa nạp lần nào và không đang nạp thì bỏ qua: lần nạp đầu tiên sẽ đọc luôn dữ liệu vừa commit
+    private synchronized void apply(Consumer<Counters> delta) {
+        if (deltasDuringLoad != null) {
+            deltasDuringLoad.add(delta);
+        }
+        Counters current = counters;
+        if (current != null) {
+            delta.accept(current);
+        }
+    }
+
+    private Counters current() {
+        Counters current = counters;
+        if (current == null) {
+            synchronized (loadLock) {
+                if (counters == null) {
+                    reload();
+                }
+                current = counters;
+            }
+        }
+        return current;
+    }
+
+    private Counters load() {
+        LocalDateTime windowStart = LocalDate.now().minusDays(DAY_WINDOW).atStartOfDay();
+
+        Counters loaded = new Counters();
+        loadStatusCounts(loaded.appointmentsByStatus, appointmentRepository.countGroupByStatus());
+        loadStatusCounts(loaded.emergenciesByStatus, emergencyRepository.countGroupByStatus());
+        loadStatusCounts(loaded.doctorsByStatus, doctorRepository.countGroupByStatus());
+        loadStatusCounts(loaded.leaveRequestsByStatus, leaveRequestRepository.countGroupByStatus());
+        loadDayCounts(loaded.appointmentsByDay, appointmentRepository.countGroupByAppointmentDateFrom(windowStart));
+        loadDayCounts(loaded.emergenciesByDay, emergencyRepository.countGroupByCreatedDateFrom(windowStart));
+        logger.debug("Loaded dashboard counters");
+        return loaded;
+    }
+
+    private static void loadStatusCounts(Map<String, AtomicLong> target, List<Object[]> rows) {
+        for (Object[] row : rows) {
+            if (row[0] != null) {
+                target.put((String) row[0], new AtomicLong(((Number) row[1]).longValue()));
+            }
+        }
+    }
+
+    private static void loadDayCounts(Map<LocalDate, AtomicLong> target, List<Object[]> rows) {
+        for (Object[] row : rows) {
+            LocalDate day = toLocalDate(row[0]);
+            if (day != null) {
+                target.put(day, new AtomicLong(((Number) row[1]).longValue()));
+            }
+        }
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        if (value instanceof LocalDate date) {
+            return date;
+        }
+        if (value instanceof java.sql.Date date) {
+            return date.toLocalDate();
+        }
+        if (value instanceof LocalDateTime dateTime) {
+            return dateTime.toLocalDate();
+        }
+        return null;
+    }
+
+    private static LocalDate dayOf(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.toLocalDate() : null;
+    }
+
+    private static void move(Map<String, AtomicLong> byStatus, String fromStatus, String toStatus) {
+        move(byStatus, fromStatus, toStatus, 1);
+    }
+
+    private static void move(Map<String, AtomicLong> byStatus, String fromStatus, String toStatus, long count) {
+        if (fromStatus != null && fromStatus.equals(toStatus)) {
+            return;
+        }
+        add(byStatus, fromStatus, -count);
+        add(byStatus, toStatus, count);
+    }
+
+    private static <K> void add(Map<K, AtomicLong> counts, K key, long delta) {
+        if (key != null) {
+            counts.computeIfAbsent(key, k -> new AtomicLong()).addAndGet(delta);
+        }
+    }
+
+    private static <K> long value(Map<K, AtomicLong> counts, K key) {
+        AtomicLong count = counts.get(key);
+        return count != null ? Math.max(0, count.get()) : 0;
+    }
+
+    private static Map<String, Long> snapshot(Map<String, AtomicLong> counts) {
+        Map<String, Long> copy = new HashMap<>();
+        counts.forEach((key, count) -> copy.put(key, Math.max(0, count.get())));
+        return copy;
+    }
+}
@@ -0,0 +1,528 @@
+package com.project.medinova.service;
+
+import com.project.medinova.entity.Department;
+import com.project.medinova.entity.DoctorLeaveRequest;
+import com.project.medinova.entity.DoctorSchedule;
+import com.project.medinova.repository.DoctorLeaveRequestRepository;
+import com.project.medinova.repository.DoctorRepository;
+import com.project.medinova.repository.DoctorScheduleRepository;
+import com.project.medinova.repository.DoctorWorkingDaysRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lịch trống của bác sĩ (in-memory): mỗi doctor mỗi ngày có hai bitmap các slot cố định (mặc định 30 phút).
+ * - open: slot nằm trong giờ làm mặc định của doctor, vào ngày làm việc, không trùng leave đã APPROVED
+ * - occupied: slot đang bị appointment/HOLD chiếm
+ * Slot trống = open AND NOT occupied. Booking/huỷ/hết hạn cập nhật occupied sau commit;
+ * thay đổi doctor hoặc leave làm doctor được nạp lại từ database ở lần đọc kế tiếp.
+ * Toàn bộ lịch được nạp lại định kỳ cho cửa sổ horizon-days ngày kể từ hôm nay.
+ */
+@Component
+public class DoctorAvailabilityCalendar {
+
+    private static final Logger logger = LoggerFactory.getLogger(DoctorAvailabilityCalendar.class);
+
+    /**
+     * Status appointment không còn giữ slot (slot được giải phóng).
+     * Cũng được dùng cho truy vấn kiểm tra trùng giờ khi đặt lịch.
+     */
+    public static final Set<String> RELEASED_STATUSES = Set.of(
+            "CANCELLED", "CANCELLED_BY_PATIENT", "CANCELLED_BY_DOCTOR", "REJECTED", "EXPIRED");
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private DoctorWorkingDaysRepository workingDaysRepository;
+
+    @Autowired
+    private DoctorLeaveRequestRepository leaveRequestRepository;
+
+    @Autowired
+    private DoctorScheduleRepository scheduleRepository;
+
+    @Value("${appointment.availability.slot-minutes:30}")
+    private int slotMinutes = 30;
+
+    @Value("${appointment.availability.horizon-days:30}")
+    private int horizonDays = 30;
+
+    @Value("${appointment.availability.default-start:08:00}")
+    private String defaultStartTime = "08:00";
+
+    @Value("${appointment.availability.default-end:17:00}")
+    private String defaultEndTime = "17:00";
+
+    private final Map<Long, DoctorCalendar> calendars = new ConcurrentHashMap<>();
+    // Doctor vừa thay đổi, cần nạp lại trước khi trả lời truy vấn theo department
+    private final Set<Long> staleDoctors = ConcurrentHashMap.newKeySet();
+    private volatile LocalDate windowStart;
+    private volatile boolean loaded;
+    // Lần nạp đầu tiên; không dùng this để các callback booking không phải chờ truy vấn database
+    private final Object initLock = new Object();
+
+    // Thay đổi xảy ra trong lúc đang đọc database (nạp toàn bộ hoặc một doctor), được phát lại lên
+    // dữ liệu vừa đọc trước khi đưa vào calendars. Được giữ khoá this, cùng với việc áp dụng thay đổi và thay calendars
+    private final List<Change> changesDuringLoad = new ArrayList<>();
+    private int activeLoads;
+
+    public record DaySlots(LocalDate date, List<LocalTime> freeSlots) {
+    }
+
+    private record Settings(Long doctorId, Long clinicId, Department department, boolean approved,
+                            LocalTime startTime, LocalTime endTime) {
+    }
+
+    private record Booking(LocalDate date, int fromSlot, int toSlot) {
+    }
+
+    // booking null: schedule được giải phóng; scheduleId null: doctor thay đổi (cần nạp lại)
+    private record Change(Long doctorId, Long scheduleId, Booking booking) {
+    }
+
+    private static final class DoctorCalendar {
+        final Settings settings;
+        final Map<LocalDate, BitSet> open = new HashMap<>();
+        final Map<LocalDate, BitSet> occupied = new HashMap<>();
+        final Map<Long, Booking> bookings = new HashMap<>();
+
+        DoctorCalendar(Settings settings) {
+            this.settings = settings;
+        }
+    }
+
+    public int getSlotMinutes() {
+        return slotMinutes;
+    }
+
+    public int getHorizonDays() {
+        return horizonDays;
+    }
+
+    /**
+     * Các slot trống của doctor trong days ngày kể từ hôm nay (giới hạn bởi horizon-days)
+     */
+    public List<DaySlots> getFreeSlots(Long doctorId, int days) {
+        List<DaySlots> result = new ArrayList<>();
+        if (!ensureLoaded()) {
+            return result;
+        }
+        DoctorCalendar calendar = calendarFor(doctorId);
+        if (calendar == null) {
+            return result;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate today = now.toLocalDate();
+        LocalDate end = min(today.plusDays(days), windowStart.plusDays(horizonDays));
+        synchronized (calendar) {
+            for (LocalDate day = today; day.isBefore(end); day = day.plusDays(1)) {
+                BitSet free = freeOn(calendar, day);
+                if (day.equals(today)) {
+                    // Không trả về slot đã bắt đầu
+                    free.clear(0, Math.min(slotsPerDay(), ceilDiv(now.getHour() * 60 + now.getMinute() + 1, slotMinutes)));
+                }
+                List<LocalTime> slots = new ArrayList<>(free.cardinality());
+                for (int slot = free.nextSetBit(0); slot >= 0; slot = free.nextSetBit(slot + 1)) {
+                    slots.add(LocalTime.MIDNIGHT.plusMinutes((long) slot * slotMinutes));
+                }
+                result.add(new DaySlots(day, slots));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Id các doctor APPROVED của department (và clinic nếu có) trống trong toàn bộ [start, start + durationMinutes)
+     */
+    public List<Long> findFreeDoctors(Department department, Long clinicId, LocalDateTime start, int durationMinutes) {
+        LocalDateTime end = start.plusMinutes(durationMinutes);
+        if (!ensureLoaded() || !start.isAfter(LocalDateTime.now())
+                || end.isAfter(windowStart.plusDays(horizonDays).atStartOfDay())) {
+            return List.of();
+        }
+        for (Long doctorId : List.copyOf(staleDoctors)) {
+            calendarFor(doctorId);
+        }
+
+        List<Long> free = new ArrayList<>();
+        for (DoctorCalendar calendar : calendars.values()) {
+            Settings settings = calendar.settings;
+            if (!settings.approved() || settings.department() != department
+                    || (clinicId != null && !clinicId.equals(settings.clinicId()))) {
+                continue;
+            }
+            synchronized (calendar) {
+                if (isFree(calendar, start, end)) {
+                    free.add(settings.doctorId());
+                }
+            }
+        }
+        free.sort(Comparator.naturalOrder());
+        return free;
+    }
+
+    /**
+     * HOLD vừa được tạo cho schedule (appointment mới)
+     */
+    public void slotBooked(DoctorSchedule schedule) {
+        Long doctorId = schedule.getDoctor().getId();
+        Long scheduleId = schedule.getId();
+        LocalDate date = schedule.getWorkDate();
+        int[] range = slotRange(date, date.atTime(schedule.getStartTime()), date.atTime(schedule.getEndTime()));
+        if (range == null) {
+            return;
+        }
+        Booking booking = new Booking(date, range[0], range[1]);
+        TransactionCallbacks.afterCommit(() -> applyChange(new Change(doctorId, scheduleId, booking)));
+    }
+
+    /**
+     * Slot của schedule được giải phóng (huỷ, từ chối, hết hạn, xoá)
+     */
+    public void slotReleased(DoctorSchedule schedule) {
+        slotReleased(schedule.getDoctor().getId(), schedule.getId());
+    }
+
+    public void slotReleased(Long doctorId, Long scheduleId) {
+        TransactionCallbacks.afterCommit(() -> applyChange(new Change(doctorId, scheduleId, null)));
+    }
+
+    /**
+     * Giờ làm, department, status hoặc leave của doctor thay đổi (hoặc doctor bị xoá): nạp lại ở lần đọc kế tiếp
+     */
+    public void doctorChanged(Long doctorId) {
+        TransactionCallbacks.afterCommit(() -> applyChange(new Change(doctorId, null, null)));
+    }
+
+    /**
+     * Nạp lại toàn bộ mỗi 10 phút (lần đầu chạy ngay khi khởi động); cũng dời cửa sổ sang ngày mới.
+     * Database được đọc ngoài khoá; các thay đổi xảy ra trong lúc đọc được phát lại lên dữ liệu mới
+     */
+    @Scheduled(fixedDelay = 600000)
+    public void rebuild() {
+        LocalDate from = LocalDate.now();
+        int firstChange = beginLoad();
+        try {
+            Map<Long, DoctorCalendar> fresh;
+            try {
+                fresh = loadAll(from);
+            } catch (RuntimeException e) {
+                logger.warn("Could not rebuild doctor availability", e);
+                return;
+            }
+            synchronized (this) {
+                staleDoctors.clear();
+                for (Change change : changesDuringLoad.subList(firstChange, changesDuringLoad.size())) {
+                    if (change.scheduleId() == null) {
+                        fresh.remove(change.doctorId());
+                        staleDoctors.add(change.doctorId());
+                    } else {
+                        DoctorCalendar calendar = fresh.get(change.doctorId());
+                        if (calendar != null) {
+                            applyBooking(calendar, change);
+                        }
+                    }
+                }
+                calendars.keySet().retainAll(fresh.keySet());
+                calendars.putAll(fresh);
+                windowStart = from;
+                loaded = true;
+            }
+            logger.debug("Rebuilt availability for {} doctors from {}", fresh.size(), from);
+        } finally {
+            endLoad();
+        }
+    }
+
+    private synchronized void applyChange(Change change) {
+        if (activeLoads > 0) {
+            changesDuringLoad.add(change);
+        }
+        if (change.scheduleId() == null) {
+            staleDoctors.add(change.doctorId());
+            calendars.remove(change.doctorId());
+            return;
+        }
+        DoctorCalendar calendar = calendars.get(change.doctorId());
+        if (calendar != null) {
+            synchronized (calendar) {
+                applyBooking(calendar, change);
+            }
+        }
+    }
+
+    // Idempotent: một thay đổi có thể được áp dụng cả khi phát lại lẫn trực tiếp
+    private static void applyBooking(DoctorCalendar calendar, Change change) {
+        if (change.booking() != null) {
+            Booking booking = change.booking();
+            calendar.bookings.put(change.scheduleId(), booking);
+            BitSet occupied = calendar.occupied.get(booking.date());
+            if (occupied != null) {
+                occupied.set(booking.fromSlot(), booking.toSlot());
+            }
+        } else {
+            Booking booking = calendar.bookings.remove(change.scheduleId());
+            if (booking != null) {
+                reoccupy(calendar, booking.date());
+            }
+        }
+    }
+
+    // Trả về vị trí bắt đầu ghi nhận thay đổi cho lần nạp này
+    private synchronized int beginLoad() {
+        activeLoads++;
+        return changesDuringLoad.size();
+    }
+
+    private synchronized void endLoad() {
+        if (--activeLoads == 0) {
+            changesDuringLoad.clear();
+        }
+    }
+
+    /**
+     * Dựng lại occupied của ngày date từ các booking còn lại. Booking được làm tròn ra cả slot nên hai booking
+     * không trùng giờ vẫn có thể cùng chiếm một slot (09:00-09:45 và 09:45-10:15 cùng chiếm 09:30):
+     * không thể chỉ xoá các bit của booking vừa giải phóng
+     */
+    private static void reoccupy(DoctorCalendar calendar, LocalDate date) {
+        BitSet occupied = calendar.occupied.get(date);
+        if (occupied == null) {
+            return;
+        }
+        occupied.clear();
+        for (Booking remaining : calendar.bookings.values()) {
+            if (remaining.date().equals(date)) {
+                occupied.set(remaining.fromSlot(), remaining.toSlot());
+            }
+        }
+    }
+
+    // false nếu chưa nạp được (database lỗi)
+    private boolean ensureLoaded() {
+        if (!loaded) {
+            synchronized (initLock) {
+                if (!loaded) {
+                    rebuild();
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Lịch của doctor, nạp từ database nếu chưa có. Database được đọc ngoài mọi khoá;
+     * lịch vừa nạp chỉ được đưa vào calendars nếu doctor không thay đổi và cửa sổ không bị dời trong lúc đọc
+     */
+    private DoctorCalendar calendarFor(Long doctorId) {
+        DoctorCalendar calendar = calendars.get(doctorId);
+        if (calendar != null) {
+            return calendar;
+        }
+
+        LocalDate from = windowStart;
+        int firstChange = beginLoad();
+        try {
+            DoctorCalendar loadedCalendar = loadDoctor(doctorId, from);
+            synchronized (this) {
+                boolean doctorChanged = false;
+                for (Change change : changesDuringLoad.subList(firstChange, changesDuringLoad.size())) {
+                    if (!change.doctorId().equals(doctorId)) {
+                        continue;
+                    }
+                    if (change.scheduleId() == null) {
+                        doctorChanged = true;
+                    } else if (loadedCalendar != null) {
+                        applyBooking(loadedCalendar, change);
+                    }
+                }
+                if (doctorChanged || !from.equals(windowStart)) {
+                    // Dữ liệu có thể đã cũ: dùng cho lần đọc này, nạp lại ở lần sau
+                    return loadedCalendar;
+                }
+                staleDoctors.remove(doctorId);
+                if (loadedCalendar == null) {
+                    return null;
+                }
+                DoctorCalendar existing = calendars.putIfAbsent(doctorId, loadedCalendar);
+                return existing != null ? existing : loadedCalendar;
+            }
+        } finally {
+            endLoad();
+        }
+    }
+
+    private BitSet freeOn(DoctorCalendar calendar, LocalDate day) {
+        BitSet open = calendar.open.get(day);
+        if (open == null) {
+            return new BitSet();
+        }
+        BitSet free = (BitSet) open.clone();
+        BitSet occupied = calendar.occupied.get(day);
+        if (occupied != null) {
+            free.andNot(occupied);
+        }
+        return free;
+    }
+
+    private boolean isFree(DoctorCalendar calendar, LocalDateTime start, LocalDateTime end) {
+        for (LocalDate day = start.toLocalDate(); day.atStartOfDay().isBefore(end); day = day.plusDays(1)) {
+            int[] range = slotRange(day, start, end);
+            if (range == null) {
+                continue;
+            }
+            BitSet free = freeOn(calendar, day);
+            if (free.nextClearBit(range[0]) < range[1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Map<Long, DoctorCalendar> loadAll(LocalDate from) {
+        LocalDate to = from.plusDays(horizonDays - 1L);
+
+        Map<Long, Map<Integer, Boolean>> workingDays = new HashMap<>();
+        for (Object[] row : workingDaysRepository.findAllWorkingDays()) {
+            workingDays.computeIfAbsent((Long) row[0], id -> new HashMap<>()).put((Integer) row[1], (Boolean) row[2]);
+        }
+        Map<Long, List<DoctorLeaveRequest>> leaves = new HashMap<>();
+        for (DoctorLeaveRequest leave : leaveRequestRepository.findByStatusAndEndDateGreaterThanEqual("APPROVED", from)) {
+            leaves.computeIfAbsent(leave.getDoctor().getId(), id -> new ArrayList<>()).add(leave);
+        }
+
+        Map<Long, DoctorCalendar> result = new HashMap<>();
+        for (Object[] row : doctorRepository.findAllAvailabilitySettings()) {
+            Settings settings = settings(row);
+            result.put(settings.doctorId(), build(settings, workingDays.getOrDefault(settings.doctorId(), Map.of()),
+                    leaves.getOrDefault(settings.doctorId(), List.of()), from));
+        }
+        for (Object[] row : scheduleRepository.findOccupiedSlotsBetween(from, to, RELEASED_STATUSES, LocalDateTime.now())) {
+            DoctorCalendar calendar = result.get((Long) row[0]);
+            if (calendar != null) {
+                occupy(calendar, row);
+            }
+        }
+        return result;
+    }
+
+    private DoctorCalendar loadDoctor(Long doctorId, LocalDate from) {
+        List<Object[]> rows = doctorRepository.findAvailabilitySettingsById(doctorId);
+        if (rows.isEmpty()) {
+            return null;
+        }
+        LocalDate to = from.plusDays(horizonDays - 1L);
+
+        Map<Integer, Boolean> workingDays = new HashMap<>();
+        workingDaysRepository.findByDoctorId(doctorId)
+                .forEach(day -> workingDays.put(day.getDayOfWeek(), day.getIsWorking()));
+        DoctorCalendar calendar = build(settings(rows.get(0)), workingDays,
+                leaveRequestRepository.findByDoctorIdAndStatusAndEndDateGreaterThanEqual(doctorId, "APPROVED", from), from);
+        for (Object[] row : scheduleRepository.findOccupiedSlotsByDoctorIdBetween(
+                doctorId, from, to, RELEASED_STATUSES, LocalDateTime.now())) {
+            occupy(calendar, row);
+        }
+        return calendar;
+    }
+
+    private Settings settings(Object[] row) {
+        LocalTime startTime = row[4] != null ? (LocalTime) row[4] : LocalTime.parse(defaultStartTime);
+        LocalTime endTime = row[5] != null ? (LocalTime) row[5] : LocalTime.parse(defaultEndTime);
+        return new Settings((Long) row[0], (Long) row[1], (Department) row[2], "APPROVED".equals(row[3]),
+                startTime, endTime);
+    }
+
+    private DoctorCalendar build(Settings settings, Map<Integer, Boolean> workingDays,
+                                 List<DoctorLeaveRequest> leaves, LocalDate from) {
+        DoctorCalendar calendar = new DoctorCalendar(settings);
+
+        // Slot nằm trọn trong giờ làm mặc định
+        BitSet workingHours = new BitSet(slotsPerDay());
+        int firstSlot = ceilDiv(minuteOfDay(settings.startTime()), slotMinutes);
+        int lastSlot = Math.min(minuteOfDay(settings.endTime()) / slotMinutes, slotsPerDay());
+        if (firstSlot < lastSlot) {
+            workingHours.set(firstSlot, lastSlot);
+        }
+
+        for (int i = 0; i < horizonDays; i++) {
+            LocalDate day = from.plusDays(i);
+            // Không có cấu hình ngày làm việc thì coi như có làm
+            BitSet open = workingDays.getOrDefault(day.getDayOfWeek().getValue(), true)
+                    ? (BitSet) workingHours.clone()
+                    : new BitSet(slotsPerDay());
+            for (DoctorLeaveRequest leave : leaves) {
+                LocalDateTime leaveStart = leave.getStartTime() != null
+                        ? leave.getStartDate().atTime(leave.getStartTime()) : leave.getStartDate().atStartOfDay();
+                LocalDateTime leaveEnd = leave.getEndTime() != null
+                        ? leave.getEndDate().atTime(leave.getEndTime()) : leave.getEndDate().plusDays(1).atStartOfDay();
+                int[] range = slotRange(day, leaveStart, leaveEnd);
+                if (range != null) {
+                    open.clear(range[0], range[1]);
+                }
+            }
+            calendar.open.put(day, open);
+            calendar.occupied.put(day, new BitSet(slotsPerDay()));
+        }
+        return calendar;
+    }
+
+    // row: doctorId, scheduleId, workDate, startTime, endTime
+    private void occupy(DoctorCalendar calendar, Object[] row) {
+        LocalDate date = (LocalDate) row[2];
+        int[] range = slotRange(date, date.atTime((LocalTime) row[3]), date.atTime((LocalTime) row[4]));
+        if (range == null) {
+            return;
+        }
+        calendar.bookings.put((Long) row[1], new Booking(date, range[0], range[1]));
+        BitSet occupied = calendar.occupied.get(date);
+        if (occupied != null) {
+            occupied.set(range[0], range[1]);
+        }
+    }
+
+    /**
+     * Các slot [from, to) của ngày day mà khoảng [start, end) chạm vào; null nếu không chạm
+     */
+    private int[] slotRange(LocalDate day, LocalDateTime start, LocalDateTime end) {
+        LocalDateTime dayStart = day.atStartOfDay();
+        LocalDateTime dayEnd = dayStart.plusDays(1);
+        LocalDateTime from = start.isAfter(dayStart) ? start : dayStart;
+        LocalDateTime to = end.isBefore(dayEnd) ? end : dayEnd;
+        if (!from.isBefore(to)) {
+            return null;
+        }
+        int toMinute = to.equals(dayEnd) ? MINUTES_PER_DAY : minuteOfDay(to.toLocalTime());
+        return new int[]{minuteOfDay(from.toLocalTime()) / slotMinutes,
+                Math.min(ceilDiv(toMinute, slotMinutes), slotsPerDay())};
+    }
+
+    private int slotsPerDay() {
+        return MINUTES_PER_DAY / slotMinutes;
+    }
+
+    private static int minuteOfDay(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    private static int ceilDiv(int value, int divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+}
@@ -0,0 +1,37 @@
+package com.project.medinova.service;
+
+import com.project.medinova.dto.DoctorDashboardStatsResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Cache ngắn hạn thống kê dashboard theo bác sĩ.
+ * Bị xoá (sau commit) mỗi khi appointment/emergency/leave request của bác sĩ đổi trạng thái; TTL chỉ để
+ * các số liệu phụ thuộc thời gian (hôm nay, sắp tới) không bị cũ quá lâu.
+ */
+@Component
+public class DoctorDashboardCache {
+
+    @Value("${dashboard.doctor.cache-ttl-ms:30000}")
+    private long ttlMillis;
+
+    private final VersionedTtlCache<Long, DoctorDashboardStatsResponse> cache =
+            new VersionedTtlCache<>(() -> ttlMillis, Integer.MAX_VALUE, 1);
+
+    public DoctorDashboardStatsResponse get(Long doctorId, Supplier<DoctorDashboardStatsResponse> loader) {
+        return cache.get(doctorId, loader);
+    }
+
+    /**
+     * Xoá cache của bác sĩ sau khi transaction hiện tại commit
+     */
+    public void invalidateAfterCommit(Long doctorId) {
+        cache.invalidateAfterCommit(doctorId);
+    }
+
+    public void invalidate(Long doctorId) {
+        cache.invalidate(doctorId);
+    }
+}
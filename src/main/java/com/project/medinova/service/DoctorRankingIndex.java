@@ -0,0 +1,250 @@
+package com.project.medinova.service;
+
+import com.project.medinova.repository.AppointmentRepository;
+import com.project.medinova.repository.DoctorRepository;
+import com.project.medinova.repository.DoctorReviewRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.function.UnaryOperator;
+
+/**
+ * Bảng xếp hạng bác sĩ (in-memory): tổng điểm rating, số review, số appointment của từng bác sĩ,
+ * các bác sĩ APPROVED được giữ trong một TreeSet đã sắp theo thứ tự xếp hạng nên top N chỉ tốn O(N).
+ * Cập nhật sau commit khi review được tạo/xoá, appointment được tạo/xoá/chuyển bác sĩ và khi doctor đổi trạng thái;
+ * được nạp lại định kỳ từ database bằng các truy vấn GROUP BY.
+ */
+@Component
+public class DoctorRankingIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(DoctorRankingIndex.class);
+
+    // Rating trung bình (giảm dần), số review (giảm dần), số appointment (giảm dần)
+    private static final Comparator<DoctorStats> RANKING_ORDER = Comparator
+            .comparingDouble(DoctorStats::averageRating).reversed()
+            .thenComparing(Comparator.comparingLong(DoctorStats::reviewCount).reversed())
+            .thenComparing(Comparator.comparingLong(DoctorStats::appointmentCount).reversed())
+            .thenComparing(DoctorStats::doctorId);
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private DoctorReviewRepository reviewRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    private final Map<Long, DoctorStats> byDoctor = new HashMap<>();
+    private final NavigableSet<DoctorStats> ranked = new TreeSet<>(RANKING_ORDER);
+    private volatile boolean loaded;
+
+    // Chỉ một lần nạp chạy tại một thời điểm; không dùng this để đọc và cập nhật không phải chờ truy vấn database
+    private final Object loadLock = new Object();
+
+    // Thay đổi commit trong lúc đang đọc database, phát lại lên dữ liệu mới trước khi thay.
+    // Khác null chỉ khi đang nạp; được giữ khoá this
+    private List<Change> changesDuringLoad;
+
+    // update null: doctor bị xoá
+    private record Change(Long doctorId, UnaryOperator<DoctorStats> update) {
+    }
+
+    public record DoctorStats(Long doctorId, boolean approved, long ratingSum, long reviewCount, long appointmentCount) {
+
+        public double averageRating() {
+            return reviewCount > 0 ? (double) ratingSum / reviewCount : 0.0;
+        }
+
+        DoctorStats withReview(int rating, int delta) {
+            return new DoctorStats(doctorId, approved, ratingSum + (long) rating * delta, reviewCount + delta, appointmentCount);
+        }
+
+        DoctorStats withAppointments(int delta) {
+            return new DoctorStats(doctorId, approved, ratingSum, reviewCount, appointmentCount + delta);
+        }
+
+        DoctorStats withApproved(boolean approved) {
+            return new DoctorStats(doctorId, approved, ratingSum, reviewCount, appointmentCount);
+        }
+    }
+
+    public void reviewAdded(Long doctorId, Integer rating) {
+        if (rating != null) {
+            afterCommit(doctorId, stats -> stats.withReview(rating, 1));
+        }
+    }
+
+    public void reviewRemoved(Long doctorId, Integer rating) {
+        if (rating != null) {
+            afterCommit(doctorId, stats -> stats.withReview(rating, -1));
+        }
+    }
+
+    public void appointmentAdded(Long doctorId) {
+        afterCommit(doctorId, stats -> stats.withAppointments(1));
+    }
+
+    public void appointmentRemoved(Long doctorId) {
+        afterCommit(doctorId, stats -> stats.withAppointments(-1));
+    }
+
+    /**
+     * Appointment được chuyển sang bác sĩ khác
+     */
+    public void appointmentMoved(Long fromDoctorId, Long toDoctorId) {
+        if (!fromDoctorId.equals(toDoctorId)) {
+            appointmentRemoved(fromDoctorId);
+            appointmentAdded(toDoctorId);
+        }
+    }
+
+    /**
+     * Doctor mới hoặc đổi trạng thái; chỉ bác sĩ APPROVED được xếp hạng
+     */
+    public void doctorStatusChanged(Long doctorId, String status) {
+        boolean approved = "APPROVED".equals(status);
+        afterCommit(doctorId, stats -> stats.withApproved(approved));
+    }
+
+    public void doctorRemoved(Long doctorId) {
+        TransactionCallbacks.afterCommit(() -> apply(new Change(doctorId, null)));
+    }
+
+    /**
+     * Top N bác sĩ APPROVED theo thứ tự xếp hạng
+     */
+    public List<DoctorStats> getTop(int limit) {
+        ensureLoaded();
+        List<DoctorStats> top = new ArrayList<>();
+        synchronized (this) {
+            for (DoctorStats stats : ranked) {
+                if (top.size() >= limit) {
+                    break;
+                }
+                top.add(stats);
+            }
+        }
+        return top;
+    }
+
+    public long getRankedCount() {
+        ensureLoaded();
+        synchronized (this) {
+            return ranked.size();
+        }
+    }
+
+    /**
+     * Nạp lại toàn bộ từ database mỗi 10 phút (lần đầu chạy ngay khi khởi động).
+     * Database được đọc ngoài khoá this; review/appointment commit trong lúc đọc được phát lại lên dữ liệu mới
+     * (thay đổi có commit trước truy vấn GROUP BY tương ứng có thể bị tính hai lần cho đến lần nạp kế tiếp)
+     */
+    @Scheduled(fixedDelay = 600000)
+    public void rebuild() {
+        synchronized (loadLock) {
+            synchronized (this) {
+                changesDuringLoad = new ArrayList<>();
+            }
+            Map<Long, DoctorStats> fresh;
+            try {
+                fresh = load();
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    changesDuringLoad = null;
+                }
+                logger.warn("Could not rebuild doctor ranking", e);
+                return;
+            }
+
+            synchronized (this) {
+                for (Change change : changesDuringLoad) {
+                    if (change.update() == null) {
+                        fresh.remove(change.doctorId());
+                    } else {
+                        fresh.put(change.doctorId(), change.update().apply(statsOf(fresh, change.doctorId())));
+                    }
+                }
+                changesDuringLoad = null;
+                byDoctor.clear();
+                byDoctor.putAll(fresh);
+                ranked.clear();
+                for (DoctorStats stats : fresh.values()) {
+                    if (stats.approved()) {
+                        ranked.add(stats);
+                    }
+                }
+                loaded = true;
+                logger.debug("Rebuilt doctor ranking: {} ranked doctors", ranked.size());
+            }
+        }
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (loadLock) {
+                if (!loaded) {
+                    rebuild();
+                }
+            }
+        }
+    }
+
+    private void afterCommit(Long doctorId, UnaryOperator<DoctorStats> update) {
+        TransactionCallbacks.afterCommit(() -> apply(new Change(doctorId, update)));
+    }
+
+    // Chưa nạp lần nào và không đang nạp thì bỏ qua: lần nạp đầu tiên sẽ đọc luôn dữ liệu vừa commit
+    private synchronized void apply(Change change) {
+        if (changesDuringLoad != null) {
+            changesDuringLoad.add(change);
+        }
+        if (!loaded) {
+            return;
+        }
+        DoctorStats previous = byDoctor.get(change.doctorId());
+        if (previous != null && previous.approved()) {
+            ranked.remove(previous);
+        }
+        if (change.update() == null) {
+            byDoctor.remove(change.doctorId());
+            return;
+        }
+        DoctorStats updated = change.update().apply(statsOf(byDoctor, change.doctorId()));
+        byDoctor.put(change.doctorId(), updated);
+        if (updated.approved()) {
+            ranked.add(updated);
+        }
+    }
+
+    private static DoctorStats statsOf(Map<Long, DoctorStats> stats, Long doctorId) {
+        return stats.getOrDefault(doctorId, new DoctorStats(doctorId, false, 0, 0, 0));
+    }
+
+    private Map<Long, DoctorStats> load() {
+        Map<Long, DoctorStats> stats = new HashMap<>();
+        for (Object[] row : doctorRepository.findAllIdsWithStatus()) {
+            Long doctorId = (Long) row[0];
+            stats.put(doctorId, new DoctorStats(doctorId, "APPROVED".equals(row[1]), 0, 0, 0));
+        }
+        for (Object[] row : reviewRepository.sumRatingGroupByDoctor()) {
+            stats.computeIfPresent((Long) row[0], (id, current) -> new DoctorStats(id, current.approved(),
+                    ((Number) row[1]).longValue(), ((Number) row[2]).longValue(), current.appointmentCount()));
+        }
+        for (Object[] row : appointmentRepository.countGroupByDoctor()) {
+            stats.computeIfPresent((Long) row[0], (id, current) -> new DoctorStats(id, current.approved(),
+                    current.ratingSum(), current.reviewCount(), ((Number) row[1]).longValue()));
+        }
+        return stats;
+    }
+}
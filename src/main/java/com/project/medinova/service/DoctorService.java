@@ -43,6 +43,18 @@ public class DoctorService {
     @Autowired
     private AuthService authService;
 
+    @Autowired
+    private DashboardStatsEngine dashboardStats;
+
+    @Autowired
+    private DoctorRankingIndex doctorRankingIndex;
+
+    @Autowired
+    private PublicStatsSnapshot publicStats;
+
+    @Autowired
+    private DoctorAvailabilityCalendar doctorAvailability;
+
     public Doctor createDoctor(CreateDoctorRequest request) {
         // Kiểm tra user tồn tại và có role DOCTOR
         User user = userRepository.findById(request.getUserId())
@@ -71,7 +83,12 @@ public class DoctorService {
         doctor.setDefaultEndTime(request.getDefaultEndTime());
         doctor.setStatus("APPROVED"); // Admin tạo nên mặc định là APPROVED
 
-        return doctorRepository.save(doctor);
+        doctor = doctorRepository.save(doctor);
+        dashboardStats.doctorStatusChanged(null, doctor.getStatus());
+        doctorRankingIndex.doctorStatusChanged(doctor.getId(), doctor.getStatus());
+        publicStats.markDirty();
+        doctorAvailability.doctorChanged(doctor.getId());
+        return doctor;
     }
 
     public Doctor getDoctorById(Long id) {
@@ -186,7 +203,10 @@ public class DoctorService {
                 doctor.setDefaultEndTime(request.getDefaultEndTime());
             }
 
-            return doctorRepository.save(doctor);
+            doctor = doctorRepository.save(doctor);
+            publicStats.markDirty();
+            doctorAvailability.doctorChanged(doctor.getId());
+            return doctor;
         }
 
         // Nếu là DOCTOR tự update, tạo update request thay vì update trực tiếp
@@ -239,6 +259,10 @@ public class DoctorService {
                 .orElseThrow(() -> new NotFoundException("Doctor not found with id: " + id));
 
         doctorRepository.delete(doctor);
+        dashboardStats.doctorStatusChanged(doctor.getStatus(), null);
+        doctorRankingIndex.doctorRemoved(doctor.getId());
+        publicStats.markDirty();
+        doctorAvailability.doctorChanged(doctor.getId());
     }
 
     public List<Doctor> getPendingDoctors() {
@@ -299,8 +323,14 @@ public class DoctorService {
             }
         }
 
+        String previousStatus = doctor.getStatus();
         doctor.setStatus(status);
-        return doctorRepository.save(doctor);
+        doctor = doctorRepository.save(doctor);
+        dashboardStats.doctorStatusChanged(previousStatus, status);
+        doctorRankingIndex.doctorStatusChanged(doctor.getId(), status);
+        publicStats.markDirty();
+        doctorAvailability.doctorChanged(doctor.getId());
+        return doctor;
     }
 
     public List<DoctorUpdateRequest> getPendingUpdateRequests() {
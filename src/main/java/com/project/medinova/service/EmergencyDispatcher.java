@@ -0,0 +1,106 @@
+package com.project.medinova.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Worker điều phối emergency bất đồng bộ.
+ * Mỗi emergency chạy trên một virtual thread; số emergency được điều phối cùng lúc bị giới hạn bởi
+ * semaphore (mỗi lần điều phối giữ một connection database), phần còn lại chờ trong hàng đợi.
+ * Emergency không được điều phối (lỗi, tắt ứng dụng) vẫn ở PENDING trong database.
+ */
+@Component
+public class EmergencyDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmergencyDispatcher.class);
+
+    public static final String STATE_QUEUED = "QUEUED";
+    public static final String STATE_MATCHING = "MATCHING";
+
+    // Lazy: EmergencyService cũng inject dispatcher này
+    @Lazy
+    @Autowired
+    private EmergencyService emergencyService;
+
+    private final Semaphore permits;
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("emergency-dispatch-", 0).factory());
+
+    // Emergency đang chờ hoặc đang được điều phối
+    private final Map<Long, String> inFlight = new ConcurrentHashMap<>();
+
+    public EmergencyDispatcher(@Value("${emergency.dispatch.max-concurrency:8}") int maxConcurrency) {
+        this.permits = new Semaphore(maxConcurrency, true);
+    }
+
+    /**
+     * Đưa emergency vào hàng đợi điều phối sau khi transaction hiện tại commit
+     * @param allowReroute cho phép chuyển sang clinic lân cận còn xe
+     */
+    public void submitAfterCommit(Long emergencyId, boolean allowReroute) {
+        TransactionCallbacks.afterCommit(() -> submit(emergencyId, allowReroute));
+    }
+
+    public void submit(Long emergencyId, boolean allowReroute) {
+        if (inFlight.putIfAbsent(emergencyId, STATE_QUEUED) != null) {
+            return;
+        }
+        try {
+            executor.execute(() -> run(emergencyId, allowReroute));
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(emergencyId);
+            logger.warn("Dispatcher is shut down, emergency {} stays PENDING", emergencyId);
+        }
+    }
+
+    /**
+     * Trạng thái điều phối hiện tại (QUEUED | MATCHING), null nếu emergency không nằm trong worker
+     */
+    public String getState(Long emergencyId) {
+        return inFlight.get(emergencyId);
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    private void run(Long emergencyId, boolean allowReroute) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            inFlight.remove(emergencyId);
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            inFlight.put(emergencyId, STATE_MATCHING);
+            emergencyService.dispatchEmergency(emergencyId, allowReroute);
+        } catch (RuntimeException e) {
+            logger.error("Could not dispatch emergency {}", emergencyId, e);
+        } finally {
+            inFlight.remove(emergencyId);
+            permits.release();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            logger.warn("{} emergency dispatches still running at shutdown", inFlight.size());
+        }
+    }
+}
@@ -2,6 +2,9 @@ package com.project.medinova.service;
 
 import com.project.medinova.dto.AssignEmergencyRequest;
 import com.project.medinova.dto.CreateEmergencyRequest;
+import com.project.medinova.dto.DoctorAvailabilityView;
+import com.project.medinova.dto.EmergencyDispatchStatusResponse;
+import com.project.medinova.dto.EmergencyQueueStatsResponse;
 import com.project.medinova.dto.EmergencyResponse;
 import com.project.medinova.dto.UpdateEmergencyStatusRequest;
 import com.project.medinova.entity.*;
@@ -14,8 +17,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -44,6 +47,37 @@ public class EmergencyService {
     @Autowired
     private AuthService authService;
 
+    @Autowired
+    private AmbulanceService ambulanceService;
+
+    @Autowired
+    private AmbulanceSpatialIndex ambulanceIndex;
+
+    @Autowired
+    private LiveEventBroadcaster liveEvents;
+
+    @Autowired
+    private ClinicDirectory clinicDirectory;
+
+    @Autowired
+    private EmergencyDispatcher emergencyDispatcher;
+
+    @Autowired
+    private PendingEmergencyQueue pendingQueue;
+
+    @Autowired
+    private DashboardStatsEngine dashboardStats;
+
+    @Autowired
+    private DoctorDashboardCache doctorDashboardCache;
+
+    // Số xe ứng viên lấy từ index mỗi lần tìm
+    private static final int DISPATCH_CANDIDATE_LIMIT = 5;
+
+    // Số clinic lân cận thử khi clinic gần nhất không còn xe rảnh
+    private static final int FALLBACK_CLINIC_LIMIT = 5;
+    private static final double FALLBACK_CLINIC_RADIUS_KM = 30.0;
+
     // Earth radius in kilometers
     private static final double EARTH_RADIUS_KM = 6371.0;
 
@@ -67,14 +101,39 @@ public class EmergencyService {
         return EARTH_RADIUS_KM * c;
     }
 
+    /**
+     * Khoảng cách từ xe đến bệnh nhân theo vị trí GPS mới nhất (có thể chưa được ghi xuống database);
+     * null nếu xe hoặc bệnh nhân không có location
+     */
+    private Double distanceToPatient(Ambulance ambulance, Emergency emergency) {
+        if (emergency.getPatientLat() == null || emergency.getPatientLng() == null) {
+            return null;
+        }
+        AmbulanceSpatialIndex.LivePosition live = ambulanceIndex.getLivePosition(ambulance.getId());
+        if (live != null) {
+            return calculateDistance(live.lat(), live.lng(), emergency.getPatientLat(), emergency.getPatientLng());
+        }
+        if (ambulance.getCurrentLat() != null && ambulance.getCurrentLng() != null) {
+            return calculateDistance(ambulance.getCurrentLat(), ambulance.getCurrentLng(),
+                    emergency.getPatientLat(), emergency.getPatientLng());
+        }
+        return null;
+    }
+
+    /**
+     * Tạo emergency với status PENDING và trả về ngay.
+     * Việc tìm xe, tìm bác sĩ và chuyển sang DISPATCHED do EmergencyDispatcher thực hiện bất đồng bộ
+     * sau khi commit - client theo dõi qua GET /api/emergencies/{id}/dispatch-status
+     */
     public EmergencyResponse createEmergency(CreateEmergencyRequest request) {
         // Tìm clinic: nếu có clinicId thì dùng, nếu không thì tìm clinic gần nhất
         Clinic clinic;
-        if (request.getClinicId() != null && request.getClinicId() > 0) {
+        boolean autoRouted = request.getClinicId() == null || request.getClinicId() <= 0;
+        if (!autoRouted) {
             clinic = clinicRepository.findById(request.getClinicId())
                     .orElseThrow(() -> new NotFoundException("Clinic not found with id: " + request.getClinicId()));
         } else {
-            // Tự động tìm clinic gần nhất
+            // Tự động tìm clinic gần nhất; khi điều phối sẽ chuyển sang clinic lân cận nếu clinic này hết xe
             clinic = findNearestClinic(request.getPatientLat(), request.getPatientLng());
             if (clinic == null) {
                 throw new NotFoundException("Không tìm thấy cơ sở y tế gần nhất. Vui lòng cung cấp clinicId.");
@@ -103,58 +162,107 @@ public class EmergencyService {
         emergency.setStatus("PENDING");
 
         emergency = emergencyRepository.save(emergency);
+        liveEvents.emergencyCreated(emergency);
+        dashboardStats.emergencyCreated(emergency);
 
-        // Tìm xe gần nhất
-        Ambulance nearestAmbulance = findNearestAvailableAmbulance(
-                clinic.getId(),
-                request.getPatientLat(),
-                request.getPatientLng(),
-                request.getPriority()
+        // Điều phối sau khi commit để worker đọc được emergency vừa tạo
+        emergencyDispatcher.submitAfterCommit(emergency.getId(), autoRouted);
+
+        return toEmergencyResponse(emergency, null, null, null);
+    }
+
+    /**
+     * Điều phối emergency đang PENDING: giữ chỗ xe gần nhất, gán bác sĩ rảnh và chuyển sang DISPATCHED.
+     * Nếu không còn xe rảnh, emergency vẫn PENDING (có thể đã được gán bác sĩ) và được đưa vào
+     * PendingEmergencyQueue để điều phối lại khi clinic có xe trả về.
+     * Dòng emergency bị khoá trong lúc điều phối nên gọi trùng cho cùng emergency chỉ điều phối một lần.
+     * @param allowReroute cho phép chuyển emergency sang clinic lân cận (trong FALLBACK_CLINIC_RADIUS_KM) còn xe
+     * @return true nếu đã điều xe
+     */
+    public boolean dispatchEmergency(Long emergencyId, boolean allowReroute) {
+        Emergency emergency = emergencyRepository.findByIdForUpdate(emergencyId).orElse(null);
+        if (emergency == null || !"PENDING".equals(emergency.getStatus())) {
+            pendingQueue.removeAfterCommit(emergencyId);
+            return false;
+        }
+
+        Long clinicId = emergency.getClinic().getId();
+
+        // Tìm xe gần nhất của clinic
+        Ambulance nearestAmbulance = reserveNearestAvailableAmbulance(
+                clinicId,
+                emergency.getPatientLat(),
+                emergency.getPatientLng(),
+                emergency.getPriority()
         );
 
+        // Clinic hết xe - thử các clinic lân cận còn xe rảnh
+        if (nearestAmbulance == null && allowReroute) {
+            for (ClinicDirectory.NearbyClinic nearby : clinicDirectory.findNearest(
+                    emergency.getPatientLat(), emergency.getPatientLng(),
+                    FALLBACK_CLINIC_LIMIT, FALLBACK_CLINIC_RADIUS_KM)) {
+                if (nearby.clinic().id().equals(clinicId)) {
+                    continue;
+                }
+                nearestAmbulance = reserveNearestAvailableAmbulance(
+                        nearby.clinic().id(),
+                        emergency.getPatientLat(),
+                        emergency.getPatientLng(),
+                        emergency.getPriority()
+                );
+                if (nearestAmbulance != null) {
+                    clinicId = nearby.clinic().id();
+                    emergency.setClinic(clinicRepository.getReferenceById(clinicId));
+                    break;
+                }
+            }
+        }
+
+        // Assignment có sẵn (ví dụ đã gán bác sĩ ở lần điều phối trước khi chưa có xe)
+        EmergencyAssignment assignment = assignmentRepository.findByEmergencyId(emergencyId)
+                .stream()
+                .findFirst()
+                .orElse(null);
+
+        // Giữ bác sĩ đã gán nếu cùng clinic, nếu không tìm bác sĩ đang rảnh của clinic (tự động assign)
+        Doctor previousDoctor = assignment != null ? assignment.getDoctor() : null;
+        Doctor assignedDoctor = previousDoctor;
+        if (assignedDoctor == null || !clinicId.equals(assignedDoctor.getClinic().getId())) {
+            assignedDoctor = findAvailableDoctor(clinicId);
+        }
+
         if (nearestAmbulance == null) {
-            // Không có xe rảnh - vẫn tìm bác sĩ và tạo emergency với status PENDING
-            Doctor assignedDoctor = findAvailableDoctor(clinic.getId());
-            
-            // Nếu có bác sĩ, tạo assignment (không có ambulance)
+            // Không có xe rảnh - vẫn gán bác sĩ, emergency giữ status PENDING
             // Note: ambulance_id có thể null trong database
             if (assignedDoctor != null) {
-                EmergencyAssignment assignment = new EmergencyAssignment();
-                assignment.setEmergency(emergency);
-                assignment.setAmbulance(null); // Không có ambulance - nullable = true
+                if (assignment == null) {
+                    assignment = new EmergencyAssignment();
+                    assignment.setEmergency(emergency);
+                    assignment.setAmbulance(null); // Không có ambulance - nullable = true
+                    assignment.setDistanceKm(null);
+                }
                 assignment.setDoctor(assignedDoctor);
-                assignment.setDistanceKm(null);
                 assignment.setAssignedAt(LocalDateTime.now());
                 assignmentRepository.save(assignment);
+                liveEvents.emergencyAssigned(emergency, null, assignedDoctor);
+                invalidateDoctorDashboards(previousDoctor, assignedDoctor);
             }
-            
-            // Emergency vẫn được tạo với status PENDING
-            // Client sẽ nhận được response với status PENDING
-            return toEmergencyResponse(emergency, null, assignedDoctor, null);
+
+            // Chờ xe trong hàng đợi theo priority của clinic
+            pendingQueue.enqueueAfterCommit(emergency);
+            return false;
         }
 
-        // Cập nhật status xe thành DISPATCHED
-        nearestAmbulance.setStatus("DISPATCHED");
-        nearestAmbulance.setLastIdleAt(null);
-        ambulanceRepository.save(nearestAmbulance);
+        // Xe đã được giữ chỗ (DISPATCHED) trong reserveNearestAvailableAmbulance
 
         // Tính khoảng cách từ xe đến bệnh nhân (chỉ nếu xe có location)
-        Double distance = null;
-        if (nearestAmbulance.getCurrentLat() != null && nearestAmbulance.getCurrentLng() != null) {
-            distance = calculateDistance(
-                    nearestAmbulance.getCurrentLat(),
-                    nearestAmbulance.getCurrentLng(),
-                    request.getPatientLat(),
-                    request.getPatientLng()
-            );
-        }
+        Double distance = distanceToPatient(nearestAmbulance, emergency);
 
-        // Tìm và gán bác sĩ đang rảnh của clinic này (tự động assign)
-        Doctor assignedDoctor = findAvailableDoctor(clinic.getId());
-
-        // Tạo assignment với ambulance và doctor
-        EmergencyAssignment assignment = new EmergencyAssignment();
-        assignment.setEmergency(emergency);
+        // Tạo (hoặc cập nhật) assignment với ambulance và doctor
+        if (assignment == null) {
+            assignment = new EmergencyAssignment();
+            assignment.setEmergency(emergency);
+        }
         assignment.setAmbulance(nearestAmbulance);
         assignment.setDoctor(assignedDoctor); // Có thể null nếu không có bác sĩ rảnh
         assignment.setDistanceKm(distance); // Có thể null nếu xe không có location
@@ -164,233 +272,112 @@ public class EmergencyService {
         // Cập nhật emergency status thành DISPATCHED
         emergency.setStatus("DISPATCHED");
         emergency.setDispatchedAt(LocalDateTime.now());
-        emergency = emergencyRepository.save(emergency);
-
-        return toEmergencyResponse(emergency, nearestAmbulance, assignedDoctor, distance);
+        emergencyRepository.save(emergency);
+        pendingQueue.dispatchedAfterCommit(emergency);
+        dashboardStats.emergencyStatusChanged("PENDING", "DISPATCHED");
+        invalidateDoctorDashboards(previousDoctor, assignedDoctor);
+        liveEvents.emergencyAssigned(emergency, nearestAmbulance, assignedDoctor);
+        return true;
     }
 
     /**
-     * Tìm clinic gần nhất với vị trí bệnh nhân
-     * Ưu tiên: clinic có location > clinic không có location
+     * Trạng thái điều phối của emergency - dùng để client poll sau khi tạo emergency
      */
-    private Clinic findNearestClinic(Double patientLat, Double patientLng) {
-        // Bước 1: Tìm clinics có location và emergency enabled
-        List<Clinic> clinicsWithLocation = clinicRepository.findAllWithLocationAndEmergencyEnabled();
-        
-        if (!clinicsWithLocation.isEmpty()) {
-            // Tính khoảng cách và chọn clinic gần nhất
-            return clinicsWithLocation.stream()
-                    .map(clinic -> {
-                        double distance = calculateDistance(
-                                clinic.getLatitude(),
-                                clinic.getLongitude(),
-                                patientLat,
-                                patientLng
-                        );
-                        return new ClinicWithDistance(clinic, distance);
-                    })
-                    .sorted((c1, c2) -> Double.compare(c1.distance, c2.distance))
-                    .map(c -> c.clinic)
-                    .findFirst()
-                    .orElse(null);
-        }
-        
-        // Bước 2: Nếu không có clinic có location, fallback về clinic đầu tiên có emergency enabled
-        List<Clinic> emergencyEnabledClinics = clinicRepository.findAllEmergencyEnabled();
-        if (!emergencyEnabledClinics.isEmpty()) {
-            return emergencyEnabledClinics.get(0); // Trả về clinic đầu tiên
+    @Transactional(readOnly = true)
+    public EmergencyDispatchStatusResponse getDispatchStatus(Long id) {
+        String workerState = emergencyDispatcher.getState(id);
+        EmergencyResponse emergency = getEmergencyById(id);
+
+        String dispatchState;
+        if (workerState != null) {
+            dispatchState = workerState;
+        } else if ("PENDING".equals(emergency.getStatus())) {
+            dispatchState = "WAITING_FOR_AMBULANCE";
+        } else {
+            dispatchState = "DISPATCHED";
         }
-        
-        // Bước 3: Nếu vẫn không có, trả về null
-        return null;
+
+        EmergencyDispatchStatusResponse response = new EmergencyDispatchStatusResponse();
+        response.setEmergencyId(emergency.getId());
+        response.setStatus(emergency.getStatus());
+        response.setDispatchState(dispatchState);
+        response.setClinicId(emergency.getClinicId());
+        response.setAmbulanceId(emergency.getAmbulanceId());
+        response.setDoctorId(emergency.getDoctorId());
+        response.setDistanceKm(emergency.getDistanceKm());
+        response.setDispatchedAt(emergency.getDispatchedAt());
+        return response;
     }
 
     /**
-     * Helper class để lưu clinic và khoảng cách
+     * Độ sâu hàng đợi emergency chờ xe và thời gian chờ điều phối
      */
-    private static class ClinicWithDistance {
-        Clinic clinic;
-        double distance;
-
-        ClinicWithDistance(Clinic clinic, double distance) {
-            this.clinic = clinic;
-            this.distance = distance;
+    public EmergencyQueueStatsResponse getQueueStats(Long clinicId) {
+        EmergencyQueueStatsResponse stats = pendingQueue.getStats();
+        if (clinicId != null) {
+            stats.setClinics(stats.getClinics().stream()
+                    .filter(clinic -> clinicId.equals(clinic.getClinicId()))
+                    .collect(Collectors.toList()));
         }
+        return stats;
+    }
+
+    /**
+     * Tìm clinic gần nhất với vị trí bệnh nhân
+     * Ưu tiên: clinic có location > clinic không có location
+     * Tra cứu từ ClinicDirectory (in-memory), không truy vấn database
+     */
+    private Clinic findNearestClinic(Double patientLat, Double patientLng) {
+        ClinicDirectory.Entry nearest = clinicDirectory.findNearest(patientLat, patientLng);
+        return nearest != null ? clinicRepository.getReferenceById(nearest.id()) : null;
     }
 
     /**
-     * Tìm xe cấp cứu rảnh gần nhất của clinic
+     * Tìm và giữ chỗ xe cấp cứu rảnh gần nhất của clinic
      * Chỉ tìm trong các xe của clinic được chỉ định
      * Logic: Ưu tiên xe có location → fallback về xe không có location
+     * Ứng viên lấy từ AmbulanceSpatialIndex; mỗi ứng viên được giữ chỗ bằng UPDATE có điều kiện,
+     * nếu request khác đã lấy mất thì chuyển sang ứng viên kế tiếp
      */
-    private Ambulance findNearestAvailableAmbulance(Long clinicId, Double patientLat, Double patientLng, String priority) {
-        // Bước 1: Tìm xe AVAILABLE của clinic có vị trí (lat/lng) - ưu tiên
-        List<Ambulance> ambulancesWithLocation = ambulanceRepository
-                .findByClinicIdAndStatusAndCurrentLatIsNotNullAndCurrentLngIsNotNull(clinicId, "AVAILABLE");
-
-        if (!ambulancesWithLocation.isEmpty()) {
-            // Tính khoảng cách và sắp xếp
-            List<AmbulanceWithDistance> ambulancesWithDistance = ambulancesWithLocation.stream()
-                    .map(ambulance -> {
-                        double distance = calculateDistance(
-                                ambulance.getCurrentLat(),
-                                ambulance.getCurrentLng(),
-                                patientLat,
-                                patientLng
-                        );
-                        return new AmbulanceWithDistance(ambulance, distance);
-                    })
-                    .sorted((a1, a2) -> {
-                        // Ưu tiên ICU cho ca CRITICAL/HIGH
-                        if ("CRITICAL".equals(priority) || "HIGH".equals(priority)) {
-                            boolean a1IsIcu = "ICU".equals(a1.ambulance.getAmbulanceType());
-                            boolean a2IsIcu = "ICU".equals(a2.ambulance.getAmbulanceType());
-                            if (a1IsIcu != a2IsIcu) {
-                                return a1IsIcu ? -1 : 1; // ICU trước
-                            }
-                        }
-                        
-                        // Ưu tiên khoảng cách gần hơn
-                        int distanceCompare = Double.compare(a1.distance, a2.distance);
-                        if (distanceCompare != 0) {
-                            return distanceCompare;
-                        }
-                        
-                        // Nếu khoảng cách bằng nhau, ưu tiên xe idle lâu hơn
-                        if (a1.ambulance.getLastIdleAt() != null && a2.ambulance.getLastIdleAt() != null) {
-                            return a1.ambulance.getLastIdleAt().compareTo(a2.ambulance.getLastIdleAt());
-                        }
-                        
-                        return 0;
-                    })
-                    .collect(Collectors.toList());
+    private Ambulance reserveNearestAvailableAmbulance(Long clinicId, Double patientLat, Double patientLng, String priority) {
+        while (true) {
+            List<Long> candidateIds = ambulanceIndex.findDispatchCandidates(
+                    clinicId, patientLat, patientLng, priority, DISPATCH_CANDIDATE_LIMIT);
+            if (candidateIds.isEmpty()) {
+                // Không có xe rảnh của clinic này
+                return null;
+            }
 
-            return ambulancesWithDistance.get(0).ambulance;
+            for (Long ambulanceId : candidateIds) {
+                Ambulance reserved = ambulanceService.reserveAmbulance(ambulanceId, clinicId);
+                if (reserved != null) {
+                    return reserved;
+                }
+            }
         }
-
-        // Bước 2: Fallback - Tìm xe AVAILABLE của clinic không có location
-        List<Ambulance> ambulancesWithoutLocation = ambulanceRepository
-                .findByClinicIdAndStatus(clinicId, "AVAILABLE")
-                .stream()
-                .filter(ambulance -> ambulance.getCurrentLat() == null || ambulance.getCurrentLng() == null)
-                .collect(Collectors.toList());
-
-        if (!ambulancesWithoutLocation.isEmpty()) {
-            // Sắp xếp theo priority và lastIdleAt
-            return ambulancesWithoutLocation.stream()
-                    .sorted((a1, a2) -> {
-                        // Ưu tiên ICU cho ca CRITICAL/HIGH
-                        if ("CRITICAL".equals(priority) || "HIGH".equals(priority)) {
-                            boolean a1IsIcu = "ICU".equals(a1.getAmbulanceType());
-                            boolean a2IsIcu = "ICU".equals(a2.getAmbulanceType());
-                            if (a1IsIcu != a2IsIcu) {
-                                return a1IsIcu ? -1 : 1; // ICU trước
-                            }
-                        }
-                        
-                        // Ưu tiên xe idle lâu hơn
-                        if (a1.getLastIdleAt() != null && a2.getLastIdleAt() != null) {
-                            return a1.getLastIdleAt().compareTo(a2.getLastIdleAt());
-                        }
-                        if (a1.getLastIdleAt() != null) {
-                            return -1; // a1 có lastIdleAt, ưu tiên
-                        }
-                        if (a2.getLastIdleAt() != null) {
-                            return 1; // a2 có lastIdleAt, ưu tiên
-                        }
-                        
-                        return 0;
-                    })
-                    .findFirst()
-                    .orElse(null);
-        }
-
-        // Không có xe rảnh của clinic này
-        return null;
     }
 
     /**
      * Tìm bác sĩ đang rảnh của clinic (ER Doctor)
      * Chỉ tìm trong các bác sĩ của clinic được chỉ định và đã được APPROVED
+     * Trạng thái bận/rảnh và số emergency hôm nay của cả clinic được lấy trong một query
      */
-    private Doctor findAvailableDoctor(Long clinicId) {
-        // Lấy danh sách doctors của clinic
-        List<Doctor> clinicDoctors = doctorRepository.findByClinicId(clinicId);
-        
-        // Lọc chỉ lấy doctors đã được APPROVED
-        clinicDoctors = clinicDoctors.stream()
-                .filter(doctor -> "APPROVED".equals(doctor.getStatus()))
-                .collect(Collectors.toList());
-        
-        if (clinicDoctors.isEmpty()) {
-            return null; // Không có doctor nào được APPROVED trong clinic này
-        }
-
-        LocalDate today = LocalDate.now();
-        
-        // Lọc doctors đang rảnh (không có appointment đang diễn ra và không có emergency active)
-        List<Doctor> availableDoctors = clinicDoctors.stream()
-                .filter(doctor -> {
-                    // Kiểm tra có emergency assignment active không
-                    List<EmergencyAssignment> activeAssignments = assignmentRepository
-                            .findActiveAssignmentsByDoctorId(doctor.getId());
-                    if (!activeAssignments.isEmpty()) {
-                        return false;
-                    }
-                    
-                    // Kiểm tra có appointment đang diễn ra trong khung giờ hiện tại không
-                    LocalDateTime now = LocalDateTime.now();
-                    List<com.project.medinova.entity.Appointment> doctorAppointments = 
-                            appointmentRepository.findByDoctorId(doctor.getId());
-                    
-                    for (com.project.medinova.entity.Appointment appointment : doctorAppointments) {
-                        // Bỏ qua CANCELLED
-                        if ("CANCELLED".equals(appointment.getStatus())) {
-                            continue;
-                        }
-                        
-                        LocalDateTime appointmentStart = appointment.getAppointmentTime();
-                        LocalDateTime appointmentEnd;
-                        
-                        // Lấy duration từ schedule (startTime và endTime)
-                        if (appointment.getSchedule() != null) {
-                            appointmentEnd = appointment.getSchedule().getEndTime()
-                                    .atDate(appointmentStart.toLocalDate());
-                        } else {
-                            // Mặc định 60 phút nếu không có schedule
-                            appointmentEnd = appointmentStart.plusMinutes(60);
-                        }
-                        
-                        // Kiểm tra xem thời điểm hiện tại có nằm trong khung giờ appointment không
-                        if (!now.isBefore(appointmentStart) && !now.isAfter(appointmentEnd)) {
-                            return false; // Bác sĩ đang có appointment trong khung giờ hiện tại
-                        }
-                    }
-                    
-                    return true; // Bác sĩ rảnh
-                })
-                .sorted((d1, d2) -> {
-                    // Ưu tiên doctor ít emergency assignments hôm nay
-                    Long count1 = assignmentRepository.countByDoctorIdAndDate(d1.getId(), today);
-                    Long count2 = assignmentRepository.countByDoctorIdAndDate(d2.getId(), today);
-                    return count1.compareTo(count2);
-                })
-                .collect(Collectors.toList());
-
-        return availableDoctors.isEmpty() ? null : availableDoctors.get(0);
-    }
+    Doctor findAvailableDoctor(Long clinicId) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime startOfDay = now.toLocalDate().atStartOfDay();
+        // Appointment không có schedule kéo dài 60 phút nên có thể bắt đầu từ hôm qua
+        LocalDateTime earliestStart = now.minusMinutes(60).isBefore(startOfDay) ? now.minusMinutes(60) : startOfDay;
 
-    /**
-     * Helper class để lưu ambulance và khoảng cách
-     */
-    private static class AmbulanceWithDistance {
-        Ambulance ambulance;
-        double distance;
+        // Lọc doctors đang rảnh, ưu tiên doctor ít emergency assignments hôm nay
+        Long doctorId = doctorRepository
+                .findAvailabilityByClinicId(clinicId, now, earliestStart, startOfDay, startOfDay.plusDays(1))
+                .stream()
+                .filter(availability -> !Boolean.TRUE.equals(availability.getBusy()))
+                .min(Comparator.comparing(DoctorAvailabilityView::getTodayAssignments))
+                .map(DoctorAvailabilityView::getDoctorId)
+                .orElse(null);
 
-        AmbulanceWithDistance(Ambulance ambulance, double distance) {
-            this.ambulance = ambulance;
-            this.distance = distance;
-        }
+        return doctorId != null ? doctorRepository.findById(doctorId).orElse(null) : null;
     }
 
     /**
@@ -636,25 +623,15 @@ public class EmergencyService {
                 throw new BadRequestException("Ambulance does not belong to the emergency's clinic");
             }
 
-            // Kiểm tra ambulance có AVAILABLE không
-            if (!"AVAILABLE".equals(ambulance.getStatus())) {
-                throw new BadRequestException("Ambulance is not available. Status: " + ambulance.getStatus());
+            // Giữ chỗ ambulance (chỉ thành công nếu vẫn AVAILABLE) và chuyển sang DISPATCHED
+            String statusBeforeReserve = ambulance.getStatus();
+            ambulance = ambulanceService.reserveAmbulance(ambulance.getId(), emergency.getClinic().getId());
+            if (ambulance == null) {
+                throw new BadRequestException("Ambulance is not available. Status: " + statusBeforeReserve);
             }
 
-            // Cập nhật status ambulance thành DISPATCHED
-            ambulance.setStatus("DISPATCHED");
-            ambulance.setLastIdleAt(null);
-            ambulanceRepository.save(ambulance);
-
             // Tính khoảng cách nếu ambulance có location
-            if (ambulance.getCurrentLat() != null && ambulance.getCurrentLng() != null) {
-                distance = calculateDistance(
-                        ambulance.getCurrentLat(),
-                        ambulance.getCurrentLng(),
-                        emergency.getPatientLat(),
-                        emergency.getPatientLng()
-                );
-            }
+            distance = distanceToPatient(ambulance, emergency);
         }
 
         // Tìm assignment hiện tại của emergency (nếu có)
@@ -662,6 +639,7 @@ public class EmergencyService {
                 .stream()
                 .findFirst()
                 .orElse(null);
+        Doctor previousDoctor = existingAssignment != null ? existingAssignment.getDoctor() : null;
 
         EmergencyAssignment assignment;
         if (existingAssignment != null) {
@@ -674,6 +652,8 @@ public class EmergencyService {
                 oldAmbulance.setStatus("AVAILABLE");
                 oldAmbulance.setLastIdleAt(LocalDateTime.now());
                 ambulanceRepository.save(oldAmbulance);
+                ambulanceIndex.sync(oldAmbulance);
+                liveEvents.ambulanceStatusChanged(oldAmbulance);
             }
         } else {
             // Tạo assignment mới
@@ -689,9 +669,14 @@ public class EmergencyService {
         assignmentRepository.save(assignment);
 
         // Cập nhật emergency status thành DISPATCHED
+        String previousStatus = emergency.getStatus();
         emergency.setStatus("DISPATCHED");
         emergency.setDispatchedAt(LocalDateTime.now());
         emergency = emergencyRepository.save(emergency);
+        pendingQueue.dispatchedAfterCommit(emergency);
+        dashboardStats.emergencyStatusChanged(previousStatus, "DISPATCHED");
+        invalidateDoctorDashboards(previousDoctor, doctor);
+        liveEvents.emergencyAssigned(emergency, ambulance, doctor);
 
         return toEmergencyResponse(emergency, ambulance, doctor, distance);
     }
@@ -741,6 +726,8 @@ public class EmergencyService {
                     ambulance.setStatus("AVAILABLE");
                     ambulance.setLastIdleAt(now);
                     ambulanceRepository.save(ambulance);
+                    ambulanceIndex.sync(ambulance);
+                    liveEvents.ambulanceStatusChanged(ambulance);
                 }
             }
         } else if ("CANCELLED".equals(newStatus)) {
@@ -753,12 +740,22 @@ public class EmergencyService {
                     ambulance.setStatus("AVAILABLE");
                     ambulance.setLastIdleAt(now);
                     ambulanceRepository.save(ambulance);
+                    ambulanceIndex.sync(ambulance);
+                    liveEvents.ambulanceStatusChanged(ambulance);
                 }
             }
         }
 
         emergency = emergencyRepository.save(emergency);
 
+        liveEvents.emergencyStatusChanged(emergency);
+        dashboardStats.emergencyStatusChanged(oldStatus, newStatus);
+
+        // Emergency không còn chờ xe thì gỡ khỏi hàng đợi
+        if (!"PENDING".equals(newStatus)) {
+            pendingQueue.removeAfterCommit(emergencyId);
+        }
+
         // Lấy assignment để trả về response
         EmergencyAssignment assignment = assignmentRepository.findByEmergencyId(emergencyId)
                 .stream()
@@ -768,10 +765,20 @@ public class EmergencyService {
         Ambulance ambulance = assignment != null ? assignment.getAmbulance() : null;
         Doctor doctor = assignment != null ? assignment.getDoctor() : null;
         Double distance = assignment != null ? assignment.getDistanceKm() : null;
+        invalidateDoctorDashboards(doctor);
 
         return toEmergencyResponse(emergency, ambulance, doctor, distance);
     }
 
+    // Xoá cache dashboard của các bác sĩ liên quan sau khi commit
+    private void invalidateDoctorDashboards(Doctor... doctors) {
+        for (Doctor doctor : doctors) {
+            if (doctor != null) {
+                doctorDashboardCache.invalidateAfterCommit(doctor.getId());
+            }
+        }
+    }
+
     /**
      * Get all emergencies with optional status filter (ADMIN only)
      */
@@ -0,0 +1,208 @@
+package com.project.medinova.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Lưới địa lý (grid theo độ lat/lng) dùng để tìm k điểm gần nhất mà không phải quét toàn bộ.
+ * Ghi (put/remove) được đồng bộ, đọc (nearest) không khoá.
+ * Không xử lý kinh tuyến 180 - toàn bộ dữ liệu của hệ thống nằm trong một khu vực.
+ */
+public class GeoGrid<T> {
+
+    // Earth radius in kilometers
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180.0;
+
+    private final double cellDegrees;
+    private final Map<Long, Point<T>> points = new ConcurrentHashMap<>();
+    private final Map<Long, Map<Long, Point<T>>> cells = new ConcurrentHashMap<>();
+
+    // Biên của các ô đã từng có dữ liệu (chỉ mở rộng, không thu hẹp)
+    private volatile int minRow = Integer.MAX_VALUE;
+    private volatile int maxRow = Integer.MIN_VALUE;
+    private volatile int minCol = Integer.MAX_VALUE;
+    private volatile int maxCol = Integer.MIN_VALUE;
+
+    public record Point<T>(Long id, double lat, double lng, T value) {
+    }
+
+    public record Hit<T>(T value, double distanceKm) {
+    }
+
+    public GeoGrid(double cellDegrees) {
+        this.cellDegrees = cellDegrees;
+    }
+
+    public synchronized void put(Long id, double lat, double lng, T value) {
+        removeInternal(id);
+        Point<T> point = new Point<>(id, lat, lng, value);
+        int row = row(lat);
+        int col = col(lng);
+        cells.computeIfAbsent(key(row, col), k -> new ConcurrentHashMap<>()).put(id, point);
+        points.put(id, point);
+        if (row < minRow) minRow = row;
+        if (row > maxRow) maxRow = row;
+        if (col < minCol) minCol = col;
+        if (col > maxCol) maxCol = col;
+    }
+
+    public synchronized void remove(Long id) {
+        removeInternal(id);
+    }
+
+    private void removeInternal(Long id) {
+        Point<T> old = points.remove(id);
+        if (old == null) {
+            return;
+        }
+        long cellKey = key(row(old.lat()), col(old.lng()));
+        Map<Long, Point<T>> cell = cells.get(cellKey);
+        if (cell != null) {
+            cell.remove(id);
+            if (cell.isEmpty()) {
+                cells.remove(cellKey);
+            }
+        }
+    }
+
+    public T get(Long id) {
+        Point<T> point = points.get(id);
+        return point != null ? point.value() : null;
+    }
+
+    public int size() {
+        return points.size();
+    }
+
+    public Collection<Point<T>> points() {
+        return points.values();
+    }
+
+    /**
+     * Tìm tối đa k điểm gần nhất trong bán kính maxKm, thoả filter.
+     * Khoảng cách bằng nhau thì sắp theo tieBreak.
+     * Duyệt các vòng ô quanh điểm truy vấn và dừng khi vòng kế tiếp chắc chắn xa hơn điểm thứ k.
+     */
+    public List<Hit<T>> nearest(double lat, double lng, int k, double maxKm,
+                                Predicate<T> filter, Comparator<T> tieBreak) {
+        if (k <= 0 || points.isEmpty()) {
+            return List.of();
+        }
+
+        Comparator<T> secondary = tieBreak != null ? tieBreak : (a, b) -> 0;
+        Comparator<Hit<T>> order = Comparator.<Hit<T>>comparingDouble(hit -> hit.distanceKm())
+                .thenComparing(hit -> hit.value(), secondary);
+        PriorityQueue<Hit<T>> worstFirst = new PriorityQueue<>(k + 1, order.reversed());
+
+        int row0 = row(lat);
+        int col0 = col(lng);
+        int maxRing = Math.max(
+                Math.max(Math.abs(row0 - minRow), Math.abs(row0 - maxRow)),
+                Math.max(Math.abs(col0 - minCol), Math.abs(col0 - maxCol)));
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            double ringLowerBound = ringLowerBoundKm(lat, ring);
+            if (ringLowerBound > maxKm) {
+                break;
+            }
+            if (worstFirst.size() == k && ringLowerBound > worstFirst.peek().distanceKm()) {
+                break;
+            }
+
+            // Vòng rộng hơn số ô đang có dữ liệu: quét thẳng các ô còn lại sẽ rẻ hơn
+            if (ring > 0 && 8L * ring > cells.size()) {
+                for (Map.Entry<Long, Map<Long, Point<T>>> cell : cells.entrySet()) {
+                    int row = (int) (cell.getKey() >> 32);
+                    int col = (int) (long) cell.getKey();
+                    if (Math.max(Math.abs(row - row0), Math.abs(col - col0)) >= ring) {
+                        offerAll(cell.getValue(), lat, lng, k, maxKm, filter, order, worstFirst);
+                    }
+                }
+                break;
+            }
+
+            for (int dr = -ring; dr <= ring; dr++) {
+                boolean edgeRow = Math.abs(dr) == ring;
+                int step = edgeRow || ring == 0 ? 1 : 2 * ring;
+                for (int dc = -ring; dc <= ring; dc += step) {
+                    Map<Long, Point<T>> cell = cells.get(key(row0 + dr, col0 + dc));
+                    if (cell != null) {
+                        offerAll(cell, lat, lng, k, maxKm, filter, order, worstFirst);
+                    }
+                }
+            }
+        }
+
+        List<Hit<T>> result = new ArrayList<>(worstFirst);
+        result.sort(order);
+        return result;
+    }
+
+    private void offerAll(Map<Long, Point<T>> cell, double lat, double lng, int k, double maxKm,
+                          Predicate<T> filter, Comparator<Hit<T>> order, PriorityQueue<Hit<T>> worstFirst) {
+        for (Point<T> point : cell.values()) {
+            if (!filter.test(point.value())) {
+                continue;
+            }
+            double distance = distanceKm(lat, lng, point.lat(), point.lng());
+            if (distance > maxKm) {
+                continue;
+            }
+            Hit<T> hit = new Hit<>(point.value(), distance);
+            if (worstFirst.size() < k) {
+                worstFirst.add(hit);
+            } else if (order.compare(hit, worstFirst.peek()) < 0) {
+                worstFirst.poll();
+                worstFirst.add(hit);
+            }
+        }
+    }
+
+    /**
+     * Khoảng cách tối thiểu từ điểm truy vấn tới bất kỳ điểm nào nằm ở vòng ô thứ ring.
+     * Giữa hai ô cách nhau ring vòng có ít nhất (ring - 1) ô trọn vẹn.
+     */
+    private double ringLowerBoundKm(double lat, int ring) {
+        if (ring <= 1) {
+            return 0.0;
+        }
+        double farthestLat = Math.min(89.0, Math.abs(lat) + ring * cellDegrees);
+        double minCellKm = cellDegrees * KM_PER_DEGREE * Math.cos(Math.toRadians(farthestLat));
+        return (ring - 1) * minCellKm * 0.99;
+    }
+
+    private int row(double lat) {
+        return (int) Math.floor(lat / cellDegrees);
+    }
+
+    private int col(double lng) {
+        return (int) Math.floor(lng / cellDegrees);
+    }
+
+    private static long key(int row, int col) {
+        return ((long) row << 32) | (col & 0xffffffffL);
+    }
+
+    /**
+     * Calculate distance between two points using Haversine formula
+     * @return Distance in kilometers
+     */
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
+                   Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
+                   Math.sin(dLon / 2) * Math.sin(dLon / 2);
+
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        return EARTH_RADIUS_KM * c;
+    }
+}
@@ -0,0 +1,52 @@
+package com.project.medinova.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Backend trong bộ nhớ (một node): mất khi khởi động lại, không chia sẻ giữa các node
+ */
+@Component
+@ConditionalOnProperty(name = "auth.revocation.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryTokenRevocationStore implements TokenRevocationStore {
+
+    private record Entry(LocalDateTime expiresAt, LocalDateTime revokedAt) {
+    }
+
+    private final Map<String, Entry> revoked = new ConcurrentHashMap<>();
+
+    @Override
+    public void revoke(String tokenId, LocalDateTime expiresAt) {
+        revoked.put(tokenId, new Entry(expiresAt, LocalDateTime.now()));
+    }
+
+    @Override
+    public boolean isRevoked(String tokenId, LocalDateTime now) {
+        Entry entry = revoked.get(tokenId);
+        return entry != null && entry.expiresAt().isAfter(now);
+    }
+
+    @Override
+    public List<String> findRevokedSince(LocalDateTime since, LocalDateTime now) {
+        List<String> tokenIds = new ArrayList<>();
+        revoked.forEach((tokenId, entry) -> {
+            if ((since == null || !entry.revokedAt().isBefore(since)) && entry.expiresAt().isAfter(now)) {
+                tokenIds.add(tokenId);
+            }
+        });
+        return tokenIds;
+    }
+
+    @Override
+    public int purgeExpired(LocalDateTime now) {
+        int before = revoked.size();
+        revoked.values().removeIf(entry -> !entry.expiresAt().isAfter(now));
+        return before - revoked.size();
+    }
+}
@@ -0,0 +1,46 @@
+package com.project.medinova.service;
+
+import com.project.medinova.entity.RevokedToken;
+import com.project.medinova.repository.RevokedTokenRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Backend dùng bảng revoked_tokens: giữ được qua khởi động lại và dùng chung giữa các node.
+ * Các node thấy token bị thu hồi ở node khác sau tối đa auth.revocation.sync-interval-ms (xem TokenRevocationService)
+ */
+@Component
+@ConditionalOnProperty(name = "auth.revocation.store", havingValue = "jdbc")
+public class JdbcTokenRevocationStore implements TokenRevocationStore {
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Override
+    public void revoke(String tokenId, LocalDateTime expiresAt) {
+        revokedTokenRepository.save(new RevokedToken(tokenId, expiresAt, LocalDateTime.now()));
+    }
+
+    @Override
+    public boolean isRevoked(String tokenId, LocalDateTime now) {
+        return revokedTokenRepository.existsByTokenIdAndExpiresAtAfter(tokenId, now);
+    }
+
+    @Override
+    public List<String> findRevokedSince(LocalDateTime since, LocalDateTime now) {
+        return since == null
+                ? revokedTokenRepository.findActiveTokenIds(now)
+                : revokedTokenRepository.findActiveTokenIdsRevokedSince(since, now);
+    }
+
+    @Override
+    @Transactional
+    public int purgeExpired(LocalDateTime now) {
+        return revokedTokenRepository.deleteExpired(now);
+    }
+}
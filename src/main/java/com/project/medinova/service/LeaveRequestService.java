@@ -35,6 +35,18 @@ public class LeaveRequestService {
     @Autowired
     private AuthService authService;
 
+    @Autowired
+    private DashboardStatsEngine dashboardStats;
+
+    @Autowired
+    private DoctorDashboardCache doctorDashboardCache;
+
+    @Autowired
+    private BusyScheduleCache busyScheduleCache;
+
+    @Autowired
+    private DoctorAvailabilityCalendar doctorAvailability;
+
     public DoctorLeaveRequest createLeaveRequest(CreateLeaveRequestRequest request) {
         // Lấy user hiện tại từ JWT
         User currentUser = authService.getCurrentUser();
@@ -127,7 +139,11 @@ public class LeaveRequestService {
         leaveRequest.setReason(request.getReason());
         leaveRequest.setStatus("PENDING");
 
-        return leaveRequestRepository.save(leaveRequest);
+        leaveRequest = leaveRequestRepository.save(leaveRequest);
+        dashboardStats.leaveRequestStatusChanged(null, "PENDING");
+        doctorDashboardCache.invalidateAfterCommit(doctor.getId());
+        busyScheduleCache.invalidateAfterCommit(doctor.getId());
+        return leaveRequest;
     }
 
     public DoctorLeaveRequest updateLeaveRequestStatus(Long id, UpdateLeaveRequestStatusRequest request) {
@@ -156,7 +172,12 @@ public class LeaveRequestService {
         leaveRequest.setApprovedBy(currentUser);
         leaveRequest.setApprovedAt(LocalDateTime.now());
 
-        return leaveRequestRepository.save(leaveRequest);
+        leaveRequest = leaveRequestRepository.save(leaveRequest);
+        dashboardStats.leaveRequestStatusChanged("PENDING", leaveRequest.getStatus());
+        doctorDashboardCache.invalidateAfterCommit(leaveRequest.getDoctor().getId());
+        busyScheduleCache.invalidateAfterCommit(leaveRequest.getDoctor().getId());
+        doctorAvailability.doctorChanged(leaveRequest.getDoctor().getId());
+        return leaveRequest;
     }
 
     public DoctorLeaveRequest getLeaveRequestById(Long id) {
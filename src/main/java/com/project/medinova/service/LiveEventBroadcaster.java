@@ -0,0 +1,211 @@
+package com.project.medinova.service;
+
+import com.project.medinova.dto.LiveEvent;
+import com.project.medinova.entity.Ambulance;
+import com.project.medinova.entity.Doctor;
+import com.project.medinova.entity.Emergency;
+import com.project.medinova.exception.BadRequestException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Đẩy các thay đổi của emergency/xe cấp cứu tới dashboard qua Server-Sent Events.
+ * Mỗi subscriber có hàng đợi riêng (giới hạn) và một virtual thread gửi, nên client chậm
+ * không làm chậm thread ghi; subscriber bị tràn hàng đợi sẽ bị ngắt và phải kết nối lại.
+ * Sự kiện emergency/status được phát sau khi transaction commit; sự kiện vị trí được phát ngay.
+ */
+@Component
+public class LiveEventBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(LiveEventBroadcaster.class);
+
+    private static final int QUEUE_CAPACITY = 1000;
+    // Khi hàng đợi đã đầy quá nửa thì bỏ sự kiện vị trí (sẽ có vị trí mới ngay sau đó)
+    private static final int LOCATION_DROP_THRESHOLD = QUEUE_CAPACITY / 2;
+    private static final long EMITTER_TIMEOUT_MS = 30 * 60 * 1000L;
+
+    // Sự kiện đặc biệt: gửi comment giữ kết nối
+    private static final LiveEvent HEARTBEAT = new LiveEvent();
+
+    @Value("${live.events.max-subscribers:500}")
+    private int maxSubscribers;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private static final class Subscriber {
+        final SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        final Long clinicId; // null = mọi clinic
+        final BlockingQueue<LiveEvent> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        volatile Thread sender;
+
+        Subscriber(Long clinicId) {
+            this.clinicId = clinicId;
+        }
+
+        boolean wants(LiveEvent event) {
+            return clinicId == null || clinicId.equals(event.getClinicId());
+        }
+    }
+
+    /**
+     * Đăng ký nhận sự kiện, lọc theo clinic nếu clinicId khác null
+     */
+    public SseEmitter subscribe(Long clinicId) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new BadRequestException("Too many live event subscribers, try again later");
+        }
+
+        Subscriber subscriber = new Subscriber(clinicId);
+        subscriber.emitter.onCompletion(() -> close(subscriber));
+        subscriber.emitter.onTimeout(() -> {
+            subscriber.emitter.complete();
+            close(subscriber);
+        });
+        subscriber.emitter.onError(error -> close(subscriber));
+        subscribers.add(subscriber);
+        subscriber.sender = Thread.ofVirtual().name("live-events-sender").start(() -> send(subscriber));
+        return subscriber.emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    public void emergencyCreated(Emergency emergency) {
+        LiveEvent event = emergencyEvent("EMERGENCY_CREATED", emergency);
+        event.setLat(emergency.getPatientLat());
+        event.setLng(emergency.getPatientLng());
+        publishAfterCommit(event);
+    }
+
+    public void emergencyAssigned(Emergency emergency, Ambulance ambulance, Doctor doctor) {
+        LiveEvent event = emergencyEvent("EMERGENCY_ASSIGNED", emergency);
+        event.setAmbulanceId(ambulance != null ? ambulance.getId() : null);
+        event.setDoctorId(doctor != null ? doctor.getId() : null);
+        publishAfterCommit(event);
+    }
+
+    public void emergencyStatusChanged(Emergency emergency) {
+        publishAfterCommit(emergencyEvent("EMERGENCY_STATUS", emergency));
+    }
+
+    public void ambulanceStatusChanged(Ambulance ambulance) {
+        publishAfterCommit(ambulanceEvent(ambulance, ambulance.getStatus()));
+    }
+
+    public void ambulanceRemoved(Ambulance ambulance) {
+        publishAfterCommit(ambulanceEvent(ambulance, "REMOVED"));
+    }
+
+    public void ambulanceMoved(Long ambulanceId, Long clinicId, double lat, double lng, LocalDateTime recordedAt) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        LiveEvent event = new LiveEvent();
+        event.setType("AMBULANCE_LOCATION");
+        event.setClinicId(clinicId);
+        event.setAmbulanceId(ambulanceId);
+        event.setLat(lat);
+        event.setLng(lng);
+        event.setOccurredAt(recordedAt);
+        publish(event);
+    }
+
+    /**
+     * Gửi heartbeat mỗi 20 giây để giữ kết nối qua proxy và phát hiện client đã ngắt
+     */
+    @Scheduled(fixedDelay = 20000)
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.queue.offer(HEARTBEAT)) {
+                close(subscriber);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+            close(subscriber);
+        }
+    }
+
+    private void publishAfterCommit(LiveEvent event) {
+        TransactionCallbacks.afterCommit(() -> publish(event));
+    }
+
+    private void publish(LiveEvent event) {
+        boolean droppable = "AMBULANCE_LOCATION".equals(event.getType());
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.wants(event)) {
+                continue;
+            }
+            if (droppable && subscriber.queue.size() >= LOCATION_DROP_THRESHOLD) {
+                continue;
+            }
+            if (!subscriber.queue.offer(event)) {
+                logger.debug("Live event subscriber is too slow, disconnecting");
+                subscriber.emitter.complete();
+                close(subscriber);
+            }
+        }
+    }
+
+    private void send(Subscriber subscriber) {
+        try {
+            while (subscribers.contains(subscriber)) {
+                LiveEvent event = subscriber.queue.take();
+                if (event == HEARTBEAT) {
+                    subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+                } else {
+                    subscriber.emitter.send(SseEmitter.event().name(event.getType()).data(event));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | IllegalStateException e) {
+            // Client đã ngắt kết nối
+            close(subscriber);
+        }
+    }
+
+    private void close(Subscriber subscriber) {
+        if (subscribers.remove(subscriber) && subscriber.sender != null) {
+            subscriber.sender.interrupt();
+        }
+    }
+
+    private static LiveEvent ambulanceEvent(Ambulance ambulance, String status) {
+        LiveEvent event = new LiveEvent();
+        event.setType("AMBULANCE_STATUS");
+        event.setClinicId(ambulance.getClinic() != null ? ambulance.getClinic().getId() : null);
+        event.setAmbulanceId(ambulance.getId());
+        event.setStatus(status);
+        event.setOccurredAt(LocalDateTime.now());
+        return event;
+    }
+
+    private static LiveEvent emergencyEvent(String type, Emergency emergency) {
+        LiveEvent event = new LiveEvent();
+        event.setType(type);
+        event.setClinicId(emergency.getClinic() != null ? emergency.getClinic().getId() : null);
+        event.setEmergencyId(emergency.getId());
+        event.setStatus(emergency.getStatus());
+        event.setPriority(emergency.getPriority());
+        event.setOccurredAt(LocalDateTime.now());
+        return event;
+    }
+}
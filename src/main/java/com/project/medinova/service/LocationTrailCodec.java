@@ -0,0 +1,86 @@
+package com.project.medinova.service;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mã hoá chuỗi vị trí của một xe thành mảng byte gọn (delta encoding).
+ * Điểm đầu lưu giá trị tuyệt đối, các điểm sau chỉ lưu chênh lệch so với điểm trước
+ * (thời gian theo millisecond, toạ độ theo micro-độ ~ 0.1 m) dưới dạng zigzag varint,
+ * nên một điểm GPS liên tiếp thường chỉ tốn 5-7 byte thay vì 24 byte.
+ */
+final class LocationTrailCodec {
+
+    private static final double MICRO_DEGREES = 1_000_000.0;
+
+    private LocationTrailCodec() {
+    }
+
+    record Point(long epochMillis, double lat, double lng) {
+    }
+
+    static byte[] encode(List<Point> points) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(points.size() * 6 + 8);
+        writeVarLong(out, points.size());
+        long previousTime = 0;
+        long previousLat = 0;
+        long previousLng = 0;
+        for (Point point : points) {
+            long lat = Math.round(point.lat() * MICRO_DEGREES);
+            long lng = Math.round(point.lng() * MICRO_DEGREES);
+            writeVarLong(out, zigzag(point.epochMillis() - previousTime));
+            writeVarLong(out, zigzag(lat - previousLat));
+            writeVarLong(out, zigzag(lng - previousLng));
+            previousTime = point.epochMillis();
+            previousLat = lat;
+            previousLng = lng;
+        }
+        return out.toByteArray();
+    }
+
+    static List<Point> decode(byte[] data) {
+        int[] position = {0};
+        int count = (int) readVarLong(data, position);
+        List<Point> points = new ArrayList<>(count);
+        long time = 0;
+        long lat = 0;
+        long lng = 0;
+        for (int i = 0; i < count; i++) {
+            time += unzigzag(readVarLong(data, position));
+            lat += unzigzag(readVarLong(data, position));
+            lng += unzigzag(readVarLong(data, position));
+            points.add(new Point(time, lat / MICRO_DEGREES, lng / MICRO_DEGREES));
+        }
+        return points;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(byte[] data, int[] position) {
+        long result = 0;
+        int shift = 0;
+        while (true) {
+            byte b = data[position[0]++];
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+            shift += 7;
+        }
+    }
+}
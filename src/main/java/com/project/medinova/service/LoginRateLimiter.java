@@ -0,0 +1,116 @@
+package com.project.medinova.service;
+
+import com.project.medinova.exception.TooManyRequestsException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Giới hạn số lần đăng nhập / đăng ký theo email và theo IP trong một cửa sổ trượt,
+ * chặn trước khi tốn CPU cho việc băm mật khẩu.
+ * Mỗi key giữ thời điểm của tối đa limit lần thử gần nhất (vòng tròn), nên bộ nhớ mỗi key là cố định.
+ */
+@Component
+public class LoginRateLimiter {
+
+    @Value("${auth.rate-limit.window-seconds:60}")
+    private long windowSeconds;
+
+    @Value("${auth.rate-limit.max-attempts-per-email:5}")
+    private int maxAttemptsPerEmail;
+
+    @Value("${auth.rate-limit.max-attempts-per-ip:60}")
+    private int maxAttemptsPerIp;
+
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+    private final AtomicLong limited = new AtomicLong();
+
+    public void checkLogin(String email, String clientIp) {
+        if (clientIp != null) {
+            acquire("ip:" + clientIp, maxAttemptsPerIp);
+        }
+        if (email != null) {
+            acquire("email:" + email.trim().toLowerCase(Locale.ROOT), maxAttemptsPerEmail);
+        }
+    }
+
+    public void checkRegister(String clientIp) {
+        if (clientIp != null) {
+            acquire("ip:" + clientIp, maxAttemptsPerIp);
+        }
+    }
+
+    private void acquire(String key, int limit) {
+        long now = System.nanoTime();
+        long windowNanos = TimeUnit.SECONDS.toNanos(windowSeconds);
+        long[] retryAfterNanos = new long[1];
+        // compute giữ khoá theo key: không xung đột với purgeIdle
+        windows.compute(key, (k, window) -> {
+            Window current = window != null ? window : new Window(limit);
+            retryAfterNanos[0] = current.tryAcquire(now, windowNanos);
+            return current;
+        });
+        if (retryAfterNanos[0] > 0) {
+            limited.incrementAndGet();
+            long retryAfterSeconds = Math.max(1, (long) Math.ceil(retryAfterNanos[0] / 1_000_000_000.0));
+            throw new TooManyRequestsException("Too many login attempts, please try again later", retryAfterSeconds);
+        }
+    }
+
+    /**
+     * Bỏ các key không còn lần thử nào trong cửa sổ mỗi phút
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void purgeIdle() {
+        long now = System.nanoTime();
+        long windowNanos = TimeUnit.SECONDS.toNanos(windowSeconds);
+        for (String key : windows.keySet()) {
+            windows.computeIfPresent(key, (k, window) -> window.isIdle(now, windowNanos) ? null : window);
+        }
+    }
+
+    public long getLimitedAttempts() {
+        return limited.get();
+    }
+
+    public int getTrackedKeys() {
+        return windows.size();
+    }
+
+    // Chỉ được truy cập bên trong compute / computeIfPresent của key tương ứng
+    private static final class Window {
+        private final long[] attempts;
+        private int head;
+        private int size;
+
+        Window(int limit) {
+            attempts = new long[Math.max(1, limit)];
+        }
+
+        /**
+         * @return 0 nếu được phép, ngược lại số nano giây đến khi lần thử cũ nhất rời khỏi cửa sổ
+         */
+        long tryAcquire(long now, long windowNanos) {
+            while (size > 0 && now - attempts[head] >= windowNanos) {
+                head = (head + 1) % attempts.length;
+                size--;
+            }
+            if (size == attempts.length) {
+                return Math.max(1, attempts[head] + windowNanos - now);
+            }
+            attempts[(head + size) % attempts.length] = now;
+            size++;
+            return 0;
+        }
+
+        boolean isIdle(long now, long windowNanos) {
+            return size == 0 || now - attempts[(head + size - 1) % attempts.length] >= windowNanos;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.project.medinova.service;
+
+import com.project.medinova.exception.TooManyRequestsException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Băm / so khớp mật khẩu (bcrypt) trên một pool riêng có giới hạn, không chạy trực tiếp trên thread của Tomcat.
+ * Số phép băm chạy cùng lúc bằng số thread của pool; hàng đợi đầy thì từ chối ngay (429 + Retry-After)
+ * thay vì để một đợt đăng nhập dồn dập chiếm hết thread và CPU của các API khác.
+ */
+@Component
+public class PasswordHashingExecutor {
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    private final int threads;
+    private final int queueCapacity;
+    private final long timeoutMillis;
+    private final ThreadPoolExecutor executor;
+
+    // So khớp khi email không tồn tại, để thời gian phản hồi không cho biết email nào đã đăng ký
+    private String dummyHash;
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong totalHashNanos = new AtomicLong();
+    private final AtomicLong maxHashNanos = new AtomicLong();
+    private final AtomicLong totalQueueWaitNanos = new AtomicLong();
+
+    public PasswordHashingExecutor(@Value("${auth.password.hash-threads:0}") int threads,
+                                   @Value("${auth.password.hash-queue-capacity:64}") int queueCapacity,
+                                   @Value("${auth.password.hash-timeout-ms:5000}") long timeoutMillis) {
+        // 0: một thread cho mỗi CPU (bcrypt thuần CPU, thêm thread không tăng throughput)
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.queueCapacity = queueCapacity;
+        this.timeoutMillis = timeoutMillis;
+        this.executor = new ThreadPoolExecutor(this.threads, this.threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("password-hash-", 0).daemon(true).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PostConstruct
+    void init() {
+        dummyHash = passwordEncoder.encode("medinova-dummy-password");
+    }
+
+    public String encode(String rawPassword) {
+        return run(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * @param encodedPassword null khi không tìm thấy user: vẫn tốn một lần so khớp và trả về false
+     */
+    public boolean matches(String rawPassword, String encodedPassword) {
+        if (encodedPassword == null) {
+            return run(() -> {
+                passwordEncoder.matches(rawPassword, dummyHash);
+                return false;
+            });
+        }
+        return run(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    private <T> T run(Supplier<T> task) {
+        long submittedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long startedAt = System.nanoTime();
+                totalQueueWaitNanos.addAndGet(startedAt - submittedAt);
+                try {
+                    return task.get();
+                } finally {
+                    recordHash(System.nanoTime() - startedAt);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw busy();
+        }
+
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timedOut.incrementAndGet();
+            throw busy();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Could not hash password", e.getCause());
+        }
+    }
+
+    private void recordHash(long nanos) {
+        completed.incrementAndGet();
+        totalHashNanos.addAndGet(nanos);
+        maxHashNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Retry-After ước lượng theo thời gian cần để xử lý hết hàng đợi hiện tại
+     */
+    private TooManyRequestsException busy() {
+        double drainSeconds = getQueueDepth() * getAverageHashMillis() / threads / 1000.0;
+        long retryAfterSeconds = Math.max(1, (long) Math.ceil(drainSeconds));
+        return new TooManyRequestsException("Server is busy processing logins, please try again later", retryAfterSeconds);
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveHashes() {
+        return executor.getActiveCount();
+    }
+
+    public long getCompletedHashes() {
+        return completed.get();
+    }
+
+    public long getRejectedHashes() {
+        return rejected.get();
+    }
+
+    public long getTimedOutHashes() {
+        return timedOut.get();
+    }
+
+    public double getAverageHashMillis() {
+        long count = completed.get();
+        return count > 0 ? totalHashNanos.get() / 1_000_000.0 / count : 0;
+    }
+
+    public double getMaxHashMillis() {
+        return maxHashNanos.get() / 1_000_000.0;
+    }
+
+    public double getAverageQueueWaitMillis() {
+        long count = completed.get();
+        return count > 0 ? totalQueueWaitNanos.get() / 1_000_000.0 / count : 0;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,292 @@
+package com.project.medinova.service;
+
+import com.project.medinova.dto.ClinicQueueStats;
+import com.project.medinova.dto.EmergencyQueueStatsResponse;
+import com.project.medinova.entity.Emergency;
+import com.project.medinova.repository.EmergencyRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hàng đợi (in-memory) các emergency PENDING chưa có xe, chia theo clinic.
+ * Thứ tự: CRITICAL > HIGH > MEDIUM > LOW, cùng mức ưu tiên thì emergency tạo trước đứng trước.
+ * Mỗi khi một xe của clinic trở thành AVAILABLE, emergency đứng đầu hàng được đưa lại cho EmergencyDispatcher.
+ * Được dựng lại định kỳ từ database nên không mất emergency khi khởi động lại.
+ */
+@Component
+public class PendingEmergencyQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(PendingEmergencyQueue.class);
+
+    private static final Comparator<QueuedEmergency> DISPATCH_ORDER = Comparator
+            .comparingInt((QueuedEmergency queued) -> priorityRank(queued.priority()))
+            .thenComparing(QueuedEmergency::createdAt, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(QueuedEmergency::emergencyId);
+
+    @Autowired
+    private EmergencyRepository emergencyRepository;
+
+    @Autowired
+    private EmergencyDispatcher emergencyDispatcher;
+
+    @Autowired
+    private AmbulanceSpatialIndex ambulanceIndex;
+
+    private final Map<Long, NavigableSet<QueuedEmergency>> byClinic = new HashMap<>();
+    private final Map<Long, QueuedEmergency> byId = new HashMap<>();
+    // Thứ tự đưa vào hàng đợi: rebuild giữ lại các emergency được đưa vào sau khi đã đọc database
+    private long sequence;
+    private final Map<Long, Long> enqueuedAt = new HashMap<>();
+    // Emergency rời hàng đợi trong lúc rebuild đang đọc database: không thêm lại từ snapshot cũ
+    private Set<Long> removedDuringRebuild;
+
+    // Thống kê thời gian chờ (từ lúc tạo đến lúc điều xe) của các emergency đã được điều phối
+    private final AtomicLong dispatchedCount = new AtomicLong();
+    private final AtomicLong totalWaitMillis = new AtomicLong();
+    private final AtomicLong maxWaitMillis = new AtomicLong();
+    private final AtomicLong redispatchedFromQueue = new AtomicLong();
+
+    public record QueuedEmergency(Long emergencyId, Long clinicId, String priority, LocalDateTime createdAt) {
+    }
+
+    @PostConstruct
+    void listenForFreedAmbulances() {
+        ambulanceIndex.addAvailabilityListener(clinicId -> drain(clinicId, 1));
+    }
+
+    /**
+     * Đưa emergency (vẫn PENDING vì chưa có xe) vào hàng đợi sau khi transaction hiện tại commit
+     */
+    public void enqueueAfterCommit(Emergency emergency) {
+        QueuedEmergency queued = toQueued(emergency);
+        TransactionCallbacks.afterCommit(() -> enqueue(queued));
+    }
+
+    /**
+     * Emergency đã được điều xe: gỡ khỏi hàng đợi và ghi nhận thời gian chờ
+     */
+    public void dispatchedAfterCommit(Emergency emergency) {
+        Long emergencyId = emergency.getId();
+        LocalDateTime createdAt = emergency.getCreatedAt();
+        LocalDateTime dispatchedAt = emergency.getDispatchedAt();
+        TransactionCallbacks.afterCommit(() -> {
+            remove(emergencyId);
+            if (createdAt != null && dispatchedAt != null) {
+                long waitMillis = Math.max(0, Duration.between(createdAt, dispatchedAt).toMillis());
+                dispatchedCount.incrementAndGet();
+                totalWaitMillis.addAndGet(waitMillis);
+                maxWaitMillis.accumulateAndGet(waitMillis, Math::max);
+            }
+        });
+    }
+
+    /**
+     * Emergency rời trạng thái PENDING (assign thủ công, huỷ...): gỡ khỏi hàng đợi sau commit
+     */
+    public void removeAfterCommit(Long emergencyId) {
+        TransactionCallbacks.afterCommit(() -> remove(emergencyId));
+    }
+
+    /**
+     * Lấy tối đa max emergency ưu tiên cao nhất của clinic và giao cho dispatcher
+     */
+    public void drain(Long clinicId, int max) {
+        List<QueuedEmergency> taken = new ArrayList<>();
+        synchronized (this) {
+            NavigableSet<QueuedEmergency> queue = byClinic.get(clinicId);
+            while (queue != null && !queue.isEmpty() && taken.size() < max) {
+                QueuedEmergency next = queue.pollFirst();
+                byId.remove(next.emergencyId());
+                enqueuedAt.remove(next.emergencyId());
+                markRemoved(next.emergencyId());
+                taken.add(next);
+            }
+            if (queue != null && queue.isEmpty()) {
+                byClinic.remove(clinicId);
+            }
+        }
+
+        // Nếu vẫn không có xe, dispatchEmergency sẽ đưa emergency trở lại hàng đợi
+        for (QueuedEmergency queued : taken) {
+            redispatchedFromQueue.incrementAndGet();
+            emergencyDispatcher.submit(queued.emergencyId(), false);
+        }
+    }
+
+    /**
+     * Đồng bộ hàng đợi với các emergency PENDING trong database mỗi phút (lần đầu chạy ngay khi khởi động),
+     * sau đó điều phối lại cho các clinic đang có xe rảnh.
+     * Gộp chứ không thay thế: emergency được đưa vào hàng đợi (hoặc rời hàng đợi) trong lúc đọc database
+     * được giữ nguyên, snapshot chỉ thêm emergency còn thiếu và bỏ emergency không còn PENDING
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void rebuild() {
+        long readAt;
+        synchronized (this) {
+            readAt = sequence;
+            removedDuringRebuild = new HashSet<>();
+        }
+        List<Emergency> pending;
+        try {
+            pending = emergencyRepository.findByStatus("PENDING");
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                removedDuringRebuild = null;
+            }
+            logger.warn("Could not rebuild pending emergency queue", e);
+            return;
+        }
+
+        Map<Long, QueuedEmergency> snapshot = new HashMap<>();
+        for (Emergency emergency : pending) {
+            // Emergency đang nằm trong dispatcher sẽ tự quay lại hàng đợi nếu không có xe
+            if (emergencyDispatcher.getState(emergency.getId()) != null) {
+                continue;
+            }
+            QueuedEmergency queued = toQueued(emergency);
+            snapshot.put(queued.emergencyId(), queued);
+        }
+
+        List<Long> clinicIds;
+        synchronized (this) {
+            // Bỏ emergency không còn PENDING, trừ emergency được đưa vào sau khi đọc database
+            for (Long emergencyId : List.copyOf(byId.keySet())) {
+                if (!snapshot.containsKey(emergencyId) && enqueuedAt.getOrDefault(emergencyId, 0L) <= readAt) {
+                    unlink(emergencyId);
+                }
+            }
+            for (QueuedEmergency queued : snapshot.values()) {
+                Long stamp = enqueuedAt.get(queued.emergencyId());
+                if (removedDuringRebuild.contains(queued.emergencyId()) || (stamp != null && stamp > readAt)) {
+                    continue;
+                }
+                unlink(queued.emergencyId());
+                link(queued, readAt);
+            }
+            removedDuringRebuild = null;
+            clinicIds = new ArrayList<>(byClinic.keySet());
+        }
+        logger.debug("Rebuilt pending emergency queue: {} emergencies", byId.size());
+
+        for (Long clinicId : clinicIds) {
+            int available = ambulanceIndex.countAvailable(clinicId);
+            if (available > 0) {
+                drain(clinicId, available);
+            }
+        }
+    }
+
+    /**
+     * Độ sâu hàng đợi theo clinic/priority và thời gian chờ
+     */
+    public synchronized EmergencyQueueStatsResponse getStats() {
+        LocalDateTime now = LocalDateTime.now();
+        List<ClinicQueueStats> clinics = new ArrayList<>();
+        for (Map.Entry<Long, NavigableSet<QueuedEmergency>> entry : byClinic.entrySet()) {
+            ClinicQueueStats stats = new ClinicQueueStats();
+            stats.setClinicId(entry.getKey());
+            stats.setQueued(entry.getValue().size());
+            Map<String, Integer> byPriority = new HashMap<>();
+            LocalDateTime oldest = null;
+            for (QueuedEmergency queued : entry.getValue()) {
+                byPriority.merge(queued.priority() != null ? queued.priority() : "MEDIUM", 1, Integer::sum);
+                if (queued.createdAt() != null && (oldest == null || queued.createdAt().isBefore(oldest))) {
+                    oldest = queued.createdAt();
+                }
+            }
+            stats.setQueuedByPriority(byPriority);
+            stats.setOldestWaitSeconds(oldest != null ? Duration.between(oldest, now).getSeconds() : null);
+            clinics.add(stats);
+        }
+        clinics.sort(Comparator.comparing(ClinicQueueStats::getQueued).reversed());
+
+        long dispatched = dispatchedCount.get();
+        EmergencyQueueStatsResponse response = new EmergencyQueueStatsResponse();
+        response.setTotalQueued(byId.size());
+        response.setDispatchedCount(dispatched);
+        response.setRedispatchedFromQueue(redispatchedFromQueue.get());
+        response.setAverageWaitSeconds(dispatched > 0 ? totalWaitMillis.get() / 1000.0 / dispatched : null);
+        response.setMaxWaitSeconds(dispatched > 0 ? maxWaitMillis.get() / 1000.0 : null);
+        response.setClinics(clinics);
+        return response;
+    }
+
+    private void enqueue(QueuedEmergency queued) {
+        synchronized (this) {
+            unlink(queued.emergencyId());
+            link(queued, ++sequence);
+        }
+
+        // Xe có thể vừa được trả về trong lúc emergency đang được điều phối (trước khi vào hàng đợi)
+        if (ambulanceIndex.countAvailable(queued.clinicId()) > 0) {
+            drain(queued.clinicId(), 1);
+        }
+    }
+
+    private synchronized void remove(Long emergencyId) {
+        unlink(emergencyId);
+        markRemoved(emergencyId);
+    }
+
+    // Các hàm dưới đây được gọi khi đang giữ khoá của queue
+    private void link(QueuedEmergency queued, long stamp) {
+        byClinic.computeIfAbsent(queued.clinicId(), id -> new TreeSet<>(DISPATCH_ORDER)).add(queued);
+        byId.put(queued.emergencyId(), queued);
+        enqueuedAt.put(queued.emergencyId(), stamp);
+    }
+
+    private void unlink(Long emergencyId) {
+        QueuedEmergency previous = byId.remove(emergencyId);
+        enqueuedAt.remove(emergencyId);
+        if (previous == null) {
+            return;
+        }
+        NavigableSet<QueuedEmergency> queue = byClinic.get(previous.clinicId());
+        if (queue != null) {
+            queue.remove(previous);
+            if (queue.isEmpty()) {
+                byClinic.remove(previous.clinicId());
+            }
+        }
+    }
+
+    private void markRemoved(Long emergencyId) {
+        if (removedDuringRebuild != null) {
+            removedDuringRebuild.add(emergencyId);
+        }
+    }
+
+    private static QueuedEmergency toQueued(Emergency emergency) {
+        return new QueuedEmergency(emergency.getId(), emergency.getClinic().getId(),
+                emergency.getPriority(), emergency.getCreatedAt());
+    }
+
+    private static int priorityRank(String priority) {
+        if (priority == null) {
+            return 2;
+        }
+        return switch (priority) {
+            case "CRITICAL" -> 0;
+            case "HIGH" -> 1;
+            case "LOW" -> 3;
+            default -> 2;
+        };
+    }
+}
@@ -26,6 +26,9 @@ public class PostService {
     @Autowired
     private PostRepository postRepository;
 
+    @Autowired
+    private PublicStatsSnapshot publicStats;
+
     @Autowired
     private AuthService authService;
 
@@ -48,6 +51,7 @@ public class PostService {
         }
 
         Post savedPost = postRepository.save(post);
+        publicStats.markDirty();
         return convertToResponse(savedPost);
     }
 
@@ -123,6 +127,7 @@ public class PostService {
         }
 
         Post updatedPost = postRepository.save(post);
+        publicStats.markDirty();
         return convertToResponse(updatedPost);
     }
 
@@ -138,6 +143,7 @@ public class PostService {
         }
 
         postRepository.delete(post);
+        publicStats.markDirty();
     }
 
     private PostResponse convertToResponse(Post post) {
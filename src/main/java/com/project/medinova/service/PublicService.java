@@ -7,7 +7,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -30,8 +32,13 @@ public class PublicService {
     private PostRepository postRepository;
 
     @Autowired
-    private DoctorReviewRepository reviewRepository;
+    private DoctorRankingIndex doctorRankingIndex;
 
+    /**
+     * Dựng thống kê trang chủ từ database.
+     * Request không gọi trực tiếp hàm này mà đọc PublicStatsSnapshot (được dựng lại ở background).
+     */
+    @Transactional(readOnly = true)
     public PublicStatsResponse getPublicStats() {
         PublicStatsResponse stats = new PublicStatsResponse();
 
@@ -39,7 +46,7 @@ public class PublicService {
         stats.setTotalHospitals(clinicRepository.count());
         stats.setTotalDoctors(doctorRepository.count());
         stats.setTotalPatients(userRepository.countByRole("PATIENT"));
-        stats.setTotalAppointments((long) appointmentRepository.findAll().size());
+        stats.setTotalAppointments(appointmentRepository.count());
 
         // Featured doctors (top 6 by rating)
         stats.setFeaturedDoctors(getFeaturedDoctors(6));
@@ -48,68 +55,51 @@ public class PublicService {
         stats.setFeaturedClinics(getFeaturedClinics(4));
 
         // Recent posts (latest 3 published)
-        stats.setRecentPosts(getRecentPosts(3));
+        stats.setRecentPosts(getRecentPosts());
 
         return stats;
     }
 
     private List<DoctorSummary> getFeaturedDoctors(int limit) {
-        List<Doctor> approvedDoctors = doctorRepository.findByStatus("APPROVED");
-        
-        return approvedDoctors.stream()
-                .map(doctor -> {
-                    DoctorSummary summary = new DoctorSummary();
-                    summary.setId(doctor.getId());
-                    summary.setName(doctor.getUser().getFullName());
-                    if (doctor.getDepartment() != null) {
-                        summary.setDepartment(doctor.getDepartment());
-                        summary.setDepartmentDisplayName(doctor.getDepartment().getDisplayName());
-                    }
-                    summary.setExperienceYears(doctor.getExperienceYears());
-                    summary.setClinicName(doctor.getClinic().getName());
-
-                    // Calculate average rating
-                    List<DoctorReview> reviews = reviewRepository.findByDoctorId(doctor.getId());
-                    if (!reviews.isEmpty()) {
-                        double avgRating = reviews.stream()
-                                .mapToInt(DoctorReview::getRating)
-                                .average()
-                                .orElse(0.0);
-                        summary.setAverageRating(avgRating);
-                        summary.setTotalReviews((long) reviews.size());
-                    } else {
-                        summary.setAverageRating(0.0);
-                        summary.setTotalReviews(0L);
-                    }
-
-                    return summary;
-                })
-                .sorted((d1, d2) -> {
-                    // Sort by rating (desc), then by review count (desc)
-                    int ratingCompare = Double.compare(d2.getAverageRating(), d1.getAverageRating());
-                    if (ratingCompare != 0) return ratingCompare;
-                    return Long.compare(d2.getTotalReviews(), d1.getTotalReviews());
-                })
-                .limit(limit)
-                .collect(Collectors.toList());
+        // Thứ tự lấy từ bảng xếp hạng in-memory: rating (giảm dần), số review (giảm dần)
+        List<DoctorRankingIndex.DoctorStats> top = doctorRankingIndex.getTop(limit);
+        Map<Long, Doctor> doctors = doctorRepository.findWithUserAndClinicByIdIn(
+                        top.stream().map(DoctorRankingIndex.DoctorStats::doctorId).toList())
+                .stream()
+                .collect(Collectors.toMap(Doctor::getId, doctor -> doctor));
+
+        List<DoctorSummary> featured = new ArrayList<>();
+        for (DoctorRankingIndex.DoctorStats stats : top) {
+            Doctor doctor = doctors.get(stats.doctorId());
+            if (doctor == null) {
+                continue;
+            }
+            DoctorSummary summary = new DoctorSummary();
+            summary.setId(doctor.getId());
+            summary.setName(doctor.getUser().getFullName());
+            if (doctor.getDepartment() != null) {
+                summary.setDepartment(doctor.getDepartment());
+                summary.setDepartmentDisplayName(doctor.getDepartment().getDisplayName());
+            }
+            summary.setExperienceYears(doctor.getExperienceYears());
+            summary.setClinicName(doctor.getClinic().getName());
+            summary.setAverageRating(stats.averageRating());
+            summary.setTotalReviews(stats.reviewCount());
+            featured.add(summary);
+        }
+        return featured;
     }
 
     private List<ClinicSummary> getFeaturedClinics(int limit) {
-        List<Clinic> clinics = clinicRepository.findAll();
-        
-        return clinics.stream()
-                .map(clinic -> {
+        // Một truy vấn GROUP BY cho số bác sĩ và số appointment của mọi clinic
+        return clinicRepository.aggregateRankingStats().stream()
+                .map(row -> {
                     ClinicSummary summary = new ClinicSummary();
-                    summary.setId(clinic.getId());
-                    summary.setName(clinic.getName());
-                    summary.setAddress(clinic.getAddress());
-                    
-                    List<Doctor> doctors = doctorRepository.findByClinicId(clinic.getId());
-                    summary.setTotalDoctors((long) doctors.size());
-                    
-                    List<Appointment> appointments = appointmentRepository.findByClinicId(clinic.getId());
-                    summary.setTotalAppointments((long) appointments.size());
-                    
+                    summary.setId(row.getClinicId());
+                    summary.setName(row.getName());
+                    summary.setAddress(row.getAddress());
+                    summary.setTotalDoctors(row.getDoctorCount() != null ? row.getDoctorCount() : 0L);
+                    summary.setTotalAppointments(row.getAppointmentCount() != null ? row.getAppointmentCount() : 0L);
                     return summary;
                 })
                 .sorted((c1, c2) -> {
@@ -122,18 +112,8 @@ public class PublicService {
                 .collect(Collectors.toList());
     }
 
-    private List<PostSummary> getRecentPosts(int limit) {
-        List<Post> publishedPosts = postRepository.findByStatus("PUBLISHED");
-        
-        return publishedPosts.stream()
-                .sorted((p1, p2) -> {
-                    // Sort by created date (desc)
-                    if (p1.getCreatedAt() == null && p2.getCreatedAt() == null) return 0;
-                    if (p1.getCreatedAt() == null) return 1;
-                    if (p2.getCreatedAt() == null) return -1;
-                    return p2.getCreatedAt().compareTo(p1.getCreatedAt());
-                })
-                .limit(limit)
+    private List<PostSummary> getRecentPosts() {
+        return postRepository.findTop3ByStatusOrderByCreatedAtDesc("PUBLISHED").stream()
                 .map(post -> {
                     PostSummary summary = new PostSummary();
                     summary.setId(post.getId());
@@ -154,5 +134,3 @@ public class PublicService {
                 .collect(Collectors.toList());
     }
 }
-
-
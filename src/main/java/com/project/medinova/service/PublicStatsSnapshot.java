@@ -0,0 +1,93 @@
+package com.project.medinova.service;
+
+import com.project.medinova.dto.PublicStatsResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Snapshot của thống kê trang chủ (PublicStatsResponse).
+ * Được dựng lại ở background theo chu kỳ và ngay sau các thay đổi liên quan (bác sĩ, clinic, review, bài viết);
+ * request luôn nhận snapshot tốt gần nhất mà không truy cập database.
+ * ETag/Last-Modified chỉ đổi khi nội dung thực sự thay đổi, để client dùng conditional GET.
+ */
+@Component
+public class PublicStatsSnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(PublicStatsSnapshot.class);
+
+    @Autowired
+    private PublicService publicService;
+
+    @Value("${public.stats.refresh-interval-ms:60000}")
+    private long refreshIntervalMillis;
+
+    private volatile Snapshot snapshot;
+    private volatile boolean dirty;
+
+    public record Snapshot(PublicStatsResponse stats, String etag, Instant lastModified, long builtAt) {
+    }
+
+    /**
+     * Snapshot hiện tại; chỉ dựng đồng bộ ở request đầu tiên nếu background chưa kịp dựng
+     */
+    public Snapshot getCurrent() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    rebuild();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Đánh dấu cần dựng lại sau khi transaction hiện tại commit
+     */
+    public void markDirty() {
+        TransactionCallbacks.afterCommit(() -> dirty = true);
+    }
+
+    /**
+     * Kiểm tra mỗi 5 giây: dựng lại nếu có thay đổi hoặc snapshot đã quá chu kỳ làm mới
+     */
+    @Scheduled(fixedDelay = 5000)
+    public void refreshIfNeeded() {
+        Snapshot current = snapshot;
+        if (current == null || dirty || System.currentTimeMillis() - current.builtAt() >= refreshIntervalMillis) {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                // Giữ snapshot cũ, thử lại ở lần sau
+                logger.warn("Could not rebuild public stats snapshot", e);
+            }
+        }
+    }
+
+    private synchronized void rebuild() {
+        dirty = false;
+        PublicStatsResponse stats = publicService.getPublicStats();
+        long now = System.currentTimeMillis();
+
+        Snapshot previous = snapshot;
+        if (previous != null && previous.stats().equals(stats)) {
+            snapshot = new Snapshot(previous.stats(), previous.etag(), previous.lastModified(), now);
+            return;
+        }
+
+        // Last-Modified trong HTTP chỉ có độ chính xác đến giây
+        Instant lastModified = Instant.ofEpochMilli(now).truncatedTo(ChronoUnit.SECONDS);
+        String etag = "\"" + Long.toHexString(now) + "-" + Integer.toHexString(stats.hashCode()) + "\"";
+        snapshot = new Snapshot(stats, etag, lastModified, now);
+        logger.debug("Rebuilt public stats snapshot {}", etag);
+    }
+}
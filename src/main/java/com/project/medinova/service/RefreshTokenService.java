@@ -0,0 +1,134 @@
+package com.project.medinova.service;
+
+import com.project.medinova.config.JwtTokenProvider;
+import com.project.medinova.entity.RefreshToken;
+import com.project.medinova.entity.User;
+import com.project.medinova.exception.UnauthorizedException;
+import com.project.medinova.repository.RefreshTokenRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Refresh token xoay vòng: mỗi token chỉ đổi được một lần lấy cặp access/refresh token mới cùng họ (family).
+ * Token đã đổi mà bị dùng lại (bị lộ) thì cả họ bị thu hồi, kể cả các access token đang còn hạn.
+ * Chỉ lưu SHA-256 của token trong bảng refresh_tokens.
+ */
+@Service
+@Transactional
+public class RefreshTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private static final int TOKEN_BYTES = 32;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private TokenRevocationService tokenRevocation;
+
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+
+    @Value("${jwt.refresh-expiration:1209600000}") // 14 days default
+    private long refreshExpirationInMs;
+
+    private final SecureRandom random = new SecureRandom();
+
+    public record IssuedRefreshToken(String token, String familyId) {
+    }
+
+    public record Rotation(User user, IssuedRefreshToken next) {
+    }
+
+    /**
+     * Refresh token đầu tiên của một họ mới (đăng nhập, đăng ký)
+     */
+    public IssuedRefreshToken issue(User user) {
+        return issue(user, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Đổi refresh token lấy token kế tiếp cùng họ. Không rollback khi ném UnauthorizedException
+     * để việc thu hồi cả họ (khi phát hiện dùng lại) vẫn được commit
+     */
+    @Transactional(noRollbackFor = UnauthorizedException.class)
+    public Rotation rotate(String rawToken) {
+        RefreshToken current = refreshTokenRepository.findByTokenHashForUpdate(hash(rawToken))
+                .orElseThrow(() -> new UnauthorizedException("Invalid refresh token"));
+        LocalDateTime now = LocalDateTime.now();
+
+        if (current.getRevokedAt() != null) {
+            throw new UnauthorizedException("Refresh token has been revoked");
+        }
+        if (current.getUsedAt() != null) {
+            logger.warn("Refresh token reuse detected: userId={}, familyId={}",
+                    current.getUser().getId(), current.getFamilyId());
+            revokeFamily(current.getFamilyId());
+            throw new UnauthorizedException("Refresh token has already been used, please log in again");
+        }
+        if (!current.getExpiresAt().isAfter(now)) {
+            throw new UnauthorizedException("Refresh token has expired");
+        }
+
+        current.setUsedAt(now);
+        User user = current.getUser();
+        return new Rotation(user, issue(user, current.getFamilyId()));
+    }
+
+    /**
+     * Thu hồi mọi refresh token của họ và các access token đã cấp cùng họ
+     */
+    public void revokeFamily(String familyId) {
+        refreshTokenRepository.revokeFamily(familyId, LocalDateTime.now());
+        tokenRevocation.revokeFamily(familyId, LocalDateTime.now().plusNanos(tokenProvider.getExpirationInMs() * 1_000_000));
+    }
+
+    /**
+     * Xoá refresh token đã hết hạn mỗi giờ
+     */
+    @Scheduled(fixedDelay = 3600000)
+    public void purgeExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            logger.info("Deleted {} expired refresh tokens", deleted);
+        }
+    }
+
+    private IssuedRefreshToken issue(User user, String familyId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setTokenHash(hash(token));
+        refreshToken.setUser(user);
+        refreshToken.setFamilyId(familyId);
+        refreshToken.setExpiresAt(LocalDateTime.now().plusNanos(refreshExpirationInMs * 1_000_000));
+        refreshTokenRepository.save(refreshToken);
+        return new IssuedRefreshToken(token, familyId);
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
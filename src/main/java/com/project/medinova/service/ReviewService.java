@@ -39,6 +39,18 @@ public class ReviewService {
     @Autowired
     private AuthService authService;
 
+    @Autowired
+    private DashboardStatsEngine dashboardStats;
+
+    @Autowired
+    private DoctorDashboardCache doctorDashboardCache;
+
+    @Autowired
+    private DoctorRankingIndex doctorRankingIndex;
+
+    @Autowired
+    private PublicStatsSnapshot publicStats;
+
     public ReviewResponse createReview(CreateReviewRequest request) {
         User currentUser = authService.getCurrentUser();
         
@@ -99,11 +111,15 @@ public class ReviewService {
         review.setComment(request.getComment());
 
         DoctorReview savedReview = reviewRepository.save(review);
+        doctorRankingIndex.reviewAdded(doctor.getId(), savedReview.getRating());
+        publicStats.markDirty();
         
         // Nếu review có appointment và appointment status là REVIEW, tự động chuyển sang COMPLETED
         if (appointment != null && "REVIEW".equals(appointment.getStatus())) {
             appointment.setStatus("COMPLETED");
             appointmentRepository.save(appointment);
+            dashboardStats.appointmentStatusChanged("REVIEW", "COMPLETED");
+            doctorDashboardCache.invalidateAfterCommit(appointment.getDoctor().getId());
             
             // Cập nhật schedule status nếu có
             if (appointment.getSchedule() != null) {
@@ -151,6 +167,8 @@ public class ReviewService {
         }
 
         reviewRepository.delete(review);
+        doctorRankingIndex.reviewRemoved(review.getDoctor().getId(), review.getRating());
+        publicStats.markDirty();
     }
 
     private ReviewResponse convertToResponse(DoctorReview review) {
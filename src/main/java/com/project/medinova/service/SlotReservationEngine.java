@@ -0,0 +1,65 @@
+package com.project.medinova.service;
+
+import com.project.medinova.exception.BadRequestException;
+import com.project.medinova.exception.NotFoundException;
+import com.project.medinova.repository.DoctorRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tuần tự hoá việc tạo HOLD theo từng doctor để hai bệnh nhân không cùng vượt qua bước kiểm tra trùng giờ.
+ * Trong một node: khoá phân dải (striped) theo doctorId, các doctor khác dải không chờ nhau và không có khoá toàn cục.
+ * Giữa các node: SELECT ... FOR UPDATE trên dòng doctor.
+ * Cả hai khoá được giữ đến khi transaction đặt lịch kết thúc nên HOLD vừa tạo đã được commit
+ * trước khi request kế tiếp của cùng doctor kiểm tra trùng giờ.
+ */
+@Component
+public class SlotReservationEngine {
+
+    private static final int STRIPES = 256;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Value("${appointment.slot-lock.timeout-ms:5000}")
+    private long lockTimeoutMillis;
+
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+    public SlotReservationEngine() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock(true);
+        }
+    }
+
+    /**
+     * Khoá việc đặt lịch của doctor đến hết transaction hiện tại.
+     * Phải được gọi trong transaction, trước khi kiểm tra trùng giờ.
+     */
+    public void lockDoctor(Long doctorId) {
+        ReentrantLock lock = stripeFor(doctorId);
+        boolean acquired;
+        try {
+            acquired = lock.tryLock(lockTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BadRequestException("Booking was interrupted, please try again");
+        }
+        if (!acquired) {
+            throw new BadRequestException("This doctor is receiving many bookings right now, please try again");
+        }
+        // Mở khoá khi transaction commit hoặc rollback (cùng thread đã khoá)
+        TransactionCallbacks.afterCompletion(lock::unlock);
+
+        doctorRepository.findByIdForUpdate(doctorId)
+                .orElseThrow(() -> new NotFoundException("Doctor not found with id: " + doctorId));
+    }
+
+    private ReentrantLock stripeFor(Long doctorId) {
+        return locks[Math.floorMod(Long.hashCode(doctorId), STRIPES)];
+    }
+}
@@ -0,0 +1,126 @@
+package com.project.medinova.service;
+
+import com.project.medinova.config.JwtClaims;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * Thu hồi token (logout) theo jti, hoặc cả họ token theo familyId, giữ đến khi token hết hạn.
+ * Trước store (TokenRevocationStore) là một Bloom filter cục bộ chứa mọi token đang bị thu hồi:
+ * token không có trong filter (gần như mọi request) được trả lời ngay, không truy vấn store.
+ * Filter được bổ sung các token bị thu hồi ở node khác mỗi auth.revocation.sync-interval-ms
+ * và được dựng lại (bỏ token đã hết hạn) mỗi 10 phút.
+ */
+@Component
+public class TokenRevocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private static final double FALSE_POSITIVE_RATE = 0.001;
+    // Đọc lùi lại một chút khi đồng bộ để không bỏ sót token được commit trễ ở node khác
+    private static final long SYNC_OVERLAP_SECONDS = 30;
+
+    @Autowired
+    private TokenRevocationStore store;
+
+    @Value("${auth.revocation.bloom-expected-tokens:100000}")
+    private int expectedTokens;
+
+    // null khi chưa nạp được: mọi lần kiểm tra đi thẳng xuống store
+    private volatile BloomFilter bloom;
+    private volatile LocalDateTime lastSync;
+
+    public void revoke(JwtClaims claims) {
+        LocalDateTime expiresAt = LocalDateTime.ofInstant(claims.expiration().toInstant(), ZoneId.systemDefault());
+        String tokenId = claims.tokenId();
+        store.revoke(tokenId, expiresAt);
+        addToBloom(tokenId);
+        // Thêm lại sau commit: filter có thể vừa được dựng lại từ store trước khi token này được commit
+        TransactionCallbacks.afterCommit(() -> addToBloom(tokenId));
+    }
+
+    /**
+     * Thu hồi mọi access token của họ refresh token familyId. Access token sống ngắn nên chỉ cần giữ đến until
+     * (thời điểm access token cuối cùng của họ hết hạn)
+     */
+    public void revokeFamily(String familyId, LocalDateTime until) {
+        String id = familyKey(familyId);
+        store.revoke(id, until);
+        addToBloom(id);
+        TransactionCallbacks.afterCommit(() -> addToBloom(id));
+    }
+
+    public boolean isRevoked(JwtClaims claims) {
+        return isRevoked(claims.tokenId())
+                || (claims.familyId() != null && isRevoked(familyKey(claims.familyId())));
+    }
+
+    private boolean isRevoked(String id) {
+        BloomFilter current = bloom;
+        if (current != null && !current.mightContain(id)) {
+            return false;
+        }
+        return store.isRevoked(id, LocalDateTime.now());
+    }
+
+    private static String familyKey(String familyId) {
+        return "family:" + familyId;
+    }
+
+    private void addToBloom(String tokenId) {
+        BloomFilter current = bloom;
+        if (current != null) {
+            current.put(tokenId);
+        }
+    }
+
+    /**
+     * Thêm vào filter các token vừa bị thu hồi (kể cả ở node khác)
+     */
+    @Scheduled(fixedDelayString = "${auth.revocation.sync-interval-ms:5000}", initialDelay = 0)
+    public void sync() {
+        BloomFilter current = bloom;
+        LocalDateTime since = lastSync;
+        if (current == null || since == null) {
+            rebuild();
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            for (String tokenId : store.findRevokedSince(since.minusSeconds(SYNC_OVERLAP_SECONDS), now)) {
+                current.put(tokenId);
+            }
+            lastSync = now;
+        } catch (RuntimeException e) {
+            logger.warn("Could not sync revoked tokens", e);
+        }
+    }
+
+    /**
+     * Xoá token đã hết hạn khỏi store và dựng lại filter mỗi 10 phút
+     */
+    @Scheduled(fixedDelay = 600000, initialDelay = 600000)
+    public void rebuild() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            int purged = store.purgeExpired(now);
+            List<String> tokenIds = store.findRevokedSince(null, now);
+            BloomFilter rebuilt = new BloomFilter(Math.max(expectedTokens, tokenIds.size() * 2), FALSE_POSITIVE_RATE);
+            tokenIds.forEach(rebuilt::put);
+            // Token bị thu hồi trong lúc dựng lại được thêm ở lần sync kế tiếp (lastSync = now)
+            bloom = rebuilt;
+            lastSync = now;
+            logger.debug("Rebuilt revoked token filter: {} active, {} expired removed", tokenIds.size(), purged);
+        } catch (RuntimeException e) {
+            logger.warn("Could not rebuild revoked token filter", e);
+        }
+    }
+}
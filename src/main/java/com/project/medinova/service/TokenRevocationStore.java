@@ -0,0 +1,25 @@
+package com.project.medinova.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Nơi lưu id (jti) của các token đã bị thu hồi (logout) cho đến khi token hết hạn.
+ * Chọn backend bằng auth.revocation.store: memory (một node) hoặc jdbc (bảng revoked_tokens, dùng chung giữa các node)
+ */
+public interface TokenRevocationStore {
+
+    void revoke(String tokenId, LocalDateTime expiresAt);
+
+    boolean isRevoked(String tokenId, LocalDateTime now);
+
+    /**
+     * Id của các token bị thu hồi từ since trở đi (since = null: tất cả) mà chưa hết hạn
+     */
+    List<String> findRevokedSince(LocalDateTime since, LocalDateTime now);
+
+    /**
+     * Xoá các token đã hết hạn, trả về số token đã xoá
+     */
+    int purgeExpired(LocalDateTime now);
+}
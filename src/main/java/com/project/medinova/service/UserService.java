@@ -33,6 +33,21 @@ public class UserService {
     @Autowired
     private ClinicRepository clinicRepository;
 
+    @Autowired
+    private DashboardStatsEngine dashboardStats;
+
+    @Autowired
+    private DoctorRankingIndex doctorRankingIndex;
+
+    @Autowired
+    private PublicStatsSnapshot publicStats;
+
+    @Autowired
+    private DoctorAvailabilityCalendar doctorAvailability;
+
+    @Autowired
+    private UserSnapshotCache userSnapshotCache;
+
     public List<User> getAllUsers() {
         return userRepository.findAll();
     }
@@ -52,8 +67,7 @@ public class UserService {
                 .orElseThrow(() -> new NotFoundException("User not found with id: " + id));
 
         // Không cho phép thay đổi role của chính mình
-        var currentUser = authService.getCurrentUser();
-        if (currentUser.getId().equals(id)) {
+        if (authService.getCurrentUserId().equals(id)) {
             throw new BadRequestException("Cannot change your own role");
         }
 
@@ -64,6 +78,8 @@ public class UserService {
         }
 
         String oldRole = user.getRole();
+        // Token cũ mang role cũ sẽ bị từ chối khi snapshot được nạp lại
+        userSnapshotCache.invalidateAfterCommit(id);
         
         // Nếu chuyển thành DOCTOR, tự động lấy clinic đầu tiên nếu không có clinicId
         if ("DOCTOR".equals(newRole)) {
@@ -98,7 +114,11 @@ public class UserService {
                 doctor.setClinic(clinic);
                 doctor.setStatus("PENDING"); // Mặc định là PENDING khi admin chuyển role
                 // Các field khác có thể để null, admin có thể update sau
-                doctorRepository.save(doctor);
+                doctor = doctorRepository.save(doctor);
+                dashboardStats.doctorStatusChanged(null, doctor.getStatus());
+                doctorRankingIndex.doctorStatusChanged(doctor.getId(), doctor.getStatus());
+                publicStats.markDirty();
+                doctorAvailability.doctorChanged(doctor.getId());
             } catch (Exception e) {
                 // Nếu có lỗi khi tạo doctor, rollback sẽ tự động xảy ra do @Transactional
                 throw new BadRequestException("Failed to create doctor record: " + e.getMessage());
@@ -106,7 +126,13 @@ public class UserService {
         } else {
             // Nếu chuyển từ DOCTOR sang role khác, xóa doctor record nếu có
             if ("DOCTOR".equals(oldRole)) {
-                doctorRepository.findByUserId(id).ifPresent(doctorRepository::delete);
+                doctorRepository.findByUserId(id).ifPresent(doctor -> {
+                    doctorRepository.delete(doctor);
+                    dashboardStats.doctorStatusChanged(doctor.getStatus(), null);
+                    doctorRankingIndex.doctorRemoved(doctor.getId());
+                    publicStats.markDirty();
+                    doctorAvailability.doctorChanged(doctor.getId());
+                });
             }
             
             // Update role
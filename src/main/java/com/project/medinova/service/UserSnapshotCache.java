@@ -0,0 +1,51 @@
+package com.project.medinova.service;
+
+import com.project.medinova.entity.User;
+import com.project.medinova.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache ngắn hạn bản chụp (snapshot) User theo id, dùng cho xác thực JWT và AuthService.getCurrentUser()
+ * để không phải truy vấn bảng users ở mỗi request.
+ * Bị xoá (sau commit) khi role/status của user thay đổi; TTL để thay đổi ngoài ứng dụng cũng được thấy sau ít giây.
+ * Mỗi lần get trả về một bản sao mới (không được quản lý bởi persistence context), nên người gọi sửa không ảnh hưởng cache.
+ */
+@Component
+public class UserSnapshotCache {
+
+    private static final int MAX_ENTRIES = 10000;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${auth.user-cache.ttl-ms:30000}")
+    private long ttlMillis;
+
+    private final VersionedTtlCache<Long, User> cache = new VersionedTtlCache<>(() -> ttlMillis, MAX_ENTRIES, 1);
+
+    /**
+     * Bản sao của user, hoặc null nếu user không tồn tại
+     */
+    public User get(Long userId) {
+        User user = cache.get(userId, () -> userRepository.findById(userId).map(UserSnapshotCache::copy).orElse(null));
+        return user != null ? copy(user) : null;
+    }
+
+    /**
+     * Xoá cache của user sau khi transaction hiện tại commit
+     */
+    public void invalidateAfterCommit(Long userId) {
+        cache.invalidateAfterCommit(userId);
+    }
+
+    public void invalidate(Long userId) {
+        cache.invalidate(userId);
+    }
+
+    private static User copy(User user) {
+        return new User(user.getId(), user.getEmail(), user.getPasswordHash(), user.getFullName(), user.getPhone(),
+                user.getRole(), user.getStatus(), user.getCreatedAt());
+    }
+}
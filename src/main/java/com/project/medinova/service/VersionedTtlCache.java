@@ -0,0 +1,82 @@
+package com.project.medinova.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Cache ngắn hạn theo id (bác sĩ, user), mỗi id có thể giữ nhiều giá trị theo khoá phụ (ví dụ khoảng ngày).
+ * invalidate(id) xoá mọi giá trị của id và tăng phiên bản của id: giá trị đang được tính dở từ trước lần invalidate
+ * sẽ không được dùng lại. TTL chỉ giới hạn độ cũ của dữ liệu phụ thuộc thời gian hoặc bị sửa ngoài ứng dụng.
+ * Loader trả về null thì không cache.
+ */
+final class VersionedTtlCache<K, V> {
+
+    private final LongSupplier ttlMillis;
+    // Vượt quá thì xoá hết (id / giá trị của một id) thay vì theo dõi thứ tự truy cập
+    private final int maxIds;
+    private final int maxValuesPerId;
+
+    private final Map<K, Map<Object, Entry<V>>> entries = new ConcurrentHashMap<>();
+    // Tăng mỗi lần invalidate: giá trị tính xong sau một lần invalidate sẽ không được dùng lại
+    private final Map<K, Long> versions = new ConcurrentHashMap<>();
+
+    private record Entry<V>(V value, long version, long expiresAt) {
+    }
+
+    /**
+     * @param ttlMillis được đọc ở mỗi lần ghi, để cấu hình @Value của component chứa cache được áp dụng
+     */
+    VersionedTtlCache(LongSupplier ttlMillis, int maxIds, int maxValuesPerId) {
+        this.ttlMillis = ttlMillis;
+        this.maxIds = maxIds;
+        this.maxValuesPerId = maxValuesPerId;
+    }
+
+    V get(K id, Supplier<V> loader) {
+        return get(id, id, loader);
+    }
+
+    V get(K id, Object subKey, Supplier<V> loader) {
+        long version = versions.getOrDefault(id, 0L);
+        Map<Object, Entry<V>> values = entries.get(id);
+        Entry<V> entry = values != null ? values.get(subKey) : null;
+        if (entry != null && entry.version() == version && entry.expiresAt() > System.currentTimeMillis()) {
+            return entry.value();
+        }
+
+        V value = loader.get();
+        if (value == null) {
+            if (values != null) {
+                values.remove(subKey);
+            }
+            return null;
+        }
+        if (values == null) {
+            if (entries.size() >= maxIds) {
+                entries.clear();
+            }
+            values = entries.computeIfAbsent(id, key -> new ConcurrentHashMap<>());
+        }
+        if (values.size() >= maxValuesPerId) {
+            values.clear();
+        }
+        values.put(subKey, new Entry<>(value, version, System.currentTimeMillis() + ttlMillis.getAsLong()));
+        return value;
+    }
+
+    /**
+     * Xoá cache của id sau khi transaction hiện tại commit
+     */
+    void invalidateAfterCommit(K id) {
+        if (id != null) {
+            TransactionCallbacks.afterCommit(() -> invalidate(id));
+        }
+    }
+
+    void invalidate(K id) {
+        versions.merge(id, 1L, Long::sum);
+        entries.remove(id);
+    }
+}
@@ -0,0 +1,141 @@
+package com.project.medinova.config;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Parse JWT một lần và cache token đã xác thực.
+ * Benchmark (chạy với -Dbenchmark=true): số request/giây của bước xác thực token trong JwtAuthenticationFilter
+ * trước (4 lần parse, mỗi lần tạo lại key và parser) và sau (một lần parse, có/không có cache).
+ */
+class JwtTokenProviderTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtTokenProviderTest.class);
+
+    private static final String SECRET = "test-secret-key-for-jwt-token-generation-minimum-32-characters";
+    private static final int WARMUP = 5_000;
+    private static final int ITERATIONS = 50_000;
+
+    @Test
+    void testParseTokenReadsAllClaimsOnce() {
+        JwtTokenProvider provider = provider(60_000, 100);
+        String token = provider.generateToken("patient@test.local", 42L, "PATIENT");
+
+        JwtClaims claims = provider.parseToken(token);
+
+        assertEquals("patient@test.local", claims.username());
+        assertEquals(42L, claims.userId());
+        assertEquals("PATIENT", claims.role());
+        assertFalse(claims.isExpired());
+        // Lần sau lấy từ cache
+        assertSame(claims, provider.parseToken(token));
+        assertEquals("PATIENT", provider.getRoleFromToken(token));
+    }
+
+    @Test
+    void testTamperedTokenIsRejected() {
+        JwtTokenProvider provider = provider(60_000, 100);
+        String token = provider.generateToken("patient@test.local", 42L, "PATIENT");
+        provider.parseToken(token);
+
+        int signatureStart = token.lastIndexOf('.') + 1;
+        String tampered = token.substring(0, signatureStart)
+                + new StringBuilder(token.substring(signatureStart)).reverse();
+
+        assertThrows(JwtException.class, () -> provider.parseToken(tampered));
+        JwtTokenProvider otherKey = provider(60_000, 100);
+        ReflectionTestUtils.setField(otherKey, "jwtSecret", SECRET + "-other");
+        otherKey.init();
+        assertThrows(JwtException.class, () -> otherKey.parseToken(token));
+    }
+
+    @Test
+    void testCachedTokenStillExpires() throws InterruptedException {
+        JwtTokenProvider provider = provider(1_000, 100);
+        String token = provider.generateToken("patient@test.local", 42L, "PATIENT");
+        provider.parseToken(token);
+
+        Thread.sleep(2_100);
+
+        assertThrows(ExpiredJwtException.class, () -> provider.parseToken(token));
+    }
+
+    @Test
+    void testVerifiedTokenCacheIsBounded() {
+        JwtTokenProvider provider = provider(60_000, 2);
+        String first = provider.generateToken("a@test.local", 1L, "PATIENT");
+        JwtClaims firstClaims = provider.parseToken(first);
+        provider.parseToken(provider.generateToken("b@test.local", 2L, "PATIENT"));
+        provider.parseToken(provider.generateToken("c@test.local", 3L, "PATIENT"));
+
+        // Token đầu tiên đã bị đẩy ra: được xác thực lại, ra object mới
+        assertNotSame(firstClaims, provider.parseToken(first));
+    }
+
+    @Test
+    @Tag("benchmark")
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkFilterTokenVerification() {
+        JwtTokenProvider cached = provider(60_000, 10_000);
+        JwtTokenProvider uncached = provider(60_000, 0);
+        String token = cached.generateToken("patient@test.local", 42L, "PATIENT");
+
+        double before = measure("before: 4 parses, new key+parser each", token, JwtTokenProviderTest::parseFourTimes);
+        double once = measure("after: 1 parse, shared parser, no cache", token, uncached::parseToken);
+        double warm = measure("after: 1 parse, verified-token cache", token, cached::parseToken);
+        logger.info("JWT verification speedup: {}x without cache, {}x with cache",
+                String.format("%.1f", once / before), String.format("%.1f", warm / before));
+        assertTrue(once > before, "Single parse is not faster than four parses");
+        assertTrue(warm > before, "Verified-token cache is not faster than four parses");
+    }
+
+    private static JwtTokenProvider provider(long expirationMillis, int cacheSize) {
+        JwtTokenProvider provider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(provider, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(provider, "jwtExpirationInMs", expirationMillis);
+        ReflectionTestUtils.setField(provider, "verifiedCacheSize", cacheSize);
+        provider.init();
+        return provider;
+    }
+
+    // Cách filter làm trước đây: validateToken, getUsername, getUserId, getRole, mỗi lần parse lại từ đầu
+    private static void parseFourTimes(String token) {
+        for (int i = 0; i < 4; i++) {
+            Claims claims = Jwts.parser()
+                    .verifyWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                    .build()
+                    .parseSignedClaims(token)
+                    .getPayload();
+            assertNotNull(claims.getSubject());
+        }
+    }
+
+    private static double measure(String label, String token, Consumer<String> verify) {
+        for (int i = 0; i < WARMUP; i++) {
+            verify.accept(token);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            verify.accept(token);
+        }
+        double elapsedMillis = (System.nanoTime() - start) / 1_000_000.0;
+        double perSecond = ITERATIONS * 1000 / elapsedMillis;
+        logger.info("JWT {}: {} requests in {} ms ({} requests/s)", label, ITERATIONS,
+                Math.round(elapsedMillis), Math.round(perSecond));
+        return perSecond;
+    }
+}
@@ -69,7 +69,7 @@ class AuthControllerTest {
 
     @Test
     void testLogin_Success() throws Exception {
-        when(authService.login(any(AuthRequest.class))).thenReturn(authResponse);
+        when(authService.login(any(AuthRequest.class), any())).thenReturn(authResponse);
 
         mockMvc.perform(post("/api/auth/login")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -81,7 +81,7 @@ class AuthControllerTest {
 
     @Test
     void testLogin_InvalidCredentials() throws Exception {
-        when(authService.login(any(AuthRequest.class)))
+        when(authService.login(any(AuthRequest.class), any()))
                 .thenThrow(new com.project.medinova.exception.UnauthorizedException("Invalid email or password"));
 
         mockMvc.perform(post("/api/auth/login")
@@ -90,6 +90,18 @@ class AuthControllerTest {
                 .andExpect(status().isUnauthorized());
     }
 
+    @Test
+    void testLogin_TooManyAttempts() throws Exception {
+        when(authService.login(any(AuthRequest.class), any()))
+                .thenThrow(new com.project.medinova.exception.TooManyRequestsException("Too many login attempts, please try again later", 42));
+
+        mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(authRequest)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "42"));
+    }
+
     @Test
     void testLogin_ValidationError() throws Exception {
         AuthRequest invalidRequest = new AuthRequest();
@@ -103,7 +115,7 @@ class AuthControllerTest {
 
     @Test
     void testRegister_Success() throws Exception {
-        when(authService.register(any(RegisterRequest.class))).thenReturn(authResponse);
+        when(authService.register(any(RegisterRequest.class), any())).thenReturn(authResponse);
 
         mockMvc.perform(post("/api/auth/register")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -114,7 +126,7 @@ class AuthControllerTest {
 
     @Test
     void testRegister_EmailExists() throws Exception {
-        when(authService.register(any(RegisterRequest.class)))
+        when(authService.register(any(RegisterRequest.class), any()))
                 .thenThrow(new com.project.medinova.exception.BadRequestException("Email already exists"));
 
         mockMvc.perform(post("/api/auth/register")
@@ -0,0 +1,167 @@
+package com.project.medinova.service;
+
+import com.project.medinova.dto.CreateEmergencyRequest;
+import com.project.medinova.dto.EmergencyResponse;
+import com.project.medinova.entity.Ambulance;
+import com.project.medinova.entity.Clinic;
+import com.project.medinova.entity.Emergency;
+import com.project.medinova.entity.User;
+import com.project.medinova.repository.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bắn hàng trăm emergency song song vào một clinic có ít xe hơn số emergency:
+ * mỗi xe chỉ được điều cho đúng một emergency (điều phối chạy bất đồng bộ trong EmergencyDispatcher)
+ */
+@SpringBootTest
+class AmbulanceReservationConcurrencyTest {
+
+    private static final int AMBULANCES = 40;
+    private static final int EMERGENCIES = 300;
+    private static final int THREADS = 16;
+
+    @Autowired
+    private EmergencyService emergencyService;
+
+    @Autowired
+    private EmergencyDispatcher emergencyDispatcher;
+
+    @Autowired
+    private AmbulanceSpatialIndex ambulanceIndex;
+
+    @Autowired
+    private ClinicRepository clinicRepository;
+
+    @Autowired
+    private AmbulanceRepository ambulanceRepository;
+
+    @Autowired
+    private EmergencyRepository emergencyRepository;
+
+    @Autowired
+    private EmergencyAssignmentRepository assignmentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Clinic clinic;
+    private User patient;
+
+    @BeforeEach
+    void setUp() {
+        clinic = new Clinic();
+        clinic.setName("Concurrency Test Clinic");
+        clinic.setLatitude(10.76);
+        clinic.setLongitude(106.66);
+        clinic = clinicRepository.save(clinic);
+
+        patient = new User();
+        patient.setEmail("patient-" + UUID.randomUUID() + "@test.local");
+        patient.setPasswordHash("x");
+        patient.setRole("PATIENT");
+        patient.setStatus("ACTIVE");
+        patient = userRepository.save(patient);
+
+        Random random = new Random(42);
+        for (int i = 0; i < AMBULANCES; i++) {
+            Ambulance ambulance = new Ambulance();
+            ambulance.setClinic(clinic);
+            ambulance.setStatus("AVAILABLE");
+            ambulance.setCurrentLat(10.76 + random.nextGaussian() * 0.02);
+            ambulance.setCurrentLng(106.66 + random.nextGaussian() * 0.02);
+            ambulance.setAmbulanceType(i % 5 == 0 ? "ICU" : "STANDARD");
+            ambulance.setLicensePlate("TEST-" + i);
+            ambulanceRepository.save(ambulance);
+        }
+        ambulanceIndex.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        List<Long> emergencyIds = emergencyRepository.findByClinicId(clinic.getId()).stream()
+                .map(emergency -> emergency.getId())
+                .toList();
+        for (Long emergencyId : emergencyIds) {
+            assignmentRepository.deleteAll(assignmentRepository.findByEmergencyId(emergencyId));
+        }
+        emergencyRepository.deleteAllById(emergencyIds);
+        ambulanceRepository.deleteAll(ambulanceRepository.findByClinicId(clinic.getId()));
+        clinicRepository.delete(clinic);
+        userRepository.delete(patient);
+        ambulanceIndex.rebuild();
+    }
+
+    @Test
+    void testParallelEmergenciesNeverShareAnAmbulance() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<EmergencyResponse>> futures = new ArrayList<>();
+
+        Random random = new Random(7);
+        for (int i = 0; i < EMERGENCIES; i++) {
+            CreateEmergencyRequest request = new CreateEmergencyRequest();
+            request.setClinicId(clinic.getId());
+            request.setPatientLat(10.76 + random.nextGaussian() * 0.03);
+            request.setPatientLng(106.66 + random.nextGaussian() * 0.03);
+            request.setPriority(i % 3 == 0 ? "CRITICAL" : "MEDIUM");
+            futures.add(executor.submit(() -> {
+                start.await();
+                return createAs(patient, request);
+            }));
+        }
+
+        start.countDown();
+        for (Future<EmergencyResponse> future : futures) {
+            assertEquals("PENDING", future.get(60, TimeUnit.SECONDS).getStatus());
+        }
+        executor.shutdown();
+        awaitDispatcherIdle();
+
+        List<Emergency> emergencies = emergencyRepository.findByClinicId(clinic.getId());
+        List<Long> dispatchedAmbulanceIds = emergencies.stream()
+                .flatMap(emergency -> assignmentRepository.findByEmergencyId(emergency.getId()).stream())
+                .filter(assignment -> assignment.getAmbulance() != null)
+                .map(assignment -> assignment.getAmbulance().getId())
+                .toList();
+
+        assertEquals(EMERGENCIES, emergencies.size());
+        assertEquals(AMBULANCES, dispatchedAmbulanceIds.size(), "every ambulance should be dispatched exactly once");
+        assertEquals(AMBULANCES, new HashSet<>(dispatchedAmbulanceIds).size(), "an ambulance was dispatched twice");
+        assertEquals(AMBULANCES,
+                emergencies.stream().filter(emergency -> "DISPATCHED".equals(emergency.getStatus())).count());
+        assertEquals(EMERGENCIES - AMBULANCES,
+                emergencies.stream().filter(emergency -> "PENDING".equals(emergency.getStatus())).count());
+        assertTrue(ambulanceRepository.findByClinicIdAndStatus(clinic.getId(), "AVAILABLE").isEmpty());
+    }
+
+    private void awaitDispatcherIdle() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 60_000;
+        while (emergencyDispatcher.getInFlightCount() > 0) {
+            assertTrue(System.currentTimeMillis() < deadline, "dispatcher did not drain in time");
+            Thread.sleep(50);
+        }
+    }
+
+    private EmergencyResponse createAs(User user, CreateEmergencyRequest request) {
+        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                user.getEmail(), null, List.of());
+        authentication.setDetails(Map.of("userId", user.getId(), "role", user.getRole()));
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+        try {
+            return emergencyService.createEmergency(request);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
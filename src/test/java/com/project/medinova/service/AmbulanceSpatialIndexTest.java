@@ -0,0 +1,120 @@
+package com.project.medinova.service;
+
+import com.project.medinova.entity.Ambulance;
+import com.project.medinova.entity.Clinic;
+import com.project.medinova.repository.AmbulanceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AmbulanceSpatialIndexTest {
+
+    private static final double PATIENT_LAT = 10.80;
+    private static final double PATIENT_LNG = 106.70;
+
+    @Mock
+    private AmbulanceRepository ambulanceRepository;
+
+    @InjectMocks
+    private AmbulanceSpatialIndex index;
+
+    private final LocalDateTime now = LocalDateTime.now();
+
+    @BeforeEach
+    void setUp() {
+        when(ambulanceRepository.findByStatus("AVAILABLE")).thenReturn(List.of(
+                // Xe thường gần bệnh nhân nhất, xe ICU xa hơn
+                ambulance(1L, 5L, "STANDARD", 10.801, 106.701, now.minusMinutes(5)),
+                ambulance(2L, 5L, "ICU", 10.85, 106.75, now.minusMinutes(1)),
+                // Cùng vị trí: xe idle lâu hơn trước, xe không có lastIdleAt sau cùng
+                ambulance(3L, 5L, "STANDARD", 10.82, 106.72, null),
+                ambulance(4L, 5L, "STANDARD", 10.82, 106.72, now.minusMinutes(30)),
+                ambulance(5L, 5L, "STANDARD", 10.82, 106.72, now.minusMinutes(10)),
+                // Chưa có vị trí
+                ambulance(6L, 5L, "STANDARD", null, null, now.minusMinutes(60)),
+                ambulance(7L, 5L, "ICU", null, null, now.minusMinutes(2)),
+                // Clinic khác
+                ambulance(8L, 9L, "ICU", 10.80, 106.70, now)));
+        index.rebuild();
+    }
+
+    @Test
+    void testNearestFirstThenLongestIdleForRoutineCalls() {
+        assertEquals(List.of(1L, 4L, 5L, 3L, 2L, 6L, 7L),
+                index.findDispatchCandidates(5L, PATIENT_LAT, PATIENT_LNG, "LOW", 10));
+        assertEquals(7, index.countAvailable(5L));
+        assertEquals(1, index.countAvailable(9L));
+    }
+
+    @Test
+    void testIcuFirstForCriticalAndHighPriority() {
+        List<Long> expected = List.of(2L, 1L, 4L, 5L, 3L, 7L, 6L);
+        assertEquals(expected, index.findDispatchCandidates(5L, PATIENT_LAT, PATIENT_LNG, "CRITICAL", 10));
+        assertEquals(expected, index.findDispatchCandidates(5L, PATIENT_LAT, PATIENT_LNG, "HIGH", 10));
+    }
+
+    @Test
+    void testNearestReturnsDistances() {
+        List<GeoGrid.Hit<AmbulanceSpatialIndex.Snapshot>> hits = index.findNearest(5L, PATIENT_LAT, PATIENT_LNG, 2);
+
+        assertEquals(2, hits.size());
+        assertEquals(1L, hits.get(0).value().id());
+        assertEquals(GeoGrid.distanceKm(PATIENT_LAT, PATIENT_LNG, 10.801, 106.701), hits.get(0).distanceKm(), 1e-9);
+        assertTrue(index.findNearest(42L, PATIENT_LAT, PATIENT_LNG, 2).isEmpty());
+    }
+
+    @Test
+    void testSyncRemoveAndEvict() {
+        List<Long> available = new ArrayList<>();
+        index.addAvailabilityListener(available::add);
+
+        // Xe 1 được điều đi, xe 10 mới AVAILABLE ngay cạnh bệnh nhân
+        Ambulance dispatched = ambulance(1L, 5L, "STANDARD", 10.801, 106.701, now);
+        dispatched.setStatus("DISPATCHED");
+        index.sync(dispatched);
+        index.sync(ambulance(10L, 5L, "STANDARD", 10.8001, 106.7001, now));
+        assertEquals(List.of(5L), available);
+        assertEquals(List.of(10L, 4L, 6L, 7L), index.findDispatchCandidates(5L, PATIENT_LAT, PATIENT_LNG, "LOW", 2));
+
+        index.remove(10L);
+        index.evict(4L);
+        assertEquals(List.of(5L, 3L, 6L, 7L), index.findDispatchCandidates(5L, PATIENT_LAT, PATIENT_LNG, "LOW", 2));
+        assertEquals(5, index.countAvailable(5L));
+    }
+
+    @Test
+    void testLiveLocationMovesAvailableAmbulance() {
+        index.updateLocation(6L, 10.8001, 106.7001);
+
+        // Xe 6 có vị trí nên chuyển từ nhóm không có vị trí sang grid
+        assertEquals(List.of(6L, 1L, 7L), index.findDispatchCandidates(5L, PATIENT_LAT, PATIENT_LNG, "LOW", 2));
+        assertEquals(10.8001, index.getLivePosition(6L).lat());
+    }
+
+    private static Ambulance ambulance(Long id, Long clinicId, String type, Double lat, Double lng,
+                                       LocalDateTime lastIdleAt) {
+        Clinic clinic = new Clinic();
+        clinic.setId(clinicId);
+        Ambulance ambulance = new Ambulance();
+        ambulance.setId(id);
+        ambulance.setClinic(clinic);
+        ambulance.setStatus("AVAILABLE");
+        ambulance.setAmbulanceType(type);
+        ambulance.setCurrentLat(lat);
+        ambulance.setCurrentLng(lng);
+        ambulance.setLastIdleAt(lastIdleAt);
+        return ambulance;
+    }
+}
@@ -0,0 +1,93 @@
+package com.project.medinova.service;
+
+import com.project.medinova.dto.AppointmentCursorPage;
+import com.project.medinova.dto.AppointmentResponse;
+import com.project.medinova.entity.Appointment;
+import com.project.medinova.exception.BadRequestException;
+import com.project.medinova.repository.AppointmentRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AppointmentCursorPaginationTest {
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    @InjectMocks
+    private AppointmentService appointmentService;
+
+    @Test
+    void testFirstPageContinuesFromUpcomingIntoPast() {
+        LocalDateTime future = LocalDateTime.now().plusDays(1);
+        LocalDateTime past = LocalDateTime.now().minusDays(1);
+        when(appointmentRepository.findUpcomingAfter(any(), any(), eq(0L), eq(3)))
+                .thenReturn(List.of(appointment(1L, future)));
+        when(appointmentRepository.findPastBefore(any(), any(), eq(0L), eq(2)))
+                .thenReturn(List.of(appointment(2L, past), appointment(3L, past.minusHours(1))));
+
+        AppointmentCursorPage page = appointmentService.getAllAppointmentsByCursor(null, null, 2);
+
+        assertEquals(List.of(1L, 2L), page.getContent().stream().map(AppointmentResponse::getId).toList());
+        assertTrue(page.getHasNext());
+
+        // Trang sau seek trong phần past từ appointment 2, cùng mốc now
+        ArgumentCaptor<LocalDateTime> now = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(appointmentRepository).findUpcomingAfter(now.capture(), any(), eq(0L), eq(3));
+        when(appointmentRepository.findPastBefore(now.getValue(), past, 2L, 3))
+                .thenReturn(List.of(appointment(3L, past.minusHours(1))));
+
+        AppointmentCursorPage next = appointmentService.getAllAppointmentsByCursor(null, page.getNextCursor(), 2);
+
+        assertEquals(List.of(3L), next.getContent().stream().map(AppointmentResponse::getId).toList());
+        assertFalse(next.getHasNext());
+        assertNull(next.getNextCursor());
+        verify(appointmentRepository, never()).findUpcomingAfter(any(), any(), eq(2L), anyInt());
+    }
+
+    @Test
+    void testStatusFilterUsesStatusQueries() {
+        when(appointmentRepository.findUpcomingByStatusAfter(eq("PENDING"), any(), any(), anyLong(), eq(2)))
+                .thenReturn(List.of(appointment(5L, LocalDateTime.now().plusHours(2)),
+                        appointment(6L, LocalDateTime.now().plusHours(3))));
+
+        AppointmentCursorPage page = appointmentService.getAllAppointmentsByCursor("PENDING", null, 1);
+
+        assertEquals(List.of(5L), page.getContent().stream().map(AppointmentResponse::getId).toList());
+        assertTrue(page.getHasNext());
+        verify(appointmentRepository, never()).findUpcomingAfter(any(), any(), anyLong(), anyInt());
+    }
+
+    @Test
+    void testInvalidCursorIsRejected() {
+        assertThrows(BadRequestException.class,
+                () -> appointmentService.getAllAppointmentsByCursor(null, "not-a-cursor", 10));
+    }
+
+    private static Appointment appointment(Long id, LocalDateTime time) {
+        Appointment appointment = new Appointment();
+        appointment.setId(id);
+        appointment.setAppointmentTime(time);
+        return appointment;
+    }
+}
@@ -0,0 +1,77 @@
+package com.project.medinova.service;
+
+import com.project.medinova.dto.AppointmentExpiryStatsResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AppointmentSchedulerServiceTest {
+
+    @Mock
+    private AppointmentExpiryBatch expiryBatch;
+
+    @InjectMocks
+    private AppointmentSchedulerService schedulerService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(schedulerService, "batchSize", 100);
+        ReflectionTestUtils.setField(schedulerService, "pendingTimeoutMinutes", 120L);
+    }
+
+    @Test
+    void testHoldReleaseRunsBatchesUntilOneIsNotFull() {
+        when(expiryBatch.releaseExpiredHolds(any(), eq(100))).thenReturn(100, 100, 37);
+
+        schedulerService.releaseExpiredHoldSlots();
+
+        verify(expiryBatch, times(3)).releaseExpiredHolds(any(), eq(100));
+        AppointmentExpiryStatsResponse stats = schedulerService.getExpiryStats();
+        assertEquals(1L, stats.getHoldRelease().getRuns());
+        assertEquals(237L, stats.getHoldRelease().getTotalRows());
+        assertEquals(237L, stats.getHoldRelease().getLastRows());
+        assertEquals(3L, stats.getHoldRelease().getLastBatches());
+        assertNotNull(stats.getHoldRelease().getLastRunAt());
+        assertEquals(0L, stats.getPendingExpiry().getRuns());
+    }
+
+    @Test
+    void testPendingExpiryStopsOnEmptyBatchAndAccumulates() {
+        when(expiryBatch.expirePendingAppointments(any(), eq(100))).thenReturn(0, 100, 0);
+
+        schedulerService.expirePendingAppointments();
+        schedulerService.expirePendingAppointments();
+
+        AppointmentExpiryStatsResponse stats = schedulerService.getExpiryStats();
+        assertEquals(2L, stats.getPendingExpiry().getRuns());
+        assertEquals(100L, stats.getPendingExpiry().getTotalRows());
+        assertEquals(2L, stats.getPendingExpiry().getLastBatches());
+    }
+
+    @Test
+    void testFailedBatchKeepsRowsOfCommittedBatches() {
+        when(expiryBatch.releaseExpiredHolds(any(), eq(100)))
+                .thenReturn(100)
+                .thenThrow(new IllegalStateException("database unavailable"));
+
+        assertThrows(IllegalStateException.class, () -> schedulerService.releaseExpiredHoldSlots());
+
+        AppointmentExpiryStatsResponse stats = schedulerService.getExpiryStats();
+        assertEquals(100L, stats.getHoldRelease().getTotalRows());
+        assertEquals(1L, stats.getHoldRelease().getLastBatches());
+    }
+}
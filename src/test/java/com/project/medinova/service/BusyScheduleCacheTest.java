@@ -0,0 +1,62 @@
+package com.project.medinova.service;
+
+import com.project.medinova.dto.BusyScheduleResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BusyScheduleCacheTest {
+
+    private final LocalDate today = LocalDate.now();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Supplier<List<BusyScheduleResponse>> loader = () -> {
+        loads.incrementAndGet();
+        return List.of(new BusyScheduleResponse());
+    };
+
+    private BusyScheduleCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new BusyScheduleCache();
+        ReflectionTestUtils.setField(cache, "ttlMillis", 60_000L);
+    }
+
+    @Test
+    void testSameWindowIsLoadedOnce() {
+        cache.get(1L, today, today.plusDays(29), loader);
+        cache.get(1L, today, today.plusDays(29), loader);
+        assertEquals(1, loads.get());
+
+        // Khoảng ngày khác hoặc doctor khác được nạp riêng
+        cache.get(1L, today, today.plusDays(6), loader);
+        cache.get(2L, today, today.plusDays(29), loader);
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void testInvalidateDropsOnlyThatDoctor() {
+        cache.get(1L, today, today.plusDays(29), loader);
+        cache.get(2L, today, today.plusDays(29), loader);
+
+        cache.invalidate(1L);
+        cache.get(1L, today, today.plusDays(29), loader);
+        cache.get(2L, today, today.plusDays(29), loader);
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void testExpiredEntryIsReloaded() {
+        ReflectionTestUtils.setField(cache, "ttlMillis", -1L);
+        cache.get(1L, today, today.plusDays(29), loader);
+        cache.get(1L, today, today.plusDays(29), loader);
+        assertEquals(2, loads.get());
+    }
+}
@@ -0,0 +1,117 @@
+package com.project.medinova.service;
+
+import com.project.medinova.dto.ClinicRankingResponse;
+import com.project.medinova.dto.ClinicRankingStatsView;
+import com.project.medinova.repository.ClinicRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ClinicRankingSnapshotTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClinicRankingSnapshotTest.class);
+
+    private static final int ITERATIONS = 20_000;
+
+    private record Row(Long clinicId, String name, String address, Long doctorCount,
+                       Long appointmentCount, Long ratingSum, Long reviewCount) implements ClinicRankingStatsView {
+        public Long getClinicId() { return clinicId; }
+        public String getName() { return name; }
+        public String getAddress() { return address; }
+        public Long getDoctorCount() { return doctorCount; }
+        public Long getAppointmentCount() { return appointmentCount; }
+        public Long getRatingSum() { return ratingSum; }
+        public Long getReviewCount() { return reviewCount; }
+    }
+
+    @Test
+    void testRankingOrderAndWeightedRating() {
+        ClinicRepository clinicRepository = mock(ClinicRepository.class);
+        when(clinicRepository.aggregateRankingStats()).thenReturn(List.of(
+                new Row(1L, "A", null, 5L, 100L, 40L, 10L),
+                new Row(2L, "B", null, 8L, 100L, 9L, 2L),
+                new Row(3L, "C", null, 8L, 100L, 10L, 2L),
+                new Row(4L, "D", null, 1L, 300L, 0L, 0L)));
+
+        RankingService rankingService = rankingService(clinicRepository);
+        ClinicRankingResponse response = rankingService.getClinicRanking(3);
+
+        assertEquals(4L, response.getTotalClinics());
+        assertEquals(List.of(4L, 3L, 2L), response.getTopClinics().stream().map(item -> item.getId()).toList());
+        assertEquals(5.0, response.getTopClinics().get(1).getAverageDoctorRating());
+        assertEquals(0.0, response.getTopClinics().get(0).getAverageDoctorRating());
+        assertEquals(1, response.getTopClinics().get(0).getRank());
+    }
+
+    @Test
+    void testRankingIsComputedOnceAndServedFromSnapshot() {
+        ClinicRepository large = repositoryWithClinics(10_000);
+        RankingService largeService = rankingService(large);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(10, largeService.getClinicRanking(10).getTopClinics().size());
+        }
+
+        // Chỉ tính ranking một lần, mọi request sau đó đọc snapshot
+        verify(large, times(1)).aggregateRankingStats();
+        assertEquals(10_000L, largeService.getClinicRanking(10).getTotalClinics());
+    }
+
+    /**
+     * Benchmark (chạy với -Dbenchmark=true): thời gian phục vụ một request top 10 với 1k và 10k clinic
+     */
+    @Test
+    @Tag("benchmark")
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkRankingRequestTimeByClinicCount() {
+        double smallNanos = bestAverageNanos(rankingService(repositoryWithClinics(1_000)));
+        double largeNanos = bestAverageNanos(rankingService(repositoryWithClinics(10_000)));
+        logger.info("Clinic ranking top 10: 1k clinics {} ns/op, 10k clinics {} ns/op",
+                Math.round(smallNanos), Math.round(largeNanos));
+    }
+
+    private static double bestAverageNanos(RankingService rankingService) {
+        double best = Double.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                rankingService.getClinicRanking(10);
+            }
+            best = Math.min(best, (double) (System.nanoTime() - start) / ITERATIONS);
+        }
+        return best;
+    }
+
+    private static ClinicRepository repositoryWithClinics(int count) {
+        List<ClinicRankingStatsView> rows = new ArrayList<>(count);
+        for (long id = 1; id <= count; id++) {
+            rows.add(new Row(id, "Clinic " + id, "Address " + id, id % 50, (id * 7919) % 10_000,
+                    (id % 40) * 4, id % 40));
+        }
+        ClinicRepository clinicRepository = mock(ClinicRepository.class);
+        when(clinicRepository.aggregateRankingStats()).thenReturn(rows);
+        return clinicRepository;
+    }
+
+    private static RankingService rankingService(ClinicRepository clinicRepository) {
+        ClinicRankingSnapshot snapshot = new ClinicRankingSnapshot();
+        ReflectionTestUtils.setField(snapshot, "clinicRepository", clinicRepository);
+        snapshot.refresh();
+
+        RankingService rankingService = new RankingService();
+        ReflectionTestUtils.setField(rankingService, "clinicRankingSnapshot", snapshot);
+        return rankingService;
+    }
+}
@@ -0,0 +1,155 @@
+package com.project.medinova.service;
+
+import com.project.medinova.dto.CreateClinicRequest;
+import com.project.medinova.dto.NearbyClinicResponse;
+import com.project.medinova.dto.UpdateClinicRequest;
+import com.project.medinova.entity.Clinic;
+import com.project.medinova.exception.BadRequestException;
+import com.project.medinova.repository.AppointmentRepository;
+import com.project.medinova.repository.ClinicRepository;
+import com.project.medinova.repository.DoctorRepository;
+import com.project.medinova.repository.DoctorScheduleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ClinicServiceTest {
+
+    private static final double LAT = 10.80;
+    private static final double LNG = 106.70;
+
+    @Mock
+    private ClinicRepository clinicRepository;
+
+    @Mock
+    private DoctorRepository doctorRepository;
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    @Mock
+    private DoctorScheduleRepository doctorScheduleRepository;
+
+    @Mock
+    private PublicStatsSnapshot publicStats;
+
+    // ClinicDirectory thật để kiểm tra việc đồng bộ sau create/update/delete
+    @Spy
+    private ClinicDirectory clinicDirectory = new ClinicDirectory();
+
+    @InjectMocks
+    private ClinicService clinicService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(clinicDirectory, "clinicRepository", clinicRepository);
+    }
+
+    @Test
+    void testNearbyRejectsRadiusOutOfRange() {
+        assertThrows(BadRequestException.class, () -> clinicService.getNearbyClinics(LAT, LNG, 5, -1));
+        assertThrows(BadRequestException.class, () -> clinicService.getNearbyClinics(LAT, LNG, 5, 0));
+        assertThrows(BadRequestException.class, () -> clinicService.getNearbyClinics(LAT, LNG, 5, 501));
+        assertThrows(BadRequestException.class, () -> clinicService.getNearbyClinics(LAT, LNG, 5, Double.NaN));
+        assertThrows(BadRequestException.class,
+                () -> clinicService.getNearbyClinics(LAT, LNG, 5, Double.POSITIVE_INFINITY));
+        verifyNoInteractions(clinicRepository);
+    }
+
+    @Test
+    void testNearbyHonoursRadiusAndLimit() {
+        when(clinicRepository.findAllEmergencyEnabled()).thenReturn(List.of(
+                clinic(1L, LAT, LNG),
+                clinic(2L, 10.85, LNG),   // ~5.6 km
+                clinic(3L, 11.30, LNG),   // ~56 km
+                clinic(4L, null, null)));
+
+        List<NearbyClinicResponse> nearby = clinicService.getNearbyClinics(LAT, LNG, 5, 50);
+        assertEquals(List.of(1L, 2L), ids(nearby));
+        assertEquals(0.0, nearby.get(0).getDistanceKm(), 1e-9);
+        assertEquals(GeoGrid.distanceKm(LAT, LNG, 10.85, LNG), nearby.get(1).getDistanceKm(), 1e-9);
+
+        assertEquals(List.of(1L), ids(clinicService.getNearbyClinics(LAT, LNG, 1, 50)));
+        // Clinic không có vị trí không bao giờ nằm trong kết quả theo bán kính
+        assertEquals(List.of(1L, 2L, 3L), ids(clinicService.getNearbyClinics(LAT, LNG, 10, 100)));
+    }
+
+    @Test
+    void testNearestFallsBackToClinicWithoutLocation() {
+        when(clinicRepository.findAllEmergencyEnabled()).thenReturn(List.of(clinic(4L, null, null)));
+
+        assertEquals(4L, clinicDirectory.findNearest(LAT, LNG).id());
+        assertTrue(clinicDirectory.findNearest(LAT, LNG, 5, 50).isEmpty());
+    }
+
+    @Test
+    void testCreateUpdateDeleteKeepDirectoryInSync() {
+        List<Clinic> stored = new ArrayList<>(List.of(clinic(1L, 10.90, LNG)));
+        when(clinicRepository.findAllEmergencyEnabled()).thenAnswer(invocation -> List.copyOf(stored));
+        when(clinicRepository.save(any(Clinic.class))).thenAnswer(invocation -> {
+            Clinic clinic = invocation.getArgument(0);
+            if (clinic.getId() == null) {
+                clinic.setId(10L);
+                stored.add(clinic);
+            }
+            return clinic;
+        });
+        assertEquals(List.of(1L), ids(clinicService.getNearbyClinics(LAT, LNG, 5, 50)));
+
+        CreateClinicRequest create = new CreateClinicRequest();
+        create.setName("Clinic 10");
+        create.setLatitude(LAT);
+        create.setLongitude(LNG);
+        Clinic created = clinicService.createClinic(create);
+        assertEquals(List.of(10L, 1L), ids(clinicService.getNearbyClinics(LAT, LNG, 5, 50)));
+
+        when(clinicRepository.findById(10L)).thenReturn(Optional.of(created));
+        UpdateClinicRequest move = new UpdateClinicRequest();
+        move.setLatitude(11.00);
+        clinicService.updateClinic(10L, move);
+        assertEquals(List.of(1L, 10L), ids(clinicService.getNearbyClinics(LAT, LNG, 5, 50)));
+
+        UpdateClinicRequest disable = new UpdateClinicRequest();
+        disable.setEmergencyEnabled(false);
+        clinicService.updateClinic(10L, disable);
+        assertEquals(List.of(1L), ids(clinicService.getNearbyClinics(LAT, LNG, 5, 50)));
+
+        UpdateClinicRequest enable = new UpdateClinicRequest();
+        enable.setEmergencyEnabled(true);
+        clinicService.updateClinic(10L, enable);
+        assertEquals(List.of(1L, 10L), ids(clinicService.getNearbyClinics(LAT, LNG, 5, 50)));
+
+        clinicService.deleteClinic(10L);
+        assertEquals(List.of(1L), ids(clinicService.getNearbyClinics(LAT, LNG, 5, 50)));
+    }
+
+    private static Clinic clinic(Long id, Double lat, Double lng) {
+        Clinic clinic = new Clinic();
+        clinic.setId(id);
+        clinic.setName("Clinic " + id);
+        clinic.setLatitude(lat);
+        clinic.setLongitude(lng);
+        clinic.setIsActive(true);
+        clinic.setEmergencyEnabled(true);
+        return clinic;
+    }
+
+    private static List<Long> ids(List<NearbyClinicResponse> nearby) {
+        return nearby.stream().map(NearbyClinicResponse::getId).toList();
+    }
+}
@@ -0,0 +1,121 @@
+package com.project.medinova.service;
+
+import com.project.medinova.entity.Appointment;
+import com.project.medinova.entity.Emergency;
+import com.project.medinova.repository.AppointmentRepository;
+import com.project.medinova.repository.DoctorLeaveRequestRepository;
+import com.project.medinova.repository.DoctorRepository;
+import com.project.medinova.repository.EmergencyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DashboardStatsEngineTest {
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    @Mock
+    private EmergencyRepository emergencyRepository;
+
+    @Mock
+    private DoctorRepository doctorRepository;
+
+    @Mock
+    private DoctorLeaveRequestRepository leaveRequestRepository;
+
+    @InjectMocks
+    private DashboardStatsEngine engine;
+
+    private final LocalDate today = LocalDate.now();
+
+    @BeforeEach
+    void setUp() {
+        when(appointmentRepository.countGroupByStatus()).thenReturn(rows(
+                new Object[]{"PENDING", 4L}, new Object[]{"CONFIRMED", 2L}));
+        when(appointmentRepository.countGroupByAppointmentDateFrom(any())).thenReturn(rows(
+                new Object[]{today, 3L}));
+        when(emergencyRepository.countGroupByStatus()).thenReturn(rows(
+                new Object[]{"PENDING", 1L}, new Object[]{"COMPLETED", 5L}));
+        when(emergencyRepository.countGroupByCreatedDateFrom(any())).thenReturn(rows(
+                new Object[]{java.sql.Date.valueOf(today), 1L}));
+        when(doctorRepository.countGroupByStatus()).thenReturn(rows(new Object[]{"APPROVED", 7L}));
+        when(leaveRequestRepository.countGroupByStatus()).thenReturn(rows(new Object[]{"PENDING", 2L}));
+        engine.rebuild();
+    }
+
+    @Test
+    void testSeedsFromGroupedCounts() {
+        assertEquals(4L, engine.getAppointmentsByStatus().get("PENDING"));
+        assertEquals(3L, engine.getAppointmentsOn(today));
+        assertEquals(1L, engine.getEmergenciesCreatedOn(today));
+        assertEquals(0L, engine.getEmergenciesCreatedOn(today.minusDays(1)));
+        assertEquals(7L, engine.getDoctorsByStatus().get("APPROVED"));
+        assertEquals(2L, engine.getLeaveRequestsByStatus().get("PENDING"));
+    }
+
+    @Test
+    void testTransitionsMoveCounts() {
+        Appointment appointment = new Appointment();
+        appointment.setStatus("PENDING");
+        appointment.setAppointmentTime(today.atTime(9, 0));
+        engine.appointmentCreated(appointment);
+        engine.appointmentStatusChanged("PENDING", "CONFIRMED");
+
+        Emergency emergency = new Emergency();
+        emergency.setStatus("PENDING");
+        emergency.setCreatedAt(LocalDateTime.now());
+        engine.emergencyCreated(emergency);
+        engine.emergencyStatusChanged("PENDING", "DISPATCHED");
+
+        engine.doctorStatusChanged(null, "PENDING");
+        engine.doctorStatusChanged("APPROVED", null);
+        engine.leaveRequestStatusChanged("PENDING", "APPROVED");
+
+        assertEquals(4L, engine.getAppointmentsByStatus().get("PENDING"));
+        assertEquals(3L, engine.getAppointmentsByStatus().get("CONFIRMED"));
+        assertEquals(4L, engine.getAppointmentsOn(today));
+        assertEquals(1L, engine.getEmergenciesByStatus().get("PENDING"));
+        assertEquals(1L, engine.getEmergenciesByStatus().get("DISPATCHED"));
+        assertEquals(2L, engine.getEmergenciesCreatedOn(today));
+        assertEquals(1L, engine.getDoctorsByStatus().get("PENDING"));
+        assertEquals(6L, engine.getDoctorsByStatus().get("APPROVED"));
+        assertEquals(1L, engine.getLeaveRequestsByStatus().get("PENDING"));
+        assertEquals(1L, engine.getLeaveRequestsByStatus().get("APPROVED"));
+
+        appointment.setStatus("CONFIRMED");
+        engine.appointmentDeleted(appointment);
+        assertEquals(2L, engine.getAppointmentsByStatus().get("CONFIRMED"));
+        assertEquals(3L, engine.getAppointmentsOn(today));
+    }
+
+    @Test
+    void testDeltasDuringRebuildAreReplayed() {
+        // Appointment đổi trạng thái trong lúc rebuild đang đọc database, sau truy vấn COUNT theo status
+        when(appointmentRepository.countGroupByAppointmentDateFrom(any())).thenAnswer(invocation -> {
+            engine.appointmentStatusChanged("PENDING", "CONFIRMED");
+            return rows(new Object[]{today, 3L});
+        });
+
+        engine.rebuild();
+
+        assertEquals(3L, engine.getAppointmentsByStatus().get("PENDING"));
+        assertEquals(3L, engine.getAppointmentsByStatus().get("CONFIRMED"));
+    }
+
+    private static List<Object[]> rows(Object[]... rows) {
+        return List.of(rows);
+    }
+}
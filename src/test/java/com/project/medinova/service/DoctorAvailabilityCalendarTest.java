@@ -0,0 +1,164 @@
+package com.project.medinova.service;
+
+import com.project.medinova.entity.Department;
+import com.project.medinova.entity.Doctor;
+import com.project.medinova.entity.DoctorLeaveRequest;
+import com.project.medinova.entity.DoctorSchedule;
+import com.project.medinova.repository.DoctorLeaveRequestRepository;
+import com.project.medinova.repository.DoctorRepository;
+import com.project.medinova.repository.DoctorScheduleRepository;
+import com.project.medinova.repository.DoctorWorkingDaysRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DoctorAvailabilityCalendarTest {
+
+    private static final LocalTime EIGHT = LocalTime.of(8, 0);
+    private static final LocalTime TEN = LocalTime.of(10, 0);
+
+    @Mock
+    private DoctorRepository doctorRepository;
+
+    @Mock
+    private DoctorWorkingDaysRepository workingDaysRepository;
+
+    @Mock
+    private DoctorLeaveRequestRepository leaveRequestRepository;
+
+    @Mock
+    private DoctorScheduleRepository scheduleRepository;
+
+    @InjectMocks
+    private DoctorAvailabilityCalendar calendar;
+
+    private final LocalDate tomorrow = LocalDate.now().plusDays(1);
+    private final LocalDate dayAfter = tomorrow.plusDays(1);
+
+    @BeforeEach
+    void setUp() {
+        when(doctorRepository.findAllAvailabilitySettings()).thenReturn(List.of(
+                new Object[]{1L, 5L, Department.CARDIOLOGY, "APPROVED", EIGHT, TEN},
+                new Object[]{2L, 5L, Department.CARDIOLOGY, "APPROVED", EIGHT, TEN},
+                new Object[]{3L, 5L, Department.PEDIATRICS, "APPROVED", EIGHT, TEN}));
+        // Doctor 1 nghỉ vào ngày kia
+        when(workingDaysRepository.findAllWorkingDays()).thenReturn(List.<Object[]>of(
+                new Object[]{1L, dayAfter.getDayOfWeek().getValue(), false}));
+        // Doctor 2 nghỉ phép cả ngày mai
+        when(leaveRequestRepository.findByStatusAndEndDateGreaterThanEqual(eq("APPROVED"), any()))
+                .thenReturn(List.of(leave(2L, tomorrow)));
+        // Doctor 1 có lịch 08:00-09:00 ngày mai
+        when(scheduleRepository.findOccupiedSlotsBetween(any(), any(), any(), any())).thenReturn(List.<Object[]>of(
+                new Object[]{1L, 100L, tomorrow, EIGHT, LocalTime.of(9, 0)}));
+        calendar.rebuild();
+    }
+
+    @Test
+    void testFreeSlotsCombineHoursWorkingDaysAndBookings() {
+        List<DoctorAvailabilityCalendar.DaySlots> days = calendar.getFreeSlots(1L, 3);
+
+        assertEquals(3, days.size());
+        assertEquals(tomorrow, days.get(1).date());
+        assertEquals(List.of(LocalTime.of(9, 0), LocalTime.of(9, 30)), days.get(1).freeSlots());
+        assertTrue(days.get(2).freeSlots().isEmpty());
+
+        assertTrue(calendar.getFreeSlots(2L, 2).get(1).freeSlots().isEmpty());
+    }
+
+    @Test
+    void testFreeDoctorsByDepartmentAndTime() {
+        assertEquals(List.of(1L, 2L), calendar.findFreeDoctors(Department.CARDIOLOGY, null, dayAfter.plusDays(1).atTime(8, 0), 60));
+        assertEquals(List.of(2L), calendar.findFreeDoctors(Department.CARDIOLOGY, null, dayAfter.atTime(8, 0), 60));
+        assertEquals(List.of(1L), calendar.findFreeDoctors(Department.CARDIOLOGY, null, tomorrow.atTime(9, 0), 60));
+        assertEquals(List.of(), calendar.findFreeDoctors(Department.CARDIOLOGY, null, tomorrow.atTime(8, 30), 60));
+        assertEquals(List.of(), calendar.findFreeDoctors(Department.CARDIOLOGY, 6L, tomorrow.atTime(9, 0), 30));
+        assertEquals(List.of(3L), calendar.findFreeDoctors(Department.PEDIATRICS, 5L, tomorrow.atTime(8, 0), 120));
+        // Vượt quá giờ làm
+        assertEquals(List.of(), calendar.findFreeDoctors(Department.PEDIATRICS, 5L, tomorrow.atTime(9, 30), 60));
+    }
+
+    @Test
+    void testIncrementalBookAndRelease() {
+        DoctorSchedule schedule = schedule(101L, 3L, tomorrow, LocalTime.of(8, 30), LocalTime.of(9, 30));
+        calendar.slotBooked(schedule);
+        assertEquals(List.of(LocalTime.of(8, 0), LocalTime.of(9, 30)), calendar.getFreeSlots(3L, 2).get(1).freeSlots());
+
+        calendar.slotReleased(schedule);
+        calendar.slotReleased(schedule(100L, 1L, tomorrow, EIGHT, LocalTime.of(9, 0)));
+        assertEquals(4, calendar.getFreeSlots(3L, 2).get(1).freeSlots().size());
+        assertEquals(List.of(1L), calendar.findFreeDoctors(Department.CARDIOLOGY, null, tomorrow.atTime(8, 0), 60));
+    }
+
+    @Test
+    void testReleaseKeepsSlotSharedWithUnalignedBooking() {
+        // Hai booking không trùng giờ nhưng cùng chạm slot 09:30
+        DoctorSchedule first = schedule(101L, 3L, tomorrow, LocalTime.of(9, 0), LocalTime.of(9, 45));
+        DoctorSchedule second = schedule(102L, 3L, tomorrow, LocalTime.of(9, 45), LocalTime.of(10, 0));
+        calendar.slotBooked(first);
+        calendar.slotBooked(second);
+        assertEquals(List.of(EIGHT, LocalTime.of(8, 30)), calendar.getFreeSlots(3L, 2).get(1).freeSlots());
+
+        calendar.slotReleased(second);
+        assertEquals(List.of(EIGHT, LocalTime.of(8, 30)), calendar.getFreeSlots(3L, 2).get(1).freeSlots());
+        assertEquals(List.of(), calendar.findFreeDoctors(Department.PEDIATRICS, null, tomorrow.atTime(9, 30), 30));
+
+        calendar.slotReleased(first);
+        assertEquals(4, calendar.getFreeSlots(3L, 2).get(1).freeSlots().size());
+        assertEquals(List.of(3L), calendar.findFreeDoctors(Department.PEDIATRICS, null, tomorrow.atTime(9, 30), 30));
+    }
+
+    @Test
+    void testChangesDuringRebuildAreNotLost() {
+        DoctorSchedule booked = schedule(101L, 3L, tomorrow, EIGHT, LocalTime.of(9, 0));
+        // Booking và huỷ được commit trong lúc rebuild đang đọc database: dữ liệu đọc được chưa có hai thay đổi này
+        when(scheduleRepository.findOccupiedSlotsBetween(any(), any(), any(), any())).thenAnswer(invocation -> {
+            calendar.slotBooked(booked);
+            calendar.slotReleased(1L, 100L);
+            return List.<Object[]>of(new Object[]{1L, 100L, tomorrow, EIGHT, LocalTime.of(9, 0)});
+        });
+
+        calendar.rebuild();
+
+        assertEquals(List.of(LocalTime.of(9, 0), LocalTime.of(9, 30)), calendar.getFreeSlots(3L, 2).get(1).freeSlots());
+        assertEquals(4, calendar.getFreeSlots(1L, 2).get(1).freeSlots().size());
+    }
+
+    private static DoctorLeaveRequest leave(Long doctorId, LocalDate day) {
+        DoctorLeaveRequest leave = new DoctorLeaveRequest();
+        leave.setDoctor(doctor(doctorId));
+        leave.setStartDate(day);
+        leave.setEndDate(day);
+        leave.setStatus("APPROVED");
+        return leave;
+    }
+
+    private static DoctorSchedule schedule(Long id, Long doctorId, LocalDate day, LocalTime start, LocalTime end) {
+        DoctorSchedule schedule = new DoctorSchedule();
+        schedule.setId(id);
+        schedule.setDoctor(doctor(doctorId));
+        schedule.setWorkDate(day);
+        schedule.setStartTime(start);
+        schedule.setEndTime(end);
+        return schedule;
+    }
+
+    private static Doctor doctor(Long id) {
+        Doctor doctor = new Doctor();
+        doctor.setId(id);
+        return doctor;
+    }
+}
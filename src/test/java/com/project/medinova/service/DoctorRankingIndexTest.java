@@ -0,0 +1,93 @@
+package com.project.medinova.service;
+
+import com.project.medinova.repository.AppointmentRepository;
+import com.project.medinova.repository.DoctorRepository;
+import com.project.medinova.repository.DoctorReviewRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DoctorRankingIndexTest {
+
+    @Mock
+    private DoctorRepository doctorRepository;
+
+    @Mock
+    private DoctorReviewRepository reviewRepository;
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    @InjectMocks
+    private DoctorRankingIndex index;
+
+    @BeforeEach
+    void setUp() {
+        when(doctorRepository.findAllIdsWithStatus()).thenReturn(List.of(
+                new Object[]{1L, "APPROVED"},
+                new Object[]{2L, "APPROVED"},
+                new Object[]{3L, "APPROVED"},
+                new Object[]{4L, "PENDING"}));
+        when(reviewRepository.sumRatingGroupByDoctor()).thenReturn(List.of(
+                new Object[]{1L, 8L, 2L},   // 4.0
+                new Object[]{2L, 9L, 2L},   // 4.5
+                new Object[]{4L, 5L, 1L})); // 5.0 nhưng chưa APPROVED
+        when(appointmentRepository.countGroupByDoctor()).thenReturn(List.<Object[]>of(
+                new Object[]{3L, 10L}));
+        index.rebuild();
+    }
+
+    @Test
+    void testTopOrdersByRatingThenReviewsThenAppointments() {
+        assertEquals(List.of(2L, 1L, 3L), topIds(10));
+        assertEquals(List.of(2L), topIds(1));
+        assertEquals(3, index.getRankedCount());
+    }
+
+    @Test
+    void testIncrementalUpdatesReorderRanking() {
+        // Doctor 1: (8 + 5 + 5) / 4 = 4.5 với nhiều review hơn doctor 2
+        index.reviewAdded(1L, 5);
+        index.reviewAdded(1L, 5);
+        assertEquals(List.of(1L, 2L, 3L), topIds(10));
+
+        index.reviewRemoved(1L, 5);
+        index.reviewRemoved(1L, 5);
+        index.doctorStatusChanged(4L, "APPROVED");
+        assertEquals(List.of(4L, 2L, 1L, 3L), topIds(10));
+
+        index.doctorRemoved(2L);
+        index.appointmentAdded(3L);
+        DoctorRankingIndex.DoctorStats last = index.getTop(10).get(2);
+        assertEquals(3L, last.doctorId());
+        assertEquals(11L, last.appointmentCount());
+        assertEquals(3, index.getRankedCount());
+    }
+
+    @Test
+    void testChangesDuringRebuildAreReplayed() {
+        // Review 5 sao cho doctor 3 commit trong lúc rebuild đang đọc database, sau truy vấn review
+        when(appointmentRepository.countGroupByDoctor()).thenAnswer(invocation -> {
+            index.reviewAdded(3L, 5);
+            return List.<Object[]>of(new Object[]{3L, 10L});
+        });
+
+        index.rebuild();
+
+        assertEquals(List.of(3L, 2L, 1L), topIds(10));
+        assertEquals(1L, index.getTop(1).get(0).reviewCount());
+    }
+
+    private List<Long> topIds(int limit) {
+        return index.getTop(limit).stream().map(DoctorRankingIndex.DoctorStats::doctorId).toList();
+    }
+}
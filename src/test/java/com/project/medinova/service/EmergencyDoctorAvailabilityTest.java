@@ -0,0 +1,223 @@
+package com.project.medinova.service;
+
+import com.project.medinova.dto.DoctorAvailabilityView;
+import com.project.medinova.entity.*;
+import com.project.medinova.repository.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * So sánh query tổng hợp findAvailabilityByClinicId với logic cũ (từng bác sĩ một)
+ */
+@SpringBootTest
+@Transactional
+class EmergencyDoctorAvailabilityTest {
+
+    @Autowired
+    private EmergencyService emergencyService;
+
+    @Autowired
+    private ClinicRepository clinicRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private DoctorScheduleRepository scheduleRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private EmergencyRepository emergencyRepository;
+
+    @Autowired
+    private EmergencyAssignmentRepository assignmentRepository;
+
+    private Clinic clinic;
+    private User patient;
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        now = LocalDateTime.now();
+
+        clinic = new Clinic();
+        clinic.setName("Availability Test Clinic");
+        clinic = clinicRepository.save(clinic);
+
+        patient = createUser("PATIENT");
+
+        // Đang có emergency active
+        Doctor onEmergency = createDoctor("APPROVED");
+        createAssignment(onEmergency, "DISPATCHED", now.minusMinutes(5));
+
+        // Đang khám
+        Doctor inAppointment = createDoctor("APPROVED");
+        createAppointment(inAppointment, now.minusMinutes(10), now.plusMinutes(20), "CONFIRMED");
+
+        // Appointment đang diễn ra nhưng đã CANCELLED, 2 emergency hôm nay
+        Doctor cancelledAppointment = createDoctor("APPROVED");
+        createAppointment(cancelledAppointment, now.minusMinutes(10), now.plusMinutes(20), "CANCELLED");
+        createAssignment(cancelledAppointment, "COMPLETED", now.minusMinutes(30));
+        createAssignment(cancelledAppointment, "COMPLETED", now.minusMinutes(20));
+
+        // Appointment đã xong, 1 emergency hôm nay
+        Doctor pastAppointment = createDoctor("APPROVED");
+        createAppointment(pastAppointment, now.minusHours(3), now.minusHours(2), "COMPLETED");
+        createAssignment(pastAppointment, "CANCELLED", now.minusMinutes(1));
+
+        // Appointment sắp tới, emergency hôm qua
+        Doctor futureAppointment = createDoctor("APPROVED");
+        createAppointment(futureAppointment, now.plusHours(2), now.plusHours(3), "CONFIRMED");
+        createAssignment(futureAppointment, "COMPLETED", now.minusDays(1));
+
+        // Không có gì
+        createDoctor("APPROVED");
+
+        // Chưa APPROVED - không được xét
+        createDoctor("PENDING");
+
+        doctorRepository.flush();
+    }
+
+    @Test
+    void testAggregatedAvailabilityMatchesPerDoctorLogic() {
+        LocalDateTime startOfDay = now.toLocalDate().atStartOfDay();
+        LocalDateTime earliestStart = now.minusMinutes(60).isBefore(startOfDay) ? now.minusMinutes(60) : startOfDay;
+
+        Map<Long, DoctorAvailabilityView> aggregated = doctorRepository
+                .findAvailabilityByClinicId(clinic.getId(), now, earliestStart, startOfDay, startOfDay.plusDays(1))
+                .stream()
+                .collect(Collectors.toMap(DoctorAvailabilityView::getDoctorId, view -> view));
+
+        List<Doctor> approved = doctorRepository.findByClinicId(clinic.getId()).stream()
+                .filter(doctor -> "APPROVED".equals(doctor.getStatus()))
+                .toList();
+
+        assertEquals(approved.size(), aggregated.size());
+        for (Doctor doctor : approved) {
+            DoctorAvailabilityView view = aggregated.get(doctor.getId());
+            assertNotNull(view, "Missing doctor " + doctor.getId());
+            assertEquals(legacyIsBusy(doctor, now), view.getBusy(), "busy mismatch for doctor " + doctor.getId());
+            assertEquals(assignmentRepository.countByDoctorIdAndDate(doctor.getId(), now.toLocalDate()),
+                    view.getTodayAssignments(), "count mismatch for doctor " + doctor.getId());
+        }
+    }
+
+    @Test
+    void testFindAvailableDoctorMatchesLegacySelection() {
+        Doctor expected = legacyFindAvailableDoctor(clinic.getId());
+        Doctor actual = emergencyService.findAvailableDoctor(clinic.getId());
+
+        assertNotNull(expected);
+        assertNotNull(actual);
+        assertEquals(expected.getId(), actual.getId());
+    }
+
+    // Logic cũ của EmergencyService.findAvailableDoctor, giữ lại để so sánh
+    private Doctor legacyFindAvailableDoctor(Long clinicId) {
+        LocalDate today = LocalDate.now();
+        Map<Long, Long> counts = new HashMap<>();
+        List<Doctor> available = doctorRepository.findByClinicId(clinicId).stream()
+                .filter(doctor -> "APPROVED".equals(doctor.getStatus()))
+                .filter(doctor -> !legacyIsBusy(doctor, LocalDateTime.now()))
+                .sorted((d1, d2) -> {
+                    Long count1 = counts.computeIfAbsent(d1.getId(), id -> assignmentRepository.countByDoctorIdAndDate(id, today));
+                    Long count2 = counts.computeIfAbsent(d2.getId(), id -> assignmentRepository.countByDoctorIdAndDate(id, today));
+                    return count1.compareTo(count2);
+                })
+                .toList();
+        return available.isEmpty() ? null : available.get(0);
+    }
+
+    private boolean legacyIsBusy(Doctor doctor, LocalDateTime at) {
+        if (!assignmentRepository.findActiveAssignmentsByDoctorId(doctor.getId()).isEmpty()) {
+            return true;
+        }
+        for (Appointment appointment : appointmentRepository.findByDoctorId(doctor.getId())) {
+            if ("CANCELLED".equals(appointment.getStatus())) {
+                continue;
+            }
+            LocalDateTime appointmentStart = appointment.getAppointmentTime();
+            LocalDateTime appointmentEnd = appointment.getSchedule() != null
+                    ? appointment.getSchedule().getEndTime().atDate(appointmentStart.toLocalDate())
+                    : appointmentStart.plusMinutes(60);
+            if (!at.isBefore(appointmentStart) && !at.isAfter(appointmentEnd)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private User createUser(String role) {
+        User user = new User();
+        user.setEmail(role.toLowerCase() + "-" + UUID.randomUUID() + "@test.local");
+        user.setPasswordHash("x");
+        user.setFullName(role + " test");
+        user.setRole(role);
+        user.setStatus("ACTIVE");
+        return userRepository.save(user);
+    }
+
+    private Doctor createDoctor(String status) {
+        Doctor doctor = new Doctor();
+        doctor.setUser(createUser("DOCTOR"));
+        doctor.setClinic(clinic);
+        doctor.setDepartment(Department.GENERAL_MEDICINE);
+        doctor.setStatus(status);
+        return doctorRepository.save(doctor);
+    }
+
+    private void createAppointment(Doctor doctor, LocalDateTime start, LocalDateTime end, String status) {
+        DoctorSchedule schedule = new DoctorSchedule();
+        schedule.setDoctor(doctor);
+        schedule.setClinic(clinic);
+        schedule.setWorkDate(start.toLocalDate());
+        schedule.setStartTime(start.toLocalTime());
+        schedule.setEndTime(end.toLocalTime());
+        schedule.setStatus("BOOKED");
+        schedule = scheduleRepository.save(schedule);
+
+        Appointment appointment = new Appointment();
+        appointment.setPatient(patient);
+        appointment.setDoctor(doctor);
+        appointment.setClinic(clinic);
+        appointment.setSchedule(schedule);
+        appointment.setAppointmentTime(start);
+        appointment.setStatus(status);
+        appointmentRepository.save(appointment);
+    }
+
+    private void createAssignment(Doctor doctor, String emergencyStatus, LocalDateTime assignedAt) {
+        Emergency emergency = new Emergency();
+        emergency.setClinic(clinic);
+        emergency.setPatientLat(10.76);
+        emergency.setPatientLng(106.66);
+        emergency.setStatus(emergencyStatus);
+        emergency.setPriority("MEDIUM");
+        emergency = emergencyRepository.save(emergency);
+
+        EmergencyAssignment assignment = new EmergencyAssignment();
+        assignment.setEmergency(emergency);
+        assignment.setDoctor(doctor);
+        assignment.setAssignedAt(assignedAt);
+        assignmentRepository.save(assignment);
+    }
+}
@@ -0,0 +1,145 @@
+package com.project.medinova.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeoGridTest {
+
+    private static final double CELL = 0.02;
+
+    private record Place(long id, double lat, double lng) {
+    }
+
+    @Test
+    void testNearestMatchesBruteForce() {
+        Random random = new Random(42);
+        GeoGrid<Long> grid = new GeoGrid<>(CELL);
+        List<Place> places = new ArrayList<>();
+        for (long id = 1; id <= 500; id++) {
+            // Khoảng 40 x 40 km, dày ở trung tâm
+            double spread = id % 3 == 0 ? 0.05 : 0.4;
+            Place place = new Place(id, 10.8 + (random.nextDouble() - 0.5) * spread,
+                    106.7 + (random.nextDouble() - 0.5) * spread);
+            places.add(place);
+            grid.put(id, place.lat(), place.lng(), id);
+        }
+
+        for (int query = 0; query < 200; query++) {
+            double lat = 10.8 + (random.nextDouble() - 0.5) * 0.6;
+            double lng = 106.7 + (random.nextDouble() - 0.5) * 0.6;
+            int k = 1 + random.nextInt(10);
+            double maxKm = query % 4 == 0 ? 3.0 : Double.MAX_VALUE;
+
+            List<GeoGrid.Hit<Long>> expected = bruteForce(places, lat, lng, k, maxKm);
+            List<GeoGrid.Hit<Long>> actual = grid.nearest(lat, lng, k, maxKm, id -> true, Comparator.naturalOrder());
+
+            assertEquals(ids(expected), ids(actual), "query " + query);
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).distanceKm(), actual.get(i).distanceKm(), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void testRingSearchStopsOnceKthIsCloserThanNextRing() {
+        GeoGrid<Long> grid = new GeoGrid<>(CELL);
+        // Một điểm ở giữa mỗi ô của khối 20 x 20 ô
+        long id = 0;
+        for (int row = 0; row < 20; row++) {
+            for (int col = 0; col < 20; col++) {
+                id++;
+                grid.put(id, (500 + row + 0.5) * CELL, (5300 + col + 0.5) * CELL, id);
+            }
+        }
+        AtomicInteger examined = new AtomicInteger();
+
+        double lat = (500 + 10 + 0.5) * CELL;
+        double lng = (5300 + 10 + 0.5) * CELL;
+        List<GeoGrid.Hit<Long>> hits = grid.nearest(lat, lng, 1, Double.MAX_VALUE, value -> {
+            examined.incrementAndGet();
+            return true;
+        }, Comparator.naturalOrder());
+
+        assertEquals(1, hits.size());
+        assertEquals(0.0, hits.get(0).distanceKm(), 1e-9);
+        // Chỉ ô của điểm truy vấn và vòng 1 (9 ô); vòng 2 chắc chắn xa hơn điểm đã tìm được
+        assertEquals(9, examined.get());
+    }
+
+    @Test
+    void testSparseCellsAreScannedDirectly() {
+        GeoGrid<Long> grid = new GeoGrid<>(CELL);
+        grid.put(1L, 10.0, 106.0, 1L);
+        grid.put(2L, 11.0, 106.0, 2L);
+        grid.put(3L, 12.0, 107.0, 3L);
+        AtomicInteger examined = new AtomicInteger();
+
+        List<GeoGrid.Hit<Long>> hits = grid.nearest(10.3, 106.2, 3, Double.MAX_VALUE, value -> {
+            examined.incrementAndGet();
+            return true;
+        }, Comparator.naturalOrder());
+
+        assertEquals(List.of(1L, 2L, 3L), ids(hits));
+        // Mỗi điểm được xét đúng một lần dù các ô cách điểm truy vấn hàng chục vòng
+        assertEquals(3, examined.get());
+    }
+
+    @Test
+    void testRadiusFilterAndTieBreak() {
+        GeoGrid<Long> grid = new GeoGrid<>(CELL);
+        grid.put(7L, 10.8, 106.7, 7L);
+        grid.put(3L, 10.8, 106.7, 3L);
+        grid.put(5L, 10.9, 106.7, 5L);
+
+        List<GeoGrid.Hit<Long>> hits = grid.nearest(10.8, 106.7, 5, 5.0, id -> true, Comparator.naturalOrder());
+        // Điểm 5 cách ~11 km, ngoài bán kính; hai điểm trùng vị trí sắp theo tieBreak
+        assertEquals(List.of(3L, 7L), ids(hits));
+
+        assertEquals(List.of(7L), ids(grid.nearest(10.8, 106.7, 5, 5.0, id -> id != 3L, Comparator.naturalOrder())));
+        assertTrue(grid.nearest(10.8, 106.7, 0, 5.0, id -> true, Comparator.naturalOrder()).isEmpty());
+    }
+
+    @Test
+    void testPutMovesAndRemoveDeletes() {
+        GeoGrid<Long> grid = new GeoGrid<>(CELL);
+        grid.put(1L, 10.8, 106.7, 1L);
+        grid.put(2L, 10.9, 106.8, 2L);
+
+        // Dời điểm 1 sang ô khác
+        grid.put(1L, 10.9, 106.8, 1L);
+        assertEquals(2, grid.size());
+        assertEquals(List.of(1L, 2L), ids(grid.nearest(10.9, 106.8, 2, 1.0, id -> true, Comparator.naturalOrder())));
+        assertTrue(grid.nearest(10.8, 106.7, 2, 1.0, id -> true, Comparator.naturalOrder()).isEmpty());
+
+        grid.remove(1L);
+        grid.remove(99L);
+        assertNull(grid.get(1L));
+        assertEquals(List.of(2L), ids(grid.nearest(10.9, 106.8, 2, 1.0, id -> true, Comparator.naturalOrder())));
+    }
+
+    private static List<GeoGrid.Hit<Long>> bruteForce(List<Place> places, double lat, double lng, int k, double maxKm) {
+        List<GeoGrid.Hit<Long>> hits = new ArrayList<>();
+        for (Place place : places) {
+            double distance = GeoGrid.distanceKm(lat, lng, place.lat(), place.lng());
+            if (distance <= maxKm) {
+                hits.add(new GeoGrid.Hit<>(place.id(), distance));
+            }
+        }
+        hits.sort(Comparator.<GeoGrid.Hit<Long>>comparingDouble(GeoGrid.Hit::distanceKm)
+                .thenComparing(GeoGrid.Hit::value));
+        return hits.subList(0, Math.min(k, hits.size()));
+    }
+
+    private static List<Long> ids(List<GeoGrid.Hit<Long>> hits) {
+        return hits.stream().map(GeoGrid.Hit::value).toList();
+    }
+}
@@ -0,0 +1,51 @@
+package com.project.medinova.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocationTrailCodecTest {
+
+    @Test
+    void testRoundTripKeepsMicroDegreePrecision() {
+        Random random = new Random(1);
+        List<LocationTrailCodec.Point> points = new ArrayList<>();
+        long time = 1_760_000_000_000L;
+        double lat = 10.762622;
+        double lng = 106.660172;
+        for (int i = 0; i < 720; i++) {
+            time += 3000 + random.nextInt(2000);
+            lat += random.nextGaussian() * 0.0003;
+            lng += random.nextGaussian() * 0.0003;
+            points.add(new LocationTrailCodec.Point(time, lat, lng));
+        }
+
+        byte[] encoded = LocationTrailCodec.encode(points);
+        List<LocationTrailCodec.Point> decoded = LocationTrailCodec.decode(encoded);
+
+        assertEquals(points.size(), decoded.size());
+        for (int i = 0; i < points.size(); i++) {
+            assertEquals(points.get(i).epochMillis(), decoded.get(i).epochMillis());
+            assertEquals(points.get(i).lat(), decoded.get(i).lat(), 1e-6);
+            assertEquals(points.get(i).lng(), decoded.get(i).lng(), 1e-6);
+        }
+        // Ba số double + timestamp = 24 byte mỗi điểm; delta encoding phải gọn hơn nhiều
+        assertTrue(encoded.length < points.size() * 8, "encoded size " + encoded.length);
+    }
+
+    @Test
+    void testEmptyAndNegativeCoordinates() {
+        assertTrue(LocationTrailCodec.decode(LocationTrailCodec.encode(List.of())).isEmpty());
+
+        List<LocationTrailCodec.Point> points = List.of(
+                new LocationTrailCodec.Point(1000, -33.868820, 151.209290),
+                new LocationTrailCodec.Point(1000, -33.868821, -0.000001));
+        List<LocationTrailCodec.Point> decoded = LocationTrailCodec.decode(LocationTrailCodec.encode(points));
+        assertEquals(-0.000001, decoded.get(1).lng(), 1e-9);
+        assertEquals(-33.868821, decoded.get(1).lat(), 1e-9);
+    }
+}
@@ -0,0 +1,61 @@
+package com.project.medinova.service;
+
+import com.project.medinova.exception.TooManyRequestsException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginRateLimiterTest {
+
+    private LoginRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        limiter = new LoginRateLimiter();
+        ReflectionTestUtils.setField(limiter, "windowSeconds", 1L);
+        ReflectionTestUtils.setField(limiter, "maxAttemptsPerEmail", 3);
+        ReflectionTestUtils.setField(limiter, "maxAttemptsPerIp", 5);
+    }
+
+    @Test
+    void testEmailIsLimitedWithinWindowAndIgnoresCase() {
+        for (int i = 0; i < 3; i++) {
+            limiter.checkLogin("patient@test.local", "10.0.0." + i);
+        }
+
+        TooManyRequestsException e = assertThrows(TooManyRequestsException.class,
+                () -> limiter.checkLogin("Patient@Test.local", "10.0.0.9"));
+        assertEquals(1, e.getRetryAfterSeconds());
+        // Email khác không bị ảnh hưởng
+        limiter.checkLogin("doctor@test.local", "10.0.0.9");
+        assertEquals(1, limiter.getLimitedAttempts());
+    }
+
+    @Test
+    void testIpIsLimitedAcrossEmails() {
+        for (int i = 0; i < 5; i++) {
+            limiter.checkLogin("user" + i + "@test.local", "10.0.0.1");
+        }
+
+        assertThrows(TooManyRequestsException.class, () -> limiter.checkLogin("other@test.local", "10.0.0.1"));
+        assertThrows(TooManyRequestsException.class, () -> limiter.checkRegister("10.0.0.1"));
+        limiter.checkRegister("10.0.0.2");
+    }
+
+    @Test
+    void testWindowSlidesAndIdleKeysArePurged() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            limiter.checkLogin("patient@test.local", null);
+        }
+        assertThrows(TooManyRequestsException.class, () -> limiter.checkLogin("patient@test.local", null));
+
+        Thread.sleep(1_100);
+
+        limiter.checkLogin("patient@test.local", null);
+        Thread.sleep(1_100);
+        limiter.purgeIdle();
+        assertEquals(0, limiter.getTrackedKeys());
+    }
+}
@@ -0,0 +1,105 @@
+package com.project.medinova.service;
+
+import com.project.medinova.exception.TooManyRequestsException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingExecutorTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private PasswordHashingExecutor hashing;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+        if (hashing != null) {
+            hashing.shutdown();
+        }
+    }
+
+    @Test
+    void testHashesRunOnPoolAndAreMeasured() {
+        hashing = executor(2, 4, 5_000, false);
+
+        String hash = hashing.encode("secret");
+
+        assertTrue(hashing.matches("secret", hash));
+        assertFalse(hashing.matches("wrong", hash));
+        // User không tồn tại: vẫn so khớp với hash giả và luôn sai
+        assertFalse(hashing.matches("secret", null));
+        assertEquals(4, hashing.getCompletedHashes());
+        assertEquals(0, hashing.getRejectedHashes());
+    }
+
+    @Test
+    void testFullQueueIsRejectedImmediately() throws Exception {
+        hashing = executor(1, 1, 5_000, true);
+        // Một phép băm đang chạy (bị chặn), một phép băm nằm trong hàng đợi
+        callers.submit(() -> hashing.encode("first"));
+        callers.submit(() -> hashing.encode("second"));
+        waitUntil(() -> hashing.getActiveHashes() == 1 && hashing.getQueueDepth() == 1);
+
+        long start = System.nanoTime();
+        TooManyRequestsException e = assertThrows(TooManyRequestsException.class, () -> hashing.encode("third"));
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1_000);
+        assertTrue(e.getRetryAfterSeconds() >= 1);
+        assertEquals(1, hashing.getRejectedHashes());
+    }
+
+    @Test
+    void testSlowHashTimesOut() {
+        hashing = executor(1, 1, 200, true);
+
+        assertThrows(TooManyRequestsException.class, () -> hashing.encode("slow"));
+        assertEquals(1, hashing.getTimedOutHashes());
+    }
+
+    private PasswordHashingExecutor executor(int threads, int queueCapacity, long timeoutMillis, boolean blocking) {
+        PasswordHashingExecutor executor = new PasswordHashingExecutor(threads, queueCapacity, timeoutMillis);
+        ReflectionTestUtils.setField(executor, "passwordEncoder", new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                if (blocking) {
+                    awaitRelease();
+                }
+                return "hashed:" + rawPassword;
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return encodedPassword.equals("hashed:" + rawPassword);
+            }
+        });
+        // Hash giả được tạo trước khi chặn các phép băm
+        ReflectionTestUtils.setField(executor, "dummyHash", "hashed:dummy");
+        return executor;
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not reached");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.project.medinova.service;
+
+import com.project.medinova.dto.EmergencyQueueStatsResponse;
+import com.project.medinova.entity.Clinic;
+import com.project.medinova.entity.Emergency;
+import com.project.medinova.repository.EmergencyRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PendingEmergencyQueueTest {
+
+    @Mock
+    private EmergencyRepository emergencyRepository;
+
+    @Mock
+    private EmergencyDispatcher emergencyDispatcher;
+
+    @Mock
+    private AmbulanceSpatialIndex ambulanceIndex;
+
+    @InjectMocks
+    private PendingEmergencyQueue queue;
+
+    @Test
+    void testDrainTakesHighestPriorityThenOldestFirst() {
+        LocalDateTime now = LocalDateTime.now();
+        queue.enqueueAfterCommit(emergency(1L, 10L, "MEDIUM", now.minusMinutes(30)));
+        queue.enqueueAfterCommit(emergency(2L, 10L, "CRITICAL", now.minusMinutes(1)));
+        queue.enqueueAfterCommit(emergency(3L, 10L, "HIGH", now.minusMinutes(5)));
+        queue.enqueueAfterCommit(emergency(4L, 10L, "CRITICAL", now.minusMinutes(2)));
+        queue.enqueueAfterCommit(emergency(5L, 20L, "CRITICAL", now.minusMinutes(60)));
+
+        queue.drain(10L, 3);
+
+        InOrder inOrder = inOrder(emergencyDispatcher);
+        inOrder.verify(emergencyDispatcher).submit(4L, false);
+        inOrder.verify(emergencyDispatcher).submit(2L, false);
+        inOrder.verify(emergencyDispatcher).submit(3L, false);
+        verify(emergencyDispatcher, times(3)).submit(anyLong(), anyBoolean());
+
+        EmergencyQueueStatsResponse stats = queue.getStats();
+        assertEquals(2, stats.getTotalQueued());
+        assertEquals(2, stats.getClinics().size());
+    }
+
+    @Test
+    void testDispatchedEmergencyLeavesQueueAndRecordsWait() {
+        LocalDateTime createdAt = LocalDateTime.now().minusSeconds(90);
+        Emergency emergency = emergency(1L, 10L, "HIGH", createdAt);
+        queue.enqueueAfterCommit(emergency);
+
+        emergency.setStatus("DISPATCHED");
+        emergency.setDispatchedAt(createdAt.plusSeconds(30));
+        queue.dispatchedAfterCommit(emergency);
+        queue.drain(10L, 1);
+
+        verify(emergencyDispatcher, never()).submit(anyLong(), anyBoolean());
+        EmergencyQueueStatsResponse stats = queue.getStats();
+        assertEquals(0, stats.getTotalQueued());
+        assertEquals(1L, stats.getDispatchedCount());
+        assertEquals(30.0, stats.getAverageWaitSeconds(), 0.001);
+    }
+
+    @Test
+    void testRebuildKeepsEmergenciesEnqueuedWhileReadingDatabase() {
+        LocalDateTime now = LocalDateTime.now();
+        // 1: đã nằm trong hàng đợi nhưng không còn PENDING trong database
+        queue.enqueueAfterCommit(emergency(1L, 10L, "LOW", now.minusMinutes(10)));
+        // 3: đang được dispatcher xử lý, bị bỏ qua khi đọc snapshot
+        when(emergencyDispatcher.getState(anyLong()))
+                .thenAnswer(invocation -> invocation.getArgument(0).equals(3L) ? EmergencyDispatcher.STATE_MATCHING : null);
+        when(emergencyRepository.findByStatus("PENDING")).thenAnswer(invocation -> {
+            // Trong lúc đọc database: dispatcher trả 3 về hàng đợi (không có xe), 4 vừa được tạo
+            queue.enqueueAfterCommit(emergency(3L, 10L, "CRITICAL", now.minusMinutes(3)));
+            queue.enqueueAfterCommit(emergency(4L, 10L, "HIGH", now.minusMinutes(1)));
+            return List.of(emergency(2L, 10L, "MEDIUM", now.minusMinutes(5)),
+                    emergency(3L, 10L, "CRITICAL", now.minusMinutes(3)));
+        });
+
+        queue.rebuild();
+
+        assertEquals(3, queue.getStats().getTotalQueued());
+        queue.drain(10L, 3);
+        InOrder inOrder = inOrder(emergencyDispatcher);
+        inOrder.verify(emergencyDispatcher).submit(3L, false);
+        inOrder.verify(emergencyDispatcher).submit(4L, false);
+        inOrder.verify(emergencyDispatcher).submit(2L, false);
+        verify(emergencyDispatcher, never()).submit(1L, false);
+    }
+
+    @Test
+    void testRebuildDoesNotRestoreEmergencyDispatchedWhileReadingDatabase() {
+        LocalDateTime now = LocalDateTime.now();
+        Emergency emergency = emergency(1L, 10L, "HIGH", now.minusMinutes(2));
+        queue.enqueueAfterCommit(emergency);
+        when(emergencyRepository.findByStatus("PENDING")).thenAnswer(invocation -> {
+            // Snapshot vẫn thấy PENDING, nhưng emergency được điều xe ngay sau đó
+            emergency.setDispatchedAt(now);
+            queue.dispatchedAfterCommit(emergency);
+            return List.of(emergency(1L, 10L, "HIGH", now.minusMinutes(2)));
+        });
+
+        queue.rebuild();
+
+        assertEquals(0, queue.getStats().getTotalQueued());
+    }
+
+    private static Emergency emergency(Long id, Long clinicId, String priority, LocalDateTime createdAt) {
+        Clinic clinic = new Clinic();
+        clinic.setId(clinicId);
+        Emergency emergency = new Emergency();
+        emergency.setId(id);
+        emergency.setClinic(clinic);
+        emergency.setPriority(priority);
+        emergency.setStatus("PENDING");
+        emergency.setCreatedAt(createdAt);
+        return emergency;
+    }
+}
@@ -0,0 +1,111 @@
+package com.project.medinova.service;
+
+import com.project.medinova.config.JwtTokenProvider;
+import com.project.medinova.entity.RefreshToken;
+import com.project.medinova.entity.User;
+import com.project.medinova.exception.UnauthorizedException;
+import com.project.medinova.repository.RefreshTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenServiceTest {
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Mock
+    private TokenRevocationService tokenRevocation;
+
+    @Mock
+    private JwtTokenProvider tokenProvider;
+
+    @InjectMocks
+    private RefreshTokenService refreshTokenService;
+
+    // Giả lập bảng refresh_tokens theo token_hash
+    private final Map<String, RefreshToken> stored = new HashMap<>();
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(refreshTokenService, "refreshExpirationInMs", 60_000L);
+        user = new User();
+        user.setId(1L);
+        user.setEmail("patient@test.local");
+        user.setRole("PATIENT");
+        user.setStatus("ACTIVE");
+        when(refreshTokenRepository.save(any(RefreshToken.class))).thenAnswer(invocation -> {
+            RefreshToken token = invocation.getArgument(0);
+            stored.put(token.getTokenHash(), token);
+            return token;
+        });
+    }
+
+    @Test
+    void testRotationIssuesNewTokenInSameFamily() {
+        RefreshTokenService.IssuedRefreshToken first = refreshTokenService.issue(user);
+        mockLookup();
+
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(first.token());
+
+        assertSame(user, rotation.user());
+        assertEquals(first.familyId(), rotation.next().familyId());
+        assertNotEquals(first.token(), rotation.next().token());
+        // Chỉ lưu hash, không lưu token gốc
+        assertFalse(stored.containsKey(first.token()));
+        verify(refreshTokenRepository, never()).revokeFamily(anyString(), any());
+    }
+
+    @Test
+    void testReusedTokenRevokesWholeFamily() {
+        when(tokenProvider.getExpirationInMs()).thenReturn(900_000L);
+        RefreshTokenService.IssuedRefreshToken first = refreshTokenService.issue(user);
+        mockLookup();
+        refreshTokenService.rotate(first.token());
+
+        assertThrows(UnauthorizedException.class, () -> refreshTokenService.rotate(first.token()));
+
+        verify(refreshTokenRepository).revokeFamily(eq(first.familyId()), any());
+        ArgumentCaptor<LocalDateTime> until = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(tokenRevocation).revokeFamily(eq(first.familyId()), until.capture());
+        // Access token của họ được chặn đến khi access token cuối cùng hết hạn
+        assertTrue(until.getValue().isAfter(LocalDateTime.now().plusMinutes(14)));
+    }
+
+    @Test
+    void testExpiredOrUnknownTokenIsRejected() {
+        RefreshTokenService.IssuedRefreshToken issued = refreshTokenService.issue(user);
+        mockLookup();
+        stored.values().forEach(token -> token.setExpiresAt(LocalDateTime.now().minusSeconds(1)));
+
+        assertThrows(UnauthorizedException.class, () -> refreshTokenService.rotate(issued.token()));
+        assertThrows(UnauthorizedException.class, () -> refreshTokenService.rotate("unknown"));
+        verify(refreshTokenRepository, never()).revokeFamily(anyString(), any());
+    }
+
+    private void mockLookup() {
+        when(refreshTokenRepository.findByTokenHashForUpdate(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(stored.get(invocation.<String>getArgument(0))));
+    }
+}
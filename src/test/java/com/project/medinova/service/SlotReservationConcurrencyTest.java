@@ -0,0 +1,201 @@
+package com.project.medinova.service;
+
+import com.project.medinova.dto.AppointmentResponse;
+import com.project.medinova.dto.CreateAppointmentRequest;
+import com.project.medinova.entity.Appointment;
+import com.project.medinova.entity.Clinic;
+import com.project.medinova.entity.Department;
+import com.project.medinova.entity.Doctor;
+import com.project.medinova.entity.DoctorSchedule;
+import com.project.medinova.entity.User;
+import com.project.medinova.exception.BadRequestException;
+import com.project.medinova.repository.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Nhiều thread cùng đặt lịch cho một doctor: không bao giờ có hai HOLD trùng giờ.
+ * Các cặp bệnh nhân tranh nhau từng slot của cùng một doctor; thời gian xử lý được ghi log (debug).
+ */
+@SpringBootTest
+class SlotReservationConcurrencyTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlotReservationConcurrencyTest.class);
+
+    private static final int PATIENTS = 200;
+    private static final int THREADS = 32;
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private ClinicRepository clinicRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private DoctorScheduleRepository scheduleRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Clinic clinic;
+    private Doctor doctor;
+    private final List<User> patients = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        clinic = new Clinic();
+        clinic.setName("Slot Concurrency Test Clinic");
+        clinic = clinicRepository.save(clinic);
+
+        User doctorUser = new User();
+        doctorUser.setEmail("doctor-" + UUID.randomUUID() + "@test.local");
+        doctorUser.setPasswordHash("x");
+        doctorUser.setFullName("Slot Test Doctor");
+        doctorUser.setRole("DOCTOR");
+        doctorUser.setStatus("ACTIVE");
+        doctorUser = userRepository.save(doctorUser);
+
+        doctor = new Doctor();
+        doctor.setUser(doctorUser);
+        doctor.setClinic(clinic);
+        doctor.setDepartment(Department.values()[0]);
+        doctor.setStatus("APPROVED");
+        doctor = doctorRepository.save(doctor);
+
+        for (int i = 0; i < PATIENTS; i++) {
+            User patient = new User();
+            patient.setEmail("patient-" + UUID.randomUUID() + "@test.local");
+            patient.setPasswordHash("x");
+            patient.setRole("PATIENT");
+            patient.setStatus("ACTIVE");
+            patients.add(userRepository.save(patient));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        List<Appointment> appointments = appointmentRepository.findByDoctorId(doctor.getId());
+        appointmentRepository.deleteAll(appointments);
+        scheduleRepository.deleteAll(scheduleRepository.findByDoctorId(doctor.getId()));
+        User doctorUser = doctor.getUser();
+        doctorRepository.delete(doctor);
+        userRepository.delete(doctorUser);
+        userRepository.deleteAll(patients);
+        patients.clear();
+        clinicRepository.delete(clinic);
+    }
+
+    @Test
+    void testSameSlotIsHeldExactlyOnce() throws Exception {
+        LocalDateTime slot = LocalDate.now().plusDays(1).atTime(10, 0);
+        List<Future<AppointmentResponse>> futures = submitAll(index -> slot);
+
+        int succeeded = 0;
+        for (Future<AppointmentResponse> future : futures) {
+            if (succeededOrOverlap(future)) {
+                succeeded++;
+            }
+        }
+
+        assertEquals(1, succeeded, "exactly one patient should hold the slot");
+        assertEquals(1, scheduleRepository.findByDoctorId(doctor.getId()).size());
+    }
+
+    @Test
+    void testContendedSlotsAreEachHeldOnce() throws Exception {
+        // Mỗi slot 30 phút bị hai bệnh nhân tranh nhau; 40 slot mỗi ngày
+        int slots = PATIENTS / 2;
+        LocalDate firstDay = LocalDate.now().plusDays(2);
+
+        long start = System.nanoTime();
+        List<Future<AppointmentResponse>> futures = submitAll(index -> {
+            int slotIndex = index / 2;
+            return firstDay.plusDays(slotIndex / 40).atTime(LocalTime.MIDNIGHT.plusMinutes(30L * (slotIndex % 40)));
+        });
+        int succeeded = 0;
+        for (Future<AppointmentResponse> future : futures) {
+            if (succeededOrOverlap(future)) {
+                succeeded++;
+            }
+        }
+        double elapsedMillis = (System.nanoTime() - start) / 1_000_000.0;
+        logger.debug("Slot reservation: {} bookings for one doctor on {} threads in {} ms ({} bookings/s)",
+                PATIENTS, THREADS, Math.round(elapsedMillis), Math.round(PATIENTS * 1000 / elapsedMillis));
+
+        assertEquals(slots, succeeded, "each slot should be held by exactly one patient");
+        List<DoctorSchedule> schedules = new ArrayList<>(scheduleRepository.findByDoctorId(doctor.getId()));
+        schedules.sort(Comparator.comparing(DoctorSchedule::getWorkDate).thenComparing(DoctorSchedule::getStartTime));
+        for (int i = 1; i < schedules.size(); i++) {
+            DoctorSchedule previous = schedules.get(i - 1);
+            DoctorSchedule current = schedules.get(i);
+            assertFalse(previous.getWorkDate().equals(current.getWorkDate())
+                            && current.getStartTime().isBefore(previous.getEndTime()),
+                    "overlapping holds at " + current.getWorkDate() + " " + current.getStartTime());
+        }
+    }
+
+    private List<Future<AppointmentResponse>> submitAll(java.util.function.IntFunction<LocalDateTime> slotFor) {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<AppointmentResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < PATIENTS; i++) {
+            User patient = patients.get(i);
+            CreateAppointmentRequest request = new CreateAppointmentRequest();
+            request.setDoctorId(doctor.getId());
+            request.setClinicId(clinic.getId());
+            request.setAppointmentTime(slotFor.apply(i));
+            request.setDurationMinutes(30);
+            futures.add(executor.submit(() -> {
+                start.await();
+                return createAs(patient, request);
+            }));
+        }
+        start.countDown();
+        executor.shutdown();
+        return futures;
+    }
+
+    private static boolean succeededOrOverlap(Future<AppointmentResponse> future) throws Exception {
+        try {
+            assertEquals("PENDING", future.get(60, TimeUnit.SECONDS).getStatus());
+            return true;
+        } catch (ExecutionException e) {
+            assertInstanceOf(BadRequestException.class, e.getCause());
+            assertTrue(e.getCause().getMessage().contains("overlaps"), e.getCause().getMessage());
+            return false;
+        }
+    }
+
+    private AppointmentResponse createAs(User user, CreateAppointmentRequest request) {
+        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                user.getEmail(), null, List.of());
+        authentication.setDetails(Map.of("userId", user.getId(), "role", user.getRole()));
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+        try {
+            return appointmentService.createAppointment(request);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
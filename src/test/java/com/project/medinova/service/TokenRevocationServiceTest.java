@@ -0,0 +1,93 @@
+package com.project.medinova.service;
+
+import com.project.medinova.config.JwtClaims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+class TokenRevocationServiceTest {
+
+    private TokenRevocationStore store;
+    private TokenRevocationService revocation;
+
+    @BeforeEach
+    void setUp() {
+        store = spy(new InMemoryTokenRevocationStore());
+        revocation = new TokenRevocationService();
+        ReflectionTestUtils.setField(revocation, "store", store);
+        ReflectionTestUtils.setField(revocation, "expectedTokens", 1000);
+        revocation.rebuild();
+    }
+
+    @Test
+    void testRevokedTokenIsRejectedAndOthersSkipTheStore() {
+        JwtClaims revoked = claims(60_000);
+        JwtClaims active = claims(60_000);
+
+        revocation.revoke(revoked);
+
+        assertTrue(revocation.isRevoked(revoked));
+        assertFalse(revocation.isRevoked(active));
+        // Token không bị thu hồi được Bloom filter trả lời, không hỏi store
+        verify(store, never()).isRevoked(eq(active.tokenId()), any());
+    }
+
+    @Test
+    void testTokensRevokedElsewhereArePickedUpBySync() {
+        JwtClaims claims = claims(60_000);
+        // Thu hồi trực tiếp trong store, như ở một node khác
+        store.revoke(claims.tokenId(), LocalDateTime.now().plusMinutes(1));
+
+        revocation.sync();
+
+        assertTrue(revocation.isRevoked(claims));
+    }
+
+    @Test
+    void testExpiredRevocationsArePurged() {
+        JwtClaims expired = claims(-1_000);
+        JwtClaims active = claims(60_000);
+        revocation.revoke(expired);
+        revocation.revoke(active);
+
+        revocation.rebuild();
+
+        assertEquals(1, store.findRevokedSince(null, LocalDateTime.now()).size());
+        assertFalse(revocation.isRevoked(expired));
+        assertTrue(revocation.isRevoked(active));
+    }
+
+    @Test
+    void testBloomFilterHasNoFalseNegativesAndFewFalsePositives() {
+        BloomFilter bloom = new BloomFilter(10_000, 0.001);
+        for (int i = 0; i < 10_000; i++) {
+            bloom.put("revoked-" + i);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(bloom.mightContain("revoked-" + i));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (bloom.mightContain(UUID.randomUUID().toString())) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 500, "false positives: " + falsePositives);
+    }
+
+    private static JwtClaims claims(long expiresInMillis) {
+        return new JwtClaims(UUID.randomUUID().toString(), null, "patient@test.local", 1L, "PATIENT",
+                new Date(System.currentTimeMillis() + expiresInMillis));
+    }
+}
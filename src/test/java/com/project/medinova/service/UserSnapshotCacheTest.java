@@ -0,0 +1,77 @@
+package com.project.medinova.service;
+
+import com.project.medinova.entity.User;
+import com.project.medinova.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserSnapshotCacheTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private UserSnapshotCache cache;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cache, "ttlMillis", 60_000L);
+        user = new User();
+        user.setId(1L);
+        user.setEmail("patient@test.local");
+        user.setRole("PATIENT");
+        user.setStatus("ACTIVE");
+    }
+
+    @Test
+    void testSnapshotIsLoadedOnceAndReturnedAsCopies() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+
+        User first = cache.get(1L);
+        first.setRole("ADMIN");
+        User second = cache.get(1L);
+
+        verify(userRepository, times(1)).findById(1L);
+        assertNotSame(user, first);
+        assertNotSame(first, second);
+        // Sửa bản sao không làm hỏng cache
+        assertEquals("PATIENT", second.getRole());
+    }
+
+    @Test
+    void testInvalidateReloadsChangedUser() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        assertEquals("PATIENT", cache.get(1L).getRole());
+
+        user.setRole("DOCTOR");
+        assertEquals("PATIENT", cache.get(1L).getRole());
+
+        cache.invalidate(1L);
+        assertEquals("DOCTOR", cache.get(1L).getRole());
+        verify(userRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void testMissingUserIsNotCached() {
+        when(userRepository.findById(2L)).thenReturn(Optional.empty());
+
+        assertNull(cache.get(2L));
+        assertNull(cache.get(2L));
+        verify(userRepository, times(2)).findById(2L);
+    }
+}
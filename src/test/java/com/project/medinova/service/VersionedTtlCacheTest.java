@@ -0,0 +1,51 @@
+package com.project.medinova.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VersionedTtlCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void testValueLoadedAcrossInvalidateIsNotReused() {
+        VersionedTtlCache<Long, Integer> cache = new VersionedTtlCache<>(() -> 60_000L, 10, 1);
+
+        // Invalidate xảy ra trong lúc đang tính giá trị: giá trị đó đã cũ
+        assertEquals(1, cache.get(1L, () -> {
+            cache.invalidate(1L);
+            return loads.incrementAndGet();
+        }));
+        assertEquals(2, cache.get(1L, loads::incrementAndGet));
+        assertEquals(2, cache.get(1L, loads::incrementAndGet));
+    }
+
+    @Test
+    void testLimitsClearInsteadOfGrowing() {
+        VersionedTtlCache<Long, Integer> cache = new VersionedTtlCache<>(() -> 60_000L, 2, 2);
+        cache.get(1L, "a", loads::incrementAndGet);
+        cache.get(1L, "b", loads::incrementAndGet);
+        // Id 1 đã có đủ 2 giá trị: thêm "c" xoá "a" và "b"
+        cache.get(1L, "c", loads::incrementAndGet);
+        assertEquals(4, cache.get(1L, "a", loads::incrementAndGet));
+
+        cache.get(2L, loads::incrementAndGet);
+        // Đã có đủ 2 id: thêm id 3 xoá cả id 1 và 2
+        cache.get(3L, loads::incrementAndGet);
+        assertEquals(7, cache.get(1L, "c", loads::incrementAndGet));
+        assertEquals(7, cache.get(1L, "c", loads::incrementAndGet));
+    }
+
+    @Test
+    void testNullIsNotCached() {
+        VersionedTtlCache<Long, Integer> cache = new VersionedTtlCache<>(() -> 60_000L, 10, 1);
+        cache.get(1L, () -> {
+            loads.incrementAndGet();
+            return null;
+        });
+        assertEquals(2, cache.get(1L, loads::incrementAndGet));
+    }
+}